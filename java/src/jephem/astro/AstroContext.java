@@ -11,9 +11,7 @@ import jephem.astro.AstroException;
 import jephem.astro.Nutation;
 import jephem.astro.solarsystem.SolarSystemConstants;
 import jephem.astro.solarsystem.ComputationException;
-import jephem.astro.solarsystem.vsop87.VSOP87;
-import jephem.astro.solarsystem.Pluto99;
-import jephem.astro.solarsystem.ELP82;
+import jephem.astro.solarsystem.TheoryProviders;
 import jephem.astro.spacetime.SpaceConstants;
 import jephem.astro.spacetime.Time;
 import jephem.astro.spacetime.TimeConstants;
@@ -46,6 +44,13 @@ created ; this AstroContext is then in charge of the coherence of calculations.
                        Adapted calcCoord to new API.
 @history jan 22 2002 : Implementation of precession and nutation
                        FRAME_EC_HELIO_GEOMETRIC returns FK5 coords
+@history oct 19 2026 : Iterative light-time computation, with warm start from a previous date.
+@history oct 19 2026 : Astro engine carried by an AstroRequest instead of a static variable.
+@history oct 19 2026 : Theories chosen through TheoryProviders.
+@history oct 19 2026 : Moon handled by the same pipeline as the planets ; FK5, precession, nutation
+                       (and ecliptic of date) composed in one matrix.
+@history oct 19 2026 : Coordinates finalized in place, with precomputed conversion factors.
+@history oct 19 2026 : Context reusable for several dates (reset()) ; getBodySlot().
 
 @todo Should coherence of internal data be insured (when get / set are done) ?
 @todo Each time a transformation is done, call body.setCoordinateExpression()
@@ -56,10 +61,42 @@ created ; this AstroContext is then in charge of the coherence of calculations.
 public class AstroContext implements SolarSystemConstants, SpaceConstants, TimeConstants, UnitsConstants{
 
   //=================================================================================
-  //                                 CLASS VARIABLES
+  //                                 PRIVATE CONSTANTS
   //=================================================================================
-  /** Implementation used to perform the astro computations. */
-  private static String _astroEngine;
+  /** Time taken by light to travel one astronomical unit, in days
+  (<CODE>LIGHT_VELOCITY</CODE> is expressed in m/s). */
+  private static final double LIGHT_TIME_PER_AU = KM_PER_AU * 1000.0 / LIGHT_VELOCITY / SECONDS_PER_DAY;
+
+  /** Upper bound of the relative velocity between the Earth and a planet, in au/d
+  (Mercury at perihelion + Earth) ; used to convert 'precision' into a light-time tolerance. */
+  private static final double MAX_RELATIVE_VELOCITY = 0.05;
+
+  /** Upper bound of the geocentric velocity of the Moon, in au/d. */
+  private static final double MAX_MOON_VELOCITY = 0.0007;
+
+  /** Light-time corresponding to the mean distance of the Moon (385000 km), in days ;
+  first guess for the Moon light-time. */
+  private static final double MOON_MEAN_LIGHT_TIME = 385000.0 * 1000.0 / LIGHT_VELOCITY / SECONDS_PER_DAY;
+
+  /** Smallest tolerance on light-time, in days ; used when 'precision' is 0. */
+  private static final double MIN_LIGHT_TIME_TOLERANCE = 1e-10;
+
+  /** Maximal number of iterations of the light-time computation. */
+  private static final int MAX_LIGHT_TIME_ITERATIONS = 6;
+
+  /** Maximal interval between two dates, in days, for which the light-time of the first date
+  is used as a first guess for the second. */
+  private static final double WARM_START_INTERVAL = 1.0;
+
+  /** Units of the coordinates produced by the JEphem pipeline, before finalization. */
+  private static final int[] PIPELINE_CART_UNITS = {
+    DISTANCE_UNIT_AU, DISTANCE_UNIT_AU, DISTANCE_UNIT_AU,
+    LINEAR_SPEED_UNIT_AU_PER_D, LINEAR_SPEED_UNIT_AU_PER_D, LINEAR_SPEED_UNIT_AU_PER_D};
+
+  /** Units of the pipeline coordinates after {@link Body#cartToSphere(double[], boolean)}. */
+  private static final int[] PIPELINE_SPHERE_UNITS = {
+    DISTANCE_UNIT_AU, ANGULAR_UNIT_RAD, ANGULAR_UNIT_RAD,
+    LINEAR_SPEED_UNIT_AU_PER_D, ANGULAR_SPEED_UNIT_RAD_PER_DAY, ANGULAR_SPEED_UNIT_RAD_PER_DAY};
 
   //=================================================================================
   //                                 INSTANCE VARIABLES
@@ -75,12 +112,34 @@ public class AstroContext implements SolarSystemConstants, SpaceConstants, TimeC
   means that the moon must be handled. */
   private int _moonIndex;
 
+  /** Light-times of the bodies, in days, as found by the last apparent computation ;
+  <CODE>Double.NaN</CODE> when not known. Same order as <CODE>_bodies</CODE>. */
+  private double[] _lightTimes;
+
+  /** Julian day (TT) for which <CODE>_lightTimes</CODE> were computed. */
+  private double _lightTimesJd;
+
+  /** Parameters of the computation ; null if this context was built without request. */
+  private AstroRequest _request;
+
+  /** Implementation used to perform the astro computations. */
+  private String _astroEngine;
+
+  /** Factors converting the pipeline units to the units of the last finalization. */
+  private double[] _finalFactors = new double[6];
+
+  /** Position and velocity units of the last finalization ; shared by the bodies, never modified. */
+  private int[] _finalPosUnits, _finalVelUnits;
+
+  /** Expression (spherical / cartesian) of the last finalization. */
+  private int _finalSphereCart;
+
   //=================================================================================
   //                                 CONSTRUCTORS
   //=================================================================================
 
-  //***************** AstroContext(jd, bodyIndexes) *******************************
-  /** The only constructor.
+  //***************** AstroContext(jd, timeFrame, bodyIndexes) *******************************
+  /** Constructor of a context using JEphem as astro engine.
   <BR>Example of use, in a class implementing {@link SolarSystemConstants} (for constant names) :
   <BR>&nbsp;&nbsp;<CODE>int[] bodyIndexes = {MERCURY, VENUS};</CODE>
   <BR>&nbsp;&nbsp;<CODE>AstroContext ac = new AstroContext(jd, bodyIndexes);</CODE>
@@ -92,13 +151,13 @@ public class AstroContext implements SolarSystemConstants, SpaceConstants, TimeC
   use constants from {@link SolarSystemConstants}.
   */
   public AstroContext(double jd, int timeFrame, int[] bodyIndexes){
-    // convert jd to TDB.
-    if(timeFrame == TimeConstants.UTC)
-      _jd = Time.getTT(jd);
-    else
-    _jd = jd;
+    _astroEngine = AstroEngine.JEPHEM;
+    setJd(jd, timeFrame);
 
     _bodies = new Body[bodyIndexes.length]; // allocate space
+    _lightTimes = new double[bodyIndexes.length];
+    java.util.Arrays.fill(_lightTimes, Double.NaN);
+    _lightTimesJd = Double.NaN;
 
     _moonIndex = GeneralConstants.NO_SPECIF;
     for (int i=0; i < bodyIndexes.length; i++){
@@ -107,6 +166,18 @@ public class AstroContext implements SolarSystemConstants, SpaceConstants, TimeC
     }
   }// end AstroContext(jd, bodiesToCalc)
 
+  //***************** AstroContext(jd, timeFrame, bodyIndexes, request) *******************************
+  /** Constructor of a context whose computations are described by 'request'.
+  <BR>The coordinates are then computed by {@link #calcBodyCoords()}, with the engine of the request.
+  @param request The parameters of the computation ; can be shared between several contexts.
+  @see #AstroContext(double, int, int[])
+  */
+  public AstroContext(double jd, int timeFrame, int[] bodyIndexes, AstroRequest request){
+    this(jd, timeFrame, bodyIndexes);
+    _request = request;
+    _astroEngine = request.getAstroEngine();
+  }// end AstroContext(jd, timeFrame, bodyIndexes, request)
+
   //=================================================================================
   //                                 PUBLIC METHODS
   //=================================================================================
@@ -118,10 +189,45 @@ public class AstroContext implements SolarSystemConstants, SpaceConstants, TimeC
   /** Returns the bodies handled by this <CODE>AstroContext</CODE>. */
   public Body[] getBodies(){ return _bodies; }
 
-  /** Returns the bodies handled by this <CODE>AstroContext</CODE>.
-  //// ADDITION 2002.10.22 - To remove as AstroEngine will be statically retrieved
+  /** Returns the astro engine used by this <CODE>AstroContext</CODE>, one of {@link AstroEngine} constants. */
+  public String getAstroEngine(){ return _astroEngine; }
+
+  /** Returns the request given at construction, or null. */
+  public AstroRequest getRequest(){ return _request; }
+
+  //***************** reset(jd, timeFrame) *********************************************
+  /** Prepares this context for the computation of the same bodies at an other date, without new allocation.
+  <BR>The bodies are reset (see {@link Body#reset()}) ; the light-times of the last computation are kept
+  as first guesses, like with {@link #setLightTimes(AstroContext)}.
+  <BR>So an ephemeris can be computed with one context : <CODE>reset(jd, timeFrame) ; calcBodyCoords()</CODE>
+  for each date.
+  @param jd The new date.
+  @param timeFrame The time frame used to express 'jd' ; use {@link jephem.astro.spacetime.TimeConstants} constants.
+  */
+  public void reset(double jd, int timeFrame){
+    setJd(jd, timeFrame);
+    for (int i = 0; i < _bodies.length; i++) _bodies[i].reset();
+  }// end reset
+
+  //***************** get / setLightTimes() *********************************************
+  /** Returns the light-times of the bodies handled by this <CODE>AstroContext</CODE>, in days,
+  as computed by the last call to <CODE>calcBodyCoords()</CODE> for an apparent frame.
+  <BR>Elements are in the same order as {@link #getBodies()} ; they are <CODE>Double.NaN</CODE>
+  if the light-time of the corresponding body was not computed.
+  */
+  public double[] getLightTimes(){ return _lightTimes; }
+
+  /** Uses the light-times computed by an other <CODE>AstroContext</CODE>, handling the same bodies, as
+  first guesses for the light-time iteration.
+  <BR>Useful when consecutive dates are computed : if the dates are close enough, the light-time
+  of the previous date is accurate enough to avoid one evaluation of the theories for each body.
+  @param previous An <CODE>AstroContext</CODE> built with the same body indexes as this one.
   */
-  public void setAstroEngine(String astroEngine){ _astroEngine = astroEngine; }
+  public void setLightTimes(AstroContext previous){
+    if(previous._lightTimes.length != _lightTimes.length) return;
+    System.arraycopy(previous._lightTimes, 0, _lightTimes, 0, _lightTimes.length);
+    _lightTimesJd = previous._lightTimesJd;
+  }// end setLightTimes
 
   //***************** getBody(whichBody) *********************************************
   /** Returns the Body handled by this <CODE>AstroContext</CODE> whose index is 'whichBody'.
@@ -137,6 +243,31 @@ public class AstroContext implements SolarSystemConstants, SpaceConstants, TimeC
     return null;
   } // end getBody(whichBody)
 
+  //***************** getBodySlot(whichBody) *********************************************
+  /** Returns the position, in {@link #getBodies()}, of the body whose index is 'whichBody', or -1 if this
+  context doesn't handle it.
+  <BR>The positions don't change during the life of the context, so they can be computed once,
+  to avoid calling {@link #getBody(int)} for each date.
+  */
+  public int getBodySlot(int whichBody){
+    for (int i = 0; i < _bodies.length; i++){
+      if (_bodies[i].getIndex() == whichBody) return i;
+    }
+    return -1;
+  } // end getBodySlot(whichBody)
+
+  //******** calcBodyCoords() ********
+  /** Computes the coordinates of the bodies as described by the {@link AstroRequest} given at construction.
+  @throws IllegalStateException if this context was built without request.
+  @throws AstroException if an unrecoverable error occured during computation.
+  */
+  public void calcBodyCoords() throws AstroException{
+    if(_request == null)
+      throw new IllegalStateException("This AstroContext was built without AstroRequest");
+    calcBodyCoords(_request.getFrame(), _request.getSphereCart(), _request.getPrecision(),
+                   _request.getVelocities(), _request.getUnitsInternal());
+  }// end calcBodyCoords
+
   //******** calcBodyCoords(frame) ********
   /** Call to {@link #calcBodyCoords(int, int, double, boolean, int[])} with default values :
   <LI><CODE>sphereCart</CODE> is set to spherical,</LI>
@@ -145,7 +276,7 @@ public class AstroContext implements SolarSystemConstants, SpaceConstants, TimeC
   */
   public void calcBodyCoords(int frame, boolean velocities) throws AstroException{
     int[] units;
-    if(velocities)
+    if(!velocities)
       units = new int[]{DISTANCE_UNIT_AU, ANGULAR_UNIT_DEG, ANGULAR_UNIT_DEG};
     else
       units = new int[]{DISTANCE_UNIT_AU, ANGULAR_UNIT_DEG, ANGULAR_UNIT_DEG,
@@ -182,7 +313,6 @@ public class AstroContext implements SolarSystemConstants, SpaceConstants, TimeC
 //      throw new IllegalArgumentException("Incorrect length for parameter 'units'");
 
     //  Swiss Ephemeris computation
-    //System.out.println("AstroContext.calcBodyCoords() - astroEngine = " + _astroEngine);
     if (_astroEngine.equals(AstroEngine.SWISS_EPHEMERIS)){
       calcFromSwissEphemeris(frame, sphereCart, precision, velocities, units);
       return;
@@ -190,13 +320,9 @@ public class AstroContext implements SolarSystemConstants, SpaceConstants, TimeC
 
     // JEphem computation
 
-    // handle moon calculation separately
-    if (_moonIndex != GeneralConstants.NO_SPECIF)
-      calcMoonCoord(frame, sphereCart, precision, velocities, units);
-
     // variables used in several places.
     Vector3 pos, vel; // position and velocity vectors.
-    Matrix3 brsFk5, P, N, trueEqEc; // various matrices used in the method
+    Matrix3 brsFk5, M; // various matrices used in the method
     Body b;
     int i;
 
@@ -207,12 +333,19 @@ public class AstroContext implements SolarSystemConstants, SpaceConstants, TimeC
       // Center of coordinate system : Sun
       // Reference plane : Mean Ecliptic JD2000
       Body geomEarth = new Body(EARTH);
-      VSOP87.calcCoord(_jd, geomEarth, precision, velocities);
+      TheoryProviders.calcCoord(_jd, geomEarth, precision, velocities);
+      Vector3 posGE = geomEarth.getPositionCoords();
 
       // ****** 1b - calculate BRS planets' geometric heliocentric ecliptic positions
+      // and Moon's geometric geocentric ecliptic position.
       // Refrence Frame : Theory
-      // Center of coordinate system : Sun
+      // Center of coordinate system : Sun (Earth for the Moon)
       // Reference plane : Mean Ecliptic JD2000
+      // For apparent frames, the geometric position of a planet is only used as a first guess for
+      // light-time ; it is not computed if the light-time of a close date is known.
+      // The Moon is directly computed at the apparent date.
+      boolean apparent = (frame != FRAME_THEORY && frame != FRAME_EC_HELIO_GEOMETRIC);
+      boolean warmStart = (apparent && Math.abs(_jd - _lightTimesJd) <= WARM_START_INTERVAL);
       for (i=0; i < _bodies.length; i++){
         switch(_bodies[i].getIndex()){
           case SUN:
@@ -225,15 +358,14 @@ public class AstroContext implements SolarSystemConstants, SpaceConstants, TimeC
             if (velocities) _bodies[i].setVelocityCoords(0, 0, 0);
           break;
           case MOON:
+            if(!apparent) calcGeometricCoord(_jd, _bodies[i], precision, velocities);
           break;
           case EARTH:
             _bodies[i] = geomEarth.doClone();
           break;
-          case PLUTO:
-            Pluto99.calcCoord(_jd, _bodies[i], precision, velocities);
-          break;
           default:
-            VSOP87.calcCoord(_jd, _bodies[i], precision, velocities);
+            if(warmStart && !Double.isNaN(_lightTimes[i])) break;
+            calcGeometricCoord(_jd, _bodies[i], precision, velocities);
           break;
         }
       }
@@ -251,75 +383,66 @@ public class AstroContext implements SolarSystemConstants, SpaceConstants, TimeC
 
       // If ecliptic heliocentric geometric coords are wanted, convert to FK5 and return results
       if (frame == FRAME_EC_HELIO_GEOMETRIC){
-        for (i=0; i<_bodies.length; i++){
-          if(i == MOON){
-            ///////////////////////// CODE TO WRITE /////////////////////////////
-          }
-          else{
-            pos = _bodies[i].getPositionCoords();
-            _bodies[i].setPositionCoords(Vector3.mul(brsFk5, pos));
-            if (velocities){
-              vel = _bodies[i].getVelocityCoords();
-              _bodies[i].setVelocityCoords(Vector3.mul(brsFk5, vel));
-            }
-          }
-          finalizeResults(frame, sphereCart, velocities, units);
-          return;
+        if (_moonIndex != GeneralConstants.NO_SPECIF){
+          // Moon : change center from Earth to Sun
+          b = _bodies[_moonIndex];
+          b.setPositionCoords(Vector3.add(posGE, b.getPositionCoords()));
+          if (velocities)
+            b.setVelocityCoords(Vector3.add(geomEarth.getVelocityCoords(), b.getVelocityCoords()));
         }
+        transform(brsFk5, velocities);
+        finalizeResults(frame, sphereCart, velocities, units);
+        return;
       }
 
       // ****** 2 - calculate apparent heliocentric ecliptic coordinates.
       // (change from geometric to apparent)
       // Does not correspond to something physically observable
       // Refrence Frame : Theory
-      // Center of coordinate system : Sun
+      // Center of coordinate system : Sun (Earth for the Moon)
       // Reference plane : Mean Ecliptic JD2000
       //
-      double rho, dt;
-      Vector3 posGE = geomEarth.getPositionCoords();
+      double dtSun;
 
       // Calculate apparent position of the Earth
       Body appEarth =  new Body(EARTH);
-      // calculate distance between sun and geomEarth
-      rho = Vector3.norm(posGE);
-      // calculate time taken by light to go from Sun to geomEarth
-      dt = rho * KM_PER_AU / LIGHT_VELOCITY; // (km used for KM_PER_AU and LIGHT_VELOCITY)
-      dt /= SECONDS_PER_DAY; // convert dt in days
+      // calculate time taken by light to go from Sun to geomEarth (the Sun doesn't move, so one step is exact)
+      dtSun = Vector3.norm(posGE) * LIGHT_TIME_PER_AU;
       // calculate position of earth at time jd - dt to get apparent position
-      VSOP87.calcCoord(_jd - dt, appEarth, precision, velocities);
+      TheoryProviders.calcCoord(_jd - dtSun, appEarth, precision, velocities);
 
       for (i=0; i < _bodies.length; i++){
         b = _bodies[i];
         switch(b.getIndex()){
         case SUN: // nothing to do, coordinates already set to 0 when computing geometrical coord.
           break;
-        case MOON: ///////////////////////// CODE TO WRITE /////////////////////////////
+        case MOON:
+          // geocentric position of the Moon at time jd - light-time
+          calcLightTime(i, new Vector3(0, 0, 0), MAX_MOON_VELOCITY, precision, velocities);
           break;
         case EARTH:
           _bodies[i] = appEarth.doClone();
           break;
         default:
-          // calculate distance between geomEarth and planet
-          rho = Vector3.norm(Vector3.sub(posGE, b.getPositionCoords()));
-          // calculate time taken by light to go from planet to Earth
-          dt = rho * KM_PER_AU / LIGHT_VELOCITY; // (rho converted in meters)
-          dt /= SECONDS_PER_DAY; // convert dt in days
-          // calculate position of planet at time jd - dt to get apparent position
-          if (b.getIndex() == PLUTO){
-            Pluto99.calcCoord(_jd - dt, _bodies[i], precision, velocities);
-          }
-          else{
-            VSOP87.calcCoord(_jd - dt, _bodies[i], precision, velocities);
-          }
+          // calculate position of planet at time jd - light-time to get apparent position
+          calcLightTime(i, posGE, MAX_RELATIVE_VELOCITY, precision, velocities);
           break;
         }
       }
+      _lightTimesJd = _jd;
 
       // ****** 3 - calculate (apparent) geocentric ecliptic coordinates.
       // (change center from Sun to Earth)
       // Refrence Frame : Theory
       // Center of coordinate system : Earth
       // Reference plane : Mean Ecliptic JD2000
+      // The direction of a planet is given by its position at jd - light-time minus the position of the
+      // Earth at jd - light-time, which gives light-time correction and aberration ; E(jd - light-time) is
+      // extrapolated from geomEarth and appEarth (the error on the Earth's position is below 1e-5 au for Pluto).
+      // Aberration doesn't change the distance, which is the one from geomEarth.
+      // The Moon, already geocentric, is directly given at jd - light-time.
+      Vector3 dEarth = Vector3.mul(1.0 / dtSun, Vector3.sub(appEarth.getPositionCoords(), posGE)); // per day of light-time
+      double rho;
       for (i=0; i < _bodies.length; i++){
         b = _bodies[i];
         switch(b.getIndex()){
@@ -329,13 +452,17 @@ public class AstroContext implements SolarSystemConstants, SpaceConstants, TimeC
               _bodies[i].setVelocityCoords(Vector3.negate(appEarth.getVelocityCoords()));
             }
             break;
-          case MOON: ///////////////////////// CODE TO WRITE /////////////////////////////
+          case MOON: // nothing to do, coordinates already geocentric.
             break;
           case EARTH:
-            _bodies[i] = new Body(EARTH); // ensure coords are set to 0.
+            b.setPositionCoords(0, 0, 0);
+            if (velocities) b.setVelocityCoords(0, 0, 0);
+            break;
           default:
-            // For the transformation, we use geomEarth and apparent planets
-            _bodies[i].setPositionCoords(Vector3.sub(b.getPositionCoords(), posGE));
+            rho = Vector3.norm(Vector3.sub(b.getPositionCoords(), posGE));
+            pos = Vector3.sub(b.getPositionCoords(),
+                              Vector3.add(posGE, Vector3.mul(_lightTimes[i], dEarth))); // - E(jd - light-time)
+            _bodies[i].setPositionCoords(Vector3.mul(rho / Vector3.norm(pos), pos));
             if (velocities){
               _bodies[i].setVelocityCoords(
                         Vector3.sub(b.getVelocityCoords(), geomEarth.getVelocityCoords()));
@@ -348,191 +475,201 @@ public class AstroContext implements SolarSystemConstants, SpaceConstants, TimeC
       // Refrence Frame : FK5
       // Center of coordinate system : Earth
       // Reference plane : Mean Equator JD2000
-      for (i=0; i<_bodies.length; i++){
-        if(i == MOON){
-          /////////////////////// CODE TO WRITE /////////////////
-        }
-        else{
-          pos = _bodies[i].getPositionCoords();
-          _bodies[i].setPositionCoords(Vector3.mul(brsFk5, pos));
-          if (velocities){
-            vel = _bodies[i].getVelocityCoords();
-            _bodies[i].setVelocityCoords(Vector3.mul(brsFk5, vel));
-          }
-        }
-      }
-
+      //
       // ****** 5 - calculate FK5 (apparent) mean geocentric equatorial coordinates of date.
       // (apply precession)
-      // Refrence Frame : FK5
-      // Center of coordinate system : Earth
       // Reference plane : Mean Equator of the date
-
-      MeanTrue mt = new MeanTrue(_jd, JD2000);
-      P = mt.getEqPrecessionMatrix();
-      for (i=0; i<_bodies.length; i++){
-        if(i == MOON){
-          /////////////////////// CODE TO WRITE /////////////////
-        }
-        else{
-          pos = _bodies[i].getPositionCoords();
-          _bodies[i].setPositionCoords(Vector3.mul(P, pos));
-          if (velocities){
-            vel = _bodies[i].getVelocityCoords();
-            _bodies[i].setVelocityCoords(Vector3.mul(P, vel));
-          }
-        }
-      }
-
+      //
       // ****** 6 - calculate FK5 (apparent) true geocentric equatorial coordinates of date.
       // (apply nutation)
-      // Reference Frame : FK5
-      // Center of coordinate system : Earth
       // Reference plane : True Equator of the date
-      N = mt.getEqNutationMatrix();
-      for (i=0; i<_bodies.length; i++){
-        if(i == MOON){
-          /////////////////////// CODE TO WRITE /////////////////
-        }
-        else{
-          pos = _bodies[i].getPositionCoords();
-          _bodies[i].setPositionCoords(Vector3.mul(N, pos));
-          if (velocities){
-            vel = _bodies[i].getVelocityCoords();
-            _bodies[i].setVelocityCoords(Vector3.mul(N, vel));
-          }
-        }
-      }
-
-      // if geocentric apparent true equatorial coordinates are wanted, return results
-      if (frame == FRAME_EQUATORIAL){
-        finalizeResults(frame, sphereCart, velocities, units);
-        return;
-      }
-
-      // ****** 7 - calculate FK5 (apparent) true geocentric ecliptic coordinates of date.
-      // Refrence Frame : FK5
-      // Center of coordinate system : Earth
-      // Reference plane : Mean Ecliptic of the date
+      //
+      // ****** 7 - (FRAME_ECLIPTIC only) calculate FK5 (apparent) true geocentric ecliptic coordinates of date.
+      // Reference plane : Ecliptic of the date
       // Reference axis : true equinox of date
-      trueEqEc = mt.getTrueEqToEcMatrix();
-      for (i=0; i<_bodies.length; i++){
-        pos = _bodies[i].getPositionCoords();
-        _bodies[i].setPositionCoords(Vector3.mul(trueEqEc, pos));
-        if (velocities){
-          vel = _bodies[i].getVelocityCoords();
-          _bodies[i].setVelocityCoords(Vector3.mul(trueEqEc, vel));
-        }
-      }
-
-      // if geocentric apparent true equatorial coordinates are wanted, return results
-      if (frame == FRAME_ECLIPTIC){
-        finalizeResults(frame, sphereCart, velocities, units);
-        return;
-      }
+      //
+      // The matrices are multiplied first, and the product is applied once to each body.
+      MeanTrue mt = new MeanTrue(_jd, JD2000);
+      M = Matrix3.mul(mt.getEqNutationMatrix(), Matrix3.mul(mt.getEqPrecessionMatrix(), brsFk5));
+      if (frame == FRAME_ECLIPTIC)
+        M = Matrix3.mul(mt.getTrueEqToEcMatrix(), M);
+      else if (frame != FRAME_EQUATORIAL)
+        throw new AstroException("CalcBodyCoords called with an unvalid frame");
+      transform(M, velocities);
+
+      finalizeResults(frame, sphereCart, velocities, units);
+      return;
 
     }// end of general try
     catch(AstroException e){
       throw e;
     }
 
-    // Should never execute this code
-    throw new AstroException("CalcBodyCoords called with an unvalid frame");
-
   }// end calcBodyCoords()
 
   //=================================================================================
   //                                 PRIVATE METHODS
   //=================================================================================
 
+  //******************************* setJd() ******************************
+  // Sets _jd, converted to TT if needed.
+  private void setJd(double jd, int timeFrame){
+    if(timeFrame == TimeConstants.UTC)
+      _jd = Time.getTT(jd);
+    else
+      _jd = jd;
+  }// end setJd
+
   //******************************* finalizeResults() ******************************
-  /** Always called by calcBodyCoords before returning results.
-  <LI>Calls handleSphereCart() ;</LI>
-  <LI>Convert units.</LI>
-  @throws AstroException If sphereToCart or cartToSphere throw one.
+  /** Always called by calcBodyCoords before returning results ; sets the frame, the expression
+  (spherical / cartesian) and the units of the coordinates.
+  <BR>Bodies coming from the JEphem pipeline (cartesian, au and au/d) are transformed in place,
+  with conversion factors computed once for a given set of units ; other bodies are handled by
+  the general methods of <CODE>Body</CODE> and <CODE>Units</CODE>.
+  @throws AstroException If sphereToCart throws one.
   */
   private void finalizeResults(int frame, int sphereCart, boolean velocities, int[] units) throws AstroException{
-    // No parameter checking (for units.length), relying on a good call from calcBodyCoords()
+    if(!isFinalizationReady(sphereCart, velocities, units)) initFinalization(sphereCart, velocities, units);
+    int nbCoords = (velocities ? 6 : 3);
+    double[] coords;
+    Body b;
     for (int i=0; i < _bodies.length; i++){
-
-//System.out.println("========= AstroContext.finalizeResults() - Body index = " + i);
-
-//// trace coords
-//System.out.println("position coords = " + _bodies[i].getPositionCoords().toString());
-//System.out.println("velocity coords = " + _bodies[i].getVelocityCoords().toString());
-
-//// trace position units
-//String strTmp = "";
-//for(int j = 0; j < 3; j++) strTmp += units[j] + " ";
-//System.out.println("position units = " + strTmp);
-//// trace body.posUnits
-//int[] tmpUnits = _bodies[i].getPositionUnits();
-//strTmp = "";
-//for(int j = 0; j < 3; j++) strTmp += tmpUnits[j] + " ";
-//System.out.println("Before transformation, body.posUnits = " + strTmp);
-
-      // set Frame
-      _bodies[i].setFrame(frame);
-      // change to spherical if necessary
-      if(sphereCart == SPHERICAL && _bodies[i].getCoordinateExpression() == CARTESIAN){
-//        System.out.println("AstroContext.finalizeResults() - calling cartToSphere");
-        _bodies[i].cartToSphere(velocities);
-      }
-      if(sphereCart == CARTESIAN && _bodies[i].getCoordinateExpression() == SPHERICAL)
-         _bodies[i].sphereToCart(velocities);
-
-//tmpUnits = _bodies[i].getPositionUnits();
-//strTmp = "";
-//for(int j = 0; j < 3; j++) strTmp += tmpUnits[j] + " ";
-//System.out.println("After sphere/cart, body.posUnits = " + strTmp);
-
-      //convert units
-      _bodies[i].setPositionCoords(Units.convertUnits(
-              _bodies[i].getPositionCoords(),
-              _bodies[i].getPositionUnits(),
-              new int[]{units[0], units[1], units[2]}
-      ));
-      _bodies[i].setPositionUnits(new int[]{units[0], units[1], units[2]});
-
-//tmpUnits = _bodies[i].getPositionUnits();
-//strTmp = "";
-//for(int j = 0; j < 3; j++) strTmp += tmpUnits[j] + " ";
-//System.out.println("After last transformation, body.posUnits = " + strTmp);
-
-      if (velocities){
-//// trace velocity units
-//strTmp = "";
-//for(int j = 3; j < 5; j++) strTmp += units[j] + " ";
-//System.out.println("velocity units = " + strTmp);
-//// trace body.velUnits
-//tmpUnits = _bodies[i].getVelocityUnits();
-//strTmp = "";
-//for(int j = 0; j < 3; j++) strTmp += tmpUnits[j] + " ";
-//System.out.println("Body.velUnits = " + strTmp);
-        _bodies[i].setVelocityCoords(Units.convertUnits(
-                _bodies[i].getVelocityCoords(),
-                _bodies[i].getVelocityUnits(),
-                new int[]{units[3], units[4], units[5]}
-        ));
-      _bodies[i].setVelocityUnits(new int[]{units[3], units[4], units[5]});
+      b = _bodies[i];
+      b.setFrame(frame);
+      if(!isNormalized(b, velocities)){
+        finalizeBody(b, sphereCart, velocities);
+        continue;
       }
+      coords = b.getCoordsInternal();
+      if(sphereCart == SPHERICAL) Body.cartToSphere(coords, velocities);
+      for (int j = 0; j < nbCoords; j++) coords[j] *= _finalFactors[j];
+      b.setCoordinateExpression(sphereCart);
+      b.setPositionUnits(_finalPosUnits);
+      if (velocities) b.setVelocityUnits(_finalVelUnits);
     }// end for
-    return;
   }// end finalizeResults
 
-  //******************************* calcMoonCoord ******************************
-  /** Computation of Moon coordinates - handled separately as changes of frames are different.
-  @throws AstroExcetion if ELP82 throws one.
+  //******************************* isFinalizationReady() ******************************
+  // Indicates if the conversion factors were computed for these parameters.
+  private boolean isFinalizationReady(int sphereCart, boolean velocities, int[] units){
+    if(_finalPosUnits == null || sphereCart != _finalSphereCart) return false;
+    for (int j = 0; j < 3; j++) if(units[j] != _finalPosUnits[j]) return false;
+    if (velocities){
+      if(_finalVelUnits == null) return false;
+      for (int j = 0; j < 3; j++) if(units[j+3] != _finalVelUnits[j]) return false;
+    }
+    return true;
+  }// end isFinalizationReady
+
+  //******************************* initFinalization() ******************************
+  // Computes the conversion factors from the units of the pipeline to 'units'.
+  // New unit arrays are built, as the previous ones may still be referenced by bodies.
+  private void initFinalization(int sphereCart, boolean velocities, int[] units){
+    if(units.length < (velocities ? 6 : 3))
+      throw new IllegalArgumentException("Incorrect length for parameter 'units'");
+    int[] from = (sphereCart == SPHERICAL ? PIPELINE_SPHERE_UNITS : PIPELINE_CART_UNITS);
+    _finalSphereCart = sphereCart;
+    _finalPosUnits = new int[]{units[0], units[1], units[2]};
+    _finalVelUnits = (velocities ? new int[]{units[3], units[4], units[5]} : null);
+    for (int j = 0; j < (velocities ? 6 : 3); j++)
+      _finalFactors[j] = Units.getConversionFactor(from[j], units[j]);
+  }// end initFinalization
+
+  //******************************* isNormalized() ******************************
+  // Indicates if a body is expressed as the JEphem pipeline produces it (cartesian, au, au/d).
+  private static boolean isNormalized(Body b, boolean velocities){
+    if(b.getCoordinateExpression() != CARTESIAN) return false;
+    int[] u = b.getPositionUnits();
+    if(u[0] != DISTANCE_UNIT_AU || u[1] != DISTANCE_UNIT_AU || u[2] != DISTANCE_UNIT_AU) return false;
+    if(!velocities) return true;
+    u = b.getVelocityUnits();
+    return u[0] == LINEAR_SPEED_UNIT_AU_PER_D && u[1] == LINEAR_SPEED_UNIT_AU_PER_D && u[2] == LINEAR_SPEED_UNIT_AU_PER_D;
+  }// end isNormalized
+
+  //******************************* finalizeBody() ******************************
+  // General transformation of a body, whatever its expression and units.
+  private void finalizeBody(Body b, int sphereCart, boolean velocities) throws AstroException{
+    // change to spherical if necessary
+    if(sphereCart == SPHERICAL && b.getCoordinateExpression() == CARTESIAN)
+      b.cartToSphere(velocities);
+    if(sphereCart == CARTESIAN && b.getCoordinateExpression() == SPHERICAL)
+      b.sphereToCart(velocities);
+    //convert units
+    b.setPositionCoords(Units.convertUnits(b.getPositionCoords(), b.getPositionUnits(), _finalPosUnits));
+    b.setPositionUnits(_finalPosUnits);
+    if (velocities){
+      b.setVelocityCoords(Units.convertUnits(b.getVelocityCoords(), b.getVelocityUnits(), _finalVelUnits));
+      b.setVelocityUnits(_finalVelUnits);
+    }
+  }// end finalizeBody
+
+  //******************************* transform ******************************
+  /** Applies a rotation to the positions (and velocities) of all the bodies. */
+  private void transform(Matrix3 m, boolean velocities){
+    for (int i = 0; i < _bodies.length; i++){
+      _bodies[i].setPositionCoords(Vector3.mul(m, _bodies[i].getPositionCoords()));
+      if (velocities)
+        _bodies[i].setVelocityCoords(Vector3.mul(m, _bodies[i].getVelocityCoords()));
+    }
+  }// end transform
+
+  //******************************* calcLightTime ******************************
+  /** Computes the apparent position of a body, iterating on light-time.
+  <BR>The body is computed at <CODE>jd - dt</CODE>, where <CODE>dt</CODE> is the time taken by light
+  to go from the body to the Earth, until two successive values of <CODE>dt</CODE> differ by less than
+  a tolerance derived from 'precision' ; only one evaluation is done when the first guess is good enough.
+  <BR>The first guess is the light-time of a close date if known (see {@link #setLightTimes(AstroContext)}),
+  or the light-time corresponding to the geometric position of the body (mean distance for the Moon).
+  @param iBody Position of the body in <CODE>_bodies</CODE>.
+  @param posGE Geometric position of the Earth at <CODE>_jd</CODE>, in au, in the frame of the body's theory
+         (heliocentric for the planets, null vector for the Moon).
+  @param maxVelocity Upper bound of the velocity of the body relative to the Earth, in au/d.
+  @throws AstroException if the theory computing the body throws one.
   */
-  private void calcMoonCoord(int     frame,
-                             int     sphereCart,
-                             double  precision,
-                             boolean velocities,
-                             int[]   units
-                            ) throws AstroException{
-
-    ELP82.calcCoord(_jd, _bodies[_moonIndex], precision, velocities);
-  }// end calcMoonCoord
+  private void calcLightTime(int iBody, Vector3 posGE, double maxVelocity, double precision, boolean velocities)
+                                                                                    throws AstroException{
+    Body b = _bodies[iBody];
+    double dt, newDt, rho;
+    if(!Double.isNaN(_lightTimes[iBody]) && Math.abs(_jd - _lightTimesJd) <= WARM_START_INTERVAL)
+      dt = _lightTimes[iBody];
+    else if(b.getIndex() == MOON)
+      dt = MOON_MEAN_LIGHT_TIME;
+    else
+      dt = Vector3.norm(Vector3.sub(b.getPositionCoords(), posGE)) * LIGHT_TIME_PER_AU;
+
+    for (int k = 0; k < MAX_LIGHT_TIME_ITERATIONS; k++){
+      calcGeometricCoord(_jd - dt, b, precision, velocities);
+      rho = Vector3.norm(Vector3.sub(b.getPositionCoords(), posGE));
+      newDt = rho * LIGHT_TIME_PER_AU;
+      // an error of 'ddt' days on light-time gives an error of at most
+      // ddt * maxVelocity / rho radians on the position seen from the Earth.
+      if(Math.abs(newDt - dt) <= Math.max(MIN_LIGHT_TIME_TOLERANCE,
+                                          precision * Maths.ARCSEC_TO_RAD * rho / maxVelocity)){
+        dt = newDt;
+        break;
+      }
+      dt = newDt;
+    }
+    _lightTimes[iBody] = dt;
+  }// end calcLightTime
+
+  //******************************* calcGeometricCoord ******************************
+  /** Computes the geometric coordinates of a body in the frame of its theory (heliocentric for the
+  planets, geocentric for the Moon), using the provider chosen by {@link TheoryProviders}.
+  <BR>Coordinates of the Moon are converted to au and au/d, like the ones of the planets.
+  @throws AstroException if no theory handles the body, or if the theory throws one.
+  */
+  private static void calcGeometricCoord(double jd, Body body, double precision, boolean velocities) throws AstroException{
+    TheoryProviders.calcCoord(jd, body, precision, velocities);
+    if(body.getIndex() == MOON){
+      body.setPositionCoords(Units.convertUnits(body.getPositionCoords(), body.getPositionUnits(), UNITGROUP_AU_AU_AU));
+      body.setPositionUnits(UNITGROUP_AU_AU_AU);
+      if (velocities){
+        body.setVelocityCoords(Units.convertUnits(body.getVelocityCoords(), body.getVelocityUnits(), UNITGROUP_AUD_AUD_AUD));
+        body.setVelocityUnits(UNITGROUP_AUD_AUD_AUD);
+      }
+    }
+  }// end calcGeometricCoord
 
   //******************************* calcFromSwissEphemeris ******************************
   /** Use SwissEphemeris to compute.
@@ -544,17 +681,16 @@ public class AstroContext implements SolarSystemConstants, SpaceConstants, TimeC
                                       boolean velocities,
                                       int[]   units
                                       ) throws AstroException{
-    for(int i = 0; i < _bodies.length; i++){
-      // WARNING : when SwissEphemeris throws AstroException,
-      // put try catch here and fill strAstroException
-      jephem.astro.solarsystem.SwissEphemeris.calcBodyCoords(_jd,
-                                                             _bodies,
-                                                             frame,
-                                                             sphereCart,
-                                                             precision,
-                                                             velocities,
-                                                             units);
-    }// end for
+    // WARNING : when SwissEphemeris throws AstroException,
+    // put try catch here and fill strAstroException
+    // (SwissEphemeris.calcBodyCoords() handles all the bodies at once)
+    jephem.astro.solarsystem.SwissEphemeris.calcBodyCoords(_jd,
+                                                           _bodies,
+                                                           frame,
+                                                           sphereCart,
+                                                           precision,
+                                                           velocities,
+                                                           units);
     return;
 
   }// end calcFromSwissEphemeris()
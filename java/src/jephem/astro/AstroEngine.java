@@ -6,10 +6,12 @@
 package jephem.astro;
 
 /******************************************************************************
-Contains global variables used by classes of <CODE>jephem.astro</CODE> package.
+Contains the constants designating the astro engines used by classes of <CODE>jephem.astro</CODE> package.
+<BR>The engine used by a computation is given by the {@link AstroRequest} of the {@link AstroContext}.
 
 @author Thierry Graff
 @history jun 10 2002 : Creation
+@history oct 19 2026 : Removed the static variables ; the engine is carried by AstroRequest.
 *********************************************************************************/
 public abstract class AstroEngine{
 
@@ -21,37 +23,10 @@ public abstract class AstroEngine{
   /** Constant used to designate Swiss Ephemeris as the astro engine. */
   public static final String SWISS_EPHEMERIS = "SwissEphemeris";
 
-  //=================================================================================
-  //                            STATIC VARIABLES
-  //=================================================================================
-
-  /** Implementation used for the ephemeris computations. */
-  private static String _ephemerisImplementation;
-  private static double _prec;
-  private static int[] _posUnits;
-  private static int[] _velUnits;
-  private static int _sphereCart;
-  private static int defaultFrame;
-
-  // TEMP CODE
-  static{
-
-  };
   //=================================================================================
   //                            CONSTRUCTORS
   //=================================================================================
   /** Not used as this class is abstract. */
   public AstroEngine(){}
 
-  //=================================================================================
-  //                                          METHODS
-  //=================================================================================
-
-  /** Permits to indicate which implementation to use for the computations.
-  <BR>If not set, JEphem is used.
-  @param astroEngine Use constants of this class to specify it.
-  */
-  public static void setAstroEngine(String ephemerisImplementation){ _ephemerisImplementation = ephemerisImplementation; }
-
-
 }//end class AstroEngine
\ No newline at end of file
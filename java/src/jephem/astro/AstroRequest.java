@@ -0,0 +1,97 @@
+//*********************************************************************************
+// class jephem.astro.AstroRequest
+// Software released under the General Public License (version 2 or later), available at
+// http://www.gnu.org/copyleft/gpl.html
+//*********************************************************************************
+package jephem.astro;
+
+import jephem.astro.spacetime.SpaceConstants;
+import jephem.astro.spacetime.UnitsConstants;
+
+/******************************************************************************
+Immutable description of a computation : which astro engine to use, and how the coordinates
+must be expressed (frame, spherical / cartesian, precision, velocities, units).
+<BR>An <CODE>AstroRequest</CODE> is given to an {@link AstroContext} at construction ; as it can't be
+modified, the same instance can be shared by several contexts, possibly used by different threads,
+each context using its own engine.
+<BR>Example of use, in a class implementing {@link jephem.astro.spacetime.SpaceConstants} and
+{@link jephem.astro.spacetime.UnitsConstants} :
+<BR>&nbsp;&nbsp;<CODE>AstroRequest req = new AstroRequest(AstroEngine.SWISS_EPHEMERIS, FRAME_ECLIPTIC, SPHERICAL,
+                                                      1.0, false, UNITGROUP_AU_DEG_DEG);</CODE>
+<BR>&nbsp;&nbsp;<CODE>AstroContext ac = new AstroContext(jd, TT_TDB, bodyIndexes, req);</CODE>
+<BR>&nbsp;&nbsp;<CODE>ac.calcBodyCoords();</CODE>
+
+@author Thierry Graff
+@history oct 19 2026 : creation, to replace the static engine of AstroContext and AstroEngine.
+*********************************************************************************/
+public final class AstroRequest implements SpaceConstants, UnitsConstants{
+
+  //=================================================================================
+  //                                 INSTANCE VARIABLES
+  //=================================================================================
+  /** Astro engine, one of the {@link AstroEngine} constants. */
+  private final String _astroEngine;
+  /** Frame, using {@link jephem.astro.spacetime.SpaceConstants} constants. */
+  private final int _frame;
+  /** Expression of the coordinates, <CODE>SPHERICAL</CODE> or <CODE>CARTESIAN</CODE>. */
+  private final int _sphereCart;
+  /** Precision, in arcseconds. */
+  private final double _precision;
+  /** Indicates if the velocities must be computed. */
+  private final boolean _velocities;
+  /** Units of the coordinates ; private copy of the array given to the constructor. */
+  private final int[] _units;
+
+  //=================================================================================
+  //                                 CONSTRUCTORS
+  //=================================================================================
+
+  //***************** AstroRequest(astroEngine, frame, sphereCart, precision, velocities, units) ******
+  /** Constructor specifying all the parameters of the computation.
+  <BR>Parameters have the same meaning as in
+  {@link AstroContext#calcBodyCoords(int, int, double, boolean, int[])}.
+  @param astroEngine The engine performing the computations ; use {@link AstroEngine} constants.
+  @throws IllegalArgumentException if 'astroEngine' is not known, or if the length of 'units'
+  doesn't match 'velocities'.
+  */
+  public AstroRequest(String  astroEngine,
+                      int     frame,
+                      int     sphereCart,
+                      double  precision,
+                      boolean velocities,
+                      int[]   units){
+    if(!AstroEngine.JEPHEM.equals(astroEngine) && !AstroEngine.SWISS_EPHEMERIS.equals(astroEngine))
+      throw new IllegalArgumentException("Unknown astro engine : " + astroEngine);
+    if(units == null || units.length < (velocities ? 6 : 3))
+      throw new IllegalArgumentException("Incorrect length for parameter 'units'");
+    _astroEngine = astroEngine;
+    _frame = frame;
+    _sphereCart = sphereCart;
+    _precision = precision;
+    _velocities = velocities;
+    _units = units.clone();
+  }// end AstroRequest
+
+  //=================================================================================
+  //                                 PUBLIC METHODS
+  //=================================================================================
+
+  //************************* get methods  *******************************
+  /** Returns the astro engine used by this request, one of the {@link AstroEngine} constants. */
+  public String getAstroEngine(){ return _astroEngine; }
+  /** Returns the frame in which coordinates are expressed. */
+  public int getFrame(){ return _frame; }
+  /** Returns <CODE>SPHERICAL</CODE> or <CODE>CARTESIAN</CODE>. */
+  public int getSphereCart(){ return _sphereCart; }
+  /** Returns the precision of the computations, in arcseconds. */
+  public double getPrecision(){ return _precision; }
+  /** Indicates if the velocities are computed. */
+  public boolean getVelocities(){ return _velocities; }
+  /** Returns a copy of the units in which coordinates are expressed. */
+  public int[] getUnits(){ return _units.clone(); }
+
+  //************************* getUnitsInternal  *******************************
+  /** Returns the units without copy ; for use by <CODE>AstroContext</CODE>, which doesn't modify them. */
+  int[] getUnitsInternal(){ return _units; }
+
+}//end class AstroRequest
@@ -54,6 +54,9 @@ won't internally generate coordinate transformations.
 @history aug 15 2001 : replaced coordSyst by frame ; added pos and velUnitGroup.
 @history jan 09 2002 : changed pos and velUnitGroups to int[] posUnits and velUnits.
 @history jan 29 2002 : replaced _x0 ... _v2 by _coords.
+@history oct 19 2026 : added cartToSphere(double[], boolean) and getCoordsInternal() ; fixed the sign of
+angular velocities ; sphereToCart() doesn't modify shared unit arrays any more.
+@history oct 19 2026 : added reset() and getCoords(int[], double[]), so that a body can be reused for several dates.
 
 @todo doClone is not a clean way to handle the copy.
 @todo internationalize getName()
@@ -258,6 +261,20 @@ public class Body implements GeneralConstants, UnitsConstants, SolarSystemConsta
     _coords[3] = x0; _coords[4] = x1; _coords[5] = x2;
   }
 
+  //***************** getCoords(whichCoords, dest) ******************************
+  /** Copies several coordinates in an array : <CODE>dest[i] = x(whichCoords[i])</CODE>.
+  @param whichCoords Indexes of the coordinates to copy (0 : x0, ... , 5 : v2) ; not checked.
+  @param dest Array receiving the coordinates, of length at least <CODE>whichCoords.length</CODE>.
+  */
+  public void getCoords(int[] whichCoords, double[] dest){
+    for (int i = 0; i < whichCoords.length; i++) dest[i] = _coords[whichCoords[i]];
+  }// end getCoords(whichCoords, dest)
+
+  //***************** getCoordsInternal ******************************
+  /** Returns the array holding the coordinates, without copy ; for use by <CODE>AstroContext</CODE>,
+  to transform the coordinates in place. */
+  double[] getCoordsInternal(){ return _coords; }
+
   //***************** Computation exceptions ******************************
   /** To store a computation exception, if one is thrown while computing the coordinates of this body. */
   public void setComputationException(ComputationException ce){ _ce = ce;}
@@ -268,6 +285,18 @@ public class Body implements GeneralConstants, UnitsConstants, SolarSystemConsta
   //                                 OTHER METHODS
   //=================================================================================
 
+  //***************** reset *************************************************
+  /** Puts this body back in the state of a body built by {@link #Body(int)} : coordinates set to 0,
+  frame, coordinate expression and units not specified, no computation exception. */
+  public void reset(){
+    _frame = NO_SPECIF;
+    _coordExpr = NO_SPECIF;
+    _posUnits = noSpecifArray;
+    _velUnits = noSpecifArray;
+    for (int i = 0; i < 6; i++) _coords[i] = 0.0;
+    _ce = null;
+  }// end reset
+
   //***************** doClone *************************************************
   /** Returns a copy of this body.
   @param source <CODE>Body</CODE> from all fields are copied.
@@ -312,8 +341,8 @@ public class Body implements GeneralConstants, UnitsConstants, SolarSystemConsta
     _coords[2] = rho * sPhi;  // Z
 
     // Re-assign units (X, Y, Z are in the unit of rho).
-    _posUnits[1] = _posUnits[0];
-    _posUnits[2] = _posUnits[0];
+    // A new array is used, as _posUnits may be shared (ex : UNITGROUP_XXX constants).
+    this.setPositionUnits(new int[]{_posUnits[0], _posUnits[0], _posUnits[0]});
 
     // Case of velocities
     if (velocities){
@@ -328,18 +357,20 @@ public class Body implements GeneralConstants, UnitsConstants, SolarSystemConsta
                         ANGULAR_SPEED_UNIT_RAD_PER_DAY,
                         ANGULAR_SPEED_UNIT_RAD_PER_DAY})
       );
+      // rho is needed in the distance unit of the velocities.
+      rho *= Units.getConversionFactor(_posUnits[0], DISTANCE_UNIT_AU);
       // variables to remember initial values (rhoP stands for "rho point" etc...).
       double rhoP = _coords[3];
       double thetaP = _coords[4];
       double phiP = _coords[5];
 
-      _coords[3] = cPhi*cTheta*rhoP + rho*cPhi*sTheta*thetaP + rho*sPhi*cTheta*phiP;
-      _coords[4] = cPhi*sTheta*rhoP - rho*cPhi*cTheta*thetaP + rho*sPhi*sTheta*phiP;
-      _coords[5] = sPhi*rhoP                                 - rho*cPhi*phiP;
+      _coords[3] = cPhi*cTheta*rhoP - rho*cPhi*sTheta*thetaP - rho*sPhi*cTheta*phiP;
+      _coords[4] = cPhi*sTheta*rhoP + rho*cPhi*cTheta*thetaP - rho*sPhi*sTheta*phiP;
+      _coords[5] = sPhi*rhoP                                 + rho*cPhi*phiP;
       // Re-assign units
       this.setVelocityUnits(UNITGROUP_AUD_AUD_AUD);
     }
-    _coordExpr = SpaceConstants.SPHERICAL;
+    _coordExpr = SpaceConstants.CARTESIAN;
   }// end sphereToCart
 
   //***************************** cartToSphere ************************************
@@ -354,7 +385,7 @@ public class Body implements GeneralConstants, UnitsConstants, SolarSystemConsta
   public void cartToSphere(boolean velocities){
     if (_coordExpr != SpaceConstants.CARTESIAN) return;
 
-    // ***** 1 - positions
+    // ***** 1 - take care of units
     // Take care of units for positions
     if(_posUnits[0] == NO_SPECIF || _posUnits[1] == NO_SPECIF || _posUnits[2] == NO_SPECIF)
       throw new IllegalArgumentException("Cartesian to spherical conversion can't be done : position " +
@@ -371,35 +402,14 @@ public class Body implements GeneralConstants, UnitsConstants, SolarSystemConsta
               this.getPositionUnits(),
               new int[]{posUnit, posUnit, posUnit})
       );
-      this.setPositionUnits(new int[]{posUnit, posUnit, posUnit});
     }
 
-    // Now perform the transformation
-
-    // variables to remember initial values.
-    double X = _coords[0];
-    double Y = _coords[1];
-    double Z = _coords[2];
-    double rho2 = X*X + Y*Y + Z*Z;
-
-    // rho
-    _coords[0] = Math.sqrt(rho2);
-    // theta
-    _coords[1] = Maths.atan3(Y, X);
-    // phi
-    _coords[2] = Math.asin(Z / _coords[0]);
-
-    // Re-assign units
-    this.setPositionUnits(new int[]{posUnit, ANGULAR_UNIT_RAD, ANGULAR_UNIT_RAD});
-
-    // ***** 2 - velocities
-
+    int velUnit = NO_SPECIF;
+    double k = 1.0; // factor to express positions in the distance unit of the velocities
     if (velocities){
-      // take care of units
       if(_velUnits[0] == NO_SPECIF || _velUnits[1] == NO_SPECIF || _velUnits[2] == NO_SPECIF)
         throw new IllegalArgumentException("Cartesian to spherical conversion can't be done : velocity " +
                                   "units of coords to transform are not all specified");
-      int velUnit = NO_SPECIF;
       if(_velUnits[0] == _velUnits[1] && _velUnits[0] == _velUnits[2]){
         // no problem, the 3 units are the same
         velUnit = _velUnits[0];
@@ -412,71 +422,26 @@ public class Body implements GeneralConstants, UnitsConstants, SolarSystemConsta
                 new int[]{velUnit, velUnit, velUnit})
         );
       }
+      // Formulae imply X, Y, Z and Xp, Yp, Zp, so the distance unit of Xp, Yp, Zp
+      // must be the unit of X, Y, Z.
+      k = Units.getConversionFactor(posUnit, getDistanceUnit(velUnit));
+    }
 
-      // Formulae imply X, Y, Z and Xp, Yp, Zp, so we must be careful with units
-      // We know that X, Y, Z have the same unit : posUnit
-      // We know that Xp, Yp, Zp have the same unit : velUnit
-      // We must first ensure that distance units of Xp, Yp, Zp equals to the unit of X, Y, Z.
-      switch(velUnit){
-        case LINEAR_SPEED_UNIT_AU_PER_D :
-          if(posUnit == DISTANCE_UNIT_AU) break;
-          if(posUnit == DISTANCE_UNIT_KM){ //convert to au
-            X /= KM_PER_AU; Y /= KM_PER_AU; Z /= KM_PER_AU;
-            break;
-          }
-          if(posUnit == DISTANCE_UNIT_M){ //convert to au
-            X /= (KM_PER_AU * 1000); Y /= (KM_PER_AU * 1000); Z /= (KM_PER_AU * 1000);
-            break;
-          }
-        case LINEAR_SPEED_UNIT_KM_PER_HOUR :
-        case LINEAR_SPEED_UNIT_KM_PER_D :
-          if(posUnit == DISTANCE_UNIT_KM) break;
-          if(posUnit == DISTANCE_UNIT_AU){ //convert to km
-            X *= KM_PER_AU; Y *= KM_PER_AU; Z *= KM_PER_AU;
-            break;
-          }
-          if(posUnit == DISTANCE_UNIT_M){ //convert to km
-            X /= 1000; Y /= 1000; Z /= 1000;
-            break;
-          }
-        case LINEAR_SPEED_UNIT_M_PER_S :
-          if(posUnit == DISTANCE_UNIT_M) break;
-          if(posUnit == DISTANCE_UNIT_AU){ //convert to m
-            X *= (KM_PER_AU * 1000); Y *= (KM_PER_AU * 1000); Z *= (KM_PER_AU * 1000);
-            break;
-          }
-          if(posUnit == DISTANCE_UNIT_KM){ //convert to m
-            X *= 1000; Y *= 1000; Z *= 1000;
-            break;
-          }
-      }// end switch(velUnit)
-      // Now the coords are coherent , and the formulae can be applied
-
-      // variables to remember initial values (Xp, Yp, Zp stand for "X point" etc...).
-      double Xp = _coords[3];
-      double Yp = _coords[4];
-      double Zp = _coords[5];
-      double r2 = rho2 - Z*Z; // = X*X + Y*Y
-
-      // d(rho)/dt
-      _coords[3] = (X*Xp + Y*Yp + Z*Zp) / Math.sqrt(rho2);
-      // d(theta)/dt
-      _coords[4] = (Xp*Y - X*Yp) / r2;
-      // d(phi)/dt
-      _coords[5] = (Z * (X*Xp + Y*Yp) - r2*Zp) / (rho2 * Math.sqrt(r2));
+    // ***** 2 - transformation
+    _coords[0] *= k; _coords[1] *= k; _coords[2] *= k;
+    cartToSphere(_coords, velocities);
+    _coords[0] /= k;
 
-      // Re-assign units
-      // The present unit are : angular units = radians
-      // Time units of d(theta)/dt and d(phi)/dt depend on the time unit of Xp, Yp, Zp
-      // This can take the values : au/d, km/d, km/h, km/s
-      // A honnest conversion would lead to rad/s, rad/h or rad/d
+    // Re-assign units
+    this.setPositionUnits(new int[]{posUnit, ANGULAR_UNIT_RAD, ANGULAR_UNIT_RAD});
+    if (velocities){
+      // Time unit of d(theta)/dt and d(phi)/dt is the time unit of Xp, Yp, Zp
       // To avoid adding new constants in class UnitConstants, we impose rad/day, which already exists.
-      switch(_velUnits[0]){ // Xp unit
-        case LINEAR_SPEED_UNIT_AU_PER_D : break;
+      switch(velUnit){
         case LINEAR_SPEED_UNIT_KM_PER_HOUR :
-          _coords[3] /= 24.0; _coords[4] /= 24.0; _coords[5] /= 24.0; break;
+          _coords[4] *= 24.0; _coords[5] *= 24.0; break;
         case LINEAR_SPEED_UNIT_M_PER_S :
-          _coords[3] /= 86400.0; _coords[4] /= 86400.0; _coords[5] /= 86400.0; break;
+          _coords[4] *= 86400.0; _coords[5] *= 86400.0; break;
       }
       this.setVelocityUnits(new int[]{velUnit,
                                       ANGULAR_SPEED_UNIT_RAD_PER_DAY,
@@ -486,6 +451,56 @@ public class Body implements GeneralConstants, UnitsConstants, SolarSystemConsta
     _coordExpr = SpaceConstants.SPHERICAL;
   }// end cartToSphere
 
+  //***************************** cartToSphere(coords, velocities) ************************************
+  /** Transformation of cartesian coordinates to spherical coordinates, done in place, without allocation.
+  <BR>The 3 positions must be expressed with the same distance unit, and the 3 velocities with this
+  distance unit per a time unit (ex : au and au/d).
+  <BR>Angles are expressed in radians, angular velocities in radians per the time unit of the velocities.
+  @param coords Array containing x0, x1, x2 (and v0, v1, v2 if 'velocities' is true) ;
+  replaced by the spherical coordinates.
+  @param velocities Indicates if the velocities should be also transformed.
+  <BR>At the center of the frame (rho = 0), the angles and all the velocities are set to 0 ; on the polar axis
+  (x0 = x1 = 0), the longitude and the angular velocities are set to 0.
+  */
+  public static void cartToSphere(double[] coords, boolean velocities){
+    // variables to remember initial values.
+    double X = coords[0];
+    double Y = coords[1];
+    double Z = coords[2];
+    double r2 = X*X + Y*Y;
+    double rho2 = r2 + Z*Z;
+    double rho = Math.sqrt(rho2);
+
+    coords[0] = rho;
+    coords[1] = (r2 == 0 ? 0 : Maths.atan3(Y, X)); // theta
+    coords[2] = (rho == 0 ? 0 : Math.asin(Z / rho)); // phi
+
+    if (velocities && rho == 0){ // no direction, for ex the Earth in a geocentric frame
+      coords[3] = coords[4] = coords[5] = 0;
+    }
+    else if (velocities){
+      // variables to remember initial values (Xp, Yp, Zp stand for "X point" etc...).
+      double Xp = coords[3];
+      double Yp = coords[4];
+      double Zp = coords[5];
+      // d(rho)/dt
+      coords[3] = (X*Xp + Y*Yp + Z*Zp) / rho;
+      // d(theta)/dt and d(phi)/dt, not defined on the polar axis
+      coords[4] = (r2 == 0 ? 0 : (X*Yp - Y*Xp) / r2);
+      coords[5] = (r2 == 0 ? 0 : (r2*Zp - Z*(X*Xp + Y*Yp)) / (rho2 * Math.sqrt(r2)));
+    }
+  }// end cartToSphere(coords, velocities)
+
+  //***************************** getDistanceUnit ************************************
+  // Returns the distance unit corresponding to a linear speed unit.
+  private static int getDistanceUnit(int linearSpeedUnit){
+    switch(linearSpeedUnit){
+      case LINEAR_SPEED_UNIT_AU_PER_D : return DISTANCE_UNIT_AU;
+      case LINEAR_SPEED_UNIT_M_PER_S : return DISTANCE_UNIT_M;
+      default : return DISTANCE_UNIT_KM;
+    }
+  }// end getDistanceUnit
+
 
   //=================================================================================
   //=================================================================================
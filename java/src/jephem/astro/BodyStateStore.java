@@ -0,0 +1,352 @@
+//*********************************************************************************
+// class jephem.astro.BodyStateStore
+// Software released under the General Public License (version 2 or later), available at
+// http://www.gnu.org/copyleft/gpl.html
+//*********************************************************************************
+package jephem.astro;
+
+import jephem.astro.solarsystem.ComputationException;
+import jephem.astro.solarsystem.SolarSystem;
+import jephem.astro.solarsystem.SolarSystemConstants;
+import jephem.astro.spacetime.SpaceConstants;
+import jephem.astro.spacetime.TimeConstants;
+
+import tig.GeneralConstants;
+import tig.maths.Vector3;
+
+/******************************************************************************
+Columnar storage of the states (coordinates, frame, error) of several bodies at several dates,
+to hold bulk results without one {@link Body} object per body and per date.
+<BR>Storage uses only primitive arrays :
+<LI>each coordinate of each body is stored in one <CODE>double[]</CODE>, indexed by date (a "series"),
+accessible without copy through {@link #getSeries(int, int)} ; only the series of the stored coordinates
+are allocated ;</LI>
+<LI>frame, flags and error type of each state are stored in <CODE>byte[]</CODE> columns ;</LI>
+<LI>units and time frame are common to all the states of the store.</LI>
+<BR>A state costs 51 bytes with velocities (27 without), instead of about 200 for a
+<CODE>Body</CODE> with its arrays.
+<BR>{@link jephem.tools.Ephemeris} uses a store for its {@link jephem.tools.Ephemeris#LAYOUT_SERIES} layout.
+
+<BR><BR>Bodies and dates are designated by their position in the store ('iBody', 'iJD'), not by
+{@link SolarSystemConstants} constants ; {@link #getBodyPosition(int)} does the correspondance.
+<BR>States are read through a {@link View}, a flyweight offering the get methods of <CODE>Body</CODE>,
+which can be moved from state to state without allocation :
+<BR>&nbsp;&nbsp;<CODE>BodyStateStore.View v = store.getView();</CODE>
+<BR>&nbsp;&nbsp;<CODE>for(int i = 0; i < store.getNbJDs(); i++) sum += v.moveTo(0, i).getCoord(COORD_X1);</CODE>
+
+<BR><BR>A store is not synchronized : threads filling and reading it at the same time must synchronize
+externally.
+
+@author Thierry Graff
+@history oct 19 2026 : creation.
+@history oct 19 2026 : storage of a subset of the coordinates ; time frame ; setState() for values which are not
+                       held in a Body ; View.getVelocityCoords() checks the velocities.
+*********************************************************************************/
+public class BodyStateStore implements GeneralConstants, SolarSystemConstants, SpaceConstants{
+
+  //=================================================================================
+  //                                 CONSTANTS
+  //=================================================================================
+  /** Value of the error type of a state without computation exception. */
+  public static final int NO_ERROR = -1;
+
+  /** Flag indicating that a state has been stored. */
+  private static final byte FLAG_STORED = 1;
+  /** Flag indicating that the coordinates of a state are spherical (cartesian otherwise). */
+  private static final byte FLAG_SPHERICAL = 2;
+
+  //=================================================================================
+  //                                 INSTANCE VARIABLES
+  //=================================================================================
+  /** Indexes of the bodies, using {@link SolarSystemConstants} constants. */
+  private int[] _bodyIndexes;
+
+  /** Julian days of the states, expressed in _timeFrame. */
+  private double[] _jds;
+
+  /** Time frame of the julian days. */
+  private int _timeFrame;
+
+  /** Coordinates ; _series[6*iBody + iCoord][iJD] ; series of the coordinates which are not stored are null. */
+  private double[][] _series;
+
+  /** Frame of each state ; _frames[iBody][iJD]. */
+  private byte[][] _frames;
+
+  /** Flags of each state (FLAG_XXX constants) ; _flags[iBody][iJD]. */
+  private byte[][] _flags;
+
+  /** Computation exception type of each state, or NO_ERROR ; _errors[iBody][iJD]. */
+  private byte[][] _errors;
+
+  /** Units of the positions and of the velocities (null if velocities are not stored) ; never modified. */
+  private int[] _posUnits, _velUnits;
+
+  //=================================================================================
+  //                                 CONSTRUCTORS
+  //=================================================================================
+
+  //***************** BodyStateStore(bodyIndexes, nbJDs, units) *******************************
+  /** Constructor allocating a store for all its states, with dates expressed in TT.
+  @param bodyIndexes Indexes of the bodies to store, using {@link SolarSystemConstants} constants.
+  @param nbJDs Number of dates to store.
+  @param units Units of the stored coordinates, using {@link jephem.astro.spacetime.UnitsConstants} constants ;
+  3 elements to store only positions, 6 to store positions and velocities.
+  @throws IllegalArgumentException if 'units' doesn't contain 3 or 6 elements.
+  */
+  public BodyStateStore(int[] bodyIndexes, int nbJDs, int[] units){
+    this(bodyIndexes, nbJDs, units, null, TimeConstants.TT_TDB);
+  }// end BodyStateStore
+
+  //***************** BodyStateStore(bodyIndexes, nbJDs, units, whichCoords, timeFrame) *******************************
+  /** Constructor allocating a store for some coordinates of its states.
+  <BR>Parameters are the same as in the first constructor.
+  @param whichCoords The stored coordinates, using {@link SpaceConstants}.<CODE>COORD_XX</CODE> constants ;
+  if null, positions and, if 'units' contains 6 elements, velocities.
+  @param timeFrame Time frame of the dates, using {@link TimeConstants} constants.
+  @throws IllegalArgumentException if 'units' doesn't contain 3 or 6 elements, or if 'whichCoords' contains
+  a velocity and 'units' only 3 elements.
+  */
+  public BodyStateStore(int[] bodyIndexes, int nbJDs, int[] units, int[] whichCoords, int timeFrame){
+    if(units.length != 3 && units.length != 6)
+      throw new IllegalArgumentException("Parameter 'units' must contain 3 or 6 elements");
+    if(whichCoords == null)
+      whichCoords = (units.length == 6 ? new int[]{0, 1, 2, 3, 4, 5} : new int[]{0, 1, 2});
+    boolean velocities = false;
+    for (int j = 0; j < whichCoords.length; j++){
+      if(whichCoords[j] < 0 || whichCoords[j] >= units.length)
+        throw new IllegalArgumentException("Parameter 'whichCoords' contains a coordinate without unit");
+      if(whichCoords[j] >= 3) velocities = true;
+    }
+    int nbBodies = bodyIndexes.length;
+    _bodyIndexes = bodyIndexes.clone();
+    _jds = new double[nbJDs];
+    _timeFrame = timeFrame;
+    _series = new double[6*nbBodies][];
+    _frames = new byte[nbBodies][nbJDs];
+    _flags = new byte[nbBodies][nbJDs];
+    _errors = new byte[nbBodies][nbJDs];
+    for (int i = 0; i < nbBodies; i++){
+      for (int j = 0; j < whichCoords.length; j++)
+        if(_series[6*i + whichCoords[j]] == null) _series[6*i + whichCoords[j]] = new double[nbJDs];
+      java.util.Arrays.fill(_errors[i], (byte)NO_ERROR);
+    }
+    _posUnits = new int[]{units[0], units[1], units[2]};
+    if(velocities) _velUnits = new int[]{units[3], units[4], units[5]};
+  }// end BodyStateStore
+
+  //=================================================================================
+  //                                 PUBLIC METHODS
+  //=================================================================================
+
+  //************************* get methods  *******************************
+  /** Returns the number of bodies of this store. */
+  public int getNbBodies(){ return _bodyIndexes.length; }
+  /** Returns the number of dates of this store. */
+  public int getNbJDs(){ return _jds.length; }
+  /** Returns a copy of the indexes of the stored bodies. */
+  public int[] getBodyIndexes(){ return _bodyIndexes.clone(); }
+  /** Returns the julian day of the states stored at position 'iJD'. */
+  public double getJD(int iJD){ return _jds[iJD]; }
+  /** Returns the time frame of the julian days of this store. */
+  public int getTimeFrame(){ return _timeFrame; }
+  /** Indicates if this store contains velocities. */
+  public boolean hasVelocities(){ return _velUnits != null; }
+
+  //***************** getBodyPosition(bodyIndex) *******************************
+  /** Returns the position of a body in this store.
+  @param bodyIndex Index of the body, using {@link SolarSystemConstants} constants.
+  @return The position ('iBody'), or -1 if the body is not stored.
+  */
+  public int getBodyPosition(int bodyIndex){
+    for (int i = 0; i < _bodyIndexes.length; i++) if(_bodyIndexes[i] == bodyIndex) return i;
+    return -1;
+  }// end getBodyPosition
+
+  //***************** getSeries(iBody, iCoord) *******************************
+  /** Returns the values of a coordinate of a body for all the dates, <B>without copy</B>.
+  @param iBody Position of the body in this store.
+  @param iCoord The coordinate ; use {@link SpaceConstants}.<CODE>COORD_XX</CODE> constants.
+  @return The series, or null if this coordinate is not stored.
+  */
+  public double[] getSeries(int iBody, int iCoord){ return _series[6*iBody + iCoord]; }
+
+  //***************** getCoord(iBody, iJD, iCoord) *******************************
+  /** Returns a coordinate of a stored state. */
+  public double getCoord(int iBody, int iJD, int iCoord){ return _series[6*iBody + iCoord][iJD]; }
+
+  //***************** isStored(iBody, iJD) *******************************
+  /** Indicates if a state has been stored at this position. */
+  public boolean isStored(int iBody, int iJD){ return (_flags[iBody][iJD] & FLAG_STORED) != 0; }
+
+  //***************** setState(iBody, iJD, jd, body) *******************************
+  /** Copies the state of a body in this store ; only the stored coordinates are copied.
+  <BR>The coordinates of 'body' must be expressed with the units of this store (not checked).
+  @param iBody Position of the body in this store.
+  @param iJD Position of the date in this store.
+  @param jd Julian day of the state, in the time frame of this store.
+  */
+  public void setState(int iBody, int iJD, double jd, Body body){
+    double[] coords = body.getCoordsInternal();
+    int nbCoords = Math.min(6, coords.length);
+    for (int j = 0; j < nbCoords; j++)
+      if(_series[6*iBody + j] != null) _series[6*iBody + j][iJD] = coords[j];
+    ComputationException ce = body.getComputationException();
+    setFlags(iBody, iJD, jd, body.getFrame(), body.getCoordinateExpression(),
+             (ce == null ? NO_ERROR : ce.getErrorType()));
+  }// end setState
+
+  //***************** setState(iBody, iJD, jd, frame, sphereCart, whichCoords, values, errorType) *******************************
+  /** Stores a state whose coordinates are not held in a <CODE>Body</CODE> (a row of an ephemeris, for example).
+  <BR>The values must be expressed with the units of this store (not checked) ; the stored coordinates which are not
+  in 'whichCoords' are left unchanged.
+  @param iBody Position of the body in this store.
+  @param iJD Position of the date in this store.
+  @param jd Julian day of the state, in the time frame of this store.
+  @param frame Frame of the coordinates, using {@link SpaceConstants} constants.
+  @param sphereCart {@link SpaceConstants#SPHERICAL} or {@link SpaceConstants#CARTESIAN}.
+  @param whichCoords The coordinates contained in 'values', using {@link SpaceConstants}.<CODE>COORD_XX</CODE> constants.
+  @param values The values of the coordinates ; values[i] is the value of coordinate whichCoords[i].
+  @param errorType Type of the computation exception of the state (using {@link ComputationException} constants),
+  or {@link #NO_ERROR}.
+  @throws IllegalArgumentException if one of the coordinates is not stored.
+  */
+  public void setState(int iBody, int iJD, double jd, int frame, int sphereCart, int[] whichCoords, double[] values,
+                       int errorType){
+    for (int j = 0; j < whichCoords.length; j++){
+      if(_series[6*iBody + whichCoords[j]] == null)
+        throw new IllegalArgumentException("Coordinate " + whichCoords[j] + " is not stored");
+      _series[6*iBody + whichCoords[j]][iJD] = values[j];
+    }
+    setFlags(iBody, iJD, jd, frame, sphereCart, errorType);
+  }// end setState
+
+  //***************** setStates(iJD, ac) *******************************
+  /** Copies the states of the bodies of this store computed by an <CODE>AstroContext</CODE>.
+  @param iJD Position of the date in this store.
+  @param ac A context whose coordinates have been computed with the units of this store ;
+  it must handle all the bodies of this store.
+  @throws IllegalArgumentException if 'ac' doesn't handle one of the bodies.
+  */
+  public void setStates(int iJD, AstroContext ac){
+    Body b;
+    for (int i = 0; i < _bodyIndexes.length; i++){
+      b = ac.getBody(_bodyIndexes[i]);
+      if(b == null)
+        throw new IllegalArgumentException("Body " + _bodyIndexes[i] + " is not handled by the AstroContext");
+      setState(i, iJD, ac.getJd(), b);
+    }
+  }// end setStates
+
+  //***************** setFlags *******************************
+  // Stores the date, frame, flags and error of a state.
+  private void setFlags(int iBody, int iJD, double jd, int frame, int sphereCart, int errorType){
+    _jds[iJD] = jd;
+    _frames[iBody][iJD] = (byte)frame;
+    _flags[iBody][iJD] = (byte)(FLAG_STORED | (sphereCart == SPHERICAL ? FLAG_SPHERICAL : 0));
+    _errors[iBody][iJD] = (byte)errorType;
+  }// end setFlags
+
+  //***************** getView() *******************************
+  /** Returns a new view on this store, positioned on the first state. */
+  public View getView(){ return new View(); }
+
+  //=================================================================================
+  //                                 INNER CLASSES
+  //=================================================================================
+
+  //***************** View *******************************
+  /** Flyweight giving access to one state of the store with the get methods of {@link Body}.
+  <BR>A view doesn't copy the state ; it reflects the store at the moment the methods are called.
+  Unit arrays are shared by all the states and must not be modified.
+  */
+  public class View{
+
+    private int _iBody, _iJD;
+
+    private View(){}
+
+    /** Positions this view on a state, and returns it.
+    @param iBody Position of the body in the store.
+    @param iJD Position of the date in the store. */
+    public View moveTo(int iBody, int iJD){
+      if(iBody < 0 || iBody >= _bodyIndexes.length || iJD < 0 || iJD >= _jds.length)
+        throw new IndexOutOfBoundsException("No state (" + iBody + ", " + iJD + ") in this store");
+      _iBody = iBody;
+      _iJD = iJD;
+      return this;
+    }
+
+    /** Returns the position in the store of the body of the current state. */
+    public int getBodyPosition(){ return _iBody; }
+    /** Returns the position in the store of the date of the current state. */
+    public int getJDPosition(){ return _iJD; }
+    /** Returns the julian day of the current state, in the time frame of the store. */
+    public double getJD(){ return _jds[_iJD]; }
+    /** Indicates if the current state has been stored. */
+    public boolean isStored(){ return (_flags[_iBody][_iJD] & FLAG_STORED) != 0; }
+
+    /** See {@link Body#getIndex()}. */
+    public int getIndex(){ return _bodyIndexes[_iBody]; }
+    /** See {@link Body#getName()}. */
+    public String getName(){ return SolarSystem.getBodyName(_bodyIndexes[_iBody]); }
+    /** See {@link Body#getFrame()}. */
+    public int getFrame(){ return _frames[_iBody][_iJD]; }
+    /** See {@link Body#getCoordinateExpression()}. */
+    public int getCoordinateExpression(){
+      return ((_flags[_iBody][_iJD] & FLAG_SPHERICAL) != 0 ? SPHERICAL : CARTESIAN);
+    }
+    /** See {@link Body#getPositionUnits()}. */
+    public int[] getPositionUnits(){ return _posUnits; }
+    /** See {@link Body#getVelocityUnits()} ; returns null if the store doesn't contain velocities. */
+    public int[] getVelocityUnits(){ return _velUnits; }
+
+    /** See {@link Body#getCoord(int)}.
+    @throws IllegalArgumentException if 'iCoord' is not between 0 and 5, or designates a velocity
+    which is not stored. */
+    public double getCoord(int iCoord){
+      if(iCoord < 0 || iCoord > 5 || _series[6*_iBody + iCoord] == null)
+        throw new IllegalArgumentException("Parameter 'iCoord' must designate a stored coordinate");
+      return _series[6*_iBody + iCoord][_iJD];
+    }
+    /** See {@link Body#getPositionCoords()}.
+    @throws IllegalArgumentException if a position coordinate is not stored. */
+    public Vector3 getPositionCoords(){
+      return new Vector3(getCoord(COORD_X0), getCoord(COORD_X1), getCoord(COORD_X2));
+    }
+    /** See {@link Body#getVelocityCoords()}.
+    @throws IllegalArgumentException if a velocity coordinate is not stored. */
+    public Vector3 getVelocityCoords(){
+      return new Vector3(getCoord(COORD_V0), getCoord(COORD_V1), getCoord(COORD_V2));
+    }
+
+    /** Returns the type of the computation exception of the current state (using
+    {@link ComputationException} constants), or {@link BodyStateStore#NO_ERROR}. */
+    public int getErrorType(){ return _errors[_iBody][_iJD]; }
+    /** See {@link Body#getComputationException()} ; a new exception is built at each call. */
+    public ComputationException getComputationException(){
+      int type = _errors[_iBody][_iJD];
+      if(type == NO_ERROR) return null;
+      return new ComputationException(type, _bodyIndexes[_iBody], _jds[_iJD], _timeFrame);
+    }
+
+    /** Returns a new <CODE>Body</CODE> containing the current state ; coordinates which are not stored are 0. */
+    public Body toBody(){
+      boolean v = (_velUnits != null);
+      Body res = new Body(_bodyIndexes[_iBody], getFrame(), getCoordinateExpression(),
+                          _posUnits.clone(),
+                          (v ? _velUnits.clone() : new int[]{NO_SPECIF, NO_SPECIF, NO_SPECIF}),
+                          value(COORD_X0), value(COORD_X1), value(COORD_X2),
+                          value(COORD_V0), value(COORD_V1), value(COORD_V2));
+      res.setComputationException(getComputationException());
+      return res;
+    }
+
+    // Value of a coordinate of the current state, 0 if it is not stored.
+    private double value(int iCoord){
+      double[] series = _series[6*_iBody + iCoord];
+      return (series == null ? 0.0 : series[_iJD]);
+    }
+  }// end class View
+
+}// end class BodyStateStore
@@ -15,6 +15,7 @@ An object of this class holds data permitting to handle conversions between mean
 
 @author Thierry Graff
 @history jan 19 2002 : creation.
+@history oct 19 2026 : getTrueEqToEcMatrix() converts the obliquity to radians ; nutation really applied.
 
 @todo
 *********************************************************************************/
@@ -186,13 +187,12 @@ public class MeanTrue implements TimeConstants{
   }// end getEqNutationMatrix
 
   //******************************* getTrueEqToEcMatrix() ******************************
-  /** Returns the nutation matrix permitting to transform from <B>mean equatorial coordinates
-  of a date</B> to <B>true equatorial coordinates of a date</B>.
+  /** Returns the matrix permitting to transform from <B>true equatorial coordinates
+  of a date</B> to <B>ecliptic coordinates of the date</B> (rotation of the true obliquity).
   */
   public Matrix3 getTrueEqToEcMatrix(){
-    double deltaPsi = getQuantity(QTY_deltaPsi);
-    double deltaEpsilon = getQuantity(QTY_deltaEpsilon);
-    double epsilon_a = getQuantity(QTY_epsilon_a);
+    double deltaEpsilon = getQuantity(QTY_deltaEpsilon) * Maths.ARCSEC_TO_RAD;
+    double epsilon_a = getQuantity(QTY_epsilon_a) * Maths.ARCSEC_TO_RAD;
     double epsilonP_a = epsilon_a + deltaEpsilon; // epsilonP means epsilon_a'
     // intermediate variables
     double cep = Math.cos(epsilonP_a);
@@ -471,10 +471,9 @@ public class MeanTrue implements TimeConstants{
       case QTY_deltaEpsilon:
         // deltaPsi and deltaEpsilon are always computed together
         // so _qtyFlags[QTY_deltaEpsilon] is not used.
-        double deltaPsi = 0, deltaEpsilon = 0;
-        Nutation.calcDeltaPsiEpsilon(_date, deltaPsi, deltaEpsilon);
-        _qties[QTY_deltaPsi] = deltaPsi;
-        _qties[QTY_deltaEpsilon] = deltaEpsilon;
+        double[] nut = Nutation.calcDeltaPsiEpsilon(_date);
+        _qties[QTY_deltaPsi] = nut[0];
+        _qties[QTY_deltaEpsilon] = nut[1];
         _qtyFlags[QTY_deltaPsi] = true;
         _qtyFlags[QTY_deltaEpsilon] = true;
       break;
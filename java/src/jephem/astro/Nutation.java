@@ -15,6 +15,8 @@ Class to compute nutation quantities <FONT FACE="Symbol">Dy</FONT> and <FONT FAC
 
 @author Thierry Graff
 @history jan 30 2001 : creation
+@history oct 19 2026 : calcDeltaPsiEpsilon() returns its results (they were lost in parameters passed by value) ;
+                       fixed the scale of the amplitudes.
 
 @todo
 *********************************************************************************/
@@ -30,11 +32,10 @@ public abstract class Nutation{
   /** Calculates the nutation quantities
   <FONT FACE="Symbol">Dy</FONT> and <FONT FACE="Symbol">De</FONT>
   for a given time, in <B>arc seconds</B>.
-  @param jd The time to perform the calculations, in julian days.
-  @param deltaPsi Variable which takes the resulting value of deltaPsi calculation.
-  @param deltaEpsilon Variable which takes the resulting value of deltaEpsilon calculation.
+  @param date The time to perform the calculations, in julian days.
+  @return An array containing deltaPsi and deltaEpsilon.
   */
-  public static void calcDeltaPsiEpsilon(double date, double deltaPsi, double deltaEpsilon){
+  public static double[] calcDeltaPsiEpsilon(double date){
 
     double t, t2, t3, t4;
     t = (date - TimeConstants.JD2000) / TimeConstants.DAYS_PER_CENTURY;
@@ -61,7 +62,7 @@ public abstract class Nutation{
     delaunay[4] = (450160.398036 - 6962890.5431*t + 7.4722*t2 + 0.007702*t3 + 0.00005939*t4)
                 * Maths.ARCSEC_TO_RAD;
 
-    deltaPsi = deltaEpsilon = 0;
+    double deltaPsi = 0, deltaEpsilon = 0;
     double  arg;
     int i, j;
     // perform the summation
@@ -69,12 +70,14 @@ public abstract class Nutation{
       arg = 0;
       for (j=0; j < NB_ARGS; j++)
         arg += arguments[i][j]*delaunay[j];
-      deltaPsi += (amplitudes[i][0] + amplitudes[i][1]*t) * Math.sin(arg);
-      deltaEpsilon += (amplitudes[i][2] + amplitudes[i][3]*t) * Math.cos(arg);
+      // amplitudes in 0.0001", their variations in 0.00001" per century
+      deltaPsi += (amplitudes[i][0] + amplitudes[i][1]*t/10.0) * Math.sin(arg);
+      deltaEpsilon += (amplitudes[i][2] + amplitudes[i][3]*t/10.0) * Math.cos(arg);
     }
     // convert to arc seconds
-    deltaPsi *= 10000;
-    deltaEpsilon *= 10000;
+    deltaPsi /= 10000;
+    deltaEpsilon /= 10000;
+    return new double[]{deltaPsi, deltaEpsilon};
   }// end getDeltaPsiEpsilon
 
   //=================================================================================
@@ -7,16 +7,24 @@
 package jephem.astro.sky;
 
 import jephem.util.Debug;
+import jephem.astro.MeanTrue;
 import jephem.astro.sky.ConstellationConstants;
+import jephem.astro.spacetime.TimeConstants;
 
 import tig.GeneralConstants;
 import tig.Exceptions;
+import tig.maths.Matrix3;
+import tig.maths.Vector3;
 
 import java.io.*;
 /******************************************************************************
 Holds data and methods to handle constellations.
+<BR>The constellation containing a position is found with the zones of Roman (1987) : the boundaries of
+Delporte, as arcs of right ascension and declination for the equator and equinox 1875.0. The zones which can
+contain a position are memorized on a grid of cells of one degree, so that each search tests only a few zones.
 @author Thierry Graff.
 @history apr 27 2002 : Creation
+@history oct 19 2026 : implementation of getConstellation(), with a grid index.
 
 @todo
 *********************************************************************************/
@@ -79,19 +87,84 @@ public abstract class Constellations implements ConstellationConstants, GeneralC
 
   //*************************************************
   /** Returns the latin abbreviation of the constellation which "contains" a given couple (right ascension, declination).
+  <BR>See {@link #findConstellation(double, double)} for the parameters.
   */
   public static String getConstellation(double ra, double dec){
-    return "toto";
-  }// end getBoundaries
+    return getAbbreviation(findConstellation(ra, dec));
+  }// end getConstellation
+
+  //*************************************************
+  /** Returns the constellation which contains a given couple (right ascension, declination).
+  <BR>Coordinates related to another equator and equinox can be converted with the matrix returned by
+  {@link #get1875Matrix(double, boolean)}.
+  <BR>Serpens Caput and Serpens Cauda are not distinguished.
+  @param ra Right ascension, in radians, for mean equator and equinox 1875.0 ; any value is accepted.
+  @param dec Declination, in radians, for mean equator and equinox 1875.0, in [-pi/2, pi/2].
+  @return An integer identifying the constellation, using {@link ConstellationConstants} constants.
+  */
+  public static int findConstellation(double ra, double dec){
+    if(dec < -Math.PI / 2 || dec > Math.PI / 2) throw new IllegalArgumentException("'dec' must be in [-pi/2, pi/2]");
+    ra = ra - TWO_PI * Math.floor(ra / TWO_PI);
+    if(ra >= TWO_PI) ra = 0; // rounding of tiny negative values
+    int iRa = Math.min((int)(ra / GridIndex.CELL), GridIndex.NB_RA - 1);
+    int iDec = Math.min((int)((dec + Math.PI / 2) / GridIndex.CELL), GridIndex.NB_DEC - 1);
+    int[] zones = GridIndex.CELLS[iRa * GridIndex.NB_DEC + iDec];
+    for (int i = 0; i < zones.length; i++)
+      if(inZone(zones[i], ra, dec)) return GridIndex.CONSTS[zones[i]];
+    // not reached, the last zone contains the whole sphere
+    for (int i = 0; i < _romanDoubles.length; i++)
+      if(inZone(i, ra, dec)) return GridIndex.CONSTS[i];
+    return GridIndex.CONSTS[_romanDoubles.length - 1];
+  }// end findConstellation
+
+  //*************************************************
+  /** Returns the constellation which contains a given vector, expressed in cartesian equatorial coordinates.
+  @param m Matrix converting the vector to the equator and equinox 1875.0 (see {@link #get1875Matrix(double, boolean)}),
+  or null if the vector is already referred to 1875.0.
+  @param v Cartesian coordinates ; the norm can be any positive number.
+  @return An integer identifying the constellation, using {@link ConstellationConstants} constants.
+  */
+  public static int findConstellation(Matrix3 m, Vector3 v){
+    if(m != null) v = Vector3.mul(m, v);
+    double r = Math.sqrt(v.x0 * v.x0 + v.x1 * v.x1 + v.x2 * v.x2);
+    return findConstellation(Math.atan2(v.x1, v.x0), Math.asin(Math.max(-1.0, Math.min(1.0, v.x2 / r))));
+  }// end findConstellation(Matrix3, Vector3)
+
+  //*************************************************
+  /** Returns the matrix converting equatorial coordinates related to the equator and equinox of a date to
+  the mean equator and equinox 1875.0, used by the zones of the constellations.
+  <BR>To tag many positions of the same epoch (ex : a catalog for J2000), the matrix is computed once.
+  @param jd The date, in julian days (TT).
+  @param trueEquator true for the true equator and equinox of date, false for the mean equator and equinox.
+  */
+  public static Matrix3 get1875Matrix(double jd, boolean trueEquator){
+    MeanTrue mt = new MeanTrue(jd, TimeConstants.JD2000);
+    Matrix3 m = Matrix3.invert(mt.getEqPrecessionMatrix()); // date -> J2000
+    if(trueEquator) m = Matrix3.mul(m, Matrix3.invert(mt.getEqNutationMatrix()));
+    return Matrix3.mul(new MeanTrue(JD1875, TimeConstants.JD2000).getEqPrecessionMatrix(), m);
+  }// end get1875Matrix
 
   //=================================================================================
   //                                 PRIVATE METHODS
   //=================================================================================
 
+  //*************************************************
+  // Returns true if (ra, dec) belongs to the zone 'i' of _romanDoubles ; a position belongs to the
+  // constellation of the first zone containing it.
+  private static boolean inZone(int i, double ra, double dec){
+    double[] zone = _romanDoubles[i];
+    return dec >= zone[2] && ra >= zone[0] && ra < zone[1];
+  }// end inZone
+
   //=================================================================================
   //                     PRIVATE CONSTANTS
   //=================================================================================
 
+  private static final double TWO_PI = 2 * Math.PI;
+
+  /** Julian day of the epoch B1875.0 (TT). */
+  private static final double JD1875 = 2405889.258550475;
+
   /** Contains the abbreviation, nominative and genitive of constellations. */
   private static final String[][] _names = {
     {"And", "Andromeda", "Andromedae"},
@@ -160,7 +233,7 @@ public abstract class Constellations implements ConstellationConstants, GeneralC
     {"Phe", "Phoenix", "Phoenicis"},
     {"Pic", "Pictor", "Pictoris"},
     {"PsA", "Piscis Austrinus", "Piscis Austrini"},
-    {"Pse", "Pisces", "Piscium"},
+    {"Psc", "Pisces", "Piscium"},
     {"Pup", "Puppis", "Puppis"},
     {"Pyx", "Pyxis", "Pyxidis"},
     {"Ret", "Reticulum", "Reticuli"},
@@ -2706,4 +2779,50 @@ public abstract class Constellations implements ConstellationConstants, GeneralC
     "Oct"
   }; // end _romanStrings
 
+  //=================================================================================
+  //                                 INNER CLASSES
+  //=================================================================================
+
+  //*************************************************
+  /** Grid of cells of one degree in right ascension and declination ; each cell contains the indexes of
+  the zones of _romanDoubles which can contain its points, in the order of _romanDoubles, until the first
+  zone containing the whole cell.
+  <BR>Built when first used (by the class loader, so it is thread safe). */
+  private static class GridIndex{
+    static final int NB_RA = 360, NB_DEC = 180;
+    static final double CELL = Math.PI / 180;
+    /** Margin used to compare the cells and the zones, in radians. */
+    static final double EPS = 1.0e-9;
+    /** Cells, index = iRa * NB_DEC + iDec. */
+    static final int[][] CELLS = new int[NB_RA * NB_DEC][];
+    /** Constellation of each zone. */
+    static final int[] CONSTS = new int[_romanStrings.length];
+
+    static{
+      for (int i = 0; i < CONSTS.length; i++){
+        CONSTS[i] = -1;
+        for (int j = 0; j < NB_CONSTELLATIONS && CONSTS[i] < 0; j++)
+          if(_names[j][0].equals(_romanStrings[i])) CONSTS[i] = j;
+      }
+      int[] buf = new int[_romanDoubles.length];
+      for (int iRa = 0; iRa < NB_RA; iRa++){
+        double ra0 = iRa * CELL, ra1 = ra0 + CELL;
+        for (int iDec = 0; iDec < NB_DEC; iDec++){
+          double dec0 = iDec * CELL - Math.PI / 2, dec1 = dec0 + CELL;
+          int n = 0;
+          for (int i = 0; i < _romanDoubles.length; i++){
+            double[] zone = _romanDoubles[i];
+            if(zone[2] > dec1 + EPS || zone[0] > ra1 + EPS || zone[1] < ra0 - EPS) continue; // disjoint
+            buf[n++] = i;
+            if(zone[2] < dec0 - EPS && (zone[0] < ra0 - EPS || zone[0] == 0.0)
+               && (zone[1] > ra1 + EPS || zone[1] > TWO_PI - EPS)) break; // contains the cell
+          }
+          int[] cell = new int[n];
+          System.arraycopy(buf, 0, cell, 0, n);
+          CELLS[iRa * NB_DEC + iDec] = cell;
+        }
+      }
+    }
+  }// end class GridIndex
+
 } //end class Constellations
@@ -26,6 +26,9 @@ Calculation of the Moon coordinates with ELP-2000 82B theory.
 
 @author Thierry Graff.
 @history aug 18 2001 : creation
+@history oct 19 2026 : Analytic velocities ; precision filter expressed in arc seconds ;
+                       fixed selection of the files whose terms are multiplied by t or t^2.
+@history oct 19 2026 : Validity interval ; total number of terms computed once.
 
 @todo handle AstroException
 @todo handle Exception propagation in loadData()
@@ -46,6 +49,12 @@ public class ELP82 implements PlanetaryTheory{
   /** Time and its powers ; _t[i] = t^i */
   private double[] _t;
 
+  /** Derivatives of the powers of time ; _dt[i] = i * t^(i-1) */
+  private double[] _dt;
+
+  /** Derivatives of the sums, with respect to t (in centuries) ; used when velocities are computed. */
+  private double[] _resDot;
+
   //*********************************************************************************
   //********************************** CONSTANTS ************************************
   //*********************************************************************************
@@ -57,6 +66,11 @@ public class ELP82 implements PlanetaryTheory{
   /** Number of coordinates. */
   private final static int NB_COORD = 3;
 
+  /** Units of the velocities computed by ELP82. */
+  private static final int[] UNITGROUP_KMD_KMD_KMD = { UnitsConstants.LINEAR_SPEED_UNIT_KM_PER_D,
+                                                       UnitsConstants.LINEAR_SPEED_UNIT_KM_PER_D,
+                                                       UnitsConstants.LINEAR_SPEED_UNIT_KM_PER_D };
+
   /** Max degree of time. */
   private static final int MAXALPHA	= 4;
 
@@ -190,7 +204,7 @@ public class ELP82 implements PlanetaryTheory{
   /** Path to the files containing ELP terms. */
   private static String _dataPath;
   /** Indicates if the data have been loaded . */
-  private static boolean _dataLoaded = false;
+  private static volatile boolean _dataLoaded = false;
 
   /** Number of terms contained in the files.
   <BR><CODE>nbTerms[i][j]</CODE> contains terms of file ELPXX where XX = i*NB_COORD + j.
@@ -213,6 +227,21 @@ public class ELP82 implements PlanetaryTheory{
     {28, 13, 19}            // nb terms in ELP34, ELP35, ELP36
   }; // total 37872
 
+  /** Total number of terms (37872). */
+  private static final int TOTAL_TERMS;
+  static{
+    int n = 0;
+    for (int i = 0; i < nbTerms.length; i++)
+      for (int j = 0; j < NB_COORD; j++) n += nbTerms[i][j];
+    TOTAL_TERMS = n;
+  };
+
+  /** Validity start date (expressed in julian days) - J2000 - 4000 years, as for the inner planets of VSOP87 ;
+  the secular terms of the arguments limit the solution to a few thousand years around J2000. */
+  private static final double VALIDITY_START = TimeConstants.JD2000 - 1461000;
+  /** Validity end date (expressed in julian days) - J2000 + 4000 years. */
+  private static final double VALIDITY_END = TimeConstants.JD2000 + 1461000;
+
   /** Array indicating the the time degree by which terms from a group of 3 files must be multiplied.
   <BR>timeDegree[0] concerns ELP1, ELP2, ELP3 ; timeDegree[1] concerns ELP4, ELP5, ELP6 etc... */
   // USELESS NOW...
@@ -276,6 +305,17 @@ public class ELP82 implements PlanetaryTheory{
     return 0.01; // TEMP CODE ; to implement precisely
   }// end getPrecision
 
+  /** Indicates if a julian day is inside the validity interval of ELP82. */
+  public static boolean isDateValid(double jd){
+    return jd >= VALIDITY_START && jd <= VALIDITY_END;
+  }// end isDateValid
+
+  /** Returns the cost of a computation, expressed as the number of terms of the series (37872) ;
+  terms smaller than the precision are not summed, but still scanned. */
+  public static int getCost(){
+    return TOTAL_TERMS;
+  }// end getCost
+
   /** Sets the path to data used by ELP82 to perform the computations. */
   public static void setDataPath(String dataPath){
     _dataPath = dataPath;
@@ -304,12 +344,16 @@ public class ELP82 implements PlanetaryTheory{
     if (precision < getPrecision(SolarSystemConstants.MOON, jd))
       body.setComputationException(new ComputationException(ComputationException.PRECISION_ERROR,
                                                             body.getIndex(), jd, TimeConstants.TT_TDB));
+    if (!isDateValid(jd))
+      body.setComputationException(new ComputationException(ComputationException.DATE_LIMIT_ERROR,
+                                                            body.getIndex(), jd, TimeConstants.TT_TDB));
 
     ELP82 elp = new ELP82();
     elp.initVariables(jd, body, precision, velocities);
 
     double[] res = new double[3]; // contains the results (long., lat., dist.)
     res[0] = res[1] = res[2] = 0.0;
+    elp._resDot = new double[3];
 
     // iFile represents here a group of 3 files (1 - 12)
     for(int iFile = 0; iFile < NB_FILES/NB_COORD; iFile++){
@@ -327,9 +371,8 @@ public class ELP82 implements PlanetaryTheory{
     //if(velocities) body.setVelocityUnits(UNITGROUP_AUD_AUD_AUD);
     body.setPositionCoords(res[0], res[1], res[2]);
     if (velocities){
-      //body.setVelocityCoords(res[3], res[4], res[5]);
-      body.setVelocityCoords(10, 10, 10);
-      body.setVelocityUnits(UnitsConstants.UNITGROUP_AUD_AUD_AUD);
+      body.setVelocityCoords(res[3], res[4], res[5]);
+      body.setVelocityUnits(UNITGROUP_KMD_KMD_KMD);
     }
 //System.out.println("res[0] = " + res[0]);
 //System.out.println("res[1] = " + res[1]);
@@ -350,10 +393,12 @@ public class ELP82 implements PlanetaryTheory{
     _body = body;
     _precision = precision;
     _velocities = velocities;
+    // Terms of longitude and latitude are in arc seconds, terms of distance in km ;
+    // 'precision' is in arc seconds (fortran code uses radians).
     _pre = new double[3];
-    _pre[0] = _precision*rad - 1E-12;
-    _pre[1] = _precision*rad - 1E-12;
-    _pre[2] = _precision*ath;
+    _pre[0] = _precision - 1E-12;
+    _pre[1] = _precision - 1E-12;
+    _pre[2] = _precision/rad*ath;
 
     // Time and its powers ; _t[i] = t^i
     _t = new double[MAXALPHA + 1];
@@ -361,29 +406,34 @@ public class ELP82 implements PlanetaryTheory{
     _t[1] = (jd - TimeConstants.JD2000)/TimeConstants.DAYS_PER_CENTURY;
     for (int i = 2; i<= MAXALPHA; i++)
       _t[i] = _t[i-1] * _t[1];
+    _dt = new double[MAXALPHA + 1];
+    for (int i = 1; i<= MAXALPHA; i++)
+      _dt[i] = i * _t[i-1];
 
   } // end initVariables()
 
 
   //******************* sum(iFile, iCoord) **************************
   /** Performs the summation for all terms of a file.
+  <BR>If velocities are computed, the derivative of the sum with respect to time is added to
+  <CODE>_resDot[iCoord]</CODE>.
   @param iFile Index of the group of 3 files (0-11).
   @param iCoord Index of the coordinate concerned by the file
   */
   private double sum(int iFile, int iCoord){
 
     double res = 0.0;
+    double resDot = 0.0;
     int curFile = iFile * NB_COORD + iCoord + 1; // real index of the file (1 - 36)
     int i,j,k; // used to loop
+    double c; // coefficient of a power of time in the argument
 
     // ***** ELP1, ELP2, ELP3
     // ***** Main problem.
     if (curFile < 4){
-      double x, y;
+      double x, y, yDot;
       double tgv, coef1;
       for (i = 0; i < nbTerms[iFile][iCoord]; i++){
-//System.out.println("case 1-3 curFile = " + curFile + " i = " + i);
-//System.out.println("iFile = " + iFile + " iCoord = " + iCoord + " i = " + i);
         x = dblTerms[curFile-1][i][0];
         if(Math.abs(x) < _pre[iCoord]) continue; // precision filter
 
@@ -393,86 +443,104 @@ public class ELP82 implements PlanetaryTheory{
         x = coef1 + tgv*(delnp-am*delnu) + dblTerms[curFile-1][i][2]*delg
           + dblTerms[curFile-1][i][3]*dele + dblTerms[curFile-1][i][4]*delep;
 
-        y = 0.0;
+        y = yDot = 0.0;
         for (j = 0; j < 5; j++){
+          c = 0.0;
           for (k = 0; k < 4; k++){
-            y += intTerms[curFile-1][i][k] * del[k][j] * _t[j];
+            c += intTerms[curFile-1][i][k] * del[k][j];
           }// end for k
+          y += c * _t[j];
+          yDot += c * _dt[j];
         }// end for j
         if (iCoord == 2) y += pis2;
         y = Maths.modX(y, cpi2);
 
         res += x*Math.sin(y);
+        if (_velocities) resDot += x*yDot*Math.cos(y);
       }// end for i
     }// end ELP1 -> ELP3
 
     // ***** ELP4 -> ELP9 and ELP22 -> ELP36
     // ***** Figures - Tides - Relativity - Solar eccentricity.
     else if (curFile < 10 || curFile > 21){
-      double x, y;
+      double x, xDot, y, yDot;
       for (i = 0; i < nbTerms[iFile][iCoord]; i++){
-//System.out.println("case 4-9 22-36 curFile = " + curFile + " i = " + i);
         x = dblTerms[curFile-1][i][1];
         if(Math.abs(x) < _pre[iCoord]) continue; // precision filter
 
-        if (iFile > 6 && iFile < 10) x*= _t[1];
-        if (iFile > 24 && iFile < 28) x*= _t[1];
-        if (iFile > 33) x*= _t[2];
+        xDot = 0.0;
+        if ((curFile > 6 && curFile < 10) || (curFile > 24 && curFile < 28)){
+          xDot = x;
+          x *= _t[1];
+        }
+        else if (curFile > 33){
+          xDot = x * _dt[2];
+          x *= _t[2];
+        }
 
         y = dblTerms[curFile-1][i][0] * deg;
+        yDot = 0.0;
         for (j = 0 ; j < 2; j++){
-          y += intTerms[curFile-1][i][0] * zeta[j] * _t[j];
+          c = intTerms[curFile-1][i][0] * zeta[j];
           for (k = 0; k < 4; k++){
-            y += intTerms[curFile-1][i][k+1] * del[k][j] * _t[j];
+            c += intTerms[curFile-1][i][k+1] * del[k][j];
           }// end for k
+          y += c * _t[j];
+          yDot += c * _dt[j];
         }// end for j
         y = Maths.modX(y, cpi2);
 
         res += x*Math.sin(y);
+        if (_velocities) resDot += xDot*Math.sin(y) + x*yDot*Math.cos(y);
       }// end for i
     }// end ELP4 -> ELP9 and ELP22 -> ELP36
 
     // ***** ELP10 -> ELP21
     // ***** Planetary perturbations
     else if (curFile < 22){
-      double x, y, z;
+      double x, xDot, y, yDot;
       for (i = 0; i < nbTerms[iFile][iCoord]; i++){
-//System.out.println("case 10 -21 curFile = " + curFile + " i = " + i);
         x = dblTerms[curFile-1][i][1];
         if(Math.abs(x) < _pre[iCoord]) continue; // precision filter
 
-        if( (iFile > 12 && iFile < 16) || (iFile > 18 && iFile < 22) )
+        xDot = 0.0;
+        if( (curFile > 12 && curFile < 16) || (curFile > 18 && curFile < 22) ){
+          xDot = x;
           x *= _t[1];
+        }
 
         y = dblTerms[curFile-1][i][0] * deg;
+        yDot = 0.0;
 
-        if (iFile < 16){
-          for (j = 0 ; j < 2; j++){
-            z = intTerms[curFile-1][i][8] * del[0][j]
+        for (j = 0 ; j < 2; j++){
+          if (curFile < 16){
+            c = intTerms[curFile-1][i][8] * del[0][j]
               + intTerms[curFile-1][i][9] * del[2][j]
               + intTerms[curFile-1][i][10] * del[3][j];
-            y += z*_t[j];
             for (k = 0; k < 8; k++){
-              y += intTerms[curFile-1][i][k] * p[k][j] * _t[j];
+              c += intTerms[curFile-1][i][k] * p[k][j];
             }// end for k
-          }// end for j
-        }
-        else{
-          for (j = 0 ; j < 2; j++){
+          }
+          else{
+            c = 0.0;
             for (k = 0; k < 4; k++){
-              y += intTerms[curFile-1][i][k+7] * del[k][j] * _t[j];
+              c += intTerms[curFile-1][i][k+7] * del[k][j];
             }// end for k
             for (k = 0; k < 7; k++){
-              y += intTerms[curFile-1][i][k] * p[k][j] * _t[j];
+              c += intTerms[curFile-1][i][k] * p[k][j];
             }// end for k
-          }// end for j
-        }
+          }
+          y += c * _t[j];
+          yDot += c * _dt[j];
+        }// end for j
         y = Maths.modX(y, cpi2);
         res += x*Math.sin(y);
+        if (_velocities) resDot += xDot*Math.sin(y) + x*yDot*Math.cos(y);
 
       }// end for i
     }// end ELP10 -> ELP21
 
+    _resDot[iCoord] += resDot;
     return res;
 
   } // end sum
@@ -480,23 +548,24 @@ public class ELP82 implements PlanetaryTheory{
 
   //******************* endCalculation *************
   /** Finalizes the calculation after the main sum.
-  @return An array containing the 3 cartesian coordinates expressed in km.
+  @return An array containing the 3 cartesian coordinates expressed in km and, if velocities are computed,
+  the 3 cartesian velocities expressed in km/d.
   **/
   private double[] endCalculation(double[] res){
     // convert longitude given by the series in radians and add mean longitude
-    res[0] = res[0]/rad + w[0][0] + w[0][1]*_t[1] + w[0][2]*_t[2] + w[0][3]*_t[3] + w[0][4]*_t[4];
+    double L = res[0]/rad + w[0][0] + w[0][1]*_t[1] + w[0][2]*_t[2] + w[0][3]*_t[3] + w[0][4]*_t[4];
     // convert latitude to radians
-    res[1] = res[1]/rad;
+    double B = res[1]/rad;
     // slightly modify distance (why ??????)
-    res[2] = res[2]*a0/ath;
+    double r = res[2]*a0/ath;
 
     // Here res are expressed in ELP natural frame
 
     // transform to cartesian
-    double x1 = res[2]*Math.cos(res[1]);
-    double x2 = x1*Math.sin(res[0]);
-    x1 = x1*Math.cos(res[0]);
-    double x3 = res[2]*Math.sin(res[1]);
+    double cL = Math.cos(L), sL = Math.sin(L), cB = Math.cos(B), sB = Math.sin(B);
+    double x1 = r*cB*cL;
+    double x2 = r*cB*sL;
+    double x3 = r*sB;
 
     // Change frame (to inertial mean ecliptic and equinox JD2000)
     double pw = (p1 + p2*_t[1] + p3*_t[2] + p4*_t[3] + p5*_t[4]) * _t[1];
@@ -508,16 +577,33 @@ public class ELP82 implements PlanetaryTheory{
     pw = pw*ra;
     qw = qw*ra;
 
-    res[0] = pw2*x1 + pwqw*x2 + pw*x3;
-    res[1] = pwqw*x1 + qw2*x2 - qw*x3;
-    res[2] = -pw*x1 + qw*x2 + (pw2 + qw2 - 1.0) * x3;
-    return res;
+    double[] result = new double[_velocities ? 6 : 3];
+    result[0] = pw2*x1 + pwqw*x2 + pw*x3;
+    result[1] = pwqw*x1 + qw2*x2 - qw*x3;
+    result[2] = -pw*x1 + qw*x2 + (pw2 + qw2 - 1.0) * x3;
+
+    if (_velocities){
+      // derivatives with respect to t (centuries) of L, B, r
+      double Ldot = _resDot[0]/rad + w[0][1] + w[0][2]*_dt[2] + w[0][3]*_dt[3] + w[0][4]*_dt[4];
+      double Bdot = _resDot[1]/rad;
+      double rdot = _resDot[2]*a0/ath;
+      double v1 = rdot*cB*cL - r*sB*Bdot*cL - r*cB*sL*Ldot;
+      double v2 = rdot*cB*sL - r*sB*Bdot*sL + r*cB*cL*Ldot;
+      double v3 = rdot*sB + r*cB*Bdot;
+      // the variation of the frame change matrix is neglected (relative effect ~1e-7).
+      result[3] = (pw2*v1 + pwqw*v2 + pw*v3) / TimeConstants.DAYS_PER_CENTURY;
+      result[4] = (pwqw*v1 + qw2*v2 - qw*v3) / TimeConstants.DAYS_PER_CENTURY;
+      result[5] = (-pw*v1 + qw*v2 + (pw2 + qw2 - 1.0) * v3) / TimeConstants.DAYS_PER_CENTURY;
+    }
+    return result;
 
   } // end endCalculation()
 
   //******************* loadData() **********************************
-  /** Loads the data in arrays intTerms[][][] and dblTerms[][][]. */
-  private static void loadData() throws AstroException{
+  /** Loads the data in arrays intTerms[][][] and dblTerms[][][].
+  <BR>Synchronized, so that concurrent first computations load the data only once. */
+  private static synchronized void loadData() throws AstroException{
+    if(_dataLoaded) return; // loaded by an other thread
     if(_dataPath == null){
       throw new AstroException("Before Using ELP82, you must indicate where VSOP data are located with setDataPath()");
     }
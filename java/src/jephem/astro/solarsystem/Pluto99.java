@@ -62,6 +62,14 @@ public abstract class Pluto99 implements PlanetaryTheory, TimeConstants{
     {183, 29, 14}, // Poisson terms for Y, order 0, 1, 2
     {170, 20, 11}  // Poisson terms for Z, order 0, 1, 2
   }; // total 659 terms
+  /** Total number of Poisson terms (659). */
+  private static final int TOTAL_TERMS;
+  static{
+    int n = 0;
+    for (int i = 0; i < NB_COORD; i++)
+      for (int j = 0; j < NB_ORDERS; j++) n += nbTerms[i][j];
+    TOTAL_TERMS = n;
+  };
 
   //=================================================================================
   //                            METHODS
@@ -76,6 +84,16 @@ public abstract class Pluto99 implements PlanetaryTheory, TimeConstants{
     return 0.37; // TEMP CODE ; to implement precisely
   }// end getPrecision
 
+  /** Indicates if a julian day is inside the validity interval of Pluto99. */
+  public static boolean isDateValid(double jd){
+    return jd >= VALIDITY_START && jd <= VALIDITY_END;
+  }// end isDateValid
+
+  /** Returns the cost of a computation, expressed as the number of terms of the series (659). */
+  public static int getCost(){
+    return TOTAL_TERMS;
+  }// end getCost
+
   /****************************************************************
   Calculation of Pluto position and velocity.
   <BR>If the date asked for the computation is not handled by Pluto99 theory or if parameter 'precision' can't be
@@ -24,6 +24,7 @@ import tig.GeneralConstants;
 Class serving to interface JEphem and the java port of SwissEphemeris.
 @author Thierry Graff
 @history feb 02 2002 : creation.
+@history oct 19 2026 : One SwissEph per thread, so that concurrent computations don't share its state.
 
 @todo To be able to get an ComputationException from calcBodyCoords, class SwissEphe should be modified.
 *********************************************************************************/
@@ -36,8 +37,11 @@ public abstract class SwissEphemeris
   /** path to SwissEphemeris data. */
   private static String _dataPath;
 
-  /** The only SwissEphemeris used to perform the computations. */
-  private static SwissEph _se;
+  /** The SwissEph used to perform the computations by the current thread ;
+  SwissEph keeps internal state between calls, so it can't be shared by several threads. */
+  private static final ThreadLocal<SwissEph> _se = new ThreadLocal<SwissEph>(){
+    protected SwissEph initialValue(){ return new SwissEph(_dataPath); }
+  };
 
   //=================================================================================
   //                                      CONSTANTS
@@ -66,10 +70,7 @@ public abstract class SwissEphemeris
     if (_dataPath == null){
       throw new AstroException("Before Using SwissEphemeris, you must indicate where data are located with setDataPath()");
     }
-    if (_se == null){
-      //System.out.println("SwissEphemeris.calcBodyCoords() - build swiwsseph : " + _dataPath);
-      _se = new SwissEph(_dataPath);
-    }
+    SwissEph se = _se.get();
 
     int iPlanet; // 'planet' = moving body
     int flag;
@@ -103,7 +104,7 @@ public abstract class SwissEphemeris
 
       // call swiss ephemeris
       err = new StringBuffer(); //err.delete(0, err.length() - 1);
-      _se.swe_calc_ut(jd, iPlanet, flag, res, err);
+      se.swe_calc_ut(jd, iPlanet, flag, res, err);
       //System.out.println("values from swisseph : " + tig.Strings.doubleArrayToString(res));
 
       // fill bodies
@@ -0,0 +1,53 @@
+//*********************************************************************************
+// interface jephem.astro.solarsystem.TheoryProvider
+// Software released under the General Public License (version 2 or later), available at
+// http://www.gnu.org/copyleft/gpl.html
+//*********************************************************************************
+package jephem.astro.solarsystem;
+
+import jephem.astro.AstroException;
+import jephem.astro.Body;
+
+/******************************************************************************
+Service provider interface for the low-level computation of body coordinates.
+<BR>A <CODE>TheoryProvider</CODE> declares which bodies, dates and precisions it can handle, and an
+estimated cost for one evaluation ; {@link TheoryProviders} uses these informations to choose,
+for each body, the cheapest provider satisfying a computation.
+<BR>Providers must compute <B>geometric</B> coordinates, in the frame of the theories of JEphem :
+<LI>Mean ecliptic and equinox J2000,</LI>
+<LI>heliocentric for the planets, geocentric for the Moon,</LI>
+<LI>cartesian coordinates, units being set in the <CODE>Body</CODE>.</LI>
+<BR>Implementations must be usable by several threads at the same time.
+
+@author Thierry Graff
+@history oct 19 2026 : creation.
+*********************************************************************************/
+public interface TheoryProvider{
+
+  /** Returns a name identifying this provider. */
+  public String getName();
+
+  /** Indicates if this provider can compute a given body.
+  @param bodyIndex Index of the body, using {@link SolarSystemConstants} constants. */
+  public boolean handles(int bodyIndex);
+
+  /** Indicates if a julian day (TT) is inside the validity interval of this provider for a given body. */
+  public boolean isDateValid(int bodyIndex, double jd);
+
+  /** Returns the best precision this provider can reach for a body at a given julian day, in arc seconds. */
+  public double getPrecision(int bodyIndex, double jd);
+
+  /** Returns the estimated cost of one evaluation for a body and a precision.
+  <BR>Unit is the cost of the evaluation of one term of a trigonometric series. */
+  public double getCost(int bodyIndex, double precision);
+
+  /** Computes the geometric coordinates of a body.
+  <BR>If the date or the precision can't be handled, a {@link ComputationException} is stored in 'body'.
+  @param jd Julian day, time scale TT.
+  @param precision Precision required, in arc seconds.
+  @param velocities Indicates if velocities must also be computed.
+  @throws AstroException if the computation can't be done (missing data...).
+  */
+  public void calcCoord(double jd, Body body, double precision, boolean velocities) throws AstroException;
+
+}// end interface TheoryProvider
@@ -0,0 +1,159 @@
+//*********************************************************************************
+// class jephem.astro.solarsystem.TheoryProviders
+// Software released under the General Public License (version 2 or later), available at
+// http://www.gnu.org/copyleft/gpl.html
+//*********************************************************************************
+package jephem.astro.solarsystem;
+
+import jephem.astro.AstroException;
+import jephem.astro.Body;
+import jephem.astro.solarsystem.vsop87.VSOP87;
+
+/******************************************************************************
+Registry of the {@link TheoryProvider}s used by {@link jephem.astro.AstroContext}.
+<BR>Contains by default VSOP87 (Mercury to Neptune, including the Earth), Pluto99 and ELP82 (Moon) ;
+other providers (interpolated tables, precomputed files...) can be added with {@link #addProvider(TheoryProvider)}.
+<BR>For a body, a julian day and a precision, {@link #getProvider(int, double, double)} returns :
+<LI>the cheapest provider valid for the date and reaching the precision ;</LI>
+<LI>if none reaches the precision, the most precise provider valid for the date ;</LI>
+<LI>if none is valid for the date, the first provider handling the body
+(the theory will then store a {@link ComputationException} in the body).</LI>
+<BR>Registration replaces the array of providers (copy on write), so that the selection can be done
+by several threads without locking.
+
+@author Thierry Graff
+@history oct 19 2026 : creation.
+*********************************************************************************/
+public abstract class TheoryProviders implements SolarSystemConstants{
+
+  //=================================================================================
+  //                                 CLASS VARIABLES
+  //=================================================================================
+  /** Providers, in order of registration ; never modified, replaced when a provider is added or removed. */
+  private static volatile TheoryProvider[] _providers = new TheoryProvider[]{
+    new VSOP87Provider(), new Pluto99Provider(), new ELP82Provider()
+  };
+
+  //=================================================================================
+  //                                 PUBLIC METHODS
+  //=================================================================================
+
+  //***************** addProvider(provider) *******************************
+  /** Registers a provider ; if several providers are equivalent for a computation, the first registered is used. */
+  public static synchronized void addProvider(TheoryProvider provider){
+    if(provider == null) throw new IllegalArgumentException("'provider' can't be null");
+    TheoryProvider[] res = new TheoryProvider[_providers.length + 1];
+    System.arraycopy(_providers, 0, res, 0, _providers.length);
+    res[_providers.length] = provider;
+    _providers = res;
+  }// end addProvider
+
+  //***************** removeProvider(provider) *******************************
+  /** Unregisters a provider.
+  @return false if 'provider' was not registered. */
+  public static synchronized boolean removeProvider(TheoryProvider provider){
+    int i;
+    for (i = 0; i < _providers.length; i++) if(_providers[i] == provider) break;
+    if(i == _providers.length) return false;
+    TheoryProvider[] res = new TheoryProvider[_providers.length - 1];
+    System.arraycopy(_providers, 0, res, 0, i);
+    System.arraycopy(_providers, i + 1, res, i, _providers.length - i - 1);
+    _providers = res;
+    return true;
+  }// end removeProvider
+
+  //***************** getProviders() *******************************
+  /** Returns a copy of the registered providers. */
+  public static TheoryProvider[] getProviders(){
+    return _providers.clone();
+  }// end getProviders
+
+  //***************** getProvider(bodyIndex, jd, precision) *******************************
+  /** Returns the provider to use for a computation, as described in the class comment.
+  @param bodyIndex Index of the body, using {@link SolarSystemConstants} constants.
+  @param jd Julian day, time scale TT.
+  @param precision Precision required, in arc seconds.
+  @return The selected provider, or null if no registered provider handles the body.
+  */
+  public static TheoryProvider getProvider(int bodyIndex, double jd, double precision){
+    TheoryProvider[] providers = _providers; // read once, in case of concurrent registration
+    TheoryProvider cheapest = null, mostPrecise = null, first = null;
+    double cost, minCost = Double.POSITIVE_INFINITY;
+    double prec, minPrec = Double.POSITIVE_INFINITY;
+    for (int i = 0; i < providers.length; i++){
+      if(!providers[i].handles(bodyIndex)) continue;
+      if(first == null) first = providers[i];
+      if(!providers[i].isDateValid(bodyIndex, jd)) continue;
+      prec = providers[i].getPrecision(bodyIndex, jd);
+      if(prec < minPrec){
+        minPrec = prec;
+        mostPrecise = providers[i];
+      }
+      if(prec > precision) continue;
+      cost = providers[i].getCost(bodyIndex, precision);
+      if(cost < minCost){
+        minCost = cost;
+        cheapest = providers[i];
+      }
+    }
+    if(cheapest != null) return cheapest;
+    if(mostPrecise != null) return mostPrecise;
+    return first;
+  }// end getProvider
+
+  //***************** calcCoord(jd, body, precision, velocities) *******************************
+  /** Computes the geometric coordinates of a body with the provider returned by
+  {@link #getProvider(int, double, double)}.
+  @throws AstroException if no provider handles the body, or if the provider throws one.
+  */
+  public static void calcCoord(double jd, Body body, double precision, boolean velocities) throws AstroException{
+    TheoryProvider provider = getProvider(body.getIndex(), jd, precision);
+    if(provider == null)
+      throw new AstroException("No theory available to compute body " + body.getIndex());
+    provider.calcCoord(jd, body, precision, velocities);
+  }// end calcCoord
+
+  //=================================================================================
+  //                                 DEFAULT PROVIDERS
+  //=================================================================================
+
+  //***************** VSOP87Provider *******************************
+  /** Mercury to Neptune, using {@link VSOP87}. */
+  private static class VSOP87Provider implements TheoryProvider, PlanetaryTheory, SolarSystemConstants{
+    public String getName(){ return THEORY_NAMES[VSOP87A_FULL]; }
+    public boolean handles(int bodyIndex){ return bodyIndex >= MERCURY && bodyIndex <= NEPTUNE; }
+    public boolean isDateValid(int bodyIndex, double jd){ return VSOP87.isDateValid(bodyIndex, jd); }
+    public double getPrecision(int bodyIndex, double jd){ return VSOP87.getPrecision(bodyIndex, jd); }
+    public double getCost(int bodyIndex, double precision){ return VSOP87.getCost(bodyIndex, precision); }
+    public void calcCoord(double jd, Body body, double precision, boolean velocities) throws AstroException{
+      VSOP87.calcCoord(jd, body, precision, velocities);
+    }
+  }// end class VSOP87Provider
+
+  //***************** Pluto99Provider *******************************
+  /** Pluto, using {@link Pluto99}. */
+  private static class Pluto99Provider implements TheoryProvider, PlanetaryTheory, SolarSystemConstants{
+    public String getName(){ return THEORY_NAMES[PLUTO99]; }
+    public boolean handles(int bodyIndex){ return bodyIndex == PLUTO; }
+    public boolean isDateValid(int bodyIndex, double jd){ return Pluto99.isDateValid(jd); }
+    public double getPrecision(int bodyIndex, double jd){ return Pluto99.getPrecision(bodyIndex, jd); }
+    public double getCost(int bodyIndex, double precision){ return Pluto99.getCost(); }
+    public void calcCoord(double jd, Body body, double precision, boolean velocities) throws AstroException{
+      Pluto99.calcCoord(jd, body, precision, velocities);
+    }
+  }// end class Pluto99Provider
+
+  //***************** ELP82Provider *******************************
+  /** The Moon, using {@link ELP82}. */
+  private static class ELP82Provider implements TheoryProvider, PlanetaryTheory, SolarSystemConstants{
+    public String getName(){ return THEORY_NAMES[ELP82]; }
+    public boolean handles(int bodyIndex){ return bodyIndex == MOON; }
+    public boolean isDateValid(int bodyIndex, double jd){ return jephem.astro.solarsystem.ELP82.isDateValid(jd); }
+    public double getPrecision(int bodyIndex, double jd){ return jephem.astro.solarsystem.ELP82.getPrecision(bodyIndex, jd); }
+    public double getCost(int bodyIndex, double precision){ return jephem.astro.solarsystem.ELP82.getCost(); }
+    public void calcCoord(double jd, Body body, double precision, boolean velocities) throws AstroException{
+      jephem.astro.solarsystem.ELP82.calcCoord(jd, body, precision, velocities);
+    }
+  }// end class ELP82Provider
+
+}// end class TheoryProviders
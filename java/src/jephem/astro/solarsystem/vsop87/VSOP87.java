@@ -32,6 +32,8 @@ Low-level class performing calculations of planet coordinates from VSOP87 theory
 @history nov 14 2001 : Adapted the code to the evolution of other parts of the API.
 @history feb 10 2002 : Adapted to load the data from binary files.
                        Introduced _dataFull and _dataJEphem (to load data only when necessary);
+@history oct 19 2026 : Synchronized the loading of the data.
+@history oct 19 2026 : Only the loading is synchronized ; loaded data published in volatile arrays (copy on write).
 
 @todo internationalize error messages.
 @todo handle correctly precision.
@@ -47,10 +49,11 @@ public abstract class VSOP87
 
   private static final int NB_PLANETS = 8;
   // _data[iBody][iTerm][iABC]
+  // The arrays are replaced by a copy when the data of a body are loaded, so they can be read without locking.
   /** Contains the terms of full precision version. */
-  private static double[][][] _dataFull = new double[NB_PLANETS][][];
+  private static volatile double[][][] _dataFull = new double[NB_PLANETS][][];
   /** Contains the terms of full version truncated using JEphem truncation. */
-  private static double[][][] _dataJEphem = new double[NB_PLANETS][][];
+  private static volatile double[][][] _dataJEphem = new double[NB_PLANETS][][];
 
   /** Path to the directory where VSOP87 files are stored (for full precision version). */
   private static String _dataPath;
@@ -138,6 +141,25 @@ public abstract class VSOP87
     }
   }// end getPrecision
 
+  //******************* isDateValid *************
+  /** Indicates if a julian day is inside the validity interval of VSOP87 for a given body. */
+  public static boolean isDateValid(int bodyIndex, double jd){
+    double interval = getValidityInterval(bodyIndex);
+    return jd >= JD2000 - interval && jd <= JD2000 + interval;
+  }// end isDateValid
+
+  //******************* getCost *************
+  /** Returns the cost of the computation of a body, expressed as the number of terms of the series used
+  for a given precision (the full series below 4 arc seconds, the truncated one above). */
+  public static int getCost(int bodyIndex, double precision){
+    try{
+      return getTotalTerms(bodyIndex, precision);
+    }
+    catch(Exception e){
+      throw new IllegalArgumentException("'bodyIndex' not valid - doesn't represent a body computed by VSOP87");
+    }
+  }// end getCost
+
   //******************* setDataPath *************
   /** Sets the path where the VSOP87 files are located ; MUST be called before using VSOP87. */
   public static void setDataPath(String dataPath){
@@ -287,8 +309,19 @@ public abstract class VSOP87
   // Choice of data depending on the precision, loading of data are handled by getData() end getNbTerms()
   /** Returns the terms for a given body ;
   param iBody Index of a body, using <CODE>jephem.astro.SolarSystemConstants</CODE> constants.
+  <BR>Data already loaded are returned without locking ; otherwise they are loaded by {@link #loadData(int, double)}.
   */
   private static double[][] getData(int iBody, double precision) throws AstroException{
+    double[][] data = (precision < LIMIT_TRUNCATED_PRECISION ? _dataFull : _dataJEphem)[iBody - MERCURY];
+    if(data != null) return data;
+    return loadData(iBody, precision);
+  }// end getData
+
+  //******************* loadData(iBody, precision) *************
+  /** Loads the terms for a given body, if not already done ; parameters are the same as in getData().
+  <BR>Synchronized, so that the data are loaded once and completely when several threads compute positions.
+  */
+  private static synchronized double[][] loadData(int iBody, double precision) throws AstroException{
     if (_dataPath == null){
       throw new AstroException("Before Using VSOP87, you must indicate where VSOP data are located with setDataPath()");
     }
@@ -310,7 +343,9 @@ public abstract class VSOP87
           }// end for
           ois.close();
           // put data in static variable
-          _dataFull[iBody - MERCURY] = data;
+          double[][][] dataFull = _dataFull.clone();
+          dataFull[iBody - MERCURY] = data;
+          _dataFull = dataFull;
         }
         else{ // Already loaded, nothing to do
           data = _dataFull[iBody - MERCURY];
@@ -323,7 +358,9 @@ public abstract class VSOP87
           Class dataClass = Class.forName(CLASSNAME_PREFIX + planetNames[iBody]);
           data = (double[][])dataClass.getDeclaredField(STR_DATA).get(null);
         // put data in static variable
-        _dataJEphem[iBody - MERCURY] = data;
+        double[][][] dataJEphem = _dataJEphem.clone();
+        dataJEphem[iBody - MERCURY] = data;
+        _dataJEphem = dataJEphem;
         }
         else{ // Already loaded, nothing to do
           data = _dataJEphem[iBody - MERCURY];
@@ -336,7 +373,7 @@ public abstract class VSOP87
       throw new AstroException(e);
     }
 
-  }// end getData
+  }// end loadData
 
   //**********************************************************
   /** Returns the nb of terms for a planet - use : nbTerms[iCoord][iAlpha]*/
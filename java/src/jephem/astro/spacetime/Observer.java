@@ -0,0 +1,72 @@
+//*********************************************************************************
+// class jephem.astro.spacetime.Observer
+// Software released under the General Public License (version 2 or later), available at
+// http://www.gnu.org/copyleft/gpl.html
+//*********************************************************************************
+package jephem.astro.spacetime;
+
+/******************************************************************************
+Location of an observer on the Earth.
+<BR>Longitudes are counted positively to the <B>east</B> of Greenwich, latitudes positively to the north ;
+both are expressed in <B>degrees</B>.
+<BR>Sines and cosines of the latitude are computed once, as they are used for each computation.
+
+@author Thierry Graff
+@history oct 19 2026 : creation.
+*********************************************************************************/
+public class Observer{
+
+  //=================================================================================
+  //                                 INSTANCE VARIABLES
+  //=================================================================================
+  private String _name;
+  private double _longitude, _latitude;
+  private double _sinLat, _cosLat;
+
+  //=================================================================================
+  //                                 CONSTRUCTORS
+  //=================================================================================
+
+  //***************** Observer *******************************
+  /** Constructor.
+  @param name Name of the location (ex : a city) ; can be null.
+  @param longitude Longitude, in degrees, positive to the east, in [-180, 180].
+  @param latitude Latitude, in degrees, positive to the north, in [-90, 90].
+  */
+  public Observer(String name, double longitude, double latitude){
+    if(longitude < -180 || longitude > 180)
+      throw new IllegalArgumentException("'longitude' must be between -180 and 180");
+    if(latitude < -90 || latitude > 90)
+      throw new IllegalArgumentException("'latitude' must be between -90 and 90");
+    _name = name;
+    _longitude = longitude;
+    _latitude = latitude;
+    _sinLat = Math.sin(Math.toRadians(latitude));
+    _cosLat = Math.cos(Math.toRadians(latitude));
+  }// end Observer
+
+  //=================================================================================
+  //                                 PUBLIC METHODS
+  //=================================================================================
+
+  /** Returns the name of the location, or null. */
+  public String getName(){ return _name; }
+
+  /** Returns the longitude, in degrees, positive to the east. */
+  public double getLongitude(){ return _longitude; }
+
+  /** Returns the latitude, in degrees, positive to the north. */
+  public double getLatitude(){ return _latitude; }
+
+  /** Returns the sine of the latitude. */
+  public double getSinLatitude(){ return _sinLat; }
+
+  /** Returns the cosine of the latitude. */
+  public double getCosLatitude(){ return _cosLat; }
+
+  //***************** toString *******************************
+  public String toString(){
+    return (_name == null ? "" : _name + " ") + "(" + _longitude + ", " + _latitude + ")";
+  }// end toString
+
+}// end class Observer
@@ -13,6 +13,7 @@ Contains static methods used when dealing with time.
 <BR>Related constants can be found in {@link TimeConstants}.
 @author Thierry Graff
 @history feb 14 2002 : creation from tig.Time - dvpt of calcDeltaT.
+@history oct 19 2026 : calcGMST().
 
 @todo remove calcDecDay???
 @todo handle deltaT for future dates
@@ -118,6 +119,20 @@ public abstract class Time implements TimeConstants{
     else return 0.0;
   }// end getTai
 
+  //*************************************************
+  /** Returns the Greenwich mean sidereal time, in <B>degrees</B>, in [0, 360[.
+  <BR>Implementation of IAU 1982 expression (Meeus, "Astronomical Algorithms", formula 12.4).
+  <BR>The apparent sidereal time is obtained by adding the equation of the equinoxes,
+  <FONT FACE="Symbol">Dy</FONT> cos <FONT FACE="Symbol">e</FONT>.
+  @param ut A date expressed in Julian Days, in Universal Time (UTC can be used).
+  */
+  public static double calcGMST(double ut){
+    double t = (ut - JD2000) / DAYS_PER_CENTURY;
+    double res = 280.46061837 + 360.98564736629 * (ut - JD2000) + t*t*(0.000387933 - t/38710000.0);
+    res %= 360.0;
+    return (res < 0 ? res + 360.0 : res);
+  }// end calcGMST
+
   /**
    Returns the 'Modified Julian Day', number of Julian Days elapsed since November 17 1858, 00:00:00.
    <BR>MJD = JD - 2400000.5.
@@ -26,6 +26,7 @@ labels are used.
 @history jan 09 2002 : Changed unitGroups to int[] ; removed unused methods
 @history jan 22 2002 : introduced unit types and reorganized consequently
 @history jan 24 2002 : Wrote conversion mechanism
+@history oct 19 2026 : Added getConversionFactor()
 
 @todo try - catch in getLabel methods (if ArrayOutOfBoundsException, the message would be more explicit)
 **********************************************************************************/
@@ -168,6 +169,22 @@ public abstract class Units implements GeneralConstants, SolarSystemConstants, S
     return UNIT_LABELS[type][unit - DELTA_BETWEEN_BASES*type];
   }// end getUnitLabel
 
+  //***************************** getConversionFactor ************************************
+  /** Returns the factor to apply to a quantity expressed with 'unit1' to express it with 'unit2'.
+  <BR>Permits to convert coordinates without allocation, when the same conversion is done several times.
+  @return The factor, or <CODE>Double.NaN</CODE> if one of the units is <CODE>NO_SPECIF</CODE>
+  (consistent with {@link #convertUnits(double[],int[],int[])}).
+  @throws IllegalArgumentException if 'unit1' and 'unit2' are not of the same type.
+  */
+  public static double getConversionFactor(int unit1, int unit2){
+    if (unit1 == NO_SPECIF || unit2 == NO_SPECIF) return Double.NaN;
+    int type = getUnitType(unit1);
+    if (type != getUnitType(unit2))
+      throw new IllegalArgumentException("Conversion can be done only between units of the same type (ex : angular to angular)"
+                                         + LS + "Attempt : " + unit1 + " -> " + unit2);
+    return CONVERSIONS[type][unit1 - type*DELTA_BETWEEN_BASES][unit2 - type*DELTA_BETWEEN_BASES];
+  }// end getConversionFactor
+
   //***************************** convertUnits(Vector3) ************************************
   /** Method equivalent to {@link #convertUnits(double[],int[],int[])},
   using <CODE>Vector3</CODE> instead of <CODE>double</CODE>.
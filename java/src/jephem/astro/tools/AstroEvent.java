@@ -0,0 +1,113 @@
+//*********************************************************************************
+// class jephem.astro.tools.AstroEvent
+// Software released under the General Public License (version 2 or later), available at
+// http://www.gnu.org/copyleft/gpl.html
+//*********************************************************************************
+package jephem.astro.tools;
+
+/******************************************************************************
+An event found by {@link DateSearch} : the date when one body reaches a position, when two bodies
+form a given angle, when a planet is stationary, or when a body enters a constellation.
+<BR>Events are ordered by date (see {@link #compareTo(AstroEvent)}), so an array of events can be sorted with
+<CODE>java.util.Arrays.sort()</CODE>.
+
+@author Thierry Graff
+@history oct 19 2026 : creation.
+@history oct 19 2026 : stations.
+@history oct 19 2026 : ingresses in constellations.
+*********************************************************************************/
+public class AstroEvent implements Comparable<AstroEvent>{
+
+  //=================================================================================
+  //                                 CONSTANTS
+  //=================================================================================
+  /** Type of event : a coordinate of a body is equal to a value. */
+  public static final int POSITION = 0;
+  /** Type of event : the difference of longitudes of two bodies is equal to an angle. */
+  public static final int SEPARATION = 1;
+  /** Type of event : a planet begins its retrograde motion. */
+  public static final int STATION_RETROGRADE = 2;
+  /** Type of event : a planet resumes its direct motion. */
+  public static final int STATION_DIRECT = 3;
+  /** Type of event : a body crosses the boundary of a constellation ; the value is the constellation entered. */
+  public static final int CONSTELLATION_INGRESS = 4;
+
+  /** Value of {@link #getBody2()} for an event concerning only one body. */
+  public static final int NO_BODY = -1;
+
+  //=================================================================================
+  //                                 INSTANCE VARIABLES
+  //=================================================================================
+  private int _type;
+  private int _body1, _body2;
+  private double _value;
+  private double _jd;
+
+  //=================================================================================
+  //                                 CONSTRUCTORS
+  //=================================================================================
+
+  //***************** AstroEvent *******************************
+  /** Constructor.
+  @param type Type of the event ; use the constants of this class.
+  @param body1 Index of the first body ; use {@link jephem.astro.solarsystem.SolarSystemConstants} constants.
+  @param body2 Index of the second body, or {@link #NO_BODY}.
+  @param value Position or angle reached at the date of the event, in the units of the search ;
+  for a station, longitude of the planet ; for an ingress, constellation entered
+  (see {@link jephem.astro.sky.ConstellationConstants}).
+  @param jd Date of the event, in julian days.
+  */
+  public AstroEvent(int type, int body1, int body2, double value, double jd){
+    _type = type;
+    _body1 = body1;
+    _body2 = body2;
+    _value = value;
+    _jd = jd;
+  }// end AstroEvent
+
+  //=================================================================================
+  //                                 PUBLIC METHODS
+  //=================================================================================
+
+  /** Returns the type of the event. */
+  public int getType(){ return _type; }
+
+  /** Returns the index of the first body. */
+  public int getBody1(){ return _body1; }
+
+  /** Returns the index of the second body, or {@link #NO_BODY}. */
+  public int getBody2(){ return _body2; }
+
+  /** Returns the position or angle reached at the date of the event. */
+  public double getValue(){ return _value; }
+
+  /** Returns the date of the event, in julian days. */
+  public double getJd(){ return _jd; }
+
+  //***************** isSameEvent *******************************
+  /** Returns true if 'e' is the same kind of event as this one (same type, bodies and searched value), at a
+  date differing of at most 'tolerance' days ; the value of the stations, which is not searched, is not compared. */
+  public boolean isSameEvent(AstroEvent e, double tolerance){
+    return _type == e._type && _body1 == e._body1 && _body2 == e._body2
+        && (_value == e._value || _type == STATION_RETROGRADE || _type == STATION_DIRECT)
+        && Math.abs(_jd - e._jd) <= tolerance;
+  }// end isSameEvent
+
+  //***************** compareTo *******************************
+  /** Compares by date ; events at the same date are compared by type, bodies and value. */
+  public int compareTo(AstroEvent e){
+    if(_jd != e._jd) return (_jd < e._jd ? -1 : 1);
+    if(_type != e._type) return (_type < e._type ? -1 : 1);
+    if(_body1 != e._body1) return (_body1 < e._body1 ? -1 : 1);
+    if(_body2 != e._body2) return (_body2 < e._body2 ? -1 : 1);
+    if(_value != e._value) return (_value < e._value ? -1 : 1);
+    return 0;
+  }// end compareTo
+
+  //***************** toString *******************************
+  public String toString(){
+    return "AstroEvent[type=" + _type + ", body1=" + _body1 + ", body2=" + _body2
+           + ", value=" + _value + ", jd=" + _jd + "]";
+  }// end toString
+
+}// end class AstroEvent
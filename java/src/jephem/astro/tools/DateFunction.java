@@ -0,0 +1,34 @@
+//*********************************************************************************
+// interface jephem.astro.tools.DateFunction
+// Software released under the General Public License (version 2 or later), available at
+// http://www.gnu.org/copyleft/gpl.html
+//*********************************************************************************
+package jephem.astro.tools;
+
+import jephem.astro.AstroException;
+
+/******************************************************************************
+A function of time, whose zeros are searched by {@link RootFinder}.
+<BR>The function may also give its derivative, which permits to detect two zeros close to each other
+(ex : when a planet is near a station).
+
+@author Thierry Graff
+@history oct 19 2026 : creation.
+*********************************************************************************/
+public interface DateFunction{
+
+  /** Index, in the array filled by {@link #calc(double, double[])}, of the value of the function. */
+  public static final int VALUE = 0;
+  /** Index, in the array filled by {@link #calc(double, double[])}, of the derivative of the function. */
+  public static final int DERIVATIVE = 1;
+
+  //***************** calc *******************************
+  /** Computes the function at a date.
+  @param jd The date, in julian days.
+  @param res Array of length 2 receiving the value of the function in <CODE>res[VALUE]</CODE>, and its
+  derivative (per day) in <CODE>res[DERIVATIVE]</CODE> ; the derivative is <CODE>Double.NaN</CODE> if not known.
+  @throws AstroException if the function can't be computed.
+  */
+  public void calc(double jd, double[] res) throws AstroException;
+
+}// end interface DateFunction
@@ -5,18 +5,65 @@
 //*********************************************************************************
 package jephem.astro.tools;
 
+import jephem.astro.AstroContext;
 import jephem.astro.AstroEngine;
+import jephem.astro.AstroException;
+import jephem.astro.AstroRequest;
+import jephem.astro.Body;
+import jephem.astro.sky.Constellations;
+import jephem.astro.solarsystem.SolarSystemConstants;
+import jephem.astro.spacetime.SpaceConstants;
+import jephem.astro.spacetime.TimeConstants;
+import jephem.astro.spacetime.UnitsConstants;
 import tig.GeneralConstants;
+import tig.maths.Vector3;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Vector;
 
 /******************************************************************************
 Class implementing date search methods.
-<BR>
+<BR>The dates are found as zeros of a {@link DateFunction} by a {@link RootFinder} : the search interval is
+scanned with a step adapted to the maximal angular speed of the body (far from the searched position, the
+scan jumps over the time the body needs to reach it at its maximal speed), then each crossing is refined
+to the tolerance of this <CODE>DateSearch</CODE> ({@link #DEFAULT_TOLERANCE} by default).
+<BR>The velocities given by the theories are used to detect the stations, so that the multiple crossings of
+a position by a planet in retrograde motion are found.
+<BR>Positions are expressed in the default units of <CODE>AstroEngine</CODE> (AU, degrees), in the frame
+of this <CODE>DateSearch</CODE> (ecliptic by default) ; longitudes (coordinate x1) are taken modulo 360 degrees.
+<BR>The stations of a planet (dates when its motion becomes retrograde or direct) are found as the zeros of
+its velocity in longitude, given by the theories ; see {@link #searchStations(int)}.
+<BR>Equinoxes and solstices, solar terms and Moon phases have specialized methods ({@link #searchSeasons()},
+{@link #searchSolarTerms()}, {@link #searchMoonPhases()}) : their dates are predicted from the mean motions
+of the Sun and the Moon, then refined by Newton's method, without scanning.
+<BR>The ingresses of a body in the constellations are found by {@link #searchIngresses(int)}.
+<BR>Many events can be searched at once by {@link #search(int[], double[], int)} and
+{@link #searchStations(int[], int)} : the search interval, the bodies and the angles are divided in tasks,
+which are executed by several threads.
+<BR>Upcoming events can also be pulled one by one from an {@link EventStream} (see {@link #newEventStream(double)}),
+which computes only as far ahead as needed.
+<BR>Events precomputed in an {@link EventIndex} can be used instead of computing them, see
+{@link #setEventIndex(EventIndex)}.
+<BR>As for {@link AstroContext}, the data paths of the theories must have been set before searching.
+<BR>Example, dates when the Sun's longitude is 0 in 2002 :
+<BR>&nbsp;&nbsp;<CODE>double[] jds = new DateSearch(2452275.5, 2452640.5).search(SUN, 0);</CODE>
+
 @author Thierry Graff
 @history jun 15 2002 : creation.
+@history oct 19 2026 : implementation of search(body, position) by bracketing and Brent's method.
+@history oct 19 2026 : implementation of search(body1, body2, angle).
+@history oct 19 2026 : parallel search of several separations, search(bodies, angles, nbThreads).
+@history oct 19 2026 : search of the stations.
+@history oct 19 2026 : search of the seasons, solar terms and Moon phases from predicted dates.
+@history oct 19 2026 : use of an EventIndex.
+@history oct 19 2026 : search of the ingresses in constellations.
+@history oct 19 2026 : event streams.
+@history oct 19 2026 : speed bounds and scanning steps depending on the frame (heliocentric speeds).
 
 @todo
 *********************************************************************************/
-public class DateSearch implements GeneralConstants{
+public class DateSearch implements GeneralConstants, SolarSystemConstants, SpaceConstants, UnitsConstants{
 
   //=================================================================================
   //                                      INSTANCE VARIABLES
@@ -25,13 +72,85 @@ public class DateSearch implements GeneralConstants{
   double _beginDate, _endDate;
 
   /** field */
-  int _coord;
+  int _coord = COORD_X1;
+
+  /** Frame of the positions. */
+  int _frame = FRAME_ECLIPTIC;
+
+  /** Time frame of the dates. */
+  int _timeFrame = TimeConstants.TT_TDB;
+
+  /** Engine used for the computations. */
+  String _astroEngine = AstroEngine.JEPHEM;
+
+  /** Precision of the positions, in arcseconds. */
+  double _precision = DEFAULT_PRECISION;
+
+  /** Precision of the dates, in days. */
+  double _tolerance = DEFAULT_TOLERANCE;
+
+  /** Precomputed events, or null. */
+  EventIndex _index = null;
 
   //=================================================================================
   //                                      CONSTANTS
   //=================================================================================
 
-  /**  */
+  /** Default precision of the found dates, in days (one second). */
+  public static final double DEFAULT_TOLERANCE = 1.0 / 86400.0;
+
+  /** Default precision of the computed positions, in arcseconds. */
+  public static final double DEFAULT_PRECISION = 1.0;
+
+  /** Maximal geocentric angular speeds of the bodies, in degrees per day, indexed by body (SUN ... PLUTO). */
+  static final double[] MAX_SPEEDS = {1.02, 15.5, 2.2, 1.27, 1.02, 0.8, 0.25, 0.13, 0.07, 0.04, 0.04};
+
+  /** Maximal heliocentric angular speeds of the bodies, in degrees per day, indexed by body (SUN ... PLUTO) ;
+  at perihelion, Mercury (6.4) and Venus (1.63) are faster than seen from the Earth. */
+  static final double[] MAX_HELIO_SPEEDS = {0, 1.1, 6.4, 1.63, 1.02, 0.64, 0.093, 0.038, 0.013, 0.0062, 0.0069};
+
+  /** Minimal interval between two stations of the bodies, seen from the Earth, in days, indexed by body
+  (SUN ... PLUTO) ; 0 for the bodies without stations. It is the minimal duration of the retrograde motion. */
+  static final double[] MIN_STATION_INTERVALS = {0, 0, 18.0, 38.0, 0, 55.0, 110.0, 125.0, 140.0, 150.0, 140.0};
+
+  /** Factor applied to MAX_SPEEDS to bound the angular speeds in any frame (right ascension can be faster
+  than longitude). */
+  static final double SPEED_MARGIN = 1.2;
+
+  /** Angle travelled at most in one scanning step, in degrees. */
+  static final double STEP_ANGLE = 20.0;
+
+  /** Maximal scanning step, in days ; small enough to never contain two stations. */
+  static final double MAX_STEP = 10.0;
+
+  /** Angle travelled at most in one scanning step of the search of ingresses, in degrees ; the parts of
+  constellations crossed in less than a step can be missed. */
+  static final double INGRESS_STEP_ANGLE = 2.0;
+
+  /** Mean speed of the longitude of the Sun, in degrees per day. */
+  static final double SUN_MEAN_SPEED = 0.98564736;
+
+  /** Mean speed of the elongation of the Moon (difference of the longitudes of the Moon and the Sun),
+  in degrees per day. */
+  static final double ELONGATION_MEAN_SPEED = 12.19074912;
+
+  /** Bounds of the error of {@link #approxLongitude(int, double)} for the Sun and the Moon, in degrees,
+  with a margin. */
+  static final double SUN_PREDICTION_ERROR = 0.05, MOON_PREDICTION_ERROR = 1.0;
+
+  /** Minimal number of tasks per thread in a parallel search, so that threads finishing early can take
+  remaining tasks. */
+  static final int TASKS_PER_THREAD = 4;
+
+  /** Length of the intervals computed at once by an {@link EventStream} for one kind of events, in days. */
+  static final double STREAM_WINDOW = 30.0;
+
+  /** Minimal length of the parts of the search interval in a parallel search, in days. */
+  static final double MIN_PARTITION_LENGTH = 100.0;
+
+  /** Units used for the computations : AU and degrees. */
+  static final int[] UNITS = {DISTANCE_UNIT_AU, ANGULAR_UNIT_DEG, ANGULAR_UNIT_DEG,
+                              LINEAR_SPEED_UNIT_AU_PER_D, ANGULAR_SPEED_UNIT_DEG_PER_DAY, ANGULAR_SPEED_UNIT_DEG_PER_DAY};
 
   //=================================================================================
   //                            CONSTRUCTORS
@@ -53,45 +172,1137 @@ public class DateSearch implements GeneralConstants{
   /** Sets the begin date for which the search must be done.
   <BR>The dates must be expressed in <B>julian days</B>.
   */
-  public double[] setBeginDate(double beginDate){ _beginDate = beginDate; }
+  public void setBeginDate(double beginDate){ _beginDate = beginDate; }
 
   //*************** setBeginDate ***************
   /** Sets the end date for which the search must be done.
   <BR>The dates must be expressed in <B>julian days</B>.
   */
-  public double[] setEndDate(double endDate){ _endDate = endDate; }
+  public void setEndDate(double endDate){ _endDate = endDate; }
 
   //*************** setCoord ***************
-  /** Sets the coordinate for which the search must be done.
-  @coord use <CODE>COORD_XX</CODE> constants of interface {@link jephem.astro.spacetime.SpaceConstants}.
+  /** Sets the coordinate for which the search must be done (default : x1, the longitude).
+  @param coord use <CODE>COORD_X0</CODE>, <CODE>COORD_X1</CODE> or <CODE>COORD_X2</CODE> constants
+  of interface {@link jephem.astro.spacetime.SpaceConstants}.
+  */
+  public void setCoord(int coord){
+    if(coord < COORD_X0 || coord > COORD_X2) throw new IllegalArgumentException("Invalid 'coord' parameter");
+    _coord = coord;
+  }
+
+  //*************** setFrame ***************
+  /** Sets the frame of the positions (default : {@link SpaceConstants#FRAME_ECLIPTIC}). */
+  public void setFrame(int frame){ _frame = frame; }
+
+  //*************** setTimeFrame ***************
+  /** Sets the time frame of the dates (default : {@link TimeConstants#TT_TDB}) ; the found dates are expressed
+  in the same time frame. */
+  public void setTimeFrame(int timeFrame){ _timeFrame = timeFrame; }
+
+  //*************** setAstroEngine ***************
+  /** Sets the engine used for the computations (default : {@link AstroEngine#JEPHEM}). */
+  public void setAstroEngine(String astroEngine){ _astroEngine = astroEngine; }
+
+  //*************** setPrecision ***************
+  /** Sets the precision of the positions, in arcseconds (default : {@link #DEFAULT_PRECISION}). */
+  public void setPrecision(double precision){ _precision = precision; }
+
+  //*************** setTolerance ***************
+  /** Sets the precision of the found dates, in days (default : {@link #DEFAULT_TOLERANCE}). */
+  public void setTolerance(double tolerance){
+    if(!(tolerance > 0)) throw new IllegalArgumentException("'tolerance' must be positive");
+    _tolerance = tolerance;
+  }
+
+  //*************** setEventIndex ***************
+  /** Sets an index of precomputed events (default : null, no index).
+  <BR>When a search concerns events contained in the index, computed with the parameters of this
+  <CODE>DateSearch</CODE> (time frame, frame, astro engine, same or better precision and tolerance), the events
+  are read from the index on the interval it covers, and computed only outside.
+  @param index The index, or null to always compute the events.
   */
-  public double[] setCoord(int coord){ _coord = coord; }
+  public void setEventIndex(EventIndex index){ _index = index; }
 
+  //*************** getEventIndex ***************
+  /** Returns the index of precomputed events, or null. */
+  public EventIndex getEventIndex(){ return _index; }
 
   //*************** search(body, position) ***************
   /** Searchs the dates for which 'body' occupies a certain position.
   <BR>The dates are searched between the begin and end dates characterizing this <CODE>DateSearch</CODE> object.
+  <BR>The body must have a direction in the frame of the search (ex : not the Earth in a geocentric frame,
+  nor the Sun in the heliocentric frame).
   @param body The celestial body ; use {@link jephem.astro.solarsystem.SolarSystemConstants}'s constants.
   @param position The position for which the search must be done, expressed in the default unit of <CODE>AstroEngine</CODE>.
-  @return The dates corresponding to the search, expressed in julian days.
+  @return The dates corresponding to the search, expressed in julian days, sorted.
+  @throws AstroException if the positions can't be computed.
   */
-  public double[] search(int body, double position){
-    double[] res;
-
-    return res;
+  public double[] search(int body, double position) throws AstroException{
+    checkDirection(body, "body");
+    return getDates(new PositionTask(body, position, _beginDate, _endDate).search());
   }// end search(body, position)
 
   //*************** search(body1, body2, angle) ***************
   /** Searchs the dates for which 'body1' and 'body2' form the given 'angle', seen from the center
   of the current frame.
-  <BR>If 'body1' is B1, 'body2' is B2, and the frame center is O, 'angle' is the angle (B1 0 B2)
-  <BR>The dates are searched between the begin and end dates characterizing this <CODE>DateSearch</CODE> object.
+  <BR>If 'body1' is B1, 'body2' is B2, and the frame center is O, 'angle' is the angle (B1 0 B2), measured
+  on the reference plane of the frame : it is the difference of the longitudes (x1 coordinates),
+  <CODE>x1(B1) - x1(B2)</CODE>, modulo 360 degrees.
+  <BR>So 0 gives the conjunctions, 180 the oppositions ; an aspect has two angles (ex : 90 and 270 for the squares).
+  <BR>The dates are searched between the begin and end dates characterizing this <CODE>DateSearch</CODE> object ;
+  the step is adapted to the maximal relative speed of the two bodies.
+  <BR>The bodies must have a direction in the frame of the search (ex : not the Earth in a geocentric frame,
+  nor the Sun in the heliocentric frame).
   @param angle expressed in the default unit of <CODE>AstroEngine</CODE>.
+  @return The dates corresponding to the search, expressed in julian days, sorted.
+  @throws AstroException if the positions can't be computed.
+  */
+  public double[] search(int body1, int body2, double angle) throws AstroException{
+    if(body1 == body2) throw new IllegalArgumentException("'body1' and 'body2' must be different");
+    checkDirection(body1, "body1");
+    checkDirection(body2, "body2");
+    return getDates(new SeparationTask(body1, body2, angle, _beginDate, _endDate).search());
+  }// end search(body1, body2, angle)
+
+  //*************** search(bodies, angles, nbThreads) ***************
+  /** Searchs the dates for which each couple of 'bodies' forms one of the 'angles', using several threads.
+  <BR>The angles are defined as in {@link #search(int, int, double)}, with 'body1' before 'body2' in 'bodies'.
+  <BR>The search is divided in tasks (one couple of bodies, one angle, one part of the search interval),
+  executed by 'nbThreads' threads ; the search interval is divided only if there are not enough couples and
+  angles to occupy the threads. An event found at the boundary of two parts is returned once.
+  <BR>The bodies must have a direction in the frame of the search (ex : not the Earth in a geocentric frame,
+  nor the Sun in the heliocentric frame).
+  <BR>Example, conjunctions and oppositions of all the planets :
+  <BR>&nbsp;&nbsp;<CODE>ds.search(new int[]{SUN, MERCURY, VENUS, MARS, JUPITER, SATURN}, new double[]{0, 180},
+  Runtime.getRuntime().availableProcessors());</CODE>
+  @param bodies Indexes of at least two different bodies.
+  @param angles The angles, expressed in the default unit of <CODE>AstroEngine</CODE>.
+  @param nbThreads Number of threads used for the search.
+  @return The events ({@link AstroEvent#SEPARATION}), sorted by date.
+  @throws AstroException if the positions can't be computed ; the search is then interrupted.
+  */
+  public AstroEvent[] search(int[] bodies, double[] angles, int nbThreads) throws AstroException{
+    if(bodies.length < 2) throw new IllegalArgumentException("'bodies' must contain at least two bodies");
+    if(nbThreads < 1) throw new IllegalArgumentException("'nbThreads' must be positive");
+    for (int i = 0; i < bodies.length; i++){
+      checkDirection(bodies[i], "bodies");
+      for (int j = i + 1; j < bodies.length; j++)
+        if(bodies[i] == bodies[j]) throw new IllegalArgumentException("'bodies' must be different");
+    }
+
+    int nbCouples = bodies.length * (bodies.length - 1) / 2;
+    double[] parts = getParts(nbCouples * angles.length, nbThreads);
+    int nbParts = parts.length - 1;
+    SearchTask[] tasks = new SearchTask[nbCouples * angles.length * nbParts];
+    int k = 0;
+    for (int i = 0; i < bodies.length; i++)
+      for (int j = i + 1; j < bodies.length; j++)
+        for (int iAngle = 0; iAngle < angles.length; iAngle++)
+          for (int iPart = 0; iPart < nbParts; iPart++)
+            tasks[k++] = new SeparationTask(bodies[i], bodies[j], angles[iAngle], parts[iPart], parts[iPart + 1]);
+    return execute(tasks, nbThreads);
+  }// end search(bodies, angles, nbThreads)
+
+  //*************** searchStations(body) ***************
+  /** Searchs the stations of 'body' : the dates for which its velocity in longitude (x1) is 0.
+  <BR>Stations exist only for the planets seen from the Earth, so the frame must be geocentric (or
+  topocentric).
+  <BR>The velocities are given by the theories, so each step of the refinement costs one computation ; the
+  scanning step is half of the minimal duration of the retrograde motion of the body.
+  <BR>The dates are searched between the begin and end dates characterizing this <CODE>DateSearch</CODE> object.
+  @param body The planet ; use {@link jephem.astro.solarsystem.SolarSystemConstants}'s constants.
+  @return The stations, sorted by date : {@link AstroEvent#STATION_RETROGRADE} when the planet begins its
+  retrograde motion, {@link AstroEvent#STATION_DIRECT} when it resumes its direct motion ; the value of the
+  events is the longitude of the planet at the station.
+  @throws AstroException if the positions can't be computed.
+  */
+  public AstroEvent[] searchStations(int body) throws AstroException{
+    if(MIN_STATION_INTERVALS[body] == 0) throw new IllegalArgumentException("'body' has no stations");
+    return new StationTask(body, _beginDate, _endDate).search();
+  }// end searchStations(body)
+
+  //*************** searchStations(bodies, nbThreads) ***************
+  /** Searchs the stations of several planets, using several threads ; see {@link #searchStations(int)}.
+  <BR>The search is divided in tasks as in {@link #search(int[], double[], int)}.
+  <BR>Example, retrograde calendar of all the planets :
+  <BR>&nbsp;&nbsp;<CODE>ds.searchStations(new int[]{MERCURY, VENUS, MARS, JUPITER, SATURN, URANUS, NEPTUNE, PLUTO},
+  Runtime.getRuntime().availableProcessors());</CODE>
+  @param bodies Indexes of the planets.
+  @param nbThreads Number of threads used for the search.
+  @return The events, sorted by date.
+  @throws AstroException if the positions can't be computed ; the search is then interrupted.
+  */
+  public AstroEvent[] searchStations(int[] bodies, int nbThreads) throws AstroException{
+    if(nbThreads < 1) throw new IllegalArgumentException("'nbThreads' must be positive");
+    if(bodies.length == 0) return new AstroEvent[0];
+    double[] parts = getParts(bodies.length, nbThreads);
+    int nbParts = parts.length - 1;
+    SearchTask[] tasks = new SearchTask[bodies.length * nbParts];
+    for (int i = 0; i < bodies.length; i++)
+      for (int iPart = 0; iPart < nbParts; iPart++)
+        tasks[i * nbParts + iPart] = new StationTask(bodies[i], parts[iPart], parts[iPart + 1]);
+    return execute(tasks, nbThreads);
+  }// end searchStations(bodies, nbThreads)
+
+  //*************** searchIngresses(body) ***************
+  /** Searchs the dates for which 'body' enters a constellation, seen from the Earth.
+  <BR>The position of the body (right ascension and declination, true equator of date) is converted to the
+  equator of 1875.0 to find its constellation with {@link Constellations#findConstellation(tig.maths.Matrix3, Vector3)} ;
+  the constellation is computed with a step of {@link #INGRESS_STEP_ANGLE} at the maximal speed of the body,
+  and each change is refined by bisection to the tolerance of this <CODE>DateSearch</CODE>.
+  <BR>The frame of this <CODE>DateSearch</CODE> is not used.
+  @param body The celestial body, different from the Earth.
+  @return The events ({@link AstroEvent#CONSTELLATION_INGRESS}), sorted by date ; the value of an event is the
+  constellation entered, using {@link jephem.astro.sky.ConstellationConstants} constants.
+  @throws AstroException if the positions can't be computed.
+  */
+  public AstroEvent[] searchIngresses(int body) throws AstroException{
+    if(body == EARTH) throw new IllegalArgumentException("'body' must be different from the Earth");
+    return new IngressTask(body, _beginDate, _endDate).search();
+  }// end searchIngresses(body)
+
+  //*************** searchIngresses(bodies, nbThreads) ***************
+  /** Searchs the ingresses in constellations of several bodies, using several threads ; see
+  {@link #searchIngresses(int)}.
+  <BR>The search is divided in tasks as in {@link #search(int[], double[], int)}.
+  @param bodies Indexes of the bodies.
+  @param nbThreads Number of threads used for the search.
+  @return The events, sorted by date.
+  @throws AstroException if the positions can't be computed ; the search is then interrupted.
+  */
+  public AstroEvent[] searchIngresses(int[] bodies, int nbThreads) throws AstroException{
+    if(nbThreads < 1) throw new IllegalArgumentException("'nbThreads' must be positive");
+    if(bodies.length == 0) return new AstroEvent[0];
+    double[] parts = getParts(bodies.length, nbThreads);
+    int nbParts = parts.length - 1;
+    SearchTask[] tasks = new SearchTask[bodies.length * nbParts];
+    for (int i = 0; i < bodies.length; i++){
+      if(bodies[i] == EARTH) throw new IllegalArgumentException("'bodies' must not contain the Earth");
+      for (int iPart = 0; iPart < nbParts; iPart++)
+        tasks[i * nbParts + iPart] = new IngressTask(bodies[i], parts[iPart], parts[iPart + 1]);
+    }
+    return execute(tasks, nbThreads);
+  }// end searchIngresses(bodies, nbThreads)
+
+  //*************** newEventStream ***************
+  /** Returns a stream delivering, in chronological order, the events which occur after 'jd', until the end date
+  of this <CODE>DateSearch</CODE> ; the kinds of events are added to the stream before reading it.
+  <BR>The events are computed by intervals of {@link #STREAM_WINDOW} days, only when they are needed ; the
+  stream keeps its state between calls, so it can be read progressively (ex : to display the next events
+  of a live clock). The parameters of this <CODE>DateSearch</CODE> (and its index) are used.
+  <BR>Example, next Moon phases and Mars stations :
+  <BR>&nbsp;&nbsp;<CODE>DateSearch.EventStream stream = ds.newEventStream(now);</CODE>
+  <BR>&nbsp;&nbsp;<CODE>stream.addMoonElongations(90);</CODE>
+  <BR>&nbsp;&nbsp;<CODE>stream.addStations(MARS);</CODE>
+  <BR>&nbsp;&nbsp;<CODE>AstroEvent next = stream.next();</CODE>
+  @param jd Beginning of the stream, in julian days, in [beginDate, endDate].
+  */
+  public EventStream newEventStream(double jd){
+    if(jd < _beginDate || jd > _endDate) throw new IllegalArgumentException("'jd' must be between the begin and end dates");
+    return new EventStream(jd);
+  }// end newEventStream
+
+  //*************** searchSeasons ***************
+  /** Searchs the equinoxes and solstices : the dates for which the ecliptic longitude of the Sun is a
+  multiple of 90 degrees ; see {@link #searchSunLongitudes(double)}. */
+  public AstroEvent[] searchSeasons() throws AstroException{
+    return searchSunLongitudes(90.0);
+  }// end searchSeasons
+
+  //*************** searchSolarTerms ***************
+  /** Searchs the 24 solar terms of the chinese calendar : the dates for which the ecliptic longitude of the Sun
+  is a multiple of 15 degrees ; see {@link #searchSunLongitudes(double)}. */
+  public AstroEvent[] searchSolarTerms() throws AstroException{
+    return searchSunLongitudes(15.0);
+  }// end searchSolarTerms
+
+  //*************** searchSunLongitudes ***************
+  /** Searchs the dates for which the ecliptic longitude of the Sun is a multiple of 'angleStep'.
+  <BR>Much faster than {@link #search(int, double)} : the dates are predicted from the mean motion of the Sun
+  and its equation of the center, and refined by {@link RootFinder#refineZero(DateFunction, double, double,
+  double, double)} ; so two or three computations are done for each event.
+  <BR>The longitudes are ecliptic, whatever the frame of this <CODE>DateSearch</CODE> ; the other parameters
+  are used.
+  @param angleStep Angle between two events, in degrees, in ]0, 360].
+  @return The events, {@link AstroEvent#POSITION} of the Sun, sorted by date ; their values are the
+  longitudes, in [0, 360[.
+  @throws AstroException if the positions can't be computed.
   */
-  public double[] search(int body1, int body2, double angle){
-    double[] res;
+  public AstroEvent[] searchSunLongitudes(double angleStep) throws AstroException{
+    return new CycleTask(SUN, angleStep, _beginDate, _endDate).search();
+  }// end searchSunLongitudes
+
+  //*************** searchMoonPhases ***************
+  /** Searchs the new moons, first quarters, full moons and last quarters : the dates for which the elongation
+  of the Moon is a multiple of 90 degrees ; see {@link #searchMoonElongations(double)}. */
+  public AstroEvent[] searchMoonPhases() throws AstroException{
+    return searchMoonElongations(90.0);
+  }// end searchMoonPhases
+
+  //*************** searchMoonElongations ***************
+  /** Searchs the dates for which the elongation of the Moon (difference of the ecliptic longitudes of the Moon
+  and the Sun) is a multiple of 'angleStep' : 0 for the new moons, 90 for the first quarters, 180 for the
+  full moons, 270 for the last quarters.
+  <BR>Much faster than {@link #search(int, int, double)} : the dates are predicted from the mean motion of
+  the Moon and its main periodic terms, and refined by {@link RootFinder#refineZero(DateFunction, double,
+  double, double, double)} ; so two or three computations are done for each event.
+  <BR>The longitudes are ecliptic, whatever the frame of this <CODE>DateSearch</CODE> ; the other parameters
+  are used.
+  @param angleStep Angle between two events, in degrees, in ]0, 360].
+  @return The events, {@link AstroEvent#SEPARATION} of the Moon and the Sun, sorted by date ; their values
+  are the elongations, in [0, 360[.
+  @throws AstroException if the positions can't be computed.
+  */
+  public AstroEvent[] searchMoonElongations(double angleStep) throws AstroException{
+    return new CycleTask(MOON, angleStep, _beginDate, _endDate).search();
+  }// end searchMoonElongations
+
+  //=================================================================================
+  //                                      PACKAGE METHODS
+  //=================================================================================
+
+  //*************** hasDirection ***************
+  /** Returns false if 'body' is at the center of the frame of the search, where it has no direction and its
+  coordinates are constant : the Earth in the geocentric (or topocentric) frames, the Sun in the heliocentric
+  frame and in the frame of the theory. */
+  boolean hasDirection(int body){
+    boolean helio = (_frame == FRAME_EC_HELIO_GEOMETRIC || _frame == FRAME_THEORY);
+    return !(body == (helio ? SUN : EARTH));
+  }// end hasDirection
+
+  //*************** checkDirection ***************
+  /** Throws an IllegalArgumentException if 'body', value of the parameter 'param', has no direction in the
+  frame of the search. */
+  void checkDirection(int body, String param){
+    if(!hasDirection(body))
+      throw new IllegalArgumentException("'" + param + "' must have a direction in the frame of the search");
+  }// end checkDirection
+
+  //*************** getMaxSpeed ***************
+  /** Returns the maximal angular speed of a body in the frame of the search, in degrees per day :
+  {@link #MAX_HELIO_SPEEDS} in the heliocentric frame, {@link #MAX_SPEEDS} in the geocentric frames, and the
+  greatest of both in the frame of the theory, which depends on the body and the astro engine. */
+  double getMaxSpeed(int body){
+    if(_frame == FRAME_EC_HELIO_GEOMETRIC) return MAX_HELIO_SPEEDS[body];
+    if(_frame == FRAME_THEORY) return Math.max(MAX_SPEEDS[body], MAX_HELIO_SPEEDS[body]);
+    return MAX_SPEEDS[body];
+  }// end getMaxSpeed
+
+  //*************** getStep ***************
+  /** Returns the scanning step for a body : the time needed to travel {@link #STEP_ANGLE} at its maximal speed,
+  limited to {@link #MAX_STEP}. */
+  double getStep(int body){
+    return Math.min(STEP_ANGLE / getMaxSpeed(body), MAX_STEP);
+  }// end getStep
 
+  //*************** getStep(body1, body2) ***************
+  /** Returns the scanning step for the separation of two bodies : the time needed to travel {@link #STEP_ANGLE}
+  at their maximal relative speed, limited to {@link #MAX_STEP}. */
+  double getStep(int body1, int body2){
+    return Math.min(STEP_ANGLE / (getMaxSpeed(body1) + getMaxSpeed(body2)), MAX_STEP);
+  }// end getStep
+
+  //*************** searchAll ***************
+  /** Searchs together the positions of 'bodies', their separations and their stations, using several threads ;
+  used to create an {@link EventIndex}.
+  @param bodies Indexes of different bodies, which have a direction in the frame of the search.
+  @param positions Positions searched for each body, as in {@link #search(int, double)}.
+  @param angles Angles searched for each couple of bodies, as in {@link #search(int[], double[], int)}.
+  @param stations Indicates if the stations of the bodies which have stations are searched.
+  @return The events, sorted by date.
+  */
+  AstroEvent[] searchAll(int[] bodies, double[] positions, double[] angles, boolean stations, int nbThreads)
+                         throws AstroException{
+    if(nbThreads < 1) throw new IllegalArgumentException("'nbThreads' must be positive");
+    for (int i = 0; i < bodies.length; i++){
+      checkDirection(bodies[i], "bodies");
+      for (int j = i + 1; j < bodies.length; j++)
+        if(bodies[i] == bodies[j]) throw new IllegalArgumentException("'bodies' must be different");
+    }
+    int nbCouples = bodies.length * (bodies.length - 1) / 2;
+    int nbStations = 0;
+    for (int i = 0; stations && i < bodies.length; i++) if(MIN_STATION_INTERVALS[bodies[i]] > 0) nbStations++;
+    int nbSearches = bodies.length * positions.length + nbCouples * angles.length + nbStations;
+    if(nbSearches == 0) return new AstroEvent[0];
+    double[] parts = getParts(nbSearches, nbThreads);
+    int nbParts = parts.length - 1;
+    SearchTask[] tasks = new SearchTask[nbSearches * nbParts];
+    int k = 0;
+    for (int iPart = 0; iPart < nbParts; iPart++){
+      double jd0 = parts[iPart], jdF = parts[iPart + 1];
+      for (int i = 0; i < bodies.length; i++){
+        for (int iPos = 0; iPos < positions.length; iPos++)
+          tasks[k++] = new PositionTask(bodies[i], positions[iPos], jd0, jdF);
+        for (int j = i + 1; j < bodies.length; j++)
+          for (int iAngle = 0; iAngle < angles.length; iAngle++)
+            tasks[k++] = new SeparationTask(bodies[i], bodies[j], angles[iAngle], jd0, jdF);
+        if(stations && MIN_STATION_INTERVALS[bodies[i]] > 0) tasks[k++] = new StationTask(bodies[i], jd0, jdF);
+      }
+    }
+    return execute(tasks, nbThreads);
+  }// end searchAll
+
+  //*************** searchPosition ***************
+  /** Searchs the dates between 'jd0' and 'jdF' for which 'body' occupies a certain position ;
+  see {@link #search(int, double)}.
+  @param f Function computing the coordinate of the body minus the position. */
+  double[] searchPosition(DateFunction f, int body, double jd0, double jdF) throws AstroException{
+    double maxSpeed = (_coord == COORD_X0 ? 0 : SPEED_MARGIN * getMaxSpeed(body)); // no bound for distances
+    return RootFinder.findZeros(f, jd0, jdF, getStep(body), getPeriod(_coord), _tolerance, maxSpeed);
+  }// end searchPosition
+
+  //*************** getIngressStep ***************
+  /** Returns the scanning step of the search of ingresses for a body : the time needed to travel
+  {@link #INGRESS_STEP_ANGLE} at its maximal speed, limited to {@link #MAX_STEP}. */
+  double getIngressStep(int body){
+    return Math.min(INGRESS_STEP_ANGLE / (SPEED_MARGIN * getMaxSpeed(body)), MAX_STEP);
+  }// end getIngressStep
+
+  //*************** searchSeparation ***************
+  /** Searchs the dates between 'jd0' and 'jdF' for which 'body1' and 'body2' form the given 'angle' ;
+  see {@link #search(int, int, double)}.
+  @param f Function computing the separation of the bodies minus the angle. */
+  double[] searchSeparation(DateFunction f, int body1, int body2, double jd0, double jdF) throws AstroException{
+    double maxSpeed = SPEED_MARGIN * (getMaxSpeed(body1) + getMaxSpeed(body2));
+    return RootFinder.findZeros(f, jd0, jdF, getStep(body1, body2), 360.0, _tolerance, maxSpeed);
+  }// end searchSeparation
+
+  //*************** searchStations(body, jd0, jdF) ***************
+  /** Searchs the stations of 'body' between 'jd0' and 'jdF' ; see {@link #searchStations(int)}.
+  @param f Function computing the velocity in longitude of the body. */
+  AstroEvent[] searchStations(CoordFunction f, int body, double jd0, double jdF) throws AstroException{
+    if(MIN_STATION_INTERVALS[body] == 0) throw new IllegalArgumentException("'body' has no stations");
+    double[] jds = RootFinder.findZeros(f, jd0, jdF, MIN_STATION_INTERVALS[body] / 2, 0, _tolerance);
+    AstroEvent[] res = new AstroEvent[jds.length];
+    double[] v = new double[2];
+    for (int i = 0; i < jds.length; i++){
+      f.calc(jds[i], v);
+      double longitude = f.getBody().getCoord(COORD_X1);
+      // the velocity has the same sign between two stations
+      double next = (i < jds.length - 1 ? jds[i + 1] : jdF);
+      boolean direct;
+      if(next > jds[i]){
+        f.calc(0.5 * (jds[i] + next), v);
+        direct = (v[DateFunction.VALUE] > 0);
+      }
+      else{ // last station at the end of the interval
+        double previous = (i > 0 ? jds[i - 1] : jd0);
+        f.calc(0.5 * (previous + jds[i]), v);
+        direct = (v[DateFunction.VALUE] < 0);
+      }
+      res[i] = new AstroEvent((direct ? AstroEvent.STATION_DIRECT : AstroEvent.STATION_RETROGRADE),
+                              body, AstroEvent.NO_BODY, longitude, jds[i]);
+    }
     return res;
-  }// end search(body1, body2, angle)
+  }// end searchStations(body, jd0, jdF)
+
+  //*************** searchIngresses(body, jd0, jdF) ***************
+  /** Searchs the ingresses in constellations of 'body' between 'jd0' and 'jdF' ; see {@link #searchIngresses(int)}.
+  @param f Function computing the constellation of the body. */
+  AstroEvent[] searchIngresses(ConstellationFunction f, int body, double jd0, double jdF) throws AstroException{
+    double step = getIngressStep(body);
+    Vector<AstroEvent> res = new Vector<AstroEvent>();
+    double jd1 = jd0;
+    int c1 = f.calc(jd1);
+    while(jd1 < jdF){
+      double jd2 = Math.min(jd1 + step, jdF);
+      int c2 = f.calc(jd2);
+      // several boundaries may be crossed in one step
+      while(c1 != c2){
+        double lo = jd1, hi = jd2;
+        int cHi = c2;
+        while(hi - lo > _tolerance){
+          double mid = 0.5 * (lo + hi);
+          int c = f.calc(mid);
+          if(c == c1) lo = mid;
+          else{ hi = mid; cHi = c; }
+        }
+        res.add(new AstroEvent(AstroEvent.CONSTELLATION_INGRESS, body, AstroEvent.NO_BODY, cHi, 0.5 * (lo + hi)));
+        jd1 = hi;
+        c1 = cHi;
+      }
+      jd1 = jd2;
+    }
+    return res.toArray(new AstroEvent[res.size()]);
+  }// end searchIngresses(body, jd0, jdF)
+
+  //*************** getPeriod ***************
+  /** Returns the period of the values of a coordinate : 360 degrees for x1, 0 (not periodic) otherwise. */
+  static double getPeriod(int coord){
+    return (coord == COORD_X1 ? 360.0 : 0.0);
+  }// end getPeriod
+
+  //*************** approxLongitude ***************
+  /** Returns an approximation of the ecliptic longitude of the Sun (body = SUN) or of the elongation of
+  the Moon (body = MOON), in degrees, not reduced ; the main periodic terms are taken into account, so the
+  error is about 0.01 degree for the Sun, 0.5 degree for the Moon.
+  @param jd Date, in julian days, in TT.
+  */
+  static double approxLongitude(int body, double jd){
+    double d = jd - TimeConstants.JD2000;
+    double sunM = Math.toRadians(357.52911 + 0.98560028 * d); // mean anomaly of the Sun
+    if(body == SUN)
+      return 280.46646 + SUN_MEAN_SPEED * d + 1.914602 * Math.sin(sunM) + 0.019993 * Math.sin(2 * sunM);
+    double elong = 297.8501921 + ELONGATION_MEAN_SPEED * d;    // mean elongation
+    double moonM = Math.toRadians(134.9633964 + 13.06499295 * d); // mean anomaly of the Moon
+    double D = Math.toRadians(elong);
+    return elong + 6.288774 * Math.sin(moonM) + 1.274027 * Math.sin(2 * D - moonM)
+                 + 0.658314 * Math.sin(2 * D) + 0.213618 * Math.sin(2 * moonM)
+                 - 2.099718 * Math.sin(sunM) - 0.019993 * Math.sin(2 * sunM);
+  }// end approxLongitude
+
+  //*************** newContext ***************
+  /** Returns a context computing the positions and velocities of 'bodies' with the parameters of this search,
+  in spherical coordinates, AU and degrees ; the context can be reused with {@link AstroContext#reset(double, int)}. */
+  AstroContext newContext(int[] bodies){
+    return newContext(bodies, _frame);
+  }// end newContext
+
+  //*************** newContext(bodies, frame) ***************
+  /** Same as {@link #newContext(int[])}, in a given frame. */
+  AstroContext newContext(int[] bodies, int frame){
+    AstroRequest request = new AstroRequest(_astroEngine, frame, SPHERICAL, _precision, true, UNITS);
+    return new AstroContext(_beginDate, _timeFrame, bodies, request);
+  }// end newContext
+
+  //=================================================================================
+  //                                      PRIVATE METHODS
+  //=================================================================================
+
+  //*************** searchCycle ***************
+  // Searchs the dates for which the longitude of the Sun (body = SUN) or the elongation of the Moon
+  // (body = MOON) is a multiple of 'angleStep'.
+  // Each date is predicted by approxLongitude() from the previous one, then refined from this prediction.
+  // 'f' computes the ecliptic longitude of the Sun or the elongation of the Moon.
+  private AstroEvent[] searchCycle(TargetFunction f, int body, double angleStep, double jd0, double jdF)
+                                   throws AstroException{
+    double speed = (body == SUN ? SUN_MEAN_SPEED : ELONGATION_MEAN_SPEED);
+    double error = (body == SUN ? SUN_PREDICTION_ERROR : MOON_PREDICTION_ERROR);
+    // the prediction is within a half interval between two events, and within the error of approxLongitude()
+    // (greater for small angle steps)
+    double halfWidth = Math.max(0.5 * angleStep, 2 * error) / speed;
+    Vector<AstroEvent> res = new Vector<AstroEvent>();
+    // first angle : the last multiple of 'angleStep' surely reached before the begin date
+    double angle0 = angleStep * Math.floor((approxLongitude(body, jd0) - error) / angleStep);
+    double jd = jd0 - (approxLongitude(body, jd0) - angle0) / speed;
+    for (int k = 0; ; k++){
+      double angle = angle0 + k * angleStep;
+      // prediction, starting from the previous one
+      if(k > 0) jd += angleStep / speed;
+      for (int i = 0; i < 3; i++) jd += RootFinder.reduce(angle - approxLongitude(body, jd), 360.0) / speed;
+      if(jd > jdF + halfWidth) break;
+      f.setTarget(angle);
+      double found = RootFinder.refineZero(f, 360.0, jd, halfWidth, _tolerance);
+      if(found >= jd0 && found <= jdF){ // false if not found (NaN)
+        double value = angle - 360.0 * Math.floor(angle / 360.0);
+        res.add(body == SUN ? new AstroEvent(AstroEvent.POSITION, SUN, AstroEvent.NO_BODY, value, found)
+                            : new AstroEvent(AstroEvent.SEPARATION, MOON, SUN, value, found));
+      }
+    }
+    return res.toArray(new AstroEvent[res.size()]);
+  }// end searchCycle
+
+  //*************** getParts ***************
+  // Returns the bounds of the parts of the search interval for a parallel search, where 'nbSearches'
+  // searches are done on each part : parts[i] to parts[i+1], i from 0 to parts.length - 2.
+  private double[] getParts(int nbSearches, int nbThreads){
+    double length = _endDate - _beginDate;
+    int nbParts = (TASKS_PER_THREAD * nbThreads + nbSearches - 1) / nbSearches;
+    nbParts = Math.max(1, Math.min(nbParts, (int)(length / MIN_PARTITION_LENGTH)));
+    double[] parts = new double[nbParts + 1];
+    for (int i = 0; i < nbParts; i++) parts[i] = _beginDate + length * i / nbParts;
+    parts[nbParts] = _endDate;
+    return parts;
+  }// end getParts
+
+  //*************** execute ***************
+  // Executes the tasks of a parallel search, and returns the found events, sorted by date.
+  private AstroEvent[] execute(SearchTask[] tasks, int nbThreads) throws AstroException{
+    // longest tasks first, so that the threads finish at about the same time
+    Arrays.sort(tasks, new Comparator<SearchTask>(){
+      public int compare(SearchTask t1, SearchTask t2){
+        double c1 = t1.getCost(), c2 = t2.getCost();
+        return (c1 > c2 ? -1 : (c1 < c2 ? 1 : 0));
+      }
+    });
+
+    // 1 - Execution
+    BatchSearch batch = new BatchSearch(tasks);
+    SearchThread[] threads = new SearchThread[Math.min(nbThreads, tasks.length)];
+    for (int i = 0; i < threads.length; i++){
+      threads[i] = new SearchThread(batch);
+      threads[i].start();
+    }
+    Vector<AstroEvent> found = new Vector<AstroEvent>();
+    boolean interrupted = false;
+    for (int i = 0; i < threads.length; i++){
+      while(threads[i].isAlive()){
+        try{ threads[i].join(); }
+        catch(InterruptedException ie){
+          // stop the search, the threads end after their current task
+          interrupted = true;
+          batch.cancel(ie);
+        }
+      }
+      found.addAll(threads[i].getEvents());
+    }
+    if(interrupted) Thread.currentThread().interrupt();
+    batch.rethrow();
+
+    // 2 - Merge
+    return merge(found);
+  }// end execute
+
+  //*************** merge ***************
+  // Returns the events of 'found' sorted, without the events found twice at the boundaries of the parts
+  // of a search.
+  private AstroEvent[] merge(Vector<AstroEvent> found){
+    AstroEvent[] sorted = found.toArray(new AstroEvent[found.size()]);
+    Arrays.sort(sorted);
+    Vector<AstroEvent> res = new Vector<AstroEvent>();
+    for (int i = 0; i < sorted.length; i++){
+      boolean duplicate = false;
+      for (int j = res.size() - 1; j >= 0 && !duplicate; j--){
+        AstroEvent e = res.get(j);
+        if(sorted[i].getJd() - e.getJd() > 2 * _tolerance) break;
+        duplicate = sorted[i].isSameEvent(e, 2 * _tolerance);
+      }
+      if(!duplicate) res.add(sorted[i]);
+    }
+    return res.toArray(new AstroEvent[res.size()]);
+  }// end merge
+
+  //*************** getDates ***************
+  // Returns the dates of events.
+  private static double[] getDates(AstroEvent[] events){
+    double[] res = new double[events.length];
+    for (int i = 0; i < events.length; i++) res[i] = events[i].getJd();
+    return res;
+  }// end getDates
+
+  //=================================================================================
+  //                                      INNER CLASSES
+  //=================================================================================
+
+  //*************** TargetFunction ***************
+  /** Function equal to the difference between a computed value and a target, which can be modified to search
+  several events with the same function.
+  <BR>The last computed value is memorized : successive searches on adjacent intervals (ex : by an
+  {@link EventStream}) don't compute twice their common bound. */
+  abstract class TargetFunction implements DateFunction{
+    protected double _target;
+    private double _lastJd = Double.NaN;
+    private double[] _last = new double[2];
+
+    /** Sets the target. */
+    void setTarget(double target){ _target = target; }
+
+    public void calc(double jd, double[] res) throws AstroException{
+      if(jd != _lastJd){
+        _lastJd = Double.NaN; // in case of exception
+        compute(jd, _last);
+        _lastJd = jd;
+      }
+      res[VALUE] = _last[VALUE] - _target;
+      res[DERIVATIVE] = _last[DERIVATIVE];
+    }
+
+    /** Computes the value (without the target) and its derivative. */
+    abstract void compute(double jd, double[] res) throws AstroException;
+  }// end class TargetFunction
+
+  //*************** CoordFunction ***************
+  /** Function equal to the difference between a coordinate of a body and a given value ;
+  for a position coordinate, its derivative is the velocity given by the theory. */
+  class CoordFunction extends TargetFunction{
+    private AstroContext _ac;
+    private Body _body;
+    private int _whichCoord;
+
+    CoordFunction(int body, int coord, double value, int frame){
+      _ac = newContext(new int[]{body}, frame);
+      _body = _ac.getBodies()[0];
+      _whichCoord = coord;
+      _target = value;
+    }
+
+    void compute(double jd, double[] res) throws AstroException{
+      _ac.reset(jd, _timeFrame);
+      _ac.calcBodyCoords();
+      res[VALUE] = _body.getCoord(_whichCoord);
+      res[DERIVATIVE] = (_whichCoord <= COORD_X2 ? _body.getCoord(_whichCoord + 3) : Double.NaN);
+    }
+
+    /** Returns the body, containing the coordinates computed for the date of the last call to calc(). */
+    Body getBody(){ return _body; }
+  }// end class CoordFunction
+
+  //*************** SeparationFunction ***************
+  /** Function equal to the difference of longitudes of two bodies, minus a given angle ;
+  its derivative is the difference of their velocities. */
+  class SeparationFunction extends TargetFunction{
+    private AstroContext _ac;
+    private Body _body1, _body2;
+
+    SeparationFunction(int body1, int body2, double angle, int frame){
+      _ac = newContext(new int[]{body1, body2}, frame);
+      _body1 = _ac.getBodies()[0];
+      _body2 = _ac.getBodies()[1];
+      _target = angle;
+    }
+
+    void compute(double jd, double[] res) throws AstroException{
+      _ac.reset(jd, _timeFrame);
+      _ac.calcBodyCoords();
+      res[VALUE] = _body1.getCoord(COORD_X1) - _body2.getCoord(COORD_X1);
+      res[DERIVATIVE] = _body1.getCoord(COORD_V1) - _body2.getCoord(COORD_V1);
+    }
+  }// end class SeparationFunction
+
+  //*************** ConstellationFunction ***************
+  /** Computes the constellation containing a body, seen from the Earth ; memorizes the last computed value,
+  as {@link TargetFunction}. */
+  class ConstellationFunction{
+    private AstroContext _ac;
+    private Body _body;
+    private double _lastJd = Double.NaN;
+    private int _last;
+
+    ConstellationFunction(int body){
+      _ac = newContext(new int[]{body}, FRAME_EQUATORIAL);
+      _body = _ac.getBodies()[0];
+    }
+
+    /** Returns the constellation at 'jd', using {@link jephem.astro.sky.ConstellationConstants} constants. */
+    int calc(double jd) throws AstroException{
+      if(jd == _lastJd) return _last;
+      _lastJd = Double.NaN;
+      _ac.reset(jd, _timeFrame);
+      _ac.calcBodyCoords();
+      double ra = Math.toRadians(_body.getCoord(COORD_X1)), dec = Math.toRadians(_body.getCoord(COORD_X2));
+      Vector3 v = new Vector3(Math.cos(dec) * Math.cos(ra), Math.cos(dec) * Math.sin(ra), Math.sin(dec));
+      _last = Constellations.findConstellation(Constellations.get1875Matrix(jd, true), v);
+      _lastJd = jd;
+      return _last;
+    }
+  }// end class ConstellationFunction
+
+  //*************** SearchTask ***************
+  /** Search of one kind of events between two dates, or part of a parallel search.
+  <BR>The events are read from the index of the <CODE>DateSearch</CODE> where it covers the interval of the
+  task and contains them, and computed elsewhere. */
+  abstract class SearchTask{
+    protected double _jd0, _jdF;
+
+    SearchTask(double jd0, double jdF){
+      _jd0 = jd0;
+      _jdF = jdF;
+    }
+
+    /** Returns the approximate number of scanning steps of the task. */
+    abstract double getCost();
+
+    /** Computes the events between 'jd0' and 'jdF'. */
+    abstract AstroEvent[] compute(double jd0, double jdF) throws AstroException;
+
+    /** Returns the events between 'jd0' and 'jdF' read from the index, or null if it doesn't contain them. */
+    abstract AstroEvent[] getIndexed(double jd0, double jdF);
+
+    /** Executes the task and adds the found events to 'events'. */
+    void execute(Vector<AstroEvent> events) throws AstroException{
+      execute(_jd0, _jdF, events);
+    }
+
+    /** Searchs the events between 'from' and 'to' and adds them to 'events'. */
+    void execute(double from, double to, Vector<AstroEvent> events) throws AstroException{
+      if(_index != null){
+        double jd0 = Math.max(from, _index.getBeginDate());
+        double jdF = Math.min(to, _index.getEndDate());
+        AstroEvent[] indexed = (jd0 <= jdF ? getIndexed(jd0, jdF) : null);
+        if(indexed != null){
+          events.addAll(Arrays.asList(indexed));
+          if(from < jd0) events.addAll(Arrays.asList(compute(from, jd0)));
+          if(jdF < to) events.addAll(Arrays.asList(compute(jdF, to)));
+          return;
+        }
+      }
+      events.addAll(Arrays.asList(compute(from, to)));
+    }
+
+    /** Executes the task alone, and returns the events sorted by date. */
+    AstroEvent[] search() throws AstroException{
+      return search(_jd0, _jdF);
+    }
+
+    /** Searchs the events between 'from' and 'to', and returns them sorted by date. */
+    AstroEvent[] search(double from, double to) throws AstroException{
+      Vector<AstroEvent> events = new Vector<AstroEvent>();
+      execute(from, to, events);
+      return merge(events);
+    }
+
+    /** Returns true if the index was computed with the parameters of the search, in 'frame'. */
+    boolean indexMatches(int frame){
+      return _index.matches(_timeFrame, frame, _astroEngine, _precision, _tolerance);
+    }
+  }// end class SearchTask
+
+  //*************** PositionTask ***************
+  /** Search of the crossings of one position by one body. */
+  class PositionTask extends SearchTask{
+    private int _body;
+    private double _position;
+    private DateFunction _f = null;
+
+    PositionTask(int body, double position, double jd0, double jdF){
+      super(jd0, jdF);
+      _body = body;
+      _position = position;
+    }
+
+    double getCost(){
+      return (_jdF - _jd0) / getStep(_body);
+    }
+
+    AstroEvent[] compute(double jd0, double jdF) throws AstroException{
+      if(_f == null) _f = new CoordFunction(_body, _coord, _position, _frame);
+      double[] jds = searchPosition(_f, _body, jd0, jdF);
+      AstroEvent[] res = new AstroEvent[jds.length];
+      for (int i = 0; i < jds.length; i++)
+        res[i] = new AstroEvent(AstroEvent.POSITION, _body, AstroEvent.NO_BODY, _position, jds[i]);
+      return res;
+    }
+
+    AstroEvent[] getIndexed(double jd0, double jdF){
+      if(!indexMatches(_frame) || _index.getCoord() != _coord) return null;
+      return _index.getEvents(AstroEvent.POSITION, _body, AstroEvent.NO_BODY, _position, jd0, jdF);
+    }
+  }// end class PositionTask
+
+  //*************** SeparationTask ***************
+  /** Part of a parallel search : one couple of bodies, one angle, one part of the search interval. */
+  class SeparationTask extends SearchTask{
+    private int _body1, _body2;
+    private double _angle;
+    private DateFunction _f = null;
+
+    SeparationTask(int body1, int body2, double angle, double jd0, double jdF){
+      super(jd0, jdF);
+      _body1 = body1;
+      _body2 = body2;
+      _angle = angle;
+    }
+
+    double getCost(){
+      return (_jdF - _jd0) / getStep(_body1, _body2);
+    }
+
+    AstroEvent[] compute(double jd0, double jdF) throws AstroException{
+      if(_f == null) _f = new SeparationFunction(_body1, _body2, _angle, _frame);
+      double[] jds = searchSeparation(_f, _body1, _body2, jd0, jdF);
+      AstroEvent[] res = new AstroEvent[jds.length];
+      for (int i = 0; i < jds.length; i++)
+        res[i] = new AstroEvent(AstroEvent.SEPARATION, _body1, _body2, _angle, jds[i]);
+      return res;
+    }
+
+    AstroEvent[] getIndexed(double jd0, double jdF){
+      if(!indexMatches(_frame)) return null;
+      return _index.getEvents(AstroEvent.SEPARATION, _body1, _body2, _angle, jd0, jdF);
+    }
+  }// end class SeparationTask
+
+  //*************** StationTask ***************
+  /** Part of a parallel search : the stations of one body in one part of the search interval. */
+  class StationTask extends SearchTask{
+    private int _body;
+    private CoordFunction _f = null;
+
+    StationTask(int body, double jd0, double jdF){
+      super(jd0, jdF);
+      _body = body;
+    }
+
+    double getCost(){
+      return (_jdF - _jd0) / MIN_STATION_INTERVALS[_body];
+    }
+
+    AstroEvent[] compute(double jd0, double jdF) throws AstroException{
+      if(_f == null) _f = new CoordFunction(_body, COORD_V1, 0, _frame);
+      return searchStations(_f, _body, jd0, jdF);
+    }
+
+    AstroEvent[] getIndexed(double jd0, double jdF){
+      if(!indexMatches(_frame)) return null;
+      return _index.getEvents(AstroEvent.STATION_RETROGRADE, _body, AstroEvent.NO_BODY, 0, jd0, jdF);
+    }
+  }// end class StationTask
+
+  //*************** CycleTask ***************
+  /** Search of the multiples of an angle for the longitude of the Sun or the elongation of the Moon ;
+  the events are in the index only if all the multiples are. */
+  class CycleTask extends SearchTask{
+    private int _body;
+    private double _angleStep;
+    private TargetFunction _f = null;
+
+    CycleTask(int body, double angleStep, double jd0, double jdF){
+      super(jd0, jdF);
+      if(!(angleStep > 0 && angleStep <= 360)) throw new IllegalArgumentException("'angleStep' must be in ]0, 360]");
+      _body = body;
+      _angleStep = angleStep;
+    }
+
+    double getCost(){
+      return (_jdF - _jd0) / MAX_STEP;
+    }
+
+    AstroEvent[] compute(double jd0, double jdF) throws AstroException{
+      if(_f == null) _f = (_body == SUN ? (TargetFunction)new CoordFunction(SUN, COORD_X1, 0, FRAME_ECLIPTIC)
+                                        : (TargetFunction)new SeparationFunction(MOON, SUN, 0, FRAME_ECLIPTIC));
+      return searchCycle(_f, _body, _angleStep, jd0, jdF);
+    }
+
+    AstroEvent[] getIndexed(double jd0, double jdF){
+      int nbAngles = (int)Math.round(360.0 / _angleStep);
+      if(Math.abs(nbAngles * _angleStep - 360.0) > 1e-9 || !indexMatches(FRAME_ECLIPTIC)) return null;
+      if(_body == SUN && _index.getCoord() != COORD_X1) return null;
+      Vector<AstroEvent> res = new Vector<AstroEvent>();
+      for (int k = 0; k < nbAngles; k++){
+        AstroEvent[] events = (_body == SUN
+          ? _index.getEvents(AstroEvent.POSITION, SUN, AstroEvent.NO_BODY, k * _angleStep, jd0, jdF)
+          : _index.getEvents(AstroEvent.SEPARATION, MOON, SUN, k * _angleStep, jd0, jdF));
+        if(events == null) return null;
+        res.addAll(Arrays.asList(events));
+      }
+      AstroEvent[] events = res.toArray(new AstroEvent[res.size()]);
+      Arrays.sort(events);
+      return events;
+    }
+  }// end class CycleTask
+
+  //*************** IngressTask ***************
+  /** Part of a parallel search : the ingresses of one body in one part of the search interval ; not indexed. */
+  class IngressTask extends SearchTask{
+    private int _body;
+    private ConstellationFunction _f = null;
+
+    IngressTask(int body, double jd0, double jdF){
+      super(jd0, jdF);
+      _body = body;
+    }
+
+    double getCost(){
+      return (_jdF - _jd0) / getIngressStep(_body);
+    }
+
+    AstroEvent[] compute(double jd0, double jdF) throws AstroException{
+      if(_f == null) _f = new ConstellationFunction(_body);
+      return searchIngresses(_f, _body, jd0, jdF);
+    }
+
+    AstroEvent[] getIndexed(double jd0, double jdF){
+      return null;
+    }
+  }// end class IngressTask
+
+  //*************** EventStream ***************
+  /** Events of several kinds, computed progressively, in chronological order ; see {@link #newEventStream(double)}.
+  <BR>Each kind of events has its own horizon, the date until which its events are known ; an event is
+  returned when it precedes the horizons of all the kinds, so only the kinds whose next event is far away are
+  computed further. The tasks keep their functions, so the bracket of the scan (the last computed date and value)
+  is not recomputed when the search continues. */
+  public class EventStream{
+    /** Kinds of events ; StreamSource objects. */
+    private Vector<StreamSource> _sources = new Vector<StreamSource>();
+    private double _jd;
+
+    EventStream(double jd){
+      _jd = jd;
+    }
+
+    /** Adds the crossings of positions by a body ; see {@link DateSearch#search(int, double)}. */
+    public void addPositions(int body, double[] positions){
+      checkDirection(body, "body");
+      for (int i = 0; i < positions.length; i++) add(new PositionTask(body, positions[i], _jd, _endDate));
+    }
+
+    /** Adds the separations of two bodies for some angles ; see {@link DateSearch#search(int, int, double)}. */
+    public void addSeparations(int body1, int body2, double[] angles){
+      if(body1 == body2) throw new IllegalArgumentException("'body1' and 'body2' must be different");
+      checkDirection(body1, "body1");
+      checkDirection(body2, "body2");
+      for (int i = 0; i < angles.length; i++) add(new SeparationTask(body1, body2, angles[i], _jd, _endDate));
+    }
+
+    /** Adds the stations of a planet ; see {@link DateSearch#searchStations(int)}. */
+    public void addStations(int body){
+      if(MIN_STATION_INTERVALS[body] == 0) throw new IllegalArgumentException("'body' has no stations");
+      add(new StationTask(body, _jd, _endDate));
+    }
+
+    /** Adds the ingresses of a body in the constellations ; see {@link DateSearch#searchIngresses(int)}. */
+    public void addIngresses(int body){
+      if(body == EARTH) throw new IllegalArgumentException("'body' must be different from the Earth");
+      add(new IngressTask(body, _jd, _endDate));
+    }
+
+    /** Adds the multiples of an angle for the longitude of the Sun ; see {@link DateSearch#searchSunLongitudes(double)}. */
+    public void addSunLongitudes(double angleStep){
+      add(new CycleTask(SUN, angleStep, _jd, _endDate));
+    }
+
+    /** Adds the multiples of an angle for the elongation of the Moon ; see {@link DateSearch#searchMoonElongations(double)}. */
+    public void addMoonElongations(double angleStep){
+      add(new CycleTask(MOON, angleStep, _jd, _endDate));
+    }
+
+    /** Returns the date of the last event returned, or the beginning of the stream. */
+    public double getDate(){ return _jd; }
+
+    //*************** next ***************
+    /** Returns the next event, or null if there is no more event before the end date of the <CODE>DateSearch</CODE>.
+    @throws AstroException if the positions can't be computed ; the stream can still be used.
+    */
+    public AstroEvent next() throws AstroException{
+      StreamSource source = nextSource(Double.POSITIVE_INFINITY);
+      if(source == null) return null;
+      AstroEvent res = source._events.remove(0);
+      _jd = res.getJd();
+      return res;
+    }// end next
+
+    //*************** next(jdF) ***************
+    /** Returns the next events until 'jdF', sorted by date ; events after 'jdF' are computed only if needed to
+    know the events before.
+    @throws AstroException if the positions can't be computed ; the stream can still be used.
+    */
+    public AstroEvent[] next(double jdF) throws AstroException{
+      Vector<AstroEvent> res = new Vector<AstroEvent>();
+      StreamSource source;
+      while((source = nextSource(jdF)) != null) res.add(source._events.remove(0));
+      if(res.size() > 0) _jd = res.lastElement().getJd();
+      return res.toArray(new AstroEvent[res.size()]);
+    }// end next(jdF)
+
+    //*************** peek ***************
+    /** Returns the next event without removing it from the stream, or null.
+    @throws AstroException if the positions can't be computed.
+    */
+    public AstroEvent peek() throws AstroException{
+      StreamSource source = nextSource(Double.POSITIVE_INFINITY);
+      return (source == null ? null : source._events.firstElement());
+    }// end peek
+
+    // Adds a kind of events ; the stream must not have been read.
+    private void add(SearchTask task){
+      _sources.add(new StreamSource(task, _jd));
+    }
+
+    // Returns the source of the next event, if it is before 'jdF', or null ; extends the sources as needed.
+    private StreamSource nextSource(double jdF) throws AstroException{
+      for ( ; ; ){
+        StreamSource best = null, lowest = null;
+        for (int i = 0; i < _sources.size(); i++){
+          StreamSource source = _sources.get(i);
+          if(source._events.size() > 0){
+            if(best == null || source._events.firstElement().compareTo(best._events.firstElement()) < 0)
+              best = source;
+          }
+          else if(source._horizon < _endDate && (lowest == null || source._horizon < lowest._horizon))
+            lowest = source;
+        }
+        double bestJd = (best == null ? Double.POSITIVE_INFINITY : best._events.firstElement().getJd());
+        if(lowest == null || bestJd <= lowest._horizon) return (bestJd <= jdF ? best : null);
+        if(lowest._horizon > jdF) return null; // no event before jdF
+        lowest.extend();
+      }
+    }
+  }// end class EventStream
+
+  //*************** StreamSource ***************
+  /** One kind of events of an {@link EventStream} : the events computed and not yet returned, until a horizon. */
+  class StreamSource{
+    private SearchTask _task;
+    /** Date until which the events are known. */
+    private double _horizon;
+    /** Events computed, after the last returned event ; AstroEvent objects, sorted. */
+    private Vector<AstroEvent> _events = new Vector<AstroEvent>();
+    /** Last event computed, to skip the events found twice at the bounds of the windows. */
+    private AstroEvent _last = null;
+
+    StreamSource(SearchTask task, double jd){
+      _task = task;
+      _horizon = jd;
+    }
+
+    /** Computes the events of the next window. */
+    void extend() throws AstroException{
+      double jdF = Math.min(_horizon + STREAM_WINDOW, _endDate);
+      AstroEvent[] found = _task.search(_horizon, jdF);
+      for (int i = 0; i < found.length; i++){
+        if(_last != null && found[i].isSameEvent(_last, 2 * _tolerance)) continue;
+        _events.add(found[i]);
+        _last = found[i];
+      }
+      _horizon = jdF;
+    }
+  }// end class StreamSource
+
+  //*************** BatchSearch ***************
+  /** Tasks of a parallel search, shared by the threads ; memorizes the first error, which stops the search. */
+  static class BatchSearch{
+    private SearchTask[] _tasks;
+    private int _next = 0;
+    private Throwable _error = null;
+
+    BatchSearch(SearchTask[] tasks){
+      _tasks = tasks;
+    }
+
+    /** Returns the next task to execute, or null if all the tasks are taken or if the search was cancelled. */
+    synchronized SearchTask nextTask(){
+      if(_error != null || _next == _tasks.length) return null;
+      return _tasks[_next++];
+    }
+
+    /** Stops the search ; 'error' will be thrown by {@link #rethrow()}. */
+    synchronized void cancel(Throwable error){
+      if(_error == null) _error = error;
+    }
+
+    /** Throws the error which stopped the search, if any. */
+    synchronized void rethrow() throws AstroException{
+      if(_error == null) return;
+      if(_error instanceof AstroException) throw (AstroException)_error;
+      if(_error instanceof RuntimeException) throw (RuntimeException)_error;
+      if(_error instanceof Error) throw (Error)_error;
+      throw new AstroException((Exception)_error);
+    }
+  }// end class BatchSearch
+
+  //*************** SearchThread ***************
+  /** Thread executing tasks of a parallel search, until there is no task left. */
+  static class SearchThread extends Thread{
+    private BatchSearch _batch;
+    private Vector<AstroEvent> _events = new Vector<AstroEvent>();
+
+    SearchThread(BatchSearch batch){
+      _batch = batch;
+    }
+
+    public void run(){
+      try{
+        SearchTask task;
+        while((task = _batch.nextTask()) != null) task.execute(_events);
+      }
+      catch(Throwable t){
+        _batch.cancel(t);
+      }
+    }
+
+    /** Returns the events found by this thread ; to call after its end. */
+    Vector<AstroEvent> getEvents(){ return _events; }
+  }// end class SearchThread
 
-}// end class DateSearch
\ No newline at end of file
+}// end class DateSearch
@@ -0,0 +1,144 @@
+//*********************************************************************************
+// class jephem.astro.tools.Eclipse
+// Software released under the General Public License (version 2 or later), available at
+// http://www.gnu.org/copyleft/gpl.html
+//*********************************************************************************
+package jephem.astro.tools;
+
+/******************************************************************************
+An eclipse of the Sun or of the Moon, or an occultation of a planet by the Moon, found by {@link EclipseSearch}.
+<BR>The circumstances are geocentric : the maximum is the date when the axis of the shadow is the closest
+to the center of the Earth (solar eclipses, occultations) or the Moon the closest to the axis of the shadow of
+the Earth (lunar eclipses). The contacts are the dates when the penumbra and the umbra begin and end to touch the
+Earth (solar eclipses, occultations) or the Moon (lunar eclipses).
+<BR>Eclipses are ordered by date, so an array of eclipses can be sorted with <CODE>java.util.Arrays.sort()</CODE>.
+
+@author Thierry Graff
+@history oct 19 2026 : creation.
+*********************************************************************************/
+public class Eclipse implements Comparable<Eclipse>{
+
+  //=================================================================================
+  //                                 CONSTANTS
+  //=================================================================================
+  /** Type of eclipse : only the penumbra of the Moon touches the Earth. */
+  public static final int SOLAR_PARTIAL = 0;
+  /** Type of eclipse : the antumbra of the Moon touches the Earth, the Moon is smaller than the Sun. */
+  public static final int SOLAR_ANNULAR = 1;
+  /** Type of eclipse : the umbra of the Moon touches the Earth. */
+  public static final int SOLAR_TOTAL = 2;
+  /** Type of eclipse : annular at the beginning and at the end of the central line, total in the middle. */
+  public static final int SOLAR_HYBRID = 3;
+  /** Type of eclipse : the Moon enters only the penumbra of the Earth. */
+  public static final int LUNAR_PENUMBRAL = 4;
+  /** Type of eclipse : the Moon enters partially the umbra of the Earth. */
+  public static final int LUNAR_PARTIAL = 5;
+  /** Type of eclipse : the Moon enters completely the umbra of the Earth. */
+  public static final int LUNAR_TOTAL = 6;
+  /** Type of eclipse : a planet is occulted by the Moon, for some places of the Earth. */
+  public static final int OCCULTATION = 7;
+
+  /** Index of the first contact of the penumbra, in {@link #getContacts()}. */
+  public static final int P1 = 0;
+  /** Index of the first contact of the umbra (external tangency). */
+  public static final int U1 = 1;
+  /** Index of the second contact of the umbra (internal tangency, beginning of totality for the Moon). */
+  public static final int U2 = 2;
+  /** Index of the third contact of the umbra (internal tangency, end of totality for the Moon). */
+  public static final int U3 = 3;
+  /** Index of the last contact of the umbra (external tangency). */
+  public static final int U4 = 4;
+  /** Index of the last contact of the penumbra. */
+  public static final int P4 = 5;
+  /** Number of contacts. */
+  public static final int NB_CONTACTS = 6;
+
+  //=================================================================================
+  //                                 INSTANCE VARIABLES
+  //=================================================================================
+  private int _type;
+  private int _body;
+  private double _jd;
+  private double _magnitude;
+  private double _gamma;
+  private double[] _contacts;
+
+  //=================================================================================
+  //                                 CONSTRUCTORS
+  //=================================================================================
+
+  //***************** Eclipse *******************************
+  /** Constructor.
+  @param type Type of the eclipse ; use the constants of this class.
+  @param body The eclipsed body : SUN, MOON, or the occulted planet ; use
+  {@link jephem.astro.solarsystem.SolarSystemConstants} constants.
+  @param jd Date of the maximum, in julian days.
+  @param magnitude Magnitude at the maximum.
+  @param gamma Distance between the axis of the shadow and the center of the Earth (solar eclipses,
+  occultations) or of the Moon (lunar eclipses) at the maximum, in Earth radii.
+  @param contacts Dates of the contacts, indexed by {@link #P1} ... {@link #P4} ; <CODE>Double.NaN</CODE> for
+  the contacts which don't occur.
+  */
+  public Eclipse(int type, int body, double jd, double magnitude, double gamma, double[] contacts){
+    if(contacts.length != NB_CONTACTS) throw new IllegalArgumentException("'contacts' must contain " + NB_CONTACTS + " dates");
+    _type = type;
+    _body = body;
+    _jd = jd;
+    _magnitude = magnitude;
+    _gamma = gamma;
+    _contacts = contacts.clone();
+  }// end Eclipse
+
+  //=================================================================================
+  //                                 PUBLIC METHODS
+  //=================================================================================
+
+  /** Returns the type of the eclipse. */
+  public int getType(){ return _type; }
+
+  /** Returns true for an eclipse of the Sun. */
+  public boolean isSolar(){ return _type <= SOLAR_HYBRID; }
+
+  /** Returns true for an eclipse of the Moon. */
+  public boolean isLunar(){ return _type >= LUNAR_PENUMBRAL && _type <= LUNAR_TOTAL; }
+
+  /** Returns the eclipsed body. */
+  public int getBody(){ return _body; }
+
+  /** Returns the date of the maximum, in julian days. */
+  public double getJd(){ return _jd; }
+
+  /** Returns the magnitude at the maximum : for a partial solar eclipse or an occultation, fraction of the
+  diameter of the body covered by the Moon, at the place where it is the largest ; for a central solar eclipse,
+  ratio of the apparent diameters of the Moon and the Sun ; for a lunar eclipse, fraction of the diameter of the
+  Moon in the umbra (penumbra for a penumbral eclipse). */
+  public double getMagnitude(){ return _magnitude; }
+
+  /** Returns the distance between the axis of the shadow and the center of the Earth (solar eclipses,
+  occultations) or of the Moon (lunar eclipses) at the maximum, in Earth radii. */
+  public double getGamma(){ return _gamma; }
+
+  /** Returns the date of a contact, or <CODE>Double.NaN</CODE> if it doesn't occur.
+  @param which {@link #P1}, {@link #U1}, {@link #U2}, {@link #U3}, {@link #U4} or {@link #P4}. */
+  public double getContact(int which){ return _contacts[which]; }
+
+  /** Returns a copy of the dates of the contacts. */
+  public double[] getContacts(){ return _contacts.clone(); }
+
+  //***************** compareTo *******************************
+  /** Compares by date of maximum. */
+  public int compareTo(Eclipse e){
+    if(_jd != e._jd) return (_jd < e._jd ? -1 : 1);
+    if(_type != e._type) return (_type < e._type ? -1 : 1);
+    return (_body < e._body ? -1 : (_body > e._body ? 1 : 0));
+  }// end compareTo
+
+  //***************** toString *******************************
+  public String toString(){
+    StringBuffer res = new StringBuffer("Eclipse[type=" + _type + ", body=" + _body + ", jd=" + _jd
+                                        + ", magnitude=" + _magnitude + ", gamma=" + _gamma + ", contacts=");
+    for (int i = 0; i < NB_CONTACTS; i++) res.append((i == 0 ? "" : " ") + _contacts[i]);
+    return res.append("]").toString();
+  }// end toString
+
+}// end class Eclipse
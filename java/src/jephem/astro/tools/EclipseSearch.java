@@ -0,0 +1,393 @@
+//*********************************************************************************
+// class jephem.astro.tools.EclipseSearch
+// Software released under the General Public License (version 2 or later), available at
+// http://www.gnu.org/copyleft/gpl.html
+//*********************************************************************************
+package jephem.astro.tools;
+
+import jephem.astro.AstroContext;
+import jephem.astro.AstroEngine;
+import jephem.astro.AstroException;
+import jephem.astro.AstroRequest;
+import jephem.astro.Body;
+import jephem.astro.solarsystem.SolarSystemConstants;
+import jephem.astro.spacetime.SpaceConstants;
+import jephem.astro.spacetime.TimeConstants;
+import jephem.astro.spacetime.UnitsConstants;
+
+import java.util.Arrays;
+import java.util.Vector;
+
+/******************************************************************************
+Searchs the eclipses of the Sun and of the Moon, and the occultations of the planets by the Moon.
+<BR>Most of the new and full moons are discarded without computation : the mean lunations are enumerated,
+and only those for which the Moon is close to a node (|sin F| &lt; {@link #NODE_LIMIT}, where F is the mean
+argument of latitude of the Moon, see Meeus, "Astronomical Algorithms", chapter 54) are kept. The date of
+the syzygy is then predicted from the main periodic terms of the Moon, still without computation.
+<BR>For each candidate, the positions and velocities of the Sun and the Moon are computed with
+{@link AstroContext} : the first computation rejects the syzygies too far from the shadow, then the maximum
+is found by successive linear approximations of the motion of the shadow, and each contact by Newton's method.
+So an eclipse costs about 10 computations, most of them for the contacts, and a rejected candidate one
+computation : about 4000 computations for the solar and lunar eclipses of a century.
+<BR>The circumstances are geocentric (see {@link Eclipse}) ; the Earth is spherical (its equatorial radius
+is used), and its shadow is enlarged by 2 % for its atmosphere.
+<BR>The occultations of the planets are searched from their conjunctions in longitude with the Moon, found by
+{@link DateSearch}.
+<BR>Dates are expressed in julian days, in the time frame of this <CODE>EclipseSearch</CODE> (TT by default).
+<BR>As for {@link AstroContext}, the data paths of the theories must have been set before searching.
+<BR>Example, eclipses of the XXIth century (2001 jan 1 to 2101 jan 1) :
+<BR>&nbsp;&nbsp;<CODE>Eclipse[] res = new EclipseSearch(2451910.5, 2488434.5).searchEclipses();</CODE>
+
+@author Thierry Graff
+@history oct 19 2026 : creation.
+*********************************************************************************/
+public class EclipseSearch implements SolarSystemConstants, SpaceConstants, UnitsConstants{
+
+  //=================================================================================
+  //                                 CONSTANTS
+  //=================================================================================
+  /** Limit of |sin F| for an eclipse (F = mean argument of latitude of the Moon at the syzygy). */
+  public static final double NODE_LIMIT = 0.36;
+
+  /** Default precision of the positions, in arcseconds. */
+  public static final double DEFAULT_PRECISION = 1.0;
+
+  /** Mean synodic month, in days. */
+  private static final double SYNODIC_MONTH = 29.530588861;
+  /** Mean new moon of january 6, 2000, origin of the lunations, in julian days (TT). */
+  private static final double NEW_MOON_2000 = 2451550.09766;
+  /** Number of lunations in a julian century. */
+  private static final double LUNATIONS_PER_CENTURY = 1236.85;
+  /** Maximal interval between a mean syzygy and an eclipse, in days. */
+  private static final double MAX_SHIFT = 1.0;
+  /** Maximal number of iterations to find the maximum and the contacts. */
+  private static final int MAX_ITERATIONS = 10;
+  /** Ratio between the closest approach estimated by the first computation and the limit of the eclipse,
+  above which a candidate is rejected. */
+  private static final double REJECT_MARGIN = 1.1;
+  /** Enlargement of the shadow of the Earth by its atmosphere. */
+  private static final double SHADOW_ENLARGEMENT = 1.02;
+
+  /** Kilometers per AU. */
+  private static final double AU_KM = 149597870.0;
+  /** Equatorial radii of the bodies, in km, indexed by body (SUN ... PLUTO). */
+  private static final double[] RADII = {696000.0, 1737.4, 2439.7, 6051.8, 6378.14, 3396.2, 71492.0, 60268.0,
+                                         25559.0, 24764.0, 1188.0};
+
+  /** Units used for the computations : AU and AU per day. */
+  private static final int[] UNITS = {DISTANCE_UNIT_AU, DISTANCE_UNIT_AU, DISTANCE_UNIT_AU,
+                                      LINEAR_SPEED_UNIT_AU_PER_D, LINEAR_SPEED_UNIT_AU_PER_D, LINEAR_SPEED_UNIT_AU_PER_D};
+
+  //=================================================================================
+  //                                 INSTANCE VARIABLES
+  //=================================================================================
+  private double _beginDate, _endDate;
+  private int _timeFrame = TimeConstants.TT_TDB;
+  private String _astroEngine = AstroEngine.JEPHEM;
+  private double _precision = DEFAULT_PRECISION;
+  private double _tolerance = DateSearch.DEFAULT_TOLERANCE;
+  /** Number of computations of the positions done by the last search. */
+  private int _nbComputations;
+
+  //=================================================================================
+  //                                 CONSTRUCTORS
+  //=================================================================================
+
+  //***************** EclipseSearch *******************************
+  /** Constructor, from the begin and end dates for which the search must be done, in julian days ;
+  an eclipse is returned if its maximum is between these dates. */
+  public EclipseSearch(double beginDate, double endDate){
+    _beginDate = beginDate;
+    _endDate = endDate;
+  }// end EclipseSearch
+
+  //=================================================================================
+  //                                 PUBLIC METHODS
+  //=================================================================================
+
+  /** Sets the time frame of the dates (default : {@link TimeConstants#TT_TDB}). */
+  public void setTimeFrame(int timeFrame){ _timeFrame = timeFrame; }
+
+  /** Sets the engine used for the computations (default : {@link AstroEngine#JEPHEM}). */
+  public void setAstroEngine(String astroEngine){ _astroEngine = astroEngine; }
+
+  /** Sets the precision of the positions, in arcseconds (default : {@link #DEFAULT_PRECISION}). */
+  public void setPrecision(double precision){ _precision = precision; }
+
+  //***************** setTolerance *******************************
+  /** Sets the precision of the maxima and contacts, in days (default : {@link DateSearch#DEFAULT_TOLERANCE}). */
+  public void setTolerance(double tolerance){
+    if(!(tolerance > 0)) throw new IllegalArgumentException("'tolerance' must be positive");
+    _tolerance = tolerance;
+  }// end setTolerance
+
+  /** Returns the number of computations of the positions done by the last search (not counting the
+  search of the conjunctions for the occultations). */
+  public int getNbComputations(){ return _nbComputations; }
+
+  //***************** searchSolarEclipses *******************************
+  /** Searchs the eclipses of the Sun.
+  @return The eclipses, sorted by date ; their types are {@link Eclipse#SOLAR_PARTIAL}, {@link Eclipse#SOLAR_ANNULAR},
+  {@link Eclipse#SOLAR_TOTAL} or {@link Eclipse#SOLAR_HYBRID}.
+  @throws AstroException if the positions can't be computed.
+  */
+  public Eclipse[] searchSolarEclipses() throws AstroException{
+    _nbComputations = 0;
+    return searchSyzygies(false);
+  }// end searchSolarEclipses
+
+  //***************** searchLunarEclipses *******************************
+  /** Searchs the eclipses of the Moon, penumbral eclipses included.
+  @return The eclipses, sorted by date ; their types are {@link Eclipse#LUNAR_PENUMBRAL}, {@link Eclipse#LUNAR_PARTIAL}
+  or {@link Eclipse#LUNAR_TOTAL}.
+  @throws AstroException if the positions can't be computed.
+  */
+  public Eclipse[] searchLunarEclipses() throws AstroException{
+    _nbComputations = 0;
+    return searchSyzygies(true);
+  }// end searchLunarEclipses
+
+  //***************** searchEclipses *******************************
+  /** Searchs the eclipses of the Sun and of the Moon.
+  @return The eclipses, sorted by date.
+  @throws AstroException if the positions can't be computed.
+  */
+  public Eclipse[] searchEclipses() throws AstroException{
+    _nbComputations = 0;
+    Eclipse[] solar = searchSyzygies(false), lunar = searchSyzygies(true);
+    Eclipse[] res = new Eclipse[solar.length + lunar.length];
+    System.arraycopy(solar, 0, res, 0, solar.length);
+    System.arraycopy(lunar, 0, res, solar.length, lunar.length);
+    Arrays.sort(res);
+    return res;
+  }// end searchEclipses
+
+  //***************** searchOccultations *******************************
+  /** Searchs the occultations of a planet by the Moon, visible from some place of the Earth.
+  <BR>The conjunctions in longitude of the Moon and the planet are searched by {@link DateSearch}, then
+  treated as the syzygies for the eclipses.
+  @param body The planet, from MERCURY to PLUTO, except EARTH.
+  @return The occultations ({@link Eclipse#OCCULTATION}), sorted by date.
+  @throws AstroException if the positions can't be computed.
+  */
+  public Eclipse[] searchOccultations(int body) throws AstroException{
+    if(body < MERCURY || body > PLUTO || body == EARTH) throw new IllegalArgumentException("'body' must be a planet");
+    _nbComputations = 0;
+    DateSearch ds = new DateSearch(_beginDate - MAX_SHIFT, _endDate + MAX_SHIFT);
+    ds.setTimeFrame(_timeFrame);
+    ds.setAstroEngine(_astroEngine);
+    ds.setPrecision(_precision);
+    ds.setTolerance(Math.max(_tolerance, 1.0 / 1440.0)); // only a prediction
+    double[] jds = ds.search(MOON, body, 0.0);
+    Shadow shadow = new Shadow(body, false);
+    Vector<Eclipse> res = new Vector<Eclipse>();
+    for (int i = 0; i < jds.length; i++){
+      Eclipse e = refine(shadow, jds[i]);
+      if(e != null && e.getJd() >= _beginDate && e.getJd() <= _endDate) res.add(e);
+    }
+    return res.toArray(new Eclipse[res.size()]);
+  }// end searchOccultations
+
+  //=================================================================================
+  //                                 PRIVATE METHODS
+  //=================================================================================
+
+  //***************** searchSyzygies *******************************
+  // Searchs the eclipses of the Sun (lunar = false) or of the Moon (lunar = true) : enumerates the mean
+  // new or full moons, discards those far from the nodes, and refines the others.
+  private Eclipse[] searchSyzygies(boolean lunar) throws AstroException{
+    double target = (lunar ? 180.0 : 0.0);
+    Shadow shadow = new Shadow(SUN, lunar);
+    Vector<Eclipse> res = new Vector<Eclipse>();
+    double k = Math.floor((_beginDate - MAX_SHIFT - NEW_MOON_2000) / SYNODIC_MONTH) + (lunar ? 0.5 : 0.0);
+    for ( ; ; k++){
+      double T = k / LUNATIONS_PER_CENTURY;
+      double jd = NEW_MOON_2000 + SYNODIC_MONTH * k + 0.00015437 * T * T;
+      if(jd > _endDate + MAX_SHIFT) break;
+      if(jd < _beginDate - MAX_SHIFT) continue;
+      // node prefilter
+      double F = Math.toRadians(160.7108 + 390.67050284 * k - 0.0016118 * T * T);
+      if(Math.abs(Math.sin(F)) > NODE_LIMIT) continue;
+      // prediction of the true syzygy, from the main terms of the Moon
+      for (int i = 0; i < 3; i++)
+        jd += RootFinder.reduce(target - DateSearch.approxLongitude(MOON, jd), 360.0) / DateSearch.ELONGATION_MEAN_SPEED;
+      Eclipse e = refine(shadow, jd);
+      if(e != null && e.getJd() >= _beginDate && e.getJd() <= _endDate) res.add(e);
+    }
+    return res.toArray(new Eclipse[res.size()]);
+  }// end searchSyzygies
+
+  //***************** refine *******************************
+  // Computes the maximum, the type and the contacts of an eclipse, starting from a predicted date
+  // close to the maximum ; returns null if there is no eclipse.
+  private Eclipse refine(Shadow shadow, double jd) throws AstroException{
+    // 1 - maximum : closest approach of the linear motion, iterated
+    for (int i = 0; i < MAX_ITERATIONS; i++){
+      shadow.calc(jd);
+      if(i == 0 && shadow.getMinDistance() > REJECT_MARGIN * shadow.getLimit(Eclipse.P1)) return null;
+      double dt = -shadow._pv / shadow._vv;
+      jd += dt;
+      if(Math.abs(dt) < _tolerance) break;
+    }
+    int type = shadow.getType();
+    if(type < 0) return null;
+    double magnitude = shadow.getMagnitude(type);
+    double m = shadow._m, speed = Math.sqrt(shadow._vv);
+    double[] limits = new double[Eclipse.NB_CONTACTS];
+    for (int i = 0; i < Eclipse.NB_CONTACTS; i++) limits[i] = shadow.getLimit(i);
+    double gamma = m / shadow._earthRadius;
+
+    // 2 - contacts, from the linear motion, refined by Newton's method
+    double[] contacts = new double[Eclipse.NB_CONTACTS];
+    for (int i = 0; i < Eclipse.NB_CONTACTS; i++){
+      if(limits[i] <= m){
+        contacts[i] = Double.NaN;
+        continue;
+      }
+      double t = jd + (i < Eclipse.NB_CONTACTS / 2 ? -1 : 1) * Math.sqrt(limits[i] * limits[i] - m * m) / speed;
+      for (int j = 0; j < MAX_ITERATIONS; j++){
+        shadow.calc(t);
+        double dt = -(shadow._m - shadow.getLimit(i)) * shadow._m / shadow._pv;
+        t += dt;
+        if(Math.abs(dt) < _tolerance) break;
+      }
+      contacts[i] = t;
+    }
+    return new Eclipse(type, shadow._body, jd, magnitude, gamma, contacts);
+  }// end refine
+
+  //=================================================================================
+  //                                 INNER CLASSES
+  //=================================================================================
+
+  //***************** Shadow *******************************
+  /** Geometry of a shadow cone : a source (the Sun, or an occulted planet) lights an occulting body (the Moon,
+  or the Earth for a lunar eclipse), whose shadow falls on a receiving body (the Earth, or the Moon).
+  <BR>After {@link #calc(double)}, contains the position of the receiver relative to the axis of the shadow,
+  and the radii of the penumbra and the umbra at the distance of the receiver, in AU. */
+  class Shadow{
+    private AstroContext _ac;
+    private Body _source, _moon;
+    private int _body;
+    private boolean _lunar;
+    private double _sourceRadius, _occulterRadius, _receiverRadius, _earthRadius, _enlargement;
+
+    /** Distance of the receiver from the axis. */
+    double _m;
+    /** Product of the position and the velocity of the receiver, projected on the plane perpendicular to the axis. */
+    double _pv;
+    /** Square of the projected velocity. */
+    double _vv;
+    /** Radius of the penumbra, radius of the umbra (negative after the vertex of the cone, for an antumbra). */
+    double _rp, _ru;
+    /** Values used to detect the hybrid eclipses : distance of the receiver along the axis, and coefficient
+    of this distance in _ru. */
+    double _z, _ruSlope;
+
+    /** Constructor.
+    @param body The source, SUN or a planet.
+    @param lunar true for the eclipses of the Moon ; the source must then be the Sun. */
+    Shadow(int body, boolean lunar){
+      _body = (lunar ? MOON : body);
+      _lunar = lunar;
+      AstroRequest request = new AstroRequest(_astroEngine, FRAME_ECLIPTIC, CARTESIAN, _precision, true, UNITS);
+      _ac = new AstroContext(_beginDate, _timeFrame, new int[]{body, MOON}, request);
+      _source = _ac.getBodies()[0];
+      _moon = _ac.getBodies()[1];
+      _earthRadius = RADII[EARTH] / AU_KM;
+      _sourceRadius = RADII[body] / AU_KM;
+      _occulterRadius = (lunar ? RADII[EARTH] : RADII[MOON]) / AU_KM;
+      _receiverRadius = (lunar ? RADII[MOON] : RADII[EARTH]) / AU_KM;
+      _enlargement = (lunar ? SHADOW_ENLARGEMENT : 1.0);
+    }
+
+    /** Computes the geometry at 'jd'. */
+    void calc(double jd) throws AstroException{
+      _nbComputations++;
+      _ac.reset(jd, _timeFrame);
+      _ac.calcBodyCoords();
+      double[] s = new double[6], o = new double[6], r = new double[6];
+      for (int i = 0; i < 6; i++){
+        s[i] = _source.getCoord(i);
+        if(_lunar) r[i] = _moon.getCoord(i); // occulter = Earth, at the origin
+        else o[i] = _moon.getCoord(i);       // receiver = Earth
+      }
+      // axis of the shadow, from the source to the occulter : u, and its derivative du
+      double[] u = new double[3], du = new double[3], w = new double[3], dw = new double[3];
+      double D = Math.sqrt(sq(o[0] - s[0]) + sq(o[1] - s[1]) + sq(o[2] - s[2]));
+      double udv = 0;
+      for (int i = 0; i < 3; i++){
+        u[i] = (o[i] - s[i]) / D;
+        udv += u[i] * (o[i + 3] - s[i + 3]);
+      }
+      for (int i = 0; i < 3; i++){
+        du[i] = (o[i + 3] - s[i + 3] - udv * u[i]) / D;
+        w[i] = r[i] - o[i];
+        dw[i] = r[i + 3] - o[i + 3];
+      }
+      // receiver relative to the axis : p = w - (w.u)u, and its derivative v
+      double z = w[0] * u[0] + w[1] * u[1] + w[2] * u[2];
+      double dwu = dw[0] * u[0] + dw[1] * u[1] + dw[2] * u[2];
+      double wdu = w[0] * du[0] + w[1] * du[1] + w[2] * du[2];
+      double mm = 0;
+      _pv = 0;
+      _vv = 0;
+      for (int i = 0; i < 3; i++){
+        double p = w[i] - z * u[i];
+        double v = dw[i] - dwu * u[i] - wdu * u[i] - z * du[i];
+        mm += p * p;
+        _pv += p * v;
+        _vv += v * v;
+      }
+      _m = Math.sqrt(mm);
+      _z = z;
+      _rp = _enlargement * (_occulterRadius + z * (_sourceRadius + _occulterRadius) / D);
+      _ruSlope = (_sourceRadius - _occulterRadius) / D;
+      _ru = _enlargement * (_occulterRadius - z * _ruSlope);
+    }
+
+    /** Returns the closest approach of the receiver to the axis, if its motion is linear. */
+    double getMinDistance(){
+      return Math.sqrt(Math.max(0, _m * _m - _pv * _pv / _vv));
+    }
+
+    /** Returns the distance from the axis at a contact, Eclipse.P1 ... Eclipse.P4. */
+    double getLimit(int contact){
+      double ru = Math.abs(_ru);
+      switch(contact){
+        case Eclipse.P1 : case Eclipse.P4 : return _receiverRadius + _rp;
+        case Eclipse.U1 : case Eclipse.U4 : return _receiverRadius + ru;
+        default : return Math.abs(_receiverRadius - ru);
+      }
+    }
+
+    /** Returns the type of eclipse for the current date, or -1 if there is no eclipse. */
+    int getType(){
+      if(_m >= getLimit(Eclipse.P1)) return -1;
+      if(_lunar){
+        if(_m < _ru - _receiverRadius) return Eclipse.LUNAR_TOTAL;
+        return (_m < _ru + _receiverRadius ? Eclipse.LUNAR_PARTIAL : Eclipse.LUNAR_PENUMBRAL);
+      }
+      if(_body != SUN) return Eclipse.OCCULTATION;
+      if(_m >= getLimit(Eclipse.U1)) return Eclipse.SOLAR_PARTIAL;
+      if(_ru > 0) return Eclipse.SOLAR_TOTAL;
+      // annular at the center of the Earth ; total at the closest point of the central line ?
+      if(_m < _receiverRadius && _occulterRadius - (_z - Math.sqrt(sq(_receiverRadius) - sq(_m))) * _ruSlope > 0)
+        return Eclipse.SOLAR_HYBRID;
+      return Eclipse.SOLAR_ANNULAR;
+    }
+
+    /** Returns the magnitude for the current date ; see {@link Eclipse#getMagnitude()}. */
+    double getMagnitude(int type){
+      switch(type){
+        case Eclipse.LUNAR_PENUMBRAL : return (_rp + _receiverRadius - _m) / (2 * _receiverRadius);
+        case Eclipse.LUNAR_PARTIAL : case Eclipse.LUNAR_TOTAL : return (_ru + _receiverRadius - _m) / (2 * _receiverRadius);
+        case Eclipse.SOLAR_ANNULAR : case Eclipse.SOLAR_TOTAL : case Eclipse.SOLAR_HYBRID : return (_rp + _ru) / (_rp - _ru);
+        default : return Math.min(1.0, (_receiverRadius + _rp - _m) / (_rp - _ru));
+      }
+    }
+
+    private double sq(double x){ return x * x; }
+  }// end class Shadow
+
+}// end class EclipseSearch
@@ -0,0 +1,415 @@
+//*********************************************************************************
+// class jephem.astro.tools.EventIndex
+// Software released under the General Public License (version 2 or later), available at
+// http://www.gnu.org/copyleft/gpl.html
+//*********************************************************************************
+package jephem.astro.tools;
+
+import jephem.astro.AstroException;
+import jephem.astro.spacetime.SpaceConstants;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/******************************************************************************
+Catalog of precomputed events, stored in a memory-mapped file, to answer the searches of {@link DateSearch}
+without computation.
+<BR>An index is created by {@link #create(File, DateSearch, int[], double[], double[], boolean, int)}, which
+searches, between the begin and end dates of a <CODE>DateSearch</CODE> and with its parameters :
+<LI>the crossings of some positions by some bodies ({@link AstroEvent#POSITION}) ;</LI>
+<LI>the separations of these bodies for some angles ({@link AstroEvent#SEPARATION}) ;</LI>
+<LI>optionally, the stations of these bodies.</LI>
+<BR>With the angles 0, 90, 180 and 270, and the Sun and the Moon among the bodies, the index also contains the
+Moon phases ; with the positions 0, 90, 180 and 270 (longitudes, ecliptic frame), the seasons.
+<BR>Once created, an index can be reopened with {@link #open(File)}, and given to a <CODE>DateSearch</CODE>
+with {@link DateSearch#setEventIndex(EventIndex)} ; the searches then take the events from the index where it
+covers the search interval, and compute only outside.
+<BR>The events can also be read directly, by date ({@link #findFirst(double)}, {@link #getEvent(int)}) or by
+kind of event ({@link #getEvents(int, int, int, double, double, double)}) ; both use binary searches.
+<BR>File format :
+<PRE>
+  header  : magic number, version, nbEvents, beginDate, endDate, timeFrame, frame, coord, precision,
+            astroEngine, tolerance, bodies, positions, angles, stations
+  events  : nbEvents times (jd, value - doubles ; type - int ; body1, body2 - shorts), sorted by date
+  keys    : nbEvents ints, indexes of the events sorted by (type, body1, body2, value, jd)
+</PRE>
+
+@author Thierry Graff
+@history oct 19 2026 : creation.
+*********************************************************************************/
+public class EventIndex implements SpaceConstants{
+
+  //=================================================================================
+  //                                 CONSTANTS
+  //=================================================================================
+  /** First bytes of an index file ("JEVI"). */
+  private static final int MAGIC = 0x4A455649;
+  /** Version of the file format. */
+  private static final int VERSION = 1;
+  /** Size of an event in the file, in bytes. */
+  private static final int EVENT_SIZE = 24;
+
+  //=================================================================================
+  //                                 INSTANCE VARIABLES
+  //=================================================================================
+  private File _file;
+  private int _nbEvents;
+  private double _beginDate, _endDate;
+  private int _timeFrame, _frame, _coord;
+  private double _precision, _tolerance;
+  private String _astroEngine;
+  private int[] _bodies;
+  private double[] _positions, _angles;
+  private boolean _stations;
+
+  /** Open channel, null once closed. */
+  private FileChannel _channel;
+  /** Mapped events. */
+  private MappedByteBuffer _events;
+  /** Mapped indexes of the events, sorted by key. */
+  private MappedByteBuffer _keys;
+
+  //=================================================================================
+  //                                 CONSTRUCTORS
+  //=================================================================================
+  // Use create() or open().
+  private EventIndex(){}
+
+  //***************** create *******************************
+  /** Computes the events and stores them in a new index file ; an existing file is overwritten.
+  <BR>The events are searched between the begin and end dates of 'search', with its parameters (time frame,
+  frame, coordinate, astro engine, precision and tolerance), using {@link DateSearch#search(int[], double[], int)}.
+  @param bodies Bodies of the events ; the separations are searched for each couple of bodies, with the first
+  body before the second in this array.
+  @param positions Positions searched for each body (see {@link DateSearch#search(int, double)}) ; can be empty.
+  @param angles Angles searched for each couple of bodies (see {@link DateSearch#search(int, int, double)}) ;
+  can be empty.
+  @param stations Indicates if the stations of the bodies which have stations are searched.
+  @param nbThreads Number of threads used for the computation.
+  @throws IOException if the file can't be created or mapped.
+  @throws AstroException if the positions can't be computed.
+  */
+  public static EventIndex create(File file, DateSearch search, int[] bodies, double[] positions, double[] angles,
+                                  boolean stations, int nbThreads) throws IOException, AstroException{
+    AstroEvent[] events = search.searchAll(bodies, positions, angles, stations, nbThreads);
+    EventIndex res = new EventIndex();
+    res._file = file;
+    res._nbEvents = events.length;
+    res._beginDate = search._beginDate;
+    res._endDate = search._endDate;
+    res._timeFrame = search._timeFrame;
+    res._frame = search._frame;
+    res._coord = search._coord;
+    res._precision = search._precision;
+    res._astroEngine = search._astroEngine;
+    res._tolerance = search._tolerance;
+    res._bodies = bodies.clone();
+    res._positions = positions.clone();
+    res._angles = angles.clone();
+    res._stations = stations;
+
+    // header
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeInt(res._nbEvents);
+    out.writeDouble(res._beginDate);
+    out.writeDouble(res._endDate);
+    out.writeInt(res._timeFrame);
+    out.writeInt(res._frame);
+    out.writeInt(res._coord);
+    out.writeDouble(res._precision);
+    out.writeUTF(res._astroEngine);
+    out.writeDouble(res._tolerance);
+    out.writeInt(bodies.length);
+    for (int i = 0; i < bodies.length; i++) out.writeInt(bodies[i]);
+    out.writeInt(positions.length);
+    for (int i = 0; i < positions.length; i++) out.writeDouble(positions[i]);
+    out.writeInt(angles.length);
+    for (int i = 0; i < angles.length; i++) out.writeDouble(angles[i]);
+    out.writeBoolean(stations);
+    out.close();
+    byte[] header = bytes.toByteArray();
+
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try{
+      raf.setLength(0);
+      raf.writeInt(header.length);
+      raf.write(header);
+      res.map(raf, 4 + header.length, FileChannel.MapMode.READ_WRITE);
+    }
+    catch(IOException ioe){
+      raf.close();
+      throw ioe;
+    }
+
+    // events, already sorted by date ; angles are stored in [0, 360[
+    for (int i = 0; i < events.length; i++){
+      int pos = i * EVENT_SIZE;
+      double value = events[i].getValue();
+      if(res.isAngle(events[i].getType())){
+        value = reduceAngle(value);
+        events[i] = new AstroEvent(events[i].getType(), events[i].getBody1(), events[i].getBody2(), value, events[i].getJd());
+      }
+      res._events.putDouble(pos, events[i].getJd());
+      res._events.putDouble(pos + 8, value);
+      res._events.putInt(pos + 16, events[i].getType());
+      res._events.putShort(pos + 20, (short)events[i].getBody1());
+      res._events.putShort(pos + 22, (short)events[i].getBody2());
+    }
+    // keys
+    Integer[] order = new Integer[events.length];
+    for (int i = 0; i < order.length; i++) order[i] = Integer.valueOf(i);
+    final AstroEvent[] evts = events;
+    Arrays.sort(order, new Comparator<Integer>(){
+      public int compare(Integer i1, Integer i2){
+        AstroEvent e1 = evts[i1.intValue()], e2 = evts[i2.intValue()];
+        int c = compareKeys(e1.getType(), e1.getBody1(), e1.getBody2(), e1.getValue(),
+                            e2.getType(), e2.getBody1(), e2.getBody2(), e2.getValue());
+        return (c != 0 ? c : (e1.getJd() < e2.getJd() ? -1 : (e1.getJd() > e2.getJd() ? 1 : 0)));
+      }
+    });
+    for (int i = 0; i < order.length; i++) res._keys.putInt(4 * i, order[i].intValue());
+    res._events.force();
+    res._keys.force();
+    return res;
+  }// end create
+
+  //***************** open *******************************
+  /** Opens an index file previously created, for reading.
+  @throws IOException if the file can't be read or is not an index file.
+  */
+  public static EventIndex open(File file) throws IOException{
+    EventIndex res = new EventIndex();
+    res._file = file;
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try{
+      int headerLength = raf.readInt();
+      if(raf.readInt() != MAGIC) throw new IOException(file + " is not an event index file");
+      if(raf.readInt() != VERSION) throw new IOException("Unsupported version for event index file " + file);
+      res._nbEvents = raf.readInt();
+      res._beginDate = raf.readDouble();
+      res._endDate = raf.readDouble();
+      res._timeFrame = raf.readInt();
+      res._frame = raf.readInt();
+      res._coord = raf.readInt();
+      res._precision = raf.readDouble();
+      res._astroEngine = raf.readUTF();
+      res._tolerance = raf.readDouble();
+      res._bodies = new int[raf.readInt()];
+      for (int i = 0; i < res._bodies.length; i++) res._bodies[i] = raf.readInt();
+      res._positions = new double[raf.readInt()];
+      for (int i = 0; i < res._positions.length; i++) res._positions[i] = raf.readDouble();
+      res._angles = new double[raf.readInt()];
+      for (int i = 0; i < res._angles.length; i++) res._angles[i] = raf.readDouble();
+      res._stations = raf.readBoolean();
+      res.map(raf, 4 + headerLength, FileChannel.MapMode.READ_ONLY);
+    }
+    catch(IOException ioe){
+      raf.close();
+      throw ioe;
+    }
+    return res;
+  }// end open
+
+  //=================================================================================
+  //                                 PUBLIC METHODS
+  //=================================================================================
+
+  //************************* get methods  *******************************
+  /** Returns the file containing the index. */
+  public File getFile(){ return _file; }
+  /** Returns the number of events of the index. */
+  public int getNbEvents(){ return _nbEvents; }
+  /** Returns the beginning of the interval covered by the index, in julian days. */
+  public double getBeginDate(){ return _beginDate; }
+  /** Returns the end of the interval covered by the index, in julian days. */
+  public double getEndDate(){ return _endDate; }
+  /** Returns the time frame of the dates. */
+  public int getTimeFrame(){ return _timeFrame; }
+  /** Returns the frame of the positions. */
+  public int getFrame(){ return _frame; }
+  /** Returns the coordinate of the {@link AstroEvent#POSITION} events. */
+  public int getCoord(){ return _coord; }
+  /** Returns the precision of the positions, in arcseconds. */
+  public double getPrecision(){ return _precision; }
+  /** Returns the astro engine used for the computations. */
+  public String getAstroEngine(){ return _astroEngine; }
+  /** Returns the precision of the dates, in days. */
+  public double getTolerance(){ return _tolerance; }
+
+  //***************** getEvent *******************************
+  /** Returns an event ; events are sorted by date. */
+  public AstroEvent getEvent(int i){
+    int pos = i * EVENT_SIZE;
+    return new AstroEvent(_events.getInt(pos + 16), _events.getShort(pos + 20), _events.getShort(pos + 22),
+                          _events.getDouble(pos + 8), _events.getDouble(pos));
+  }// end getEvent
+
+  //***************** findFirst *******************************
+  /** Returns the index of the first event whose date is greater or equal to 'jd' (getNbEvents() if there is none). */
+  public int findFirst(double jd){
+    int lo = 0, hi = _nbEvents;
+    while(lo < hi){
+      int mid = (lo + hi) >>> 1;
+      if(_events.getDouble(mid * EVENT_SIZE) < jd) lo = mid + 1;
+      else hi = mid;
+    }
+    return lo;
+  }// end findFirst
+
+  //***************** getEvents(jd0, jdF) *******************************
+  /** Returns all the events between 'jd0' and 'jdF', sorted by date. */
+  public AstroEvent[] getEvents(double jd0, double jdF){
+    int i0 = findFirst(jd0), iF = i0;
+    while(iF < _nbEvents && _events.getDouble(iF * EVENT_SIZE) <= jdF) iF++;
+    AstroEvent[] res = new AstroEvent[iF - i0];
+    for (int i = i0; i < iF; i++) res[i - i0] = getEvent(i);
+    return res;
+  }// end getEvents(jd0, jdF)
+
+  //***************** getEvents(type, body1, body2, value, jd0, jdF) *******************************
+  /** Returns the events of a given kind between 'jd0' and 'jdF', sorted by date, or null if the index doesn't
+  contain this kind of events.
+  <BR>For a separation, the bodies can be given in any order (the events are then returned with the bodies
+  and angle asked) ; for a station, 'value' is not used, and both kinds of stations are returned.
+  <BR>The values of the returned positions and separations are equal to 'value'.
+  @param type Type of the events, using {@link AstroEvent} constants.
+  @param body1 First body.
+  @param body2 Second body, or {@link AstroEvent#NO_BODY}.
+  @param value Position or angle.
+  */
+  public AstroEvent[] getEvents(int type, int body1, int body2, double value, double jd0, double jdF){
+    if(!contains(type, body1, body2, value)) return null;
+    int asked1 = body1, asked2 = body2;
+    double asked = value;
+    if(isAngle(type)) value = reduceAngle(value);
+    if(type == AstroEvent.SEPARATION && indexOf(body1) > indexOf(body2)){ // stored as (body2, body1, -value)
+      body1 = asked2;
+      body2 = asked1;
+      value = reduceAngle(-value);
+    }
+    // first key >= (type, body1, body2, value, jd0)
+    int lo = 0, hi = _nbEvents;
+    while(lo < hi){
+      int mid = (lo + hi) >>> 1;
+      int pos = _keys.getInt(4 * mid) * EVENT_SIZE;
+      int c = compareKeys(_events.getInt(pos + 16), _events.getShort(pos + 20), _events.getShort(pos + 22),
+                          _events.getDouble(pos + 8), type, body1, body2, value);
+      if(c < 0 || (c == 0 && _events.getDouble(pos) < jd0)) lo = mid + 1;
+      else hi = mid;
+    }
+    java.util.Vector<AstroEvent> res = new java.util.Vector<AstroEvent>();
+    for (int i = lo; i < _nbEvents; i++){
+      int pos = _keys.getInt(4 * i) * EVENT_SIZE;
+      if(compareKeys(_events.getInt(pos + 16), _events.getShort(pos + 20), _events.getShort(pos + 22),
+                     _events.getDouble(pos + 8), type, body1, body2, value) != 0
+         || _events.getDouble(pos) > jdF) break;
+      AstroEvent e = getEvent(_keys.getInt(4 * i));
+      if(type == AstroEvent.POSITION || type == AstroEvent.SEPARATION)
+        e = new AstroEvent(type, asked1, asked2, asked, e.getJd());
+      res.add(e);
+    }
+    AstroEvent[] events = res.toArray(new AstroEvent[res.size()]);
+    if(type == AstroEvent.STATION_RETROGRADE || type == AstroEvent.STATION_DIRECT) Arrays.sort(events);
+    return events;
+  }// end getEvents(type, body1, body2, value, jd0, jdF)
+
+  //***************** contains *******************************
+  /** Returns true if the index contains the events of a given kind ; parameters are the same as in
+  {@link #getEvents(int, int, int, double, double, double)}. */
+  public boolean contains(int type, int body1, int body2, double value){
+    switch(type){
+      case AstroEvent.POSITION :
+        if(indexOf(body1) < 0) return false;
+        for (int i = 0; i < _positions.length; i++){
+          if(_positions[i] == value || (isAngle(type) && reduceAngle(_positions[i]) == reduceAngle(value)))
+            return true;
+        }
+        return false;
+      case AstroEvent.SEPARATION :
+        int i1 = indexOf(body1), i2 = indexOf(body2);
+        if(i1 < 0 || i2 < 0 || i1 == i2) return false;
+        double angle = reduceAngle(i1 < i2 ? value : -value);
+        for (int i = 0; i < _angles.length; i++) if(reduceAngle(_angles[i]) == angle) return true;
+        return false;
+      case AstroEvent.STATION_RETROGRADE :
+      case AstroEvent.STATION_DIRECT :
+        return _stations && indexOf(body1) >= 0 && DateSearch.MIN_STATION_INTERVALS[body1] > 0;
+      default :
+        return false;
+    }
+  }// end contains
+
+  //***************** matches *******************************
+  /** Returns true if the events of the index were computed with the given parameters (with a tolerance
+  smaller or equal to 'tolerance'), in 'frame' ; the coordinate is not compared. */
+  public boolean matches(int timeFrame, int frame, String astroEngine, double precision, double tolerance){
+    return _timeFrame == timeFrame && _frame == frame && _astroEngine.equals(astroEngine)
+        && _precision <= precision && _tolerance <= tolerance;
+  }// end matches
+
+  //***************** close() *******************************
+  /** Closes the file ; mapped events stay readable until garbage collected. */
+  public void close() throws IOException{
+    if(_channel == null) return;
+    _channel.close();
+    _channel = null;
+  }// end close
+
+  //=================================================================================
+  //                                 PRIVATE METHODS
+  //=================================================================================
+
+  //***************** map *******************************
+  // Maps the events and the keys, which start at position 'start' of the file.
+  private void map(RandomAccessFile raf, long start, FileChannel.MapMode mode) throws IOException{
+    long eventsSize = (long)_nbEvents * EVENT_SIZE, keysSize = 4L * _nbEvents;
+    if(eventsSize > Integer.MAX_VALUE) throw new IOException("Too many events for an index file");
+    if(mode == FileChannel.MapMode.READ_WRITE) raf.setLength(start + eventsSize + keysSize);
+    else if(raf.length() < start + eventsSize + keysSize) throw new IOException("Truncated event index file : " + _file);
+    _channel = raf.getChannel();
+    _events = _channel.map(mode, start, eventsSize);
+    _keys = _channel.map(mode, start + eventsSize, keysSize);
+  }// end map
+
+  //***************** indexOf *******************************
+  // Returns the position of 'body' in _bodies, or -1.
+  private int indexOf(int body){
+    for (int i = 0; i < _bodies.length; i++) if(_bodies[i] == body) return i;
+    return -1;
+  }// end indexOf
+
+  //***************** isAngle *******************************
+  // Returns true if the values of the events of type 'type' are angles, taken modulo 360 degrees.
+  private boolean isAngle(int type){
+    return type == AstroEvent.SEPARATION || (type == AstroEvent.POSITION && _coord == COORD_X1);
+  }// end isAngle
+
+  //***************** reduceAngle *******************************
+  // Reduces an angle to [0, 360[.
+  private static double reduceAngle(double x){
+    return x - 360.0 * Math.floor(x / 360.0);
+  }// end reduceAngle
+
+  //***************** compareKeys *******************************
+  // Compares the kinds of two events : by type (both stations are the same kind), bodies and value
+  // (not for the stations).
+  private static int compareKeys(int type1, int body11, int body21, double value1,
+                                 int type2, int body12, int body22, double value2){
+    boolean station1 = (type1 == AstroEvent.STATION_RETROGRADE || type1 == AstroEvent.STATION_DIRECT);
+    boolean station2 = (type2 == AstroEvent.STATION_RETROGRADE || type2 == AstroEvent.STATION_DIRECT);
+    if(station1) type1 = AstroEvent.STATION_RETROGRADE;
+    if(station2) type2 = AstroEvent.STATION_RETROGRADE;
+    if(type1 != type2) return (type1 < type2 ? -1 : 1);
+    if(body11 != body12) return (body11 < body12 ? -1 : 1);
+    if(body21 != body22) return (body21 < body22 ? -1 : 1);
+    if(station1 || value1 == value2) return 0;
+    return (value1 < value2 ? -1 : 1);
+  }// end compareKeys
+
+}// end class EventIndex
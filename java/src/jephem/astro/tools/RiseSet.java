@@ -0,0 +1,299 @@
+//*********************************************************************************
+// class jephem.astro.tools.RiseSet
+// Software released under the General Public License (version 2 or later), available at
+// http://www.gnu.org/copyleft/gpl.html
+//*********************************************************************************
+package jephem.astro.tools;
+
+import jephem.astro.AstroContext;
+import jephem.astro.AstroEngine;
+import jephem.astro.AstroException;
+import jephem.astro.AstroRequest;
+import jephem.astro.Body;
+import jephem.astro.MeanTrue;
+import jephem.astro.sky.BSC5;
+import jephem.astro.solarsystem.SolarSystemConstants;
+import jephem.astro.spacetime.Observer;
+import jephem.astro.spacetime.SpaceConstants;
+import jephem.astro.spacetime.Time;
+import jephem.astro.spacetime.TimeConstants;
+import jephem.astro.spacetime.UnitsConstants;
+
+import tig.maths.Maths;
+import tig.maths.Matrix3;
+import tig.maths.Vector3;
+
+/******************************************************************************
+Computes the rise, transit (upper culmination) and set times of solar system bodies and of BSC5 stars,
+for several observers at once.
+<BR>The apparent equatorial coordinates of the body are computed once for a day, at a few dates (every
+3 hours for the Moon, every 12 hours for the other bodies), and are shared by all the observers ; for each
+observer, the times are first estimated from the apparent sidereal time, then refined by interpolation of
+the coordinates (method of Meeus, "Astronomical Algorithms", chapter 15). So the cost of an observer is
+only a few arithmetic operations, and thousands of locations can be handled for the price of one.
+<BR>The altitude of the center of the body at rise and set takes into account the refraction and, for the
+Sun and the Moon, their apparent radius (and the parallax of the Moon) ; it can be modified with
+{@link #setAltitude(double)} (ex : -6 degrees for the civil twilight).
+<BR>Dates are expressed in julian days, in UTC (considered equal to UT1).
+<BR>Example :
+<BR>&nbsp;&nbsp;<CODE>double[][] res = new RiseSet(observers).calcBody(SUN, jd);</CODE>
+<BR>&nbsp;&nbsp;<CODE>res[i][RiseSet.RISE]</CODE> is then the sunrise for observer i on the day beginning at jd.
+<BR>As for {@link AstroContext}, the data paths of the theories (and of {@link BSC5} for the stars) must have
+been set before computing.
+
+@author Thierry Graff
+@history oct 19 2026 : creation.
+*********************************************************************************/
+public class RiseSet implements SolarSystemConstants, SpaceConstants, UnitsConstants{
+
+  //=================================================================================
+  //                                 CONSTANTS
+  //=================================================================================
+  /** Index of the rise time in the arrays returned by the calc methods. */
+  public static final int RISE = 0;
+  /** Index of the transit time in the arrays returned by the calc methods. */
+  public static final int TRANSIT = 1;
+  /** Index of the set time in the arrays returned by the calc methods. */
+  public static final int SET = 2;
+  /** Number of events computed for each observer. */
+  public static final int NB_EVENTS = 3;
+
+  /** Altitude of the center of the Sun at rise and set, in degrees (refraction and apparent radius). */
+  public static final double SUN_ALTITUDE = -0.8333;
+  /** Altitude of the stars and the planets at rise and set, in degrees (refraction). */
+  public static final double STAR_ALTITUDE = -0.5667;
+
+  /** Default precision of the positions, in arcseconds. */
+  public static final double DEFAULT_PRECISION = 1.0;
+
+  /** Precision of the times, in days (one second). */
+  private static final double TOLERANCE = 1.0 / 86400.0;
+  /** Maximal number of iterations of the refinement. */
+  private static final int MAX_ITERATIONS = 10;
+  /** Interval between the computed positions, in days, for the Moon and for the other bodies. */
+  private static final double MOON_STEP = 0.125, STEP = 0.5;
+  /** Margin of the computed positions before and after the day, in days. */
+  private static final double MARGIN = 0.5;
+  /** Ratio of the sidereal day to the solar day. */
+  private static final double SIDEREAL_RATE = 360.985647 / 360.0;
+  /** Earth equatorial radius, in AU. */
+  private static final double EARTH_RADIUS = 6378.14 / 149597870.0;
+  /** Units of the computed positions. */
+  private static final int[] UNITS = {DISTANCE_UNIT_AU, ANGULAR_UNIT_DEG, ANGULAR_UNIT_DEG};
+
+  //=================================================================================
+  //                                 INSTANCE VARIABLES
+  //=================================================================================
+  private Observer[] _observers;
+  private String _astroEngine = AstroEngine.JEPHEM;
+  private double _precision = DEFAULT_PRECISION;
+  /** Altitude at rise and set, in degrees ; NaN for the standard altitudes. */
+  private double _altitude = Double.NaN;
+
+  //=================================================================================
+  //                                 CONSTRUCTORS
+  //=================================================================================
+
+  //***************** RiseSet *******************************
+  /** Constructor.
+  @param observers The locations for which the times are computed.
+  */
+  public RiseSet(Observer[] observers){
+    _observers = observers;
+  }// end RiseSet
+
+  //=================================================================================
+  //                                 PUBLIC METHODS
+  //=================================================================================
+
+  /** Returns the observers. */
+  public Observer[] getObservers(){ return _observers; }
+
+  /** Sets the engine used for the computations (default : {@link AstroEngine#JEPHEM}). */
+  public void setAstroEngine(String astroEngine){ _astroEngine = astroEngine; }
+
+  /** Sets the precision of the positions, in arcseconds (default : {@link #DEFAULT_PRECISION}). */
+  public void setPrecision(double precision){ _precision = precision; }
+
+  //***************** setAltitude *******************************
+  /** Sets the altitude of the center of the bodies at rise and set, in degrees ; <CODE>Double.NaN</CODE>
+  (default) to use the standard altitudes ({@link #SUN_ALTITUDE}, {@link #STAR_ALTITUDE}, and for the Moon
+  0.7275 x its parallax + {@link #STAR_ALTITUDE}). */
+  public void setAltitude(double altitude){ _altitude = altitude; }
+
+  //***************** calcBody *******************************
+  /** Computes the times of rise, transit and set of a solar system body, for each observer, between
+  'jd' and 'jd' + 1.
+  @param body Index of the body, using {@link SolarSystemConstants} constants ; can't be the Earth.
+  @param jd Beginning of the day, in julian days, UTC (ex : 0h UTC, or local midnight of the observers).
+  @return An array res[iObserver][iEvent], where 'iEvent' is {@link #RISE}, {@link #TRANSIT} or {@link #SET} ;
+  contains <CODE>Double.NaN</CODE> if the event doesn't occur in the day (the body doesn't rise or set at
+  this latitude, or the Moon rises after the end of the day...).
+  @throws AstroException if the positions can't be computed.
+  */
+  public double[][] calcBody(int body, double jd) throws AstroException{
+    if(body == EARTH) throw new IllegalArgumentException("'body' can't be the Earth");
+    double step = (body == MOON ? MOON_STEP : STEP);
+    int nbSamples = (int)Math.round((1 + 2 * MARGIN) / step) + 1;
+    Track track = new Track(jd - MARGIN, step, nbSamples, body);
+    AstroRequest request = new AstroRequest(_astroEngine, FRAME_EQUATORIAL, SPHERICAL, _precision, false, UNITS);
+    AstroContext ac = new AstroContext(track._jd0, TimeConstants.UTC, new int[]{body}, request);
+    Body b = ac.getBodies()[0];
+    for (int i = 0; i < nbSamples; i++){
+      ac.reset(track._jd0 + i * step, TimeConstants.UTC);
+      ac.calcBodyCoords();
+      track.setSample(i, b.getCoord(COORD_X1), b.getCoord(COORD_X2), b.getCoord(COORD_X0));
+    }
+    return calc(track, jd);
+  }// end calcBody
+
+  //***************** calcStar *******************************
+  /** Computes the times of rise, transit and set of a star of BSC5, for each observer, between 'jd' and
+  'jd' + 1 ; see {@link #calcBody(int, double)}.
+  <BR>The coordinates J2000 of the catalog are corrected for the precession and the nutation (not for the
+  proper motion and the aberration).
+  @param starIdx Index of the star in {@link BSC5}.
+  */
+  public double[][] calcStar(int starIdx, double jd){
+    double ra = BSC5.getDoubleData(starIdx, BSC5.RA), dec = BSC5.getDoubleData(starIdx, BSC5.DEC);
+    MeanTrue mt = new MeanTrue(Time.getTT(jd + 0.5), TimeConstants.JD2000);
+    Matrix3 m = Matrix3.mul(mt.getEqNutationMatrix(), mt.getEqPrecessionMatrix());
+    Vector3 v = Vector3.mul(m, new Vector3(Math.cos(dec) * Math.cos(ra), Math.cos(dec) * Math.sin(ra), Math.sin(dec)));
+    Track track = new Track(jd, 1, 1, -1);
+    track.setSample(0, Math.toDegrees(Math.atan2(v.x1, v.x0)), Math.toDegrees(Math.asin(v.x2)), 0);
+    return calc(track, jd);
+  }// end calcStar
+
+  //=================================================================================
+  //                                 PRIVATE METHODS
+  //=================================================================================
+
+  //***************** calc *******************************
+  // Computes the events of all the observers from the positions of 'track'.
+  private double[][] calc(Track track, double jd){
+    // apparent sidereal time at jd
+    MeanTrue mt = new MeanTrue(Time.getTT(jd), TimeConstants.JD2000);
+    double eqEquinoxes = mt.getQuantity(MeanTrue.QTY_deltaPsi)
+                       * Math.cos(mt.getQuantity(MeanTrue.QTY_epsilon_a) * Maths.ARCSEC_TO_RAD) / 3600.0;
+    double theta0 = Time.calcGMST(jd) + eqEquinoxes;
+    double[][] res = new double[_observers.length][NB_EVENTS];
+    double[] p = new double[3];
+    track.interpolate(jd + 0.5, p);
+    for (int i = 0; i < _observers.length; i++){
+      Observer obs = _observers[i];
+      double sinDec = Math.sin(Math.toRadians(p[1])), cosDec = Math.cos(Math.toRadians(p[1]));
+      // first estimates, from the sidereal time
+      double m0 = reduce01((p[0] - obs.getLongitude() - theta0) / 360.0);
+      res[i][TRANSIT] = refine(track, jd, theta0, obs, TRANSIT, m0);
+      double cosH0 = (Math.sin(Math.toRadians(p[2])) - obs.getSinLatitude() * sinDec)
+                   / (obs.getCosLatitude() * cosDec);
+      if(cosH0 < -1 || cosH0 > 1){ // always above or always below the horizon
+        res[i][RISE] = res[i][SET] = Double.NaN;
+        continue;
+      }
+      double h0 = Math.toDegrees(Math.acos(cosH0)) / 360.0;
+      res[i][RISE] = refine(track, jd, theta0, obs, RISE, reduce01(m0 - h0));
+      res[i][SET] = refine(track, jd, theta0, obs, SET, reduce01(m0 + h0));
+    }
+    return res;
+  }// end calc
+
+  //***************** refine *******************************
+  // Refines the time of an event, expressed as a fraction of day 'm' from 'jd' ; returns the date, or NaN if
+  // the event doesn't occur between jd and jd + 1.
+  private double refine(Track track, double jd, double theta0, Observer obs, int event, double m){
+    double[] p = new double[3];
+    for (int attempt = 0; attempt < 2; attempt++){
+      boolean converged = false;
+      double H = 0;
+      for (int i = 0; i < MAX_ITERATIONS && !converged; i++){
+        track.interpolate(jd + m, p);
+        H = reduce180(theta0 + 360.0 * SIDEREAL_RATE * m + obs.getLongitude() - p[0]); // hour angle
+        double dm;
+        if(event == TRANSIT)
+          dm = -H / 360.0;
+        else{
+          double dec = Math.toRadians(p[1]), sinH = Math.sin(Math.toRadians(H));
+          double alt = Math.toDegrees(Math.asin(obs.getSinLatitude() * Math.sin(dec)
+                                     + obs.getCosLatitude() * Math.cos(dec) * Math.cos(Math.toRadians(H))));
+          if(sinH == 0) return Double.NaN;
+          dm = (alt - p[2]) / (360.0 * Math.cos(dec) * obs.getCosLatitude() * sinH);
+        }
+        m += dm;
+        converged = (Math.abs(dm) < TOLERANCE);
+      }
+      // the body rises east (H < 0) and sets west (H > 0)
+      if(!converged || (event == RISE && H > 0) || (event == SET && H < 0)) return Double.NaN;
+      if(m >= 0 && m < 1) return jd + m;
+      // the event found is in the previous or next day, look for the one of this day
+      m += (m < 0 ? 1 : -1);
+    }
+    return Double.NaN;
+  }// end refine
+
+  //***************** reduce01 *******************************
+  // Reduces x to [0, 1[.
+  private static double reduce01(double x){
+    return x - Math.floor(x);
+  }// end reduce01
+
+  //***************** reduce180 *******************************
+  // Reduces an angle to [-180, 180[.
+  private static double reduce180(double x){
+    return RootFinder.reduce(x, 360.0);
+  }// end reduce180
+
+  //=================================================================================
+  //                                 PRIVATE CLASSES
+  //=================================================================================
+
+  //***************** Track *******************************
+  // Right ascensions, declinations and altitudes at rise and set of a body, at regular dates ;
+  // right ascensions are unwrapped (continuous), to be interpolated.
+  private class Track{
+    private double _jd0, _step;
+    private int _body; // -1 for a star
+    private double[] _ra, _dec, _alt;
+
+    Track(double jd0, double step, int nbSamples, int body){
+      _jd0 = jd0;
+      _step = step;
+      _body = body;
+      _ra = new double[nbSamples];
+      _dec = new double[nbSamples];
+      _alt = new double[nbSamples];
+    }
+
+    void setSample(int i, double ra, double dec, double distance){
+      if(i > 0) ra = _ra[i - 1] + reduce180(ra - _ra[i - 1]);
+      _ra[i] = ra;
+      _dec[i] = dec;
+      if(!Double.isNaN(_altitude)) _alt[i] = _altitude;
+      else if(_body == SUN) _alt[i] = SUN_ALTITUDE;
+      else if(_body == MOON) _alt[i] = 0.7275 * Math.toDegrees(Math.asin(EARTH_RADIUS / distance)) + STAR_ALTITUDE;
+      else _alt[i] = STAR_ALTITUDE;
+    }
+
+    // Fills p with right ascension, declination and altitude at 'jd', by quadratic interpolation.
+    void interpolate(double jd, double[] p){
+      int n = _ra.length;
+      if(n == 1){
+        p[0] = _ra[0]; p[1] = _dec[0]; p[2] = _alt[0];
+        return;
+      }
+      // center of the 3 samples used, the closest to jd
+      int i = (int)Math.round((jd - _jd0) / _step);
+      i = Math.max(1, Math.min(n - 2, i));
+      double x = (jd - _jd0) / _step - i;
+      p[0] = interpolate(_ra, i, x);
+      p[1] = interpolate(_dec, i, x);
+      p[2] = interpolate(_alt, i, x);
+    }
+
+    // Lagrange interpolation on y[i-1], y[i], y[i+1] ; x is the distance to i, in steps.
+    private double interpolate(double[] y, int i, double x){
+      return y[i] + 0.5 * x * (y[i + 1] - y[i - 1] + x * (y[i + 1] - 2 * y[i] + y[i - 1]));
+    }
+  }// end class Track
+
+}// end class RiseSet
@@ -0,0 +1,285 @@
+//*********************************************************************************
+// class jephem.astro.tools.RootFinder
+// Software released under the General Public License (version 2 or later), available at
+// http://www.gnu.org/copyleft/gpl.html
+//*********************************************************************************
+package jephem.astro.tools;
+
+import jephem.astro.AstroException;
+
+import java.util.Vector;
+
+/******************************************************************************
+Finds the zeros of a {@link DateFunction} in a time interval.
+<BR>The interval is scanned with a coarse step ; each change of sign of the function between two steps
+brackets a zero, which is then refined by Brent's method (combination of bisection, secant and inverse
+quadratic interpolation, which needs only a few evaluations for a smooth function).
+<BR>If the function gives its derivative, a change of sign of the derivative between two steps shows an
+extremum ; the extremum is then located, and the two sides are searched separately, so that two close zeros
+are not missed. So the step must only be small enough to avoid two extrema in the same step.
+<BR>If a bound of the derivative is known, the scan goes faster far from the zeros : when |f| = y, no zero can
+be met before y / maxDerivative days, so the scan directly jumps there.
+<BR>When the derivative is known, the zeros are refined by Newton's method, safeguarded by bisection
+(each step costs one evaluation, and converges quadratically) ; otherwise by Brent's method.
+<BR>When the date of a zero is already known approximately, {@link #refineZero(DateFunction, double, double,
+double, double)} finds it without scanning, by Newton's method started at this date.
+<BR>Angles are handled with a period : values are reduced to [-period/2, period/2[, and a jump of the reduced
+value from -period/2 to period/2 is not considered as a zero.
+
+@author Thierry Graff
+@history oct 19 2026 : creation.
+@history oct 19 2026 : refinement by Newton's method when the derivative is known ; scan using a bound of the derivative.
+@history oct 19 2026 : refineZero(), from a predicted date.
+@history oct 19 2026 : a change of sign after a jump is refined, in case the bound of the derivative is exceeded.
+*********************************************************************************/
+public class RootFinder{
+
+  //=================================================================================
+  //                                 CONSTANTS
+  //=================================================================================
+  /** Maximal number of iterations of Brent's method. */
+  private static final int MAX_ITERATIONS = 100;
+
+  /** Maximal number of iterations of Newton's method in {@link #refineZero(DateFunction, double, double, double, double)}. */
+  private static final int MAX_NEWTON_ITERATIONS = 10;
+
+  /** Number of scanning steps in the interval of {@link #refineZero(DateFunction, double, double, double, double)},
+  when Newton's method fails. */
+  private static final int NB_REFINE_STEPS = 8;
+
+  /** Value and derivative indexes, see {@link DateFunction}. */
+  private static final int VALUE = DateFunction.VALUE, DERIVATIVE = DateFunction.DERIVATIVE;
+
+  //=================================================================================
+  //                                 PUBLIC METHODS
+  //=================================================================================
+
+  //***************** findZeros *******************************
+  /** Returns the dates, between 'jd0' and 'jdF', for which 'f' is equal to 0.
+  @param f The function.
+  @param jd0 Beginning of the search.
+  @param jdF End of the search, greater than 'jd0'.
+  @param step Scanning step, in days ; must be small enough so that 'f' has at most one extremum (or, if 'f'
+  doesn't give its derivative, at most one zero) between two steps.
+  @param period Period of the values of 'f' (ex : 360 for longitudes in degrees), or 0 if 'f' is not periodic.
+  @param tolerance Precision of the dates, in days.
+  @return The sorted dates.
+  @throws AstroException if 'f' can't be computed.
+  */
+  public static double[] findZeros(DateFunction f, double jd0, double jdF, double step,
+                                   double period, double tolerance) throws AstroException{
+    return findZeros(f, jd0, jdF, step, period, tolerance, 0);
+  }// end findZeros
+
+  //***************** findZeros(maxDerivative) *******************************
+  /** Same as {@link #findZeros(DateFunction, double, double, double, double, double)}, using a bound of the
+  derivative to skip the parts of the interval where the function is far from 0.
+  @param maxDerivative Maximal absolute value of the derivative of 'f', per day ; 0 if unknown.
+  */
+  public static double[] findZeros(DateFunction f, double jd0, double jdF, double step,
+                                   double period, double tolerance, double maxDerivative) throws AstroException{
+    if(!(step > 0)) throw new IllegalArgumentException("'step' must be positive");
+    Vector<Double> res = new Vector<Double>();
+    double[] v = new double[2];
+    double t0 = jd0, t1;
+    f.calc(t0, v);
+    double v0 = reduce(v[VALUE], period), d0 = v[DERIVATIVE], v1, d1;
+    if(v0 == 0) res.add(Double.valueOf(t0));
+    while(t0 < jdF){
+      // no zero in ]t0, t0 + |v0| / maxDerivative[
+      double jump = (maxDerivative > 0 ? Math.abs(v0) / maxDerivative : 0);
+      t1 = Math.min(t0 + Math.max(step, jump), jdF);
+      f.calc(t1, v);
+      v1 = reduce(v[VALUE], period);
+      d1 = v[DERIVATIVE];
+      if(jump > step) // no zero expected before t1, but the bound may be exceeded
+        addZero(f, period, t0, v0, d0, t1, v1, d1, tolerance, res);
+      else if(d0 * d1 < 0){ // extremum between t0 and t1 (false if a derivative is NaN)
+        double tm = findZero(f, DERIVATIVE, 0, t0, d0, t1, d1, tolerance);
+        f.calc(tm, v);
+        double vm = reduce(v[VALUE], period), dm = v[DERIVATIVE];
+        addZero(f, period, t0, v0, d0, tm, vm, dm, tolerance, res);
+        addZero(f, period, tm, vm, dm, t1, v1, d1, tolerance, res);
+      }
+      else
+        addZero(f, period, t0, v0, d0, t1, v1, d1, tolerance, res);
+      t0 = t1; v0 = v1; d0 = d1;
+    }
+    double[] dates = new double[res.size()];
+    for (int i = 0; i < dates.length; i++) dates[i] = res.get(i).doubleValue();
+    return dates;
+  }// end findZeros
+
+  //***************** findZero *******************************
+  /** Finds a zero of a function (or of its derivative) between two dates, by Brent's method.
+  <BR>The values at the two dates must have opposite signs (or one of them be 0).
+  @param f The function.
+  @param which {@link DateFunction#VALUE} to find a zero of 'f', {@link DateFunction#DERIVATIVE} to find a zero
+  of its derivative.
+  @param period Period of the values of 'f', or 0.
+  @param a First date.
+  @param fa Value at 'a', already reduced if 'period' is not 0.
+  @param b Second date.
+  @param fb Value at 'b', already reduced if 'period' is not 0.
+  @param tolerance Precision of the result, in days.
+  @throws AstroException if 'f' can't be computed.
+  */
+  public static double findZero(DateFunction f, int which, double period, double a, double fa, double b, double fb,
+                                double tolerance) throws AstroException{
+    if(fa == 0) return a;
+    if(fb == 0) return b;
+    if(fa * fb > 0) throw new IllegalArgumentException("The zero must be bracketed");
+    double[] v = new double[2];
+    double c = b, fc = fb, d = b - a, e = d;
+    for (int i = 0; i < MAX_ITERATIONS; i++){
+      if(fb * fc > 0){
+        c = a; fc = fa; d = b - a; e = d;
+      }
+      if(Math.abs(fc) < Math.abs(fb)){
+        a = b; b = c; c = a;
+        fa = fb; fb = fc; fc = fa;
+      }
+      double tol = 0.5 * tolerance;
+      double m = 0.5 * (c - b);
+      if(Math.abs(m) <= tol || fb == 0) return b;
+      if(Math.abs(e) >= tol && Math.abs(fa) > Math.abs(fb)){
+        // secant or inverse quadratic interpolation
+        double s = fb / fa, p, q;
+        if(a == c){
+          p = 2 * m * s;
+          q = 1 - s;
+        }
+        else{
+          double r = fb / fc;
+          q = fa / fc;
+          p = s * (2 * m * q * (q - r) - (b - a) * (r - 1));
+          q = (q - 1) * (r - 1) * (s - 1);
+        }
+        if(p > 0) q = -q;
+        else p = -p;
+        if(2 * p < Math.min(3 * m * q - Math.abs(tol * q), Math.abs(e * q))){
+          e = d;
+          d = p / q;
+        }
+        else{ // interpolation failed, bisection
+          d = m; e = d;
+        }
+      }
+      else{ // bisection
+        d = m; e = d;
+      }
+      a = b; fa = fb;
+      b += (Math.abs(d) > tol ? d : (m > 0 ? tol : -tol));
+      f.calc(b, v);
+      fb = (which == VALUE ? reduce(v[VALUE], period) : v[DERIVATIVE]);
+    }
+    return b;
+  }// end findZero
+
+  //***************** findZeroNewton *******************************
+  /** Finds a zero of a function between two dates, by Newton's method ; when a Newton step goes out of the
+  bracketing interval, or doesn't reduce the value enough, a bisection step is done instead.
+  <BR>The function must give its derivative ; parameters are the same as in
+  {@link #findZero(DateFunction, int, double, double, double, double, double, double)}.
+  @param da Derivative at 'a'.
+  @param db Derivative at 'b'.
+  @throws AstroException if 'f' can't be computed.
+  */
+  public static double findZeroNewton(DateFunction f, double period, double a, double fa, double da,
+                                      double b, double fb, double db, double tolerance) throws AstroException{
+    if(fa == 0) return a;
+    if(fb == 0) return b;
+    if(fa * fb > 0) throw new IllegalArgumentException("The zero must be bracketed");
+    double xl, xh; // f(xl) < 0 < f(xh)
+    if(fa < 0){ xl = a; xh = b; }
+    else{ xl = b; xh = a; }
+    // start from the end with the smallest value
+    double x, fx, dx;
+    if(Math.abs(fa) < Math.abs(fb)){ x = a; fx = fa; dx = da; }
+    else{ x = b; fx = fb; dx = db; }
+    double step = Math.abs(b - a), oldStep = step;
+    double[] v = new double[2];
+    for (int i = 0; i < MAX_ITERATIONS; i++){
+      if(((x - xh) * dx - fx) * ((x - xl) * dx - fx) > 0  // Newton out of range (also true if dx is 0)
+         || Math.abs(2 * fx) > Math.abs(oldStep * dx)){   // or not decreasing fast enough
+        oldStep = step;
+        step = 0.5 * (xh - xl);
+        x = xl + step;
+      }
+      else{
+        oldStep = step;
+        step = fx / dx;
+        x -= step;
+      }
+      if(Math.abs(step) < tolerance) return x;
+      f.calc(x, v);
+      fx = reduce(v[VALUE], period);
+      dx = v[DERIVATIVE];
+      if(fx == 0) return x;
+      if(fx < 0) xl = x;
+      else xh = x;
+    }
+    return x;
+  }// end findZeroNewton
+
+  //***************** refineZero *******************************
+  /** Finds the zero of a function close to a predicted date, by Newton's method started at this date.
+  <BR>If the prediction is good, a few evaluations of 'f' are enough (often two or three).
+  <BR>If Newton's method goes out of [x0 - halfWidth, x0 + halfWidth], or doesn't converge, this interval
+  is scanned by {@link #findZeros(DateFunction, double, double, double, double, double)}, and the zero
+  closest to 'x0' is returned.
+  @param f The function ; must give its derivative.
+  @param period Period of the values of 'f', or 0.
+  @param x0 Predicted date of the zero.
+  @param halfWidth Maximal distance, in days, between the predicted date and the zero.
+  @param tolerance Precision of the result, in days.
+  @return The date of the zero, or <CODE>Double.NaN</CODE> if 'f' has no zero in the interval.
+  @throws AstroException if 'f' can't be computed.
+  */
+  public static double refineZero(DateFunction f, double period, double x0, double halfWidth,
+                                  double tolerance) throws AstroException{
+    double[] v = new double[2];
+    double x = x0;
+    for (int i = 0; i < MAX_NEWTON_ITERATIONS; i++){
+      f.calc(x, v);
+      double fx = reduce(v[VALUE], period), dx = v[DERIVATIVE];
+      if(fx == 0) return x;
+      if(dx == 0 || Double.isNaN(dx)) break;
+      double step = fx / dx;
+      x -= step;
+      if(Math.abs(x - x0) > halfWidth) break;
+      if(Math.abs(step) < tolerance) return x;
+    }
+    // Newton's method failed, scan the interval
+    double[] zeros = findZeros(f, x0 - halfWidth, x0 + halfWidth, 2 * halfWidth / NB_REFINE_STEPS, period, tolerance);
+    double res = Double.NaN;
+    for (int i = 0; i < zeros.length; i++)
+      if(Double.isNaN(res) || Math.abs(zeros[i] - x0) < Math.abs(res - x0)) res = zeros[i];
+    return res;
+  }// end refineZero
+
+  //***************** reduce *******************************
+  /** Reduces 'x' to [-period/2, period/2[ ; returns 'x' if 'period' is 0. */
+  public static double reduce(double x, double period){
+    if(period == 0) return x;
+    return x - period * Math.floor(x / period + 0.5);
+  }// end reduce
+
+  //=================================================================================
+  //                                 PRIVATE METHODS
+  //=================================================================================
+
+  //***************** addZero *******************************
+  // If f changes of sign in ]t0, t1], adds the zero to 'res' ; a zero at t0 was already added.
+  // d0 and d1 are the derivatives at t0 and t1 (NaN if not known).
+  private static void addZero(DateFunction f, double period, double t0, double v0, double d0,
+                              double t1, double v1, double d1, double tolerance, Vector<Double> res) throws AstroException{
+    if(!((v0 < 0 && v1 >= 0) || (v0 > 0 && v1 <= 0))) return;
+    if(period != 0 && Math.abs(v1 - v0) > period / 2) return; // jump from -period/2 to period/2
+    if(Double.isNaN(d0) || Double.isNaN(d1))
+      res.add(Double.valueOf(findZero(f, VALUE, period, t0, v0, t1, v1, tolerance)));
+    else
+      res.add(Double.valueOf(findZeroNewton(f, period, t0, v0, d0, t1, v1, d1, tolerance)));
+  }// end addZero
+
+}// end class RootFinder
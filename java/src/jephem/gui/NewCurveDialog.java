@@ -11,6 +11,7 @@ import jephem.gui.UtilsGUI;
 import jephem.gui.SaveListener;
 import jephem.GlobalVar;
 import jephem.tools.Ephemeris;
+import jephem.tools.AdaptiveSampler;
 //import jephem.tools.AstroPrefs;
 import jephem.astro.solarsystem.SolarSystemConstants;
 import jephem.astro.spacetime.Space;
@@ -20,6 +21,8 @@ import jephem.astro.spacetime.TimeConstants;
 import jephem.astro.spacetime.Units;
 import jephem.astro.spacetime.UnitsConstants;
 import jephem.astro.AstroException;
+import jephem.astro.tools.AstroEvent;
+import jephem.astro.tools.DateSearch;
 import jephem.util.Debug;
 
 import tig.GeneralConstants;
@@ -41,6 +44,8 @@ Modal dialog displayed when a new Curve plotting is asked by the user.
 
 @author Thierry Graff
 @history sep 10 2002 : Creation
+@history oct 19 2026 : dates of the curves chosen by an AdaptiveSampler ; series taken with Ephemeris.getCoords().
+@history oct 19 2026 : dates of the Venus retrogradation test found by DateSearch.searchStations().
 
 @todo handle
 *****************************************************************/
@@ -74,6 +79,8 @@ public class NewCurveDialog extends JDialog
   //=================================================================================
   //                            CONSTANTS
   //=================================================================================
+  /** Number of pixels used to choose the dates of the curves (see {@link AdaptiveSampler#setResolution(int)}). */
+  private static final int CURVE_RESOLUTION = 500;
 
   //=================================================================================
   //                                      CONSTRUCT0RS
@@ -121,6 +128,24 @@ public class NewCurveDialog extends JDialog
   //                               AUXILIARY METHODS
   //=================================================================================
 
+  //***************** sample *******************************
+  /** Computes the ephemeris of a curve, in ecliptic spherical coordinates, with dates chosen by an
+  {@link AdaptiveSampler} for a drawing of {@link #CURVE_RESOLUTION} pixels. */
+  private static Ephemeris sample(int[] bodyIndexes, double jd0, double jdF, int[] whichCoords, int[] coordUnits,
+                                  String astroEngine) throws AstroException{
+    AdaptiveSampler sampler = new AdaptiveSampler(bodyIndexes,
+                                                  TimeConstants.UTC,
+                                                  whichCoords,
+                                                  coordUnits,
+                                                  FRAME_ECLIPTIC,
+                                                  SPHERICAL,
+                                                  1,
+                                                  astroEngine,
+                                                  false);
+    sampler.setResolution(CURVE_RESOLUTION);
+    return sampler.sample(jd0, jdF);
+  }// end sample
+
   //=================================================================================
   //                            INNER CLASSES
   //=================================================================================
@@ -142,7 +167,6 @@ public class NewCurveDialog extends JDialog
         // 1 - Build a curve
         // prepare variables
         double[][] curveData;
-        double[][][] ephData;
         int[] bodyIndexes;
         double jd0, jdF, interval, deltaT;
         double[] jds;
@@ -165,66 +189,32 @@ public class NewCurveDialog extends JDialog
           // TEST conj Uranus Neptune
           case 1 :
             bodyIndexes = new int[]{URANUS, NEPTUNE};
-            nbValues = 100;
             jd0 = 2448988.5; // jan 01 1993
-            interval = 3.65;
-            jds = new double[nbValues];
-            for(int i = 0; i < jds.length; i++){
-              jds[i] = jd0 + (double)i*interval;
-            }
+            jdF = jd0 + 365.0;
             whichCoords = new int[]{COORD_X1};
             coordUnits = UNITGROUP_AU_DEG_DEG; // obliged because of AstroContext implementation
-            eph = new jephem.tools.Ephemeris(bodyIndexes,
-                                             jds,
-                                             TimeConstants.UTC,
-                                             whichCoords,
-                                             coordUnits,
-                                             FRAME_ECLIPTIC,
-                                             SPHERICAL,
-                                             1,
-                                             jephem.astro.AstroEngine.SWISS_EPHEMERIS,
-                                             false);
-            curveData = new double[bodyIndexes.length + 1][nbValues];
+            eph = sample(bodyIndexes, jd0, jdF, whichCoords, coordUnits, jephem.astro.AstroEngine.SWISS_EPHEMERIS);
+            jds = eph.getJDs();
+            curveData = new double[bodyIndexes.length + 1][];
             curveData[0] = jds;
-            ephData = eph.getData();
-            for (int i = 0; i < ephData.length; i++) {
-              curveData[1][i] = ephData[i][0][0];
-              curveData[2][i] = ephData[i][1][0];
-            }
+            curveData[1] = eph.getCoords(URANUS, COORD_X1);
+            curveData[2] = eph.getCoords(NEPTUNE, COORD_X1);
           break;
 
           // TEST Retro VENUS
           case 2 :
             bodyIndexes = new int[]{VENUS};
-//            jd0 = 2452527.5; // sep 10 2002
-//            jdF = 2452588.5; // nov 10 2002
-            jd0 = 2439686.5; // jul 15 1967
-            jdF = 2439793.5; // oct 30 1967
-            deltaT = jdF - jd0;
-            nbValues = 100;
-            interval = deltaT/(double)nbValues;
-            jds = new double[nbValues];
-            for(int i = 0; i < jds.length; i++){
-              jds[i] = jd0 + (double)i*interval;
-            }
+            // retrograde motion of 2002, with 15 days before and after
+            Ephemeris.setDataPaths(jephem.astro.AstroEngine.JEPHEM);
+            AstroEvent[] stations = new DateSearch(2452275.5, 2452640.5).searchStations(VENUS);
+            jd0 = stations[0].getJd() - 15.0;
+            jdF = stations[1].getJd() + 15.0;
             whichCoords = new int[]{COORD_X1, COORD_X2};
             coordUnits = UNITGROUP_AU_DEG_DEG; // obliged because of AstroContext implementation
-            eph = new jephem.tools.Ephemeris(bodyIndexes,
-                                                                    jds,
-                                                                    TimeConstants.UTC,
-                                                                    whichCoords,
-                                                                    coordUnits,
-                                                                    FRAME_ECLIPTIC,
-                                                                    SPHERICAL,
-                                                                    1,
-                                                                    jephem.astro.AstroEngine.SWISS_EPHEMERIS,
-                                                                    false);
-            curveData = new double[whichCoords.length][nbValues];
-            ephData = eph.getData();
-            for (int i = 0; i < ephData.length; i++){
-              curveData[0][i] = ephData[i][0][0];
-              curveData[1][i] = ephData[i][0][1];
-            }
+            eph = sample(bodyIndexes, jd0, jdF, whichCoords, coordUnits, jephem.astro.AstroEngine.SWISS_EPHEMERIS);
+            curveData = new double[whichCoords.length][];
+            curveData[0] = eph.getCoords(VENUS, COORD_X1);
+            curveData[1] = eph.getCoords(VENUS, COORD_X2);
           break;
 
           // TEST Comparison JEphem - SwissEphemeris
@@ -250,7 +240,9 @@ public class NewCurveDialog extends JDialog
                                                                     SPHERICAL,
                                                                     1,
                                                                     jephem.astro.AstroEngine.SWISS_EPHEMERIS,
-                                                                    false);
+                                                                    false,
+                                                                    true,
+                                                                    Ephemeris.LAYOUT_SERIES);
             jephem.tools.Ephemeris eph2 = new jephem.tools.Ephemeris(bodyIndexes,
                                                                     jds,
                                                                     TimeConstants.UTC,
@@ -260,52 +252,33 @@ public class NewCurveDialog extends JDialog
                                                                     SPHERICAL,
                                                                     1,
                                                                     jephem.astro.AstroEngine.JEPHEM,
-                                                                    false);
+                                                                    false,
+                                                                    true,
+                                                                    Ephemeris.LAYOUT_SERIES);
             //double[][] curveData = new double[3][nbValues];
             curveData = new double[3][nbValues];
             curveData[0] = jds;
-            double[][][] ephData1 = eph1.getData();
-            double[][][] ephData2 = eph2.getData();
-            for (int i = 0; i < ephData1.length; i++){
-              //curveData[1][i] = ephData1[i][0][0];
-              //curveData[2][i] = ephData2[i][0][0];
-              curveData[1][i] = ephData1[i][0][0] - ephData2[i][0][0];
+            double[] ephData1 = eph1.getCoords(VENUS, COORD_X1);
+            double[] ephData2 = eph2.getCoords(VENUS, COORD_X1);
+            for (int i = 0; i < nbValues; i++){
+              //curveData[1][i] = ephData1[i];
+              //curveData[2][i] = ephData2[i];
+              curveData[1][i] = ephData1[i] - ephData2[i];
             }
           break;
 
           // TEST Venus Mars Jupiter Saturn 2002
           case 4 :
             bodyIndexes = new int[]{VENUS, MARS, JUPITER, SATURN};
-            nbValues = 100;
             jd0 = 2452395.5; // may 01 2002
             jdF = 2452470.5; // july 15 2002
-            deltaT = jdF - jd0;
-            interval = deltaT/(double)nbValues;
-            jds = new double[nbValues];
-            for(int i = 0; i < jds.length; i++){
-              jds[i] = jd0 + (double)i*interval;
-            }
             whichCoords = new int[]{COORD_X1};
             coordUnits = UNITGROUP_AU_DEG_DEG; // obliged because of AstroContext implementation
-            eph = new jephem.tools.Ephemeris(bodyIndexes,
-                                             jds,
-                                             TimeConstants.UTC,
-                                             whichCoords,
-                                             coordUnits,
-                                             FRAME_ECLIPTIC,
-                                             SPHERICAL,
-                                             1,
-                                             jephem.astro.AstroEngine.SWISS_EPHEMERIS,
-                                             false);
-            curveData = new double[bodyIndexes.length + 1][nbValues];
+            eph = sample(bodyIndexes, jd0, jdF, whichCoords, coordUnits, jephem.astro.AstroEngine.SWISS_EPHEMERIS);
+            jds = eph.getJDs();
+            curveData = new double[bodyIndexes.length + 1][];
             curveData[0] = jds;
-            ephData = eph.getData();
-            for (int i = 0; i < ephData.length; i++) {
-              curveData[1][i] = ephData[i][0][0];
-              curveData[2][i] = ephData[i][1][0];
-              curveData[3][i] = ephData[i][2][0];
-              curveData[4][i] = ephData[i][3][0];
-            }
+            for (int i = 0; i < bodyIndexes.length; i++) curveData[i + 1] = eph.getCoords(bodyIndexes[i], COORD_X1);
           break;
 
           default :
@@ -12,6 +12,8 @@ import jephem.gui.SaveListener;
 import jephem.GlobalVar;
 import jephem.tools.AstroPrefs;
 import jephem.tools.Ephemeris;
+import jephem.tools.EphemerisCache;
+import jephem.tools.EphemerisRowListener;
 import jephem.astro.AstroEngine;
 import jephem.astro.solarsystem.SolarSystemConstants;
 import jephem.astro.spacetime.Space;
@@ -21,6 +23,7 @@ import jephem.astro.spacetime.TimeConstants;
 import jephem.astro.spacetime.Units;
 import jephem.astro.spacetime.UnitsConstants;
 import jephem.astro.AstroException;
+import jephem.astro.solarsystem.ComputationException;
 import jephem.util.Debug;
 
 import tig.GeneralConstants;
@@ -50,6 +53,8 @@ object and order its display.
 
 @author Thierry Graff
 @history sep 16 2001 : Creation
+@history oct 19 2026 : ephemeris computed in a separate thread, with a progress monitor.
+@history oct 19 2026 : values shared between successive ephemeris through an EphemerisCache.
 
 @todo handle date computation with Calendar
 @todo WARNING : _chkPlanets[i] and planet index (from SolarSystemConstants) are associated in two places
@@ -122,6 +127,9 @@ public class NewEphemerisDialog extends JDialog
     }
   };
 
+  /** Values already computed, reused by the following ephemeris asked by the user. */
+  private static final EphemerisCache CACHE = new EphemerisCache();
+
   //=================================================================================
   //                            VARIABLES FOR LAST VALUES (static + constants)
   //=================================================================================
@@ -1237,53 +1245,24 @@ public class NewEphemerisDialog extends JDialog
       // Logs
 //      System.out.println("bodyIndexes = " + bodyIndexes);
 
-      // Now be can build the Ephemeris
+      // Now be can build the Ephemeris ; the computation is done in another thread,
+      // so the GUI stays responsive and the user can follow or cancel it.
       try{
-        Ephemeris eph = null;
-        eph = new Ephemeris(bodyIndexes,
-                            jds,
-                            timeFrame,
-                            whichCoords,
-                            coordUnits,
-                            frame,
-                            sphereCart,
-                            precision,
-                            astroEngine,
-                            displayErrorMsg);
-        String strRes = "<HTML>" + LS;
-        strRes += "<HEAD>" + LS;
-        strRes += "<STYLE> TABLE {text-align:center} </STYLE>" + LS;
-        strRes += "</HEAD>" + LS;
-//        strRes += "<BODY BGCOLOR = \"#FFCC99\">" + LS;
-        strRes += "<BODY>" + LS;
-        strRes += eph.getHtmlString(planetsInRowCol,
-                                    useSymbols,
-                                    degreeFormat,
-                                    dateDisplay);
-        strRes += "</BODY></HTML>" + LS;
-//System.out.println("NewEphemerisDialog.OKListener - returned from Ephemeris");
-        // Add a 'save' menuItem
-        String strSave = GlobalVar.getBundle(GlobalVar.BUNDLE_MENUS).getString("menu.Save");
-        JMenuItem saveItem = new JMenuItem(strSave, KeyEvent.VK_S);
-        saveItem.addActionListener(new SaveListener((JComponent)GlobalVar.getHTMLPane(), strRes));
-        saveItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_S, ActionEvent.CTRL_MASK));
-// WARNING : INDICES OF MENUS SHOULD BE PUT IN STATIC VARIABLES
-        // Test if File menu already contains a save item
-        // THIS CODE MUST BE PUT SOMEWHERE ELSE. (maybe use a subclass of JMenuBar containing a method boolean contains(menuIndex, String)
-        JMenu mnu = GlobalVar.getMainFrame().getJMenuBar().getMenu(0);
-        boolean addSave = true;
-        for (int ttt = 0; ttt < mnu.getItemCount(); ttt++){
-          if(mnu.getItem(ttt).getLabel() != null && mnu.getItem(ttt).getLabel().equals(strSave)) addSave = false;
-        }
-        if(addSave) GlobalVar.getMainFrame().getJMenuBar().getMenu(0).add(saveItem, 0);
-
-        // Add a 'Modify' menuItem
-
+        Ephemeris eph = new Ephemeris(bodyIndexes,
+                                      jds,
+                                      timeFrame,
+                                      whichCoords,
+                                      coordUnits,
+                                      frame,
+                                      sphereCart,
+                                      precision,
+                                      astroEngine,
+                                      displayErrorMsg,
+                                      false);
         // Save current state of the dialog for restoration
-        NewEphemerisDialog.this.storeLastValues(); // TO DO thread this operation
-
+        NewEphemerisDialog.this.storeLastValues();
         NewEphemerisDialog.this.dispose();
-        GlobalVar.getHTMLPane().setText(strRes);
+        new ComputationThread(eph, planetsInRowCol, useSymbols, degreeFormat, dateDisplay).start();
       }
       catch(Exception je){
         Debug.traceError(je);
@@ -1292,6 +1271,121 @@ public class NewEphemerisDialog extends JDialog
     } // end actionPerformed
   } // end class OKListener
 
+  //*****************************************************************
+  /** Computes an Ephemeris and displays it in the HTML pane of the main frame.
+  <BR>Runs outside the event dispatch thread ; the GUI is only modified through <CODE>SwingUtilities.invokeLater()</CODE>.
+  <BR>A <CODE>ProgressMonitor</CODE> shows the number of computed dates, and permits to cancel the computation ;
+  when instants are displayed in rows, the rows already computed are displayed during the computation. */
+  class ComputationThread extends Thread implements EphemerisRowListener{
+
+    /** Minimal delay between two refreshes of the display, in milliseconds. */
+    private static final long REFRESH_DELAY = 300;
+    /** Maximal number of rows displayed during the computation. */
+    private static final int MAX_PREVIEW_ROWS = 200;
+
+    private Ephemeris _eph;
+    private int _orientation, _degreeFormat, _dateDisplay;
+    private boolean _useSymbols;
+    private ProgressMonitor _monitor;
+    private long _lastRefresh = 0;
+
+    ComputationThread(Ephemeris eph, int orientation, boolean useSymbols, int degreeFormat, int dateDisplay){
+      super("Ephemeris computation");
+      _eph = eph;
+      _orientation = orientation;
+      _useSymbols = useSymbols;
+      _degreeFormat = degreeFormat;
+      _dateDisplay = dateDisplay;
+      _monitor = new ProgressMonitor(GlobalVar.getMainFrame(),
+                                     _myBundle.getString("progress.Computing"),
+                                     getNote(0),
+                                     0, eph.getJDs().length);
+      _monitor.setMillisToDecideToPopup(500);
+    }
+
+    public void run(){
+      try{
+        CACHE.compute(_eph, this);
+      }
+      catch(AstroException ae){ // the rows computed before the error are displayed as a preview
+        Debug.traceError(ae);
+      }
+      // canceled or failed : the rows computed are displayed with their number, and can't be saved
+      final int nbComputed = _eph.getNbComputedJDs();
+      final boolean complete = (nbComputed == _eph.getJDs().length);
+      SwingUtilities.invokeLater(new Runnable(){
+        public void run(){
+          _monitor.close();
+          if(complete) display(getHtml(Integer.MAX_VALUE, null), true);
+          else display(getHtml(MAX_PREVIEW_ROWS, getNote(nbComputed)), false);
+        }
+      });
+    } // end run
+
+    /** Called by the Ephemeris after each date ; refreshes the display from time to time.
+    @return false if the user canceled the computation. */
+    public boolean rowComputed(int iJD, double jd, double[][] row, ComputationException[] errors){
+      long now = System.currentTimeMillis();
+      if(now - _lastRefresh >= REFRESH_DELAY){
+        _lastRefresh = now;
+        final int nbComputed = iJD + 1;
+        final boolean preview = (_orientation == Ephemeris.INSTANTS_IN_ROWS && iJD < MAX_PREVIEW_ROWS);
+        SwingUtilities.invokeLater(new Runnable(){
+          public void run(){
+            _monitor.setProgress(nbComputed);
+            _monitor.setNote(getNote(nbComputed));
+            if(preview) display(getHtml(nbComputed, null), false);
+          }
+        });
+      }
+      return !_monitor.isCanceled();
+    } // end rowComputed
+
+    private String getNote(int nbComputed){
+      return _myBundle.getString("progress.Dates") + " " + nbComputed + " / " + _eph.getJDs().length;
+    }
+
+    // Returns the HTML page displaying the 'nbDates' first dates of the ephemeris (only the dates computed),
+    // with all the bodies, preceded by 'note' if not null.
+    private String getHtml(int nbDates, String note){
+      StringWriter sw = new StringWriter();
+      sw.write("<HTML>" + LS);
+      sw.write("<HEAD>" + LS);
+      sw.write("<STYLE> TABLE {text-align:center} </STYLE>" + LS);
+      sw.write("</HEAD>" + LS);
+      sw.write("<BODY>" + LS);
+      if(note != null) sw.write("<B>" + note + "</B><BR>" + LS);
+      try{
+        _eph.writeHtml(sw, _orientation, _useSymbols, _degreeFormat, _dateDisplay, 0, Integer.MAX_VALUE,
+                       Math.min(nbDates, _eph.getNbComputedJDs()));
+      }
+      catch(IOException ioe){ // can't happen with a StringWriter
+        Debug.traceError(ioe);
+      }
+      sw.write("</BODY></HTML>" + LS);
+      return sw.toString();
+    } // end getHtml
+
+    // Displays a HTML page in the main frame ; if 'addSave' is true, a 'save' menuItem is added.
+    // The item of a previous ephemeris is removed, as it saves the previous ephemeris.
+    private void display(String strRes, boolean addSaveItem){
+      String strSave = GlobalVar.getBundle(GlobalVar.BUNDLE_MENUS).getString("menu.Save");
+      JMenu mnu = GlobalVar.getMainFrame().getJMenuBar().getMenu(0);
+      for (int ttt = mnu.getItemCount() - 1; ttt >= 0; ttt--){
+        if(mnu.getItem(ttt) != null && strSave.equals(mnu.getItem(ttt).getText())) mnu.remove(ttt);
+      }
+      if(addSaveItem){
+        JMenuItem saveItem = new JMenuItem(strSave, KeyEvent.VK_S);
+        saveItem.addActionListener(new SaveListener((JComponent)GlobalVar.getHTMLPane(), strRes, _eph));
+        saveItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_S, ActionEvent.CTRL_MASK));
+// WARNING : INDICES OF MENUS SHOULD BE PUT IN STATIC VARIABLES
+        mnu.add(saveItem, 0);
+      }
+      GlobalVar.getHTMLPane().setText(strRes);
+    } // end display
+
+  } // end class ComputationThread
+
   //*****************************************************************
   class CancelListener implements ActionListener {
     public void actionPerformed(ActionEvent e) {
@@ -6,6 +6,10 @@
 package jephem.gui;
 
 import jephem.GlobalVar;
+import jephem.tools.BinaryEphemerisExporter;
+import jephem.tools.Ephemeris;
+import jephem.tools.EphemerisExporter;
+import jephem.tools.TextEphemerisExporter;
 import java.io.*;
 import java.awt.*;
 import java.awt.event.*;
@@ -14,17 +18,32 @@ import javax.swing.event.*;
   
 /**********************************************************************************
 Generic listener for 'Save' events, when a String needs to be saved in a file.
+<BR>When an {@link Ephemeris} is given, the format is choosen from the extension of the file :
+{@link #EXT_CSV}, {@link #EXT_TSV} and {@link #EXT_BIN} export the ephemeris with
+{@link TextEphemerisExporter} or {@link BinaryEphemerisExporter} ; other names save the String.
 @author Thierry Graff
 @history oct 23 2001 : Creation.
+@history oct 19 2026 : export of ephemeris in CSV, TSV or binary format.
 **********************************************************************************/
 
 public class SaveListener implements ActionListener{
 
+  //=================================================================================
+  //                                CONSTANTS
+  //=================================================================================
+  /** Extension of the files exported as comma separated values. */
+  public static final String EXT_CSV = ".csv";
+  /** Extension of the files exported as tab separated values. */
+  public static final String EXT_TSV = ".tsv";
+  /** Extension of the files exported with {@link BinaryEphemerisExporter}. */
+  public static final String EXT_BIN = ".bin";
+
   //=================================================================================
   //                                INSTANCE VARIABLES
   //=================================================================================
   private JComponent _parent;
   private String _strToSave;
+  private Ephemeris _eph;
    
   //=================================================================================
   //                                CONSTRUCTORS
@@ -34,6 +53,13 @@ public class SaveListener implements ActionListener{
     _parent = parent;
     _strToSave = strToSave;
   }// end constructor
+
+  /** Constructor for an ephemeris ; 'strToSave' is its HTML page. */
+  public SaveListener(JComponent parent, String strToSave, Ephemeris eph){
+    this(parent, strToSave);
+    _eph = eph;
+  }// end constructor
+
   //=================================================================================
   //                                STATIC METHODS
   //=================================================================================
@@ -42,9 +68,16 @@ public class SaveListener implements ActionListener{
     int returnVal = fc.showOpenDialog(_parent);
     if (returnVal == JFileChooser.APPROVE_OPTION) {
       try{
-        FileOutputStream fos = new FileOutputStream(fc.getSelectedFile());
-        fos.write(_strToSave.getBytes());
-        fos.close();
+        File file = fc.getSelectedFile();
+        FileOutputStream fos = new FileOutputStream(file);
+        EphemerisExporter exporter = null;
+        if(_eph != null) exporter = getExporter(file.getName().toLowerCase(), fos);
+        if(exporter == null){
+          fos.write(_strToSave.getBytes());
+          fos.close();
+        }
+        else
+          exporter.export(_eph); // closes the file
       }
       catch (IOException ioe){
         // send message
@@ -52,4 +85,18 @@ public class SaveListener implements ActionListener{
     }// end if
   } // end actionPerformed
 
+  //=================================================================================
+  //                                PRIVATE METHODS
+  //=================================================================================
+  // Returns the exporter corresponding to the extension of a file name, or null to save the String.
+  private EphemerisExporter getExporter(String fileName, FileOutputStream fos){
+    if(fileName.endsWith(EXT_CSV))
+      return new TextEphemerisExporter(fos.getChannel(), TextEphemerisExporter.CSV, _eph);
+    if(fileName.endsWith(EXT_TSV))
+      return new TextEphemerisExporter(fos.getChannel(), TextEphemerisExporter.TSV, _eph);
+    if(fileName.endsWith(EXT_BIN))
+      return new BinaryEphemerisExporter(fos.getChannel(), _eph);
+    return null;
+  }// end getExporter
+
 }//end class SaveListener
@@ -0,0 +1,297 @@
+//*********************************************************************************
+// class jephem.tools.AdaptiveSampler
+// Software released under the General Public License (version 2 or later), available at
+// http://www.gnu.org/copyleft/gpl.html
+//*********************************************************************************
+package jephem.tools;
+
+import jephem.astro.AstroException;
+import jephem.astro.solarsystem.ComputationException;
+import jephem.astro.spacetime.SpaceConstants;
+import jephem.astro.spacetime.Units;
+import jephem.astro.spacetime.UnitsConstants;
+
+import java.util.Iterator;
+import java.util.TreeMap;
+import java.util.Vector;
+
+/******************************************************************************
+Builds an {@link Ephemeris} on a time interval, choosing the dates so that the coordinates can be
+linearly interpolated between two consecutive dates with a given error.
+<BR>Dates are close where the coordinates change rapidly (retrograde loops, Moon near perigee...), and distant
+where they are smooth ; for curves, this gives the same aspect as a regular sampling with far less computations.
+<BR>The interval is first regularly sampled ; then each interval between two dates is divided in two
+while the coordinates at its middle differ from the interpolated values by more than the tolerance.
+All the middles of a step are computed together, with one call to the theories for each date.
+<BR>The tolerance can be given for each coordinate, or deduced from a resolution (number of pixels)
+with {@link #setResolution(int)}.
+<BR>Example :
+<BR>&nbsp;&nbsp;<CODE>AdaptiveSampler sampler = new AdaptiveSampler(bodyIndexes, UTC, whichCoords, ...);</CODE>
+<BR>&nbsp;&nbsp;<CODE>sampler.setResolution(500);</CODE>
+<BR>&nbsp;&nbsp;<CODE>Ephemeris eph = sampler.sample(jd0, jdF);</CODE>
+
+@author Thierry Graff
+@history oct 19 2026 : creation.
+*********************************************************************************/
+public class AdaptiveSampler implements SpaceConstants, UnitsConstants{
+
+  //=================================================================================
+  //                                 CONSTANTS
+  //=================================================================================
+  /** Default number of dates of the initial regular sampling. */
+  public static final int DEFAULT_INITIAL_NB_JDS = 32;
+  /** Default maximal number of dates of a sampling. */
+  public static final int DEFAULT_MAX_NB_JDS = 10000;
+  /** Default minimal interval between two dates, in days (one minute). */
+  public static final double DEFAULT_MIN_INTERVAL = 1.0 / 1440.0;
+
+  //=================================================================================
+  //                                 INSTANCE VARIABLES
+  //=================================================================================
+  // Parameters of the ephemeris, same meaning as in Ephemeris
+  private int[] _bodyIndexes, _whichCoords, _coordUnits;
+  private int _timeFrame, _frame, _sphereCart;
+  private double _precision;
+  private String _astroEngine;
+  private boolean _displayErrorMsg;
+
+  /** Tolerances, for each element of _whichCoords, in the units of the coordinates ; null if _resolution is used. */
+  private double[] _tolerances;
+  /** Number of pixels used to compute the tolerances ; 0 if _tolerances are given. */
+  private int _resolution = 0;
+  /** For angles which can go from 360 to 0 degrees (spherical x1), the value of a full turn ; 0 for other coordinates. */
+  private double[] _periods;
+
+  private int _initialNbJDs = DEFAULT_INITIAL_NB_JDS;
+  private int _maxNbJDs = DEFAULT_MAX_NB_JDS;
+  private double _minInterval = DEFAULT_MIN_INTERVAL;
+
+  //=================================================================================
+  //                                 CONSTRUCTORS
+  //=================================================================================
+
+  //***************** AdaptiveSampler *******************************
+  /** Constructor ; parameters have the same meaning as in the constructors of {@link Ephemeris}.
+  <BR>The tolerances must then be specified with {@link #setTolerances(double[])} or {@link #setResolution(int)}.
+  */
+  public AdaptiveSampler(int[]      bodyIndexes,
+                         int        timeFrame,
+                         int[]      whichCoords,
+                         int[]      coordUnits,
+                         int        frame,
+                         int        sphereCart,
+                         double     precision,
+                         String     astroEngine,
+                         boolean    displayErrorMsg){
+    _bodyIndexes = bodyIndexes;
+    _timeFrame = timeFrame;
+    _whichCoords = whichCoords;
+    _coordUnits = coordUnits;
+    _frame = frame;
+    _sphereCart = sphereCart;
+    _precision = precision;
+    _astroEngine = astroEngine;
+    _displayErrorMsg = displayErrorMsg;
+    _periods = new double[whichCoords.length];
+    for (int i = 0; i < whichCoords.length; i++){
+      if(sphereCart == SPHERICAL && whichCoords[i] == COORD_X1)
+        _periods[i] = 360.0 * Units.getConversionFactor(ANGULAR_UNIT_DEG, coordUnits[COORD_X1]);
+    }
+  }// end AdaptiveSampler
+
+  //=================================================================================
+  //                                 PUBLIC METHODS
+  //=================================================================================
+
+  //***************** setTolerances *******************************
+  /** Sets the maximal errors of a linear interpolation between two dates of the sampling.
+  @param tolerances One positive value for each coordinate (same order as 'whichCoords'), in the units of the coordinate.
+  */
+  public void setTolerances(double[] tolerances){
+    if(tolerances.length != _whichCoords.length)
+      throw new IllegalArgumentException("'tolerances' must have one element for each coordinate");
+    for (int i = 0; i < tolerances.length; i++)
+      if(!(tolerances[i] > 0)) throw new IllegalArgumentException("Tolerances must be positive");
+    _tolerances = tolerances.clone();
+    _resolution = 0;
+  }// end setTolerances
+
+  //***************** setResolution *******************************
+  /** Sets the tolerances so that interpolation errors are smaller than one pixel, when the curves are drawn
+  with 'nbPixels' pixels in height ; the range of each coordinate (for all bodies) is estimated from the initial sampling.
+  */
+  public void setResolution(int nbPixels){
+    if(nbPixels < 1) throw new IllegalArgumentException("'nbPixels' must be positive");
+    _resolution = nbPixels;
+    _tolerances = null;
+  }// end setResolution
+
+  //***************** setInitialNbJDs *******************************
+  /** Sets the number of dates of the initial regular sampling (default {@link #DEFAULT_INITIAL_NB_JDS}) ;
+  variations shorter than the initial interval may be missed. */
+  public void setInitialNbJDs(int initialNbJDs){
+    if(initialNbJDs < 2) throw new IllegalArgumentException("'initialNbJDs' must be at least 2");
+    _initialNbJDs = initialNbJDs;
+  }// end setInitialNbJDs
+
+  //***************** setMaxNbJDs *******************************
+  /** Sets the maximal number of dates of a sampling (default {@link #DEFAULT_MAX_NB_JDS}) ;
+  when it is reached, the refinement stops. */
+  public void setMaxNbJDs(int maxNbJDs){
+    if(maxNbJDs < 2) throw new IllegalArgumentException("'maxNbJDs' must be at least 2");
+    _maxNbJDs = maxNbJDs;
+  }// end setMaxNbJDs
+
+  //***************** setMinInterval *******************************
+  /** Sets the minimal interval between two dates, in days (default {@link #DEFAULT_MIN_INTERVAL}). */
+  public void setMinInterval(double minInterval){
+    if(!(minInterval > 0)) throw new IllegalArgumentException("'minInterval' must be positive");
+    _minInterval = minInterval;
+  }// end setMinInterval
+
+  //***************** sample *******************************
+  /** Computes an ephemeris between two dates, with adaptive sampling.
+  @param jd0 First date of the ephemeris, expressed in the time frame of the sampler.
+  @param jdF Last date of the ephemeris, greater than 'jd0'.
+  @return An ephemeris whose dates are sorted and include 'jd0' and 'jdF', stored by series
+  ({@link Ephemeris#LAYOUT_SERIES}), as it is generally used to draw curves.
+  @throws IllegalStateException if no tolerance or resolution was specified.
+  @throws AstroException if the computation of a date fails.
+  */
+  public Ephemeris sample(double jd0, double jdF) throws AstroException{
+    if(_tolerances == null && _resolution == 0)
+      throw new IllegalStateException("Tolerances or resolution must be specified before sampling");
+    if(!(jdF > jd0)) throw new IllegalArgumentException("'jdF' must be greater than 'jd0'");
+
+    TreeMap<Double, Sample> samples = new TreeMap<Double, Sample>(); // jd -> Sample, sorted by date
+
+    // 1 - initial regular sampling
+    int nbInitial = Math.min(_initialNbJDs, _maxNbJDs);
+    double[] jds = new double[nbInitial];
+    for (int i = 0; i < nbInitial; i++) jds[i] = jd0 + (jdF - jd0) * i / (nbInitial - 1);
+    jds[nbInitial - 1] = jdF;
+    compute(jds, samples);
+    double[] tolerances = (_tolerances != null ? _tolerances : getTolerancesFromRange(samples));
+
+    // 2 - refinement ; 'intervals' contains the intervals to check, as {first date, last date}.
+    Vector<double[]> intervals = new Vector<double[]>();
+    for (int i = 0; i < nbInitial - 1; i++) intervals.add(new double[]{jds[i], jds[i + 1]});
+    while(intervals.size() > 0 && samples.size() < _maxNbJDs){
+      int nbMiddles = 0;
+      double[] middles = new double[Math.min(intervals.size(), _maxNbJDs - samples.size())];
+      for (int i = 0; i < middles.length; i++){
+        double[] interval = intervals.get(i);
+        if(interval[1] - interval[0] >= 2 * _minInterval) middles[nbMiddles++] = (interval[0] + interval[1]) / 2;
+        else intervals.set(i, null);
+      }
+      if(nbMiddles < middles.length){
+        double[] tmp = new double[nbMiddles];
+        System.arraycopy(middles, 0, tmp, 0, nbMiddles);
+        middles = tmp;
+      }
+      if(nbMiddles > 0) compute(middles, samples);
+      Vector<double[]> next = new Vector<double[]>();
+      for (int i = 0; i < intervals.size(); i++){
+        double[] interval = intervals.get(i);
+        if(interval == null) continue;
+        double middle = (interval[0] + interval[1]) / 2;
+        Sample sm = samples.get(Double.valueOf(middle));
+        Sample s0 = samples.get(Double.valueOf(interval[0])), s1 = samples.get(Double.valueOf(interval[1]));
+        // not computed, because the maximal number of dates was reached (failures are thrown by compute())
+        if(sm == null || s0 == null || s1 == null) continue;
+        if(!isInterpolable(s0, sm, s1, tolerances)){
+          next.add(new double[]{interval[0], middle});
+          next.add(new double[]{middle, interval[1]});
+        }
+      }
+      intervals = next;
+    }// end while
+
+    // 3 - build the result
+    double[] resJDs = new double[samples.size()];
+    int iJD = 0;
+    for (Iterator<Double> it = samples.keySet().iterator(); it.hasNext(); ) resJDs[iJD++] = it.next().doubleValue();
+    Ephemeris res = new Ephemeris(_bodyIndexes, resJDs, _timeFrame, _whichCoords, _coordUnits, _frame, _sphereCart,
+                                  _precision, _astroEngine, _displayErrorMsg, false, Ephemeris.LAYOUT_SERIES);
+    EphemerisRowListener storage = res.getRowStorage(null);
+    iJD = 0;
+    for (Iterator<Sample> it = samples.values().iterator(); it.hasNext(); iJD++){
+      Sample sm = it.next();
+      storage.rowComputed(iJD, resJDs[iJD], sm.row, sm.errors);
+    }
+    return res;
+  }// end sample
+
+  //=================================================================================
+  //                                 PRIVATE METHODS
+  //=================================================================================
+
+  //***************** compute *******************************
+  // Computes the coordinates at dates 'jds' and adds them to 'samples'.
+  private void compute(double[] jds, final TreeMap<Double, Sample> samples) throws AstroException{
+    Ephemeris.stream(_bodyIndexes, jds, _timeFrame, _whichCoords, _coordUnits, _frame, _sphereCart,
+                     _precision, _astroEngine, new EphemerisRowListener(){
+      public boolean rowComputed(int iJD, double jd, double[][] row, ComputationException[] errors){
+        Sample sm = new Sample();
+        sm.row = new double[row.length][];
+        for (int i = 0; i < row.length; i++) sm.row[i] = row[i].clone();
+        sm.errors = errors.clone();
+        samples.put(Double.valueOf(jd), sm);
+        return true;
+      }
+    });
+  }// end compute
+
+  //***************** isInterpolable *******************************
+  // Returns true if the coordinates of 'middle' are the interpolated coordinates of 's0' and 's1'.
+  private boolean isInterpolable(Sample s0, Sample middle, Sample s1, double[] tolerances){
+    for (int iBody = 0; iBody < _bodyIndexes.length; iBody++){
+      for (int iCoord = 0; iCoord < _whichCoords.length; iCoord++){
+        double v0 = s0.row[iBody][iCoord];
+        double interpolated = v0 + diff(s1.row[iBody][iCoord], v0, iCoord) / 2;
+        if(Math.abs(diff(middle.row[iBody][iCoord], interpolated, iCoord)) > tolerances[iCoord]) return false;
+      }
+    }
+    return true;
+  }// end isInterpolable
+
+  //***************** diff *******************************
+  // Returns a - b ; for angles with a period, the result is in [-period/2, period/2].
+  private double diff(double a, double b, int iCoord){
+    double d = a - b;
+    double period = _periods[iCoord];
+    if(period != 0) d -= period * Math.floor(d / period + 0.5);
+    return d;
+  }// end diff
+
+  //***************** getTolerancesFromRange *******************************
+  // Returns, for each coordinate, its range (for all bodies) divided by _resolution.
+  private double[] getTolerancesFromRange(TreeMap<Double, Sample> samples){
+    int nbCoords = _whichCoords.length;
+    double[] min = new double[nbCoords], max = new double[nbCoords], res = new double[nbCoords];
+    java.util.Arrays.fill(min, Double.POSITIVE_INFINITY);
+    java.util.Arrays.fill(max, Double.NEGATIVE_INFINITY);
+    for (Iterator<Sample> it = samples.values().iterator(); it.hasNext(); ){
+      Sample sm = it.next();
+      for (int iBody = 0; iBody < _bodyIndexes.length; iBody++){
+        for (int iCoord = 0; iCoord < nbCoords; iCoord++){
+          min[iCoord] = Math.min(min[iCoord], sm.row[iBody][iCoord]);
+          max[iCoord] = Math.max(max[iCoord], sm.row[iBody][iCoord]);
+        }
+      }
+    }
+    for (int iCoord = 0; iCoord < nbCoords; iCoord++){
+      res[iCoord] = (max[iCoord] - min[iCoord]) / _resolution;
+      if(!(res[iCoord] > 0)) res[iCoord] = Double.POSITIVE_INFINITY; // constant coordinate (ex : the Sun in heliocentric frame)
+    }
+    return res;
+  }// end getTolerancesFromRange
+
+  //***************** Sample *******************************
+  // Coordinates of the bodies at a date.
+  private static class Sample{
+    double[][] row;
+    ComputationException[] errors;
+  }// end class Sample
+
+}// end class AdaptiveSampler
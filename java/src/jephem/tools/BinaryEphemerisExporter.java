@@ -0,0 +1,133 @@
+//*********************************************************************************
+// class jephem.tools.BinaryEphemerisExporter
+// Software released under the General Public License (version 2 or later), available at
+// http://www.gnu.org/copyleft/gpl.html
+//*********************************************************************************
+package jephem.tools;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/******************************************************************************
+Exports an {@link Ephemeris} in a compact binary format, organized by columns.
+<BR>Rows are grouped in blocks ; inside a block, the values are stored by series (one body, one coordinate),
+so that a reader can load a series with sequential access, while the writer needs only the memory of one block.
+<BR>Format (big endian, as <CODE>java.io.DataOutput</CODE>) :
+<PRE>
+  header : magic number ("JEPC"), version, nbBodies, nbCoords, timeFrame, frame, sphereCart,
+           bodyIndexes[nbBodies], whichCoords[nbCoords], coordUnits[6]          - ints
+  blocks : nbRows (int), jds[nbRows], then for each body and each coordinate values[nbRows] - doubles
+  end    : a block with nbRows = 0
+</PRE>
+
+@author Thierry Graff
+@history oct 19 2026 : creation.
+*********************************************************************************/
+public class BinaryEphemerisExporter extends EphemerisExporter{
+
+  //=================================================================================
+  //                                 CONSTANTS
+  //=================================================================================
+  /** First bytes of a file ("JEPC"). */
+  public static final int MAGIC = 0x4A455043;
+  /** Version of the format. */
+  public static final int VERSION = 1;
+  /** Default number of rows of a block. */
+  public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+  //=================================================================================
+  //                                 INSTANCE VARIABLES
+  //=================================================================================
+  /** Julian days of the current block. */
+  private double[] _jds;
+  /** Values of the current block ; _series[iBody*nbCoords + iCoord][iRow]. */
+  private double[][] _series;
+  /** Number of rows in the current block. */
+  private int _nbRows;
+
+  //=================================================================================
+  //                                 CONSTRUCTORS
+  //=================================================================================
+
+  //***************** BinaryEphemerisExporter *******************************
+  /** Constructor ; parameters describing the ephemeris have the same meaning as in the constructors
+  of {@link Ephemeris}.
+  @param blockSize Number of rows of a block.
+  */
+  public BinaryEphemerisExporter(WritableByteChannel channel,
+                                 int    blockSize,
+                                 int[]  bodyIndexes,
+                                 int    timeFrame,
+                                 int[]  whichCoords,
+                                 int[]  coordUnits,
+                                 int    frame,
+                                 int    sphereCart){
+    super(channel, bodyIndexes, timeFrame, whichCoords, coordUnits, frame, sphereCart);
+    if(blockSize < 1) throw new IllegalArgumentException("'blockSize' must be positive");
+    _jds = new double[blockSize];
+    _series = new double[bodyIndexes.length * whichCoords.length][blockSize];
+  }// end BinaryEphemerisExporter
+
+  //***************** BinaryEphemerisExporter(channel, eph) *******************************
+  /** Constructor taking the description of the ephemeris from a computed ephemeris, with default block size. */
+  public BinaryEphemerisExporter(WritableByteChannel channel, Ephemeris eph){
+    this(channel, DEFAULT_BLOCK_SIZE, eph.getBodyIndexes(), eph.getTimeFrame(), eph.getWhichCoords(),
+         eph.getCoordUnits(), eph.getFrame(), eph.getSphereCart());
+  }// end BinaryEphemerisExporter
+
+  //=================================================================================
+  //                                 PROTECTED METHODS
+  //=================================================================================
+
+  //***************** writeHeader *******************************
+  protected void writeHeader() throws IOException{
+    int[] header = {MAGIC, VERSION, _bodyIndexes.length, _whichCoords.length, _timeFrame, _frame, _sphereCart};
+    for (int i = 0; i < header.length; i++) putInt(header[i]);
+    for (int i = 0; i < _bodyIndexes.length; i++) putInt(_bodyIndexes[i]);
+    for (int i = 0; i < _whichCoords.length; i++) putInt(_whichCoords[i]);
+    for (int i = 0; i < 6; i++) putInt(i < _coordUnits.length ? _coordUnits[i] : NO_SPECIF);
+  }// end writeHeader
+
+  //***************** writeRow *******************************
+  protected void writeRow(int iJD, double jd, double[][] row) throws IOException{
+    _jds[_nbRows] = jd;
+    int nbCoords = _whichCoords.length;
+    for (int iBody = 0; iBody < row.length; iBody++)
+      for (int iCoord = 0; iCoord < nbCoords; iCoord++)
+        _series[iBody*nbCoords + iCoord][_nbRows] = row[iBody][iCoord];
+    _nbRows++;
+    if(_nbRows == _jds.length) writeBlock();
+  }// end writeRow
+
+  //***************** writeEnd *******************************
+  protected void writeEnd() throws IOException{
+    if(_nbRows > 0) writeBlock();
+    putInt(0);
+  }// end writeEnd
+
+  //=================================================================================
+  //                                 PRIVATE METHODS
+  //=================================================================================
+
+  //***************** writeBlock *******************************
+  private void writeBlock() throws IOException{
+    putInt(_nbRows);
+    putDoubles(_jds);
+    for (int i = 0; i < _series.length; i++) putDoubles(_series[i]);
+    _nbRows = 0;
+  }// end writeBlock
+
+  private void putInt(int n) throws IOException{
+    ensureRemaining(4);
+    _buffer.putInt(n);
+  }
+
+  // Writes the _nbRows first elements of 'values'.
+  private void putDoubles(double[] values) throws IOException{
+    for (int i = 0; i < _nbRows; i++){
+      ensureRemaining(8);
+      _buffer.putDouble(values[i]);
+    }
+  }
+
+}// end class BinaryEphemerisExporter
@@ -10,7 +10,9 @@ import jephem.GlobalVar; // for symbol path, data path and internationalized str
 import jephem.util.Debug;
 import jephem.astro.AstroContext;
 import jephem.astro.AstroEngine;
+import jephem.astro.AstroRequest;
 import jephem.astro.Body;
+import jephem.astro.BodyStateStore;
 import jephem.astro.AstroException;
 import jephem.astro.solarsystem.SwissEphemeris;
 import jephem.astro.solarsystem.SolarSystemConstants;
@@ -32,6 +34,10 @@ import tig.TigBundle;
 import tig.Integers;
 import tig.html.Html;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.text.NumberFormat;
 import java.util.*;
 
@@ -47,20 +53,36 @@ An <B>Ephemeris</B> is the representation of a coordinate at different instants.
 
 <BR><BR>Internally, the coordinates of the bodies at different instants are stored in a <CODE>double[][][]</CODE>,
 accessible via {@link #getData()}.
+<BR>With the {@link #LAYOUT_SERIES} layout, they are instead stored by series in a {@link BodyStateStore} :
+the values of one coordinate of one body at all the instants are in a contiguous <CODE>double[]</CODE>,
+returned without copy by {@link #getCoords(int, int)} (convenient for curves and statistics) ; the frame and
+computation error of each state are kept in the store, accessible through {@link #getStateStore()}.
 <BR>This array is filled by the call of <CODE>Ephemeris</CODE> constructor ; <CODE>Ephemeris</CODE> uses
 {@link jephem.astro.AstroContext} to fill it.
 </LI>
+<BR>For long ranges, the results can instead be stored out of the heap, in an {@link EphemerisFile} ;
+such an ephemeris can be reopened later with {@link #Ephemeris(File)}, without recomputation.
+<BR>Rows can also be received one by one while they are computed, without being stored, with
+{@link #stream(int[], double[], int, int[], int[], int, int, double, String, EphemerisRowListener)}.
 
 <BR><BR>As in the rest of the non-GUI part of the API, internal representation uses "standard units".
 
 @author Thierry Graff
 @history Aug 03 2001 : creation.
 @history Sep 20 2001 : changed whichCoords to an int[] (several coordinates can be handled)
+@history oct 19 2026 : results can be stored in a memory-mapped EphemerisFile.
+@history oct 19 2026 : computation done row by row, rows sent to an EphemerisRowListener.
+@history oct 19 2026 : HTML written to a Writer (writeHtml), possibly for a range of rows ; date labels cached.
+@history oct 19 2026 : computation can be separated from construction (compute()), to be done in another thread.
+@history oct 19 2026 : one AstroContext reused for all the dates.
+@history oct 19 2026 : storage by series (LAYOUT_SERIES) ; getCoords(body, coord) restored.
+@history oct 19 2026 : setDataPaths() public, for the other computations of the GUI.
+@history oct 19 2026 : LAYOUT_SERIES stored in a BodyStateStore.
+@history oct 19 2026 : AstroExceptions thrown by compute(), stream() and the constructor with result file ;
+                       result file deleted when the computation fails.
 
 @todo getErrorMessages() is generic (could be placed elsewhere)
 @todo getErrorMessages could have an other parameter, to display by planet or by date.
-@todo more convenient to have _data[iBody][iCoord][iJD] // convenient for Curve
-@todo debug getCoords()
 *********************************************************************************/
 public class Ephemeris implements GeneralConstants, SolarSystemConstants{
 
@@ -82,15 +104,28 @@ public class Ephemeris implements GeneralConstants, SolarSystemConstants{
 
 
   // ***** Internal representation *****
-  /** To store coordinates of _bodies at _instants for _whichCoords. Use : _data[iJD][iBody][iCoord] */
+  /** To store coordinates of _bodies at _instants for _whichCoords. Use : _data[iJD][iBody][iCoord]
+  <BR>null if the results are stored in _file. */
   private double[][][] _data;
 
+  /** To store the states with LAYOUT_SERIES ; null with LAYOUT_ROWS. */
+  private BodyStateStore _store;
+
+  /** File containing the results, null if they are stored in _data or _store. */
+  private EphemerisFile _file;
+
   /** variables for convenience. */
   private int _nbBodies, _nbJDs, _nbCoords;
 
   /** To store computation error, initialized by fillData() */
   private Vector    _computationExceptions = new Vector();
 
+  /** Number of dates computed and stored ; written by the computing thread. */
+  private volatile int _nbComputedJDs;
+
+  /** Cache of the labels of the dates, for each DISPLAY_XXX constant ; filled on demand by getDateLabel(). */
+  private String[][] _dateLabels = new String[2][];
+
   //=================================================================================
   //                            PUBLIC CONSTANTS
   //=================================================================================
@@ -107,6 +142,15 @@ public class Ephemeris implements GeneralConstants, SolarSystemConstants{
   /** Constant meaning that dates should be displayed as julian days. */
   public static final int DISPLAY_JDS = 1;
 
+  /** Storage layout where the values are stored by date : <CODE>data[iJD][iBody][iCoord]</CODE>, see {@link #getData()}. */
+  public static final int LAYOUT_ROWS = 0;
+  /** Storage layout where the values are stored by series : <CODE>series[iBody][iCoord][iJD]</CODE>,
+  see {@link #getCoords(int, int)}. */
+  public static final int LAYOUT_SERIES = 1;
+
+  /** Number of rows written by {@link #writeHtml(Writer, int, boolean, int, int, int, int, int)} between two flushes. */
+  public static final int ROWS_PER_CHUNK = 100;
+
   // To format the double values in the table;
   private static final NumberFormat NF = NumberFormat.getNumberInstance();
   static{
@@ -172,6 +216,146 @@ public class Ephemeris implements GeneralConstants, SolarSystemConstants{
                    String     astroEngine,
                    boolean    displayErrorMsg
                    ){
+    this(bodyIndexes, JDs, timeFrame, whichCoords, coordUnits, frame, sphereCart, precision,
+         astroEngine, displayErrorMsg, true);
+  }// end Ephemeris constructor
+
+  //***************** Constructor with delayed computation *******************************
+  /** Constructor which may delay the computations.
+  <BR>Parameters are the same as in the first constructor.
+  @param computeNow If false, nothing is computed, and {@link #compute(EphemerisRowListener)} must be
+  called before using the results ; this permits to do the computation in another thread.
+  */
+  public Ephemeris(int[]      bodyIndexes,
+                   double[]   JDs,
+                   int        timeFrame,
+                   int[]      whichCoords,
+                   int[]      coordUnits,
+                   int        frame,
+                   int        sphereCart,
+                   double     precision,
+                   String     astroEngine,
+                   boolean    displayErrorMsg,
+                   boolean    computeNow
+                   ){
+    this(bodyIndexes, JDs, timeFrame, whichCoords, coordUnits, frame, sphereCart, precision,
+         astroEngine, displayErrorMsg, computeNow, LAYOUT_ROWS);
+  }// end Ephemeris constructor
+
+  //***************** Constructor with storage layout *******************************
+  /** Constructor which permits to choose how the values are stored in memory.
+  <BR>Parameters are the same as in the previous constructor.
+  @param layout {@link #LAYOUT_ROWS} or {@link #LAYOUT_SERIES}.
+  */
+  public Ephemeris(int[]      bodyIndexes,
+                   double[]   JDs,
+                   int        timeFrame,
+                   int[]      whichCoords,
+                   int[]      coordUnits,
+                   int        frame,
+                   int        sphereCart,
+                   double     precision,
+                   String     astroEngine,
+                   boolean    displayErrorMsg,
+                   boolean    computeNow,
+                   int        layout
+                   ){
+    this(bodyIndexes, JDs, timeFrame, whichCoords, coordUnits, frame, sphereCart, precision,
+         astroEngine, displayErrorMsg, (EphemerisFile)null);
+    if(layout == LAYOUT_ROWS)
+      _data = new double[_nbJDs][_nbBodies][_nbCoords];
+    else if(layout == LAYOUT_SERIES){
+      int[] units = _coordUnits;
+      if(!Space.containsVelocityCoord(_whichCoords) && units.length > 3)
+        units = new int[]{_coordUnits[0], _coordUnits[1], _coordUnits[2]};
+      _store = new BodyStateStore(_bodyIndexes, _nbJDs, units, _whichCoords, _timeFrame);
+    }
+    else
+      throw new IllegalArgumentException("Invalid 'layout' parameter.");
+    if(computeNow){
+      try{
+        this.fillData(new RowStorage(null));
+      }
+      catch(AstroException ae){ // the rows after the error stay to 0 - see getNbComputedJDs()
+        Debug.traceError(ae);
+      }
+    }
+  }// end Ephemeris constructor
+
+  //***************** Constructor with result file *******************************
+  /** Constructor storing the results in a memory-mapped file instead of the heap.
+  <BR>Parameters are the same as in the first constructor ; the results are then accessible through
+  {@link #getCoord(int, int, int)}, and {@link #getData()} returns null.
+  @param resultFile The file where results are written (overwritten if it exists) ; it is deleted if the
+  computation fails.
+  @throws IOException if the file can't be created.
+  @throws AstroException if the computation fails.
+  */
+  public Ephemeris(int[]      bodyIndexes,
+                   double[]   JDs,
+                   int        timeFrame,
+                   int[]      whichCoords,
+                   int[]      coordUnits,
+                   int        frame,
+                   int        sphereCart,
+                   double     precision,
+                   String     astroEngine,
+                   boolean    displayErrorMsg,
+                   File       resultFile
+                   ) throws IOException, AstroException{
+    this(bodyIndexes, JDs, timeFrame, whichCoords, coordUnits, frame, sphereCart, precision,
+         astroEngine, displayErrorMsg,
+         EphemerisFile.create(resultFile, bodyIndexes, JDs.length, timeFrame, whichCoords, coordUnits,
+                              frame, sphereCart, precision, astroEngine));
+    boolean done = false;
+    try{
+      this.fillData(new RowStorage(null));
+      _file.flush();
+      done = true;
+    }
+    finally{
+      if(!done) _file.delete(); // don't leave a half-filled file
+    }
+  }// end Ephemeris constructor
+
+  //***************** Constructor from result file *******************************
+  /** Reopens an ephemeris whose results were stored in a file ; nothing is computed.
+  @param resultFile A file filled by {@link #Ephemeris(int[], double[], int, int[], int[], int, int, double, String, boolean, File)}.
+  @throws IOException if the file can't be read.
+  */
+  public Ephemeris(File resultFile) throws IOException{
+    _file = EphemerisFile.open(resultFile);
+    _bodyIndexes = _file.getBodyIndexes();
+    _timeFrame = _file.getTimeFrame();
+    _frame = _file.getFrame();
+    _whichCoords = _file.getWhichCoords();
+    _coordUnits = _file.getCoordUnits();
+    _sphereCart = _file.getSphereCart();
+    _precision = _file.getPrecision();
+    _astroEngine = _file.getAstroEngine();
+    _displayErrorMsg = true;
+    _nbBodies = _bodyIndexes.length;
+    _nbJDs = _file.getNbJDs();
+    _nbCoords = _whichCoords.length;
+    _JDs = new double[_nbJDs];
+    for (int i = 0; i < _nbJDs; i++) _JDs[i] = _file.getJD(i);
+    _computationExceptions = _file.getComputationExceptions();
+  }// end Ephemeris constructor
+
+  //***************** Constructor setting the parameters *******************************
+  // 'file' : where the results are stored ; nothing is computed.
+  private Ephemeris(int[]      bodyIndexes,
+                    double[]   JDs,
+                    int        timeFrame,
+                    int[]      whichCoords,
+                    int[]      coordUnits,
+                    int        frame,
+                    int        sphereCart,
+                    double     precision,
+                    String     astroEngine,
+                    boolean    displayErrorMsg,
+                    EphemerisFile file
+                    ){
     // Parameters checking
     if (bodyIndexes.length < 1)
       throw new IllegalArgumentException("Invalid 'bodyIndexes' parameter.");
@@ -199,10 +383,7 @@ public class Ephemeris implements GeneralConstants, SolarSystemConstants{
     _nbBodies = bodyIndexes.length;
     _nbJDs = _JDs.length;
     _nbCoords = _whichCoords.length;
-    _data = new double[_nbJDs][_nbBodies][_nbCoords];
-
-//    System.out.println(this.toString());
-    this.fillData();
+    _file = file;
   }// end Ephemeris constructor
 
   //=================================================================================
@@ -215,32 +396,121 @@ public class Ephemeris implements GeneralConstants, SolarSystemConstants{
   <BR><CODE>double[][][] x = myEphemeris.getData();
   <BR>double myValue = x[iJD][iBody][iCoord];</CODE>.
   <BR>But Warning : 'iBody' corresponds here to the ith body of this ephemeris, and is not related with SolarSystem constants.
+  <BR>Returns null if the results are stored in a file or by series ; use {@link #getCoord(int, int, int)} instead.
   */
   public double[][][] getData() { return _data; }
 
-//  //***************** getCoords(body, coord) *********************************************
-//  /** Returns the coordinates of the sppecified body and coord for all the julian days of this Ephemeris.
-//  @param bodyIndex body index, using {@link jephem.astro.SolarSystemConstants} constants.
-//  @param coordIndex coordinate index, using {@link jephem.astro.spacetime.SpaceConstants}<CODE>.COORD_XXX</CODE> constants.
-//  */
-//  public double[] getCoords(int bodyIndex, int coordIndex){
-//    // find bodyIndex in _bodyIndexes
-//    int iBody;
-//    for(iBody = 0; iBody < _bodyIndexes.length; iBody++){
-//      if(_bodyIndexes[iBody] == bodyIndex) break;
-//    }
-//    int iCoord;
-//    for(iCoord = 0; iCoord < _bodyIndexes.length; iCoord++){
-//      if(_whichCoords[iCoord] == bodyIndex) break;
-//    }
-//    // build the res
-//    double[] res = new double[_data.length];
-//    for(int i = 0; i < _data.length; i++){
-//      res[i] = _data[i][iCoord][iBody];
-//    }
-//
-//    return res;
-//  }// end getCoords
+  //***************** getCoord(iJD, iBody, iCoord) *********************************************
+  /** Returns a value of this Ephemeris, wherever it is stored ; indexes have the same meaning as in {@link #getData()}. */
+  public double getCoord(int iJD, int iBody, int iCoord){
+    if(_file != null) return _file.getCoord(iJD, iBody, iCoord);
+    if(_store != null) return _store.getCoord(iBody, iJD, _whichCoords[iCoord]);
+    return _data[iJD][iBody][iCoord];
+  }// end getCoord
+
+  //***************** getCoords(body, coord) *********************************************
+  /** Returns the values of a coordinate of a body for all the julian days of this Ephemeris.
+  <BR>With {@link #LAYOUT_SERIES}, the returned array is the one used for storage, and must not be modified ;
+  otherwise, it is a copy.
+  @param bodyIndex body index, using {@link jephem.astro.solarsystem.SolarSystemConstants} constants.
+  @param coordIndex coordinate index, using {@link jephem.astro.spacetime.SpaceConstants}<CODE>.COORD_XXX</CODE> constants.
+  @throws IllegalArgumentException if the body or the coordinate are not in this Ephemeris.
+  */
+  public double[] getCoords(int bodyIndex, int coordIndex){
+    // find bodyIndex in _bodyIndexes and coordIndex in _whichCoords
+    int iBody, iCoord;
+    for(iBody = 0; iBody < _nbBodies; iBody++){
+      if(_bodyIndexes[iBody] == bodyIndex) break;
+    }
+    for(iCoord = 0; iCoord < _nbCoords; iCoord++){
+      if(_whichCoords[iCoord] == coordIndex) break;
+    }
+    if(iBody == _nbBodies || iCoord == _nbCoords)
+      throw new IllegalArgumentException("Body " + bodyIndex + " or coordinate " + coordIndex + " not in this Ephemeris");
+    if(_store != null) return _store.getSeries(iBody, coordIndex);
+    // build the res
+    double[] res = new double[_nbJDs];
+    for(int i = 0; i < _nbJDs; i++){
+      res[i] = getCoord(i, iBody, iCoord);
+    }
+    return res;
+  }// end getCoords
+
+  //***************** getStateStore() *********************************************
+  /** Returns the store holding the states with {@link #LAYOUT_SERIES}, or null with the other storages ;
+  positions in the store are the same as in this Ephemeris. */
+  public BodyStateStore getStateStore() { return _store; }
+
+  //***************** getFile() *********************************************
+  /** Returns the file containing the results, or null if they are stored in memory. */
+  public EphemerisFile getFile() { return _file; }
+
+  //***************** compute *********************************************
+  /** Computes the rows of an ephemeris built with <CODE>computeNow = false</CODE>.
+  <BR>Each row is stored, then sent to 'listener' (if not null) ; the computation stops when 'listener' returns false,
+  leaving the following rows to 0 - see {@link #getNbComputedJDs()}.
+  <BR>Can be called by a thread different from the one using the results ; the rows sent to 'listener'
+  are then available to the other thread once it knows, through 'listener', that they were computed.
+  @return The number of computed rows.
+  @throws AstroException if the computation of a row fails ; the rows computed before stay available.
+  */
+  public int compute(EphemerisRowListener listener) throws AstroException{
+    return fillData(new RowStorage(listener));
+  }// end compute
+
+  //***************** getRowStorage *********************************************
+  /** Returns a listener storing the rows it receives in this ephemeris, then sending them to 'listener'
+  (if not null), for rows computed elsewhere (see {@link EphemerisCache}) ; its iJD parameter is the index
+  of the row in this ephemeris. */
+  EphemerisRowListener getRowStorage(EphemerisRowListener listener){
+    return new RowStorage(listener);
+  }// end getRowStorage
+
+  //***************** getNbComputedJDs *********************************************
+  /** Returns the number of dates already computed (rows 0 to getNbComputedJDs() - 1 are available). */
+  public int getNbComputedJDs(){ return _nbComputedJDs; }
+
+  //***************** stream *********************************************
+  /** Computes an ephemeris without storing it : each row is sent to 'listener' as soon as it is computed.
+  <BR>Parameters are the same as in the constructors ; the computation is done in the calling thread, and
+  stops when 'listener' returns false.
+  @return The number of rows sent to 'listener'.
+  @throws AstroException if the computation of a row fails ; the rows before were sent to 'listener'.
+  */
+  public static int stream(int[]      bodyIndexes,
+                           double[]   JDs,
+                           int        timeFrame,
+                           int[]      whichCoords,
+                           int[]      coordUnits,
+                           int        frame,
+                           int        sphereCart,
+                           double     precision,
+                           String     astroEngine,
+                           EphemerisRowListener listener) throws AstroException{
+    Ephemeris eph = new Ephemeris(bodyIndexes, JDs, timeFrame, whichCoords, coordUnits, frame, sphereCart,
+                                  precision, astroEngine, false, (EphemerisFile)null);
+    return eph.fillData(listener);
+  }// end stream
+
+  //***************** setDataPaths *********************************************
+  /** Sets the path to the data used by 'astroEngine' for the computations, in the data directory of JEphem. */
+  public static void setDataPaths(String astroEngine){
+    if(astroEngine.equals(AstroEngine.JEPHEM)){
+      VSOP87.setDataPath(GlobalVar.getDirectory(GlobalVar.DIR_DATA) + FS + "astro" + FS + "planets" + FS
+                  + "vsop87" + FS + "vsop87a" + FS);
+      ELP82.setDataPath(GlobalVar.getDirectory(GlobalVar.DIR_DATA) + FS + "astro" + FS + "planets" + FS
+                  + "elp82" + FS);
+    }
+    else{
+      SwissEphemeris.setDataPath(GlobalVar.getDirectory(GlobalVar.DIR_DATA) + FS + "astro" + FS + "swissEphem" + FS);
+    }
+  }// end setDataPaths
+
+  //***************** close() *********************************************
+  /** Closes the result file, if any ; values remain readable. */
+  public void close() throws IOException{
+    if(_file != null) _file.close();
+  }// end close
 
   //***************** getJDs() *********************************************
   /** Returns the instants of this Ephemeris, expressed in <B>julian days</B>. */
@@ -250,9 +520,27 @@ public class Ephemeris implements GeneralConstants, SolarSystemConstants{
   /** Returns the indexes of the bodies handled by this Ephemeris. */
   public int[] getBodyIndexes() { return _bodyIndexes; }
 
+  //***************** get methods for the other parameters *********************************************
+  /** Returns the time frame of the julian days of this Ephemeris. */
+  public int getTimeFrame() { return _timeFrame; }
+  /** Returns the coordinates represented by this Ephemeris (<CODE>SpaceConstants.COORD_XXX</CODE> constants). */
+  public int[] getWhichCoords() { return _whichCoords; }
+  /** Returns the units of the coordinates, indexed by coordinate (<CODE>SpaceConstants.COORD_XXX</CODE>). */
+  public int[] getCoordUnits() { return _coordUnits; }
+  /** Returns the frame of the coordinates. */
+  public int getFrame() { return _frame; }
+  /** Returns <CODE>SpaceConstants.SPHERICAL</CODE> or <CODE>CARTESIAN</CODE>. */
+  public int getSphereCart() { return _sphereCart; }
+  /** Returns the precision asked for the computations. */
+  public double getPrecision() { return _precision; }
+  /** Returns the astro engine used for the computations (<CODE>AstroEngine</CODE> constants). */
+  public String getAstroEngine() { return _astroEngine; }
+
   //***************** getHtmlString *********************************************
   /** Returns a HTML String representation of the Ephemeris.
   <BR>Build only a <CODE>TABLE</CODE>. Calling methods must incorporate the ephemeris in a HTML page
+  <BR>For large ephemeris, prefer {@link #writeHtml(Writer, int, boolean, int, int, int, int, int)}, which
+  doesn't build the whole string in memory.
 
   @param orientation Specifies if the instants must be displayed in column or in rows ;
   use constants of this class.
@@ -264,15 +552,37 @@ public class Ephemeris implements GeneralConstants, SolarSystemConstants{
          use <CODE>DISPLAY_XXX</CODE> constants of this class.
   */
   public String getHtmlString(int orientation, boolean useSymbols, int degreeFormat, int dateDisplay){
+    StringWriter sw = new StringWriter();
+    try{
+      writeHtml(sw, orientation, useSymbols, degreeFormat, dateDisplay, 0, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+    catch(IOException ioe){ // can't happen with a StringWriter
+      Debug.traceError(ioe);
+    }
+    return sw.toString();
+  }// end getHtmlString
 
-    StringBuffer strRes = new StringBuffer();
+  //***************** writeHtml *********************************************
+  /** Writes a HTML representation of the Ephemeris, or of a part of its rows, to a <CODE>Writer</CODE>.
+  <BR>The table is written row by row, and 'out' is flushed every {@link #ROWS_PER_CHUNK} rows, so that
+  the beginning of the table can be displayed or sent while the rest is written.
+  <BR>Formatted dates are computed once and cached.
+  <BR>Parameters 'orientation' to 'dateDisplay' are the same as in {@link #getHtmlString(int, boolean, int, int)}.
+  @param out Where the HTML is written ; should be buffered.
+  @param firstRow Index of the first row of the table to write (a date if instants are in rows, a body otherwise).
+  @param nbRows Maximal number of rows to write ; the table is truncated to the existing rows.
+  @param nbDates Maximal number of dates to write (rows or columns, depending on 'orientation'), for example
+  the dates already computed ; only the first dates of the ephemeris are written.
+  @throws IOException if 'out' throws one.
+  */
+  public void writeHtml(Writer out, int orientation, boolean useSymbols, int degreeFormat, int dateDisplay,
+                        int firstRow, int nbRows, int nbDates) throws IOException{
 
     TigBundle astroBundle = GlobalVar.getBundle(GlobalVar.BUNDLE_ASTRO);
 
     int i; // used several times
     int nbRow, nbCol; // nb of row, col - the real number of rows is (nbRows * _nbCoord) + 1
     int iRow, iCol, iCoord; // indexes to build the table
-    String[] rowHeaders, colHeaders; // contain titles of row, col.
     double data; // represents the data to display in current row
 
     // Build coord labels
@@ -291,168 +601,182 @@ public class Ephemeris implements GeneralConstants, SolarSystemConstants{
     }
     allLabels = null;
 
-    // Build planetNames
-    /////////////// Code common with NewEphemerisDialog - to factorize /////////////////
-    String[] allPlanetNames = Strings.stringToStringArray(astroBundle.getString("planetNames"));
-    String[] planetNames = new String[_bodyIndexes.length];
-    for (i = 0; i < planetNames.length; i++){
-      planetNames[i] = allPlanetNames[_bodyIndexes[i]];
+    // Indicates for each coord if it must be formatted in DMS
+    boolean[] dms = new boolean[_nbCoords];
+    int unit;
+    for (iCoord = 0; iCoord < _nbCoords; iCoord++){
+      unit = _coordUnits[_whichCoords[iCoord]];
+      dms[iCoord] = (unit == UnitsConstants.ANGULAR_UNIT_DEG ||
+                     unit == UnitsConstants.ANGULAR_SPEED_UNIT_DEG_PER_S ||
+                     unit == UnitsConstants.ANGULAR_SPEED_UNIT_DEG_PER_DAY)
+                    && degreeFormat == UnitsConstants.DEGREES_DMS;
     }
-    allPlanetNames = null;
 
-    // Compute headers of rows and cols
+    // Compute nb of rows and cols
     if(orientation == INSTANTS_IN_ROWS){
-      nbRow = _nbJDs;
+      nbRow = Math.min(_nbJDs, nbDates);
       nbCol = _nbBodies;
-      rowHeaders = new String[nbRow];
-      colHeaders = new String[nbCol];
-      // Dates
-      for (iRow = 0; iRow < nbRow; iRow++){
-        if (dateDisplay == DISPLAY_DATES)
-          rowHeaders[iRow] = Dates.formatHourDate(Dates.jdToDate(_JDs[iRow]), GlobalVar.getLang());
-        else
-          rowHeaders[iRow] = Double.toString(_JDs[iRow]);
-      }
-      // Body names
-      for (iCol = 0; iCol < nbCol; iCol++){
-        if(useSymbols)
-          colHeaders[iCol] = PLANET_SYMBOL_TAGS[_bodyIndexes[iCol]];
-        else
-          colHeaders[iCol] = SolarSystem.getBodyName(_bodyIndexes[iCol]);
-      }
     }
     else if(orientation == INSTANTS_IN_COLUMNS){
       nbRow = _nbBodies;
-      nbCol = _nbJDs;
-      rowHeaders = new String[nbRow];
-      colHeaders = new String[nbCol];
-      for (iRow = 0; iRow < nbRow; iRow++){
-        rowHeaders[iRow] = SolarSystem.getBodyName(_bodyIndexes[iRow]);
-      }
-      for (iCol = 0; iCol < nbCol; iCol++){
-        colHeaders[iCol] = Dates.formatHourDate(Dates.jdToDate(_JDs[iCol]), GlobalVar.getLang());
-      }
+      nbCol = Math.min(_nbJDs, nbDates);
     }
     else throw new IllegalArgumentException("bad 'orientation' parameter");
+    if(firstRow < 0) firstRow = 0;
+    int lastRow = (int)Math.min((long)nbRow, (long)firstRow + nbRows); // excluded
 
-    strRes.append("<CENTER>" + LS);
+    out.write("<CENTER>" + LS);
     // Write title
-    strRes.append("<H1>" + astroBundle.getString("Ephemeris") + "</H1>" + LS);
+    out.write("<H1>" + astroBundle.getString("Ephemeris") + "</H1>" + LS);
 
     // Write the ephemeris table
-    strRes.append("<TABLE BORDER=\"1\">" + LS);
+    out.write("<TABLE BORDER=\"1\">" + LS);
     // write headers for columns
     if (_nbCoords == 1) // in this case, col with coord label is not written
-      strRes.append("<TR><TD></TD>" + LS);
+      out.write("<TR><TD></TD>" + LS);
     else
-      strRes.append("<TR><TD COLSPAN=\"2\"></TD>" + LS);
+      out.write("<TR><TD COLSPAN=\"2\"></TD>" + LS);
     for (iCol = 0; iCol < nbCol; iCol++){
-      strRes.append("<TH>" + colHeaders[iCol] + "</TH>" + LS);
+      out.write("<TH>");
+      if(orientation == INSTANTS_IN_ROWS) out.write(getBodyLabel(iCol, useSymbols));
+      else out.write(getDateLabel(iCol, dateDisplay));
+      out.write("</TH>" + LS);
     }
-    strRes.append("</TR>" + LS);
+    out.write("</TR>" + LS);
 
     // write data lines
-    for (iRow = 0; iRow < nbRow; iRow++){
+    for (iRow = firstRow; iRow < lastRow; iRow++){
      // write first col header
-      strRes.append("<TR><TD ROWSPAN = \"" + _nbCoords + "\">" + rowHeaders[iRow] + "</TD>" + LS);
+      out.write("<TR><TD ROWSPAN = \"" + _nbCoords + "\">");
+      if(orientation == INSTANTS_IN_ROWS) out.write(getDateLabel(iRow, dateDisplay));
+      else out.write(SolarSystem.getBodyName(_bodyIndexes[iRow]));
+      out.write("</TD>" + LS);
       for (iCoord = 0; iCoord < _nbCoords; iCoord++){
         // write second col header, containing coord label
-        if(iCoord != 0) strRes.append("<TR>" + LS);
+        if(iCoord != 0) out.write("<TR>" + LS);
         if (_nbCoords != 1) // write second header only if more than one coord are displayed
-          strRes.append("<TD>" + coordLabels[iCoord] + "</TD>" + LS);
+          out.write("<TD>" + coordLabels[iCoord] + "</TD>" + LS);
         for (iCol = 0; iCol < nbCol; iCol++){
           if (orientation == INSTANTS_IN_ROWS)
-            data = _data[iRow][iCol][iCoord];
+            data = getCoord(iRow, iCol, iCoord);
           else
-            data = _data[iCol][iRow][iCoord];
+            data = getCoord(iCol, iRow, iCoord);
           // Now format the coordinate
-          if ((_coordUnits[iCoord] == UnitsConstants.ANGULAR_UNIT_DEG ||
-               _coordUnits[iCoord] == UnitsConstants.ANGULAR_SPEED_UNIT_DEG_PER_S ||
-               _coordUnits[iCoord] == UnitsConstants.ANGULAR_SPEED_UNIT_DEG_PER_DAY)
-               && degreeFormat == UnitsConstants.DEGREES_DMS){
-            strRes.append("<TD>" + Formats.doubleToDMS(data) + "</TD>" + LS);
-          }
-          else{
-            strRes.append("<TD>" + NF.format(data) + "</TD>" + LS);
-          }
+          out.write("<TD>");
+          out.write(dms[iCoord] ? Formats.doubleToDMS(data) : NF.format(data));
+          out.write("</TD>" + LS);
         }// end for iCol
       }// end for iCoord
-      strRes.append("</TR>" + LS);
+      out.write("</TR>" + LS);
+      if((iRow - firstRow + 1) % ROWS_PER_CHUNK == 0) out.flush();
     }// end for iRow
 
     // end writing the output.
-    strRes.append("</TABLE></CENTER>" + LS);
+    out.write("</TABLE></CENTER>" + LS);
 
     // Write the frame
     String[] frameNames = Strings.stringToStringArray(astroBundle.getString("frameLabels"));
-    strRes.append("<BR>" + LS);
-    strRes.append("<B>" + astroBundle.getString("Frame") + "</B> : " + frameNames[_frame] + LS);
+    out.write("<BR>" + LS);
+    out.write("<B>" + astroBundle.getString("Frame") + "</B> : " + frameNames[_frame] + LS);
 
     // Write the error messages
     if (_displayErrorMsg){
-      strRes.append("<BR>" + LS);
-      strRes.append("<BR>" + LS);
-      strRes.append(getErrorMessages(_computationExceptions, dateDisplay, _timeFrame));
+      out.write("<BR>" + LS);
+      out.write("<BR>" + LS);
+      // a copy, as the exceptions may be added by a computation running in an other thread
+      out.write(getErrorMessages(_computationExceptions.toArray(), dateDisplay, _timeFrame));
     }
-
-    return strRes.toString();
-  }// end getHtmlString
+    out.flush();
+  }// end writeHtml
 
   //=================================================================================
   //                            PRIVATE METHODS
   //=================================================================================
 
   //***************** fillData() *********************************************
-  /** Fills <CODE>_data</CODE>, the double[][][] containing the data, calling AstroContext.
+  /** Computes the rows, calling AstroContext, and sends them to 'listener'.
   @pre _instants and _body are not empty.
+  @return The number of rows sent to 'listener'.
+  @throws AstroException if AstroContext throws one ; the computation stops at the row concerned.
   */
-  private void fillData(){
-    int iJD, iBody, iCoord; // indexes
+  private int fillData(EphemerisRowListener listener) throws AstroException{
+    int iJD = 0, iBody, iCoord; // indexes
     boolean velocities = Space.containsVelocityCoord(_whichCoords);
 
-    // Set the path to data used for the computations.
-    AstroEngine.setAstroEngine(_astroEngine);
-    if(_astroEngine.equals(AstroEngine.JEPHEM)){
-      VSOP87.setDataPath(GlobalVar.getDirectory(GlobalVar.DIR_DATA) + FS + "astro" + FS + "planets" + FS
-                  + "vsop87" + FS + "VSOP87A" + FS);
-      ELP82.setDataPath(GlobalVar.getDirectory(GlobalVar.DIR_DATA) + FS + "astro" + FS + "planets" + FS
-                  + "elp82" + FS);
+    setDataPaths(_astroEngine);
+
+    // One context for all the dates : its bodies are reset for each date, and it keeps the
+    // light-times of the previous date as first guess.
+    AstroRequest request = new AstroRequest(_astroEngine, _frame, _sphereCart, _precision, velocities, _coordUnits);
+    AstroContext ac = new AstroContext(_JDs[0], _timeFrame, _bodyIndexes, request);
+    Body[] bodies = ac.getBodies();
+    int[] slots = new int[_nbBodies]; // slots[iBody] = position of _bodyIndexes[iBody] in 'bodies'
+    for (iBody = 0; iBody < _nbBodies; iBody++) slots[iBody] = ac.getBodySlot(_bodyIndexes[iBody]);
+    // buffers reused for each row
+    double[][] row = new double[_nbBodies][_nbCoords];
+    ComputationException[] errors = new ComputationException[_nbBodies];
+    Body b;
+    for (iJD = 0; iJD < _nbJDs; iJD++){
+      ac.reset(_JDs[iJD], _timeFrame);
+      ac.calcBodyCoords();
+      for (iBody = 0; iBody < _nbBodies; iBody++){
+        b = bodies[slots[iBody]];
+        b.getCoords(_whichCoords, row[iBody]);
+        errors[iBody] = b.getComputationException();
+      }// end for iBody
+      if(!listener.rowComputed(iJD, _JDs[iJD], row, errors)) return iJD + 1;
+    }// end for iJD
+    return _nbJDs;
+  }// end fillData()
+
+  //***************** RowStorage *********************************************
+  // Stores the rows in _data, _store or _file, and the errors in _computationExceptions,
+  // then forwards them to a listener (which may be null).
+  private class RowStorage implements EphemerisRowListener{
+    private int[] _errorTypes = new int[_nbBodies];
+    private EphemerisRowListener _listener;
+    RowStorage(EphemerisRowListener listener){ _listener = listener; }
+    public boolean rowComputed(int iJD, double jd, double[][] row, ComputationException[] errors){
+      for (int iBody = 0; iBody < _nbBodies; iBody++){
+        if(_data != null)
+          System.arraycopy(row[iBody], 0, _data[iJD][iBody], 0, _nbCoords);
+        else if(_store != null)
+          _store.setState(iBody, iJD, jd, _frame, _sphereCart, _whichCoords, row[iBody],
+                          (errors[iBody] == null ? BodyStateStore.NO_ERROR : errors[iBody].getErrorType()));
+        else
+          _errorTypes[iBody] = (errors[iBody] == null ? EphemerisFile.NO_ERROR : errors[iBody].getErrorType());
+        if(_displayErrorMsg && errors[iBody] != null) _computationExceptions.add(errors[iBody]);
+      }
+      if(_file != null) _file.setRow(iJD, jd, row, _errorTypes);
+      if(iJD >= _nbComputedJDs) _nbComputedJDs = iJD + 1;
+      return (_listener == null ? true : _listener.rowComputed(iJD, jd, row, errors));
     }
-    else{
-      SwissEphemeris.setDataPath(GlobalVar.getDirectory(GlobalVar.DIR_DATA) + FS + "astro" + FS + "swissEphem" + FS);
+  }// end class RowStorage
+
+  //***************** getDateLabel *********************************************
+  /** Returns the label of a date, computed once for each date and each display. */
+  private String getDateLabel(int iJD, int dateDisplay){
+    String[] labels = _dateLabels[dateDisplay];
+    if(labels == null) labels = _dateLabels[dateDisplay] = new String[_nbJDs];
+    if(labels[iJD] == null){
+      if (dateDisplay == DISPLAY_DATES)
+        labels[iJD] = Dates.formatHourDate(Dates.jdToDate(_JDs[iJD]), GlobalVar.getLang());
+      else
+        labels[iJD] = Double.toString(_JDs[iJD]);
     }
+    return labels[iJD];
+  }// end getDateLabel
 
-    try{
-      double[] jds = new double[_nbJDs];
-      AstroContext[] ac = new AstroContext[_nbJDs];
-//_computationExceptions.clear();
-      for (iJD = 0; iJD < _nbJDs; iJD++){
-        ac[iJD] = new AstroContext(_JDs[iJD], _timeFrame, _bodyIndexes);
-        ac[iJD].setAstroEngine(_astroEngine); // ADDITION 2002.10.22 to remove
-        ac[iJD].calcBodyCoords(_frame, _sphereCart, _precision, velocities, _coordUnits);
-        for (iBody = 0; iBody < _nbBodies; iBody++){
-          for (iCoord = 0; iCoord < _nbCoords; iCoord++){
-            // fill _data and error messages
-            _data[iJD][iBody][iCoord] = ac[iJD].getBody(_bodyIndexes[iBody]).getCoord(_whichCoords[iCoord]);
-          }// end for iCoord
-          if(_displayErrorMsg){
-            if (ac[iJD].getBody(_bodyIndexes[iBody]).getComputationException() != null){
-              _computationExceptions.add(ac[iJD].getBody(_bodyIndexes[iBody]).getComputationException());
-            }
-          }// end if(_displayErrorMsg)
-        }// end for iBody
-      }// end for iJD
-
-      return;
-      }
-      catch(AstroException ae){ // for ac.calcBodyCoords() and getErrorMessages
-        Debug.traceError(ae);
-      }
-  }// end fillData()
+  //***************** getBodyLabel *********************************************
+  /** Returns the name of a body, or a tag displaying its symbol. */
+  private String getBodyLabel(int iBody, boolean useSymbols){
+    if(useSymbols) return PLANET_SYMBOL_TAGS[_bodyIndexes[iBody]];
+    return SolarSystem.getBodyName(_bodyIndexes[iBody]);
+  }// end getBodyLabel
 
   //***************** getErrorMessages *********************************************
-  /** Returns the {@link jephem.astro.planets.ComputationExceptions} contained in a Vector
-  {@link jephem.astro.planets.ComputationException}s.
+  /** Returns the {@link jephem.astro.planets.ComputationExceptions} contained in an array of
+  {@link jephem.astro.planets.ComputationException}s ; the array is sorted.
   <BR>The language used to build the resulting string come from {@link jephem.GlobaVar}
   @param computationExceptions the <CODE>ComputationException</CODE>s to display.
   @param dateDisplay Permits to specify if the dates in the errors messages should be displayed as
@@ -461,9 +785,9 @@ public class Ephemeris implements GeneralConstants, SolarSystemConstants{
                      Use {@link jephem.astro.spacetime.TimeConstants} constants for it.
   @return an HTML formatted string containing a description of the exceptions.
   */
-  private static String getErrorMessages(Vector computationExceptions, int dateDisplay, int timeFrame){
+  private static String getErrorMessages(Object[] computationExceptions, int dateDisplay, int timeFrame){
     StringBuffer strRes = new StringBuffer(BLANK);
-    if(computationExceptions.size()==0) return strRes.toString();
+    if(computationExceptions.length==0) return strRes.toString();
 
     Comparator comp = new Comparator() {
       public int compare(Object o1, Object o2) {
@@ -484,7 +808,7 @@ public class Ephemeris implements GeneralConstants, SolarSystemConstants{
     }; // end comparator
 
     // Order the exceptions by body, error type, and jd
-    Collections.sort(computationExceptions, comp);
+    Arrays.sort(computationExceptions, comp);
 
     // Prepare the strings to display
     String BRLS = "<BR>" + LS;
@@ -494,18 +818,18 @@ public class Ephemeris implements GeneralConstants, SolarSystemConstants{
     String[] strError = new String[]{SPACES + astroBundle.getString("PrecisionNotHandledForDates") + BRLS,
                                      SPACES + astroBundle.getString("DateLimitForTheory") + BRLS};
     // Prepare variables
-    int lastBody = ((ComputationException)computationExceptions.get(0)).getBodyIndex();
-    int lastErrorType = ((ComputationException)computationExceptions.get(0)).getErrorType();
+    int lastBody = ((ComputationException)computationExceptions[0]).getBodyIndex();
+    int lastErrorType = ((ComputationException)computationExceptions[0]).getErrorType();
     int curBody, curErrorType;
     ComputationException curCE;
 
     // write display beginning (we know the vector is not empty).
     strRes.append(Html.tag(astroBundle.getString("NotGuaranteedResults"), "B")).append(BRLS);
-    strRes.append(planetNames[((ComputationException)computationExceptions.get(0)).getBodyIndex()]).append(BRLS);
-    strRes.append(strError[((ComputationException)computationExceptions.get(0)).getErrorType()]);
+    strRes.append(planetNames[((ComputationException)computationExceptions[0]).getBodyIndex()]).append(BRLS);
+    strRes.append(strError[((ComputationException)computationExceptions[0]).getErrorType()]);
 
-    for(Iterator i = computationExceptions.iterator(); i.hasNext(); ){
-      curCE = (ComputationException)i.next();
+    for(int i = 0; i < computationExceptions.length; i++){
+      curCE = (ComputationException)computationExceptions[i];
       curBody = curCE.getBodyIndex();
       curErrorType = curCE.getErrorType();
       if(curBody != lastBody)
@@ -523,7 +847,7 @@ public class Ephemeris implements GeneralConstants, SolarSystemConstants{
       // Swap for next
       lastBody = curBody;
       lastErrorType = curErrorType;
-    }// end for iterator
+    }// end for i
 
     return strRes.toString();
   }// end getErrorMessages
@@ -0,0 +1,342 @@
+//*********************************************************************************
+// class jephem.tools.EphemerisCache
+// Software released under the General Public License (version 2 or later), available at
+// http://www.gnu.org/copyleft/gpl.html
+//*********************************************************************************
+package jephem.tools;
+
+import jephem.astro.AstroException;
+import jephem.astro.solarsystem.ComputationException;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/******************************************************************************
+Cache of computed ephemeris values, used to avoid recomputing the same coordinates for similar requests.
+<BR>Values are stored by body and by date, and are identified by the parameters which determine them :
+time frame, coordinates and their units, frame, spherical / cartesian, precision and astro engine.
+<BR>When an ephemeris is asked with {@link #getEphemeris(int[], double[], int, int[], int[], int, int, double, String, boolean)}
+or computed with {@link #compute(Ephemeris, EphemerisRowListener)}, only the dates and bodies which are not in the
+cache are computed ; so a request overlapping a previous one (same bodies on other dates, or some of the bodies
+on the same dates...) reuses the cached values.
+<BR>Values which could not be computed correctly (with a {@link ComputationException}), and values which were not
+computed because the computation stopped, are not cached.
+<BR>The cache contains at most a given number of values (one value = the coordinates of one body at one date) ;
+when full, the least recently used values are removed.
+<BR>A cache can be shared between threads : it is locked to look for the values and to store the computed ones,
+but not during the computations ; two threads asking the same missing values at the same time both compute them.
+
+@author Thierry Graff
+@history oct 19 2026 : creation.
+*********************************************************************************/
+public class EphemerisCache{
+
+  //=================================================================================
+  //                                 CONSTANTS
+  //=================================================================================
+  /** Default maximal number of values of the cache. */
+  public static final int DEFAULT_MAX_SIZE = 100000;
+
+  //=================================================================================
+  //                                 INSTANCE VARIABLES
+  //=================================================================================
+  /** Cached values (coordinates of a body at a date), in access order. */
+  private LinkedHashMap<ValueKey, double[]> _values;
+  private int _maxSize;
+  /** Number of values found in / missing from the cache since its creation. */
+  private long _nbHits = 0, _nbMisses = 0;
+
+  //=================================================================================
+  //                                 CONSTRUCTORS
+  //=================================================================================
+
+  //***************** EphemerisCache *******************************
+  /** Constructor.
+  @param maxSize Maximal number of values (coordinates of one body at one date) kept in the cache.
+  */
+  public EphemerisCache(int maxSize){
+    if(maxSize < 1) throw new IllegalArgumentException("'maxSize' must be positive");
+    _maxSize = maxSize;
+    _values = new LinkedHashMap<ValueKey, double[]>(16, 0.75f, true){
+      private static final long serialVersionUID = 1L;
+      protected boolean removeEldestEntry(Map.Entry<ValueKey, double[]> eldest){
+        return size() > _maxSize;
+      }
+    };
+  }// end EphemerisCache
+
+  //***************** EphemerisCache *******************************
+  /** Constructor with {@link #DEFAULT_MAX_SIZE}. */
+  public EphemerisCache(){
+    this(DEFAULT_MAX_SIZE);
+  }// end EphemerisCache
+
+  //=================================================================================
+  //                                 PUBLIC METHODS
+  //=================================================================================
+
+  //***************** getEphemeris *******************************
+  /** Returns an ephemeris, computing only the values which are not in the cache.
+  <BR>Parameters have the same meaning as in the constructors of {@link Ephemeris} ;
+  the computation is done in the calling thread.
+  <BR>If 'displayErrorMsg' is true, the errors of the computed values are memorized in the returned ephemeris.
+  @throws AstroException if the computation of the missing values fails.
+  */
+  public Ephemeris getEphemeris(int[]      bodyIndexes,
+                                double[]   JDs,
+                                int        timeFrame,
+                                int[]      whichCoords,
+                                int[]      coordUnits,
+                                int        frame,
+                                int        sphereCart,
+                                double     precision,
+                                String     astroEngine,
+                                boolean    displayErrorMsg) throws AstroException{
+    Ephemeris res = new Ephemeris(bodyIndexes, JDs, timeFrame, whichCoords, coordUnits, frame, sphereCart,
+                                  precision, astroEngine, displayErrorMsg, false);
+    compute(res, null);
+    return res;
+  }// end getEphemeris
+
+  //***************** compute *******************************
+  /** Computes the rows of an ephemeris built with <CODE>computeNow = false</CODE>, like
+  {@link Ephemeris#compute(EphemerisRowListener)}, but computing only the values which are not in the cache.
+  <BR>The missing values are computed first in the order of the rows ; each row is stored in 'eph' and sent
+  to 'listener' (if not null) as soon as its values are available, and the computation stops when 'listener'
+  returns false.
+  @return The number of rows stored in 'eph'.
+  @throws AstroException if the computation of the missing values fails ; the rows stored before stay available.
+  */
+  public int compute(Ephemeris eph, EphemerisRowListener listener) throws AstroException{
+    int[] bodyIndexes = eph.getBodyIndexes();
+    double[] JDs = eph.getJDs();
+    int nbBodies = bodyIndexes.length, nbJDs = JDs.length;
+    Key key = new Key(eph.getTimeFrame(), eph.getWhichCoords(), eph.getCoordUnits(), eph.getFrame(),
+                      eph.getSphereCart(), eph.getPrecision(), eph.getAstroEngine());
+
+    // 1 - Look for the values in the cache
+    double[][][] cached = new double[nbJDs][nbBodies][];
+    boolean[] missingJD = new boolean[nbJDs];
+    boolean[] missingBody = new boolean[nbBodies];
+    int nbMissingJDs = 0, nbMissingBodies = 0;
+    synchronized(this){
+      for (int iJD = 0; iJD < nbJDs; iJD++){
+        for (int iBody = 0; iBody < nbBodies; iBody++){
+          cached[iJD][iBody] = _values.get(new ValueKey(key, bodyIndexes[iBody], JDs[iJD]));
+          if(cached[iJD][iBody] == null){
+            _nbMisses++;
+            if(!missingJD[iJD]){ missingJD[iJD] = true; nbMissingJDs++; }
+            if(!missingBody[iBody]){ missingBody[iBody] = true; nbMissingBodies++; }
+          }
+          else _nbHits++;
+        }
+      }
+    }
+
+    // 2 - Distinct missing dates, in the order of the rows (a date is computed only once for a request) ;
+    // 'distinct' (sorted) and 'indexes' give the index of a date in the computation.
+    double[] sorted = new double[nbMissingJDs];
+    for (int iJD = 0, i = 0; iJD < nbJDs; iJD++)
+      if(missingJD[iJD]) sorted[i++] = JDs[iJD];
+    Arrays.sort(sorted);
+    int nbDistinct = 0;
+    for (int i = 0; i < sorted.length; i++)
+      if(i == 0 || Double.compare(sorted[i], sorted[nbDistinct - 1]) != 0) sorted[nbDistinct++] = sorted[i];
+    double[] distinct = new double[nbDistinct];
+    System.arraycopy(sorted, 0, distinct, 0, nbDistinct);
+    int[] indexes = new int[nbDistinct];
+    Arrays.fill(indexes, -1);
+    double[] jds = new double[nbDistinct];
+    for (int iJD = 0, n = 0; iJD < nbJDs; iJD++){
+      if(!missingJD[iJD]) continue;
+      int i = Arrays.binarySearch(distinct, JDs[iJD]);
+      if(indexes[i] == -1){
+        indexes[i] = n;
+        jds[n++] = JDs[iJD];
+      }
+    }
+
+    // 3 - Compute the missing bodies at the missing dates, outside the lock ; the rows of 'eph' are filled
+    // as their values become available.
+    int[] bodies = new int[nbMissingBodies];
+    for (int iBody = 0, i = 0; iBody < nbBodies; iBody++)
+      if(missingBody[iBody]) bodies[i++] = bodyIndexes[iBody];
+    Computation computation = new Computation(key, eph, listener, cached, missingJD, missingBody,
+                                              bodies, distinct, indexes);
+    if(nbDistinct > 0)
+      Ephemeris.stream(bodies, jds, eph.getTimeFrame(), eph.getWhichCoords(), eph.getCoordUnits(), eph.getFrame(),
+                       eph.getSphereCart(), eph.getPrecision(), eph.getAstroEngine(), computation);
+    else
+      computation.fillRows();
+    return computation._nbFilled;
+  }// end compute
+
+  //***************** clear *******************************
+  /** Removes all the values of the cache. */
+  public synchronized void clear(){
+    _values.clear();
+  }// end clear
+
+  //***************** getSize *******************************
+  /** Returns the number of values currently in the cache. */
+  public synchronized int getSize(){ return _values.size(); }
+
+  /** Returns the maximal number of values of the cache. */
+  public int getMaxSize(){ return _maxSize; }
+
+  /** Returns the number of values found in the cache since its creation. */
+  public synchronized long getNbHits(){ return _nbHits; }
+
+  /** Returns the number of values which had to be computed since the creation of the cache. */
+  public synchronized long getNbMisses(){ return _nbMisses; }
+
+  //=================================================================================
+  //                                 PRIVATE CLASSES
+  //=================================================================================
+
+  //***************** Computation *******************************
+  // Receives the computed values, puts the correct ones in the cache and fills the rows of the ephemeris
+  // whose values are available.
+  private class Computation implements EphemerisRowListener{
+    private Key _key;
+    private int[] _bodies;
+    private double[][][] _rows; // [iJD][iBody][iCoord], indexes of the computation
+    private ComputationException[][] _errors;
+    private int _nbComputed = 0;
+    // Distinct computed dates, sorted, and their indexes in the computation.
+    private double[] _distinct;
+    private int[] _indexes;
+    // The ephemeris
+    private EphemerisRowListener _storage;
+    private double[] _JDs;
+    private double[][][] _cached;
+    private boolean[] _missingJD, _missingBody;
+    private double[][] _row;
+    private ComputationException[] _rowErrors;
+    private int _nbFilled = 0;
+
+    Computation(Key key, Ephemeris eph, EphemerisRowListener listener, double[][][] cached, boolean[] missingJD,
+                boolean[] missingBody, int[] bodies, double[] distinct, int[] indexes){
+      int nbCoords = eph.getWhichCoords().length;
+      _key = key;
+      _bodies = bodies;
+      _rows = new double[distinct.length][bodies.length][nbCoords];
+      _errors = new ComputationException[distinct.length][bodies.length];
+      _distinct = distinct;
+      _indexes = indexes;
+      _storage = eph.getRowStorage(listener);
+      _JDs = eph.getJDs();
+      _cached = cached;
+      _missingJD = missingJD;
+      _missingBody = missingBody;
+      _row = new double[eph.getBodyIndexes().length][nbCoords];
+      _rowErrors = new ComputationException[eph.getBodyIndexes().length];
+    }
+
+    public boolean rowComputed(int iJD, double jd, double[][] row, ComputationException[] errors){
+      for (int iBody = 0; iBody < _bodies.length; iBody++){
+        System.arraycopy(row[iBody], 0, _rows[iJD][iBody], 0, row[iBody].length);
+        _errors[iJD][iBody] = errors[iBody];
+      }
+      synchronized(EphemerisCache.this){
+        for (int iBody = 0; iBody < _bodies.length; iBody++)
+          if(errors[iBody] == null) _values.put(new ValueKey(_key, _bodies[iBody], jd), row[iBody].clone());
+      }
+      _nbComputed = iJD + 1;
+      return fillRows();
+    }
+
+    // Fills the rows of the ephemeris whose values are available ; returns false if the listener stopped.
+    boolean fillRows(){
+      for ( ; _nbFilled < _JDs.length; _nbFilled++){
+        int iComputed = (_missingJD[_nbFilled] ? _indexes[Arrays.binarySearch(_distinct, _JDs[_nbFilled])] : -1);
+        if(iComputed >= _nbComputed) return true;
+        for (int iBody = 0, iMissing = 0; iBody < _row.length; iBody++){
+          _rowErrors[iBody] = null;
+          if(_cached[_nbFilled][iBody] != null)
+            System.arraycopy(_cached[_nbFilled][iBody], 0, _row[iBody], 0, _row[iBody].length);
+          else{
+            System.arraycopy(_rows[iComputed][iMissing], 0, _row[iBody], 0, _row[iBody].length);
+            _rowErrors[iBody] = _errors[iComputed][iMissing];
+          }
+          if(_missingBody[iBody]) iMissing++;
+        }
+        if(!_storage.rowComputed(_nbFilled, _JDs[_nbFilled], _row, _rowErrors)){
+          _nbFilled++;
+          return false;
+        }
+      }
+      return true;
+    }
+  }// end class Computation
+
+  //***************** Key *******************************
+  // Parameters of a request which determine the values, except bodies and dates.
+  private static class Key{
+    private int _timeFrame, _frame, _sphereCart;
+    private int[] _whichCoords, _coordUnits;
+    private double _precision;
+    private String _astroEngine;
+    private int _hashCode;
+
+    Key(int timeFrame, int[] whichCoords, int[] coordUnits, int frame, int sphereCart,
+        double precision, String astroEngine){
+      _timeFrame = timeFrame;
+      _whichCoords = whichCoords.clone();
+      _coordUnits = coordUnits.clone();
+      _frame = frame;
+      _sphereCart = sphereCart;
+      _precision = precision;
+      _astroEngine = astroEngine;
+      int h = _timeFrame;
+      h = 31*h + _frame;
+      h = 31*h + _sphereCart;
+      for (int i = 0; i < _whichCoords.length; i++) h = 31*h + _whichCoords[i];
+      for (int i = 0; i < _coordUnits.length; i++) h = 31*h + _coordUnits[i];
+      long bits = Double.doubleToLongBits(_precision);
+      h = 31*h + (int)(bits ^ (bits >>> 32));
+      h = 31*h + _astroEngine.hashCode();
+      _hashCode = h;
+    }
+
+    public int hashCode(){ return _hashCode; }
+
+    public boolean equals(Object o){
+      if(!(o instanceof Key)) return false;
+      Key k = (Key)o;
+      return _hashCode == k._hashCode
+          && _timeFrame == k._timeFrame && _frame == k._frame && _sphereCart == k._sphereCart
+          && Arrays.equals(_whichCoords, k._whichCoords) && Arrays.equals(_coordUnits, k._coordUnits)
+          && Double.doubleToLongBits(_precision) == Double.doubleToLongBits(k._precision)
+          && _astroEngine.equals(k._astroEngine);
+    }
+  }// end class Key
+
+  //***************** ValueKey *******************************
+  // Identifies the value of a body at a date.
+  private static class ValueKey{
+    private Key _key;
+    private int _body;
+    private double _jd;
+
+    ValueKey(Key key, int body, double jd){
+      _key = key;
+      _body = body;
+      _jd = jd;
+    }
+
+    public int hashCode(){
+      long bits = Double.doubleToLongBits(_jd);
+      return 31*(31*_key.hashCode() + _body) + (int)(bits ^ (bits >>> 32));
+    }
+
+    public boolean equals(Object o){
+      if(!(o instanceof ValueKey)) return false;
+      ValueKey vk = (ValueKey)o;
+      return _body == vk._body && Double.doubleToLongBits(_jd) == Double.doubleToLongBits(vk._jd)
+          && _key.equals(vk._key);
+    }
+  }// end class ValueKey
+
+}// end class EphemerisCache
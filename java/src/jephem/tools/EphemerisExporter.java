@@ -0,0 +1,164 @@
+//*********************************************************************************
+// class jephem.tools.EphemerisExporter
+// Software released under the General Public License (version 2 or later), available at
+// http://www.gnu.org/copyleft/gpl.html
+//*********************************************************************************
+package jephem.tools;
+
+import jephem.astro.solarsystem.ComputationException;
+
+import tig.GeneralConstants;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/******************************************************************************
+Base class of the classes writing an {@link Ephemeris} to a channel, in a format other than HTML.
+<BR>An exporter is an {@link EphemerisRowListener}, so it can be used in two ways :
+<LI>to export a computed ephemeris, with {@link #export(Ephemeris)} ;</LI>
+<LI>to write an ephemeris while it is computed, giving the exporter to
+{@link Ephemeris#stream(int[], double[], int, int[], int[], int, int, double, String, EphemerisRowListener)},
+and calling {@link #close()} at the end.</LI>
+<BR>Bytes are accumulated in a buffer written to the channel when full ; no intermediate
+<CODE>String</CODE> is built.
+<BR>As {@link EphemerisRowListener#rowComputed(int, double, double[][], ComputationException[])} can't throw
+an <CODE>IOException</CODE>, an I/O error stops the computation and is thrown by {@link #close()}.
+
+@author Thierry Graff
+@history oct 19 2026 : creation.
+*********************************************************************************/
+public abstract class EphemerisExporter implements EphemerisRowListener, GeneralConstants{
+
+  //=================================================================================
+  //                                 INSTANCE VARIABLES
+  //=================================================================================
+  /** Description of the exported ephemeris. */
+  protected int[] _bodyIndexes, _whichCoords, _coordUnits;
+  protected int _timeFrame, _frame, _sphereCart;
+
+  /** Buffer accumulating the bytes before writing to the channel. */
+  protected ByteBuffer _buffer;
+
+  private WritableByteChannel _channel;
+  private boolean _headerWritten = false;
+  /** Exception which occured while writing a row. */
+  private IOException _error;
+
+  /** Size of the buffer. */
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  //=================================================================================
+  //                                 CONSTRUCTORS
+  //=================================================================================
+
+  //***************** EphemerisExporter *******************************
+  /** Constructor ; parameters describing the ephemeris have the same meaning as in the constructors
+  of {@link Ephemeris}.
+  @param channel Where the ephemeris is written ; closed by {@link #close()}.
+  */
+  protected EphemerisExporter(WritableByteChannel channel,
+                              int[]  bodyIndexes,
+                              int    timeFrame,
+                              int[]  whichCoords,
+                              int[]  coordUnits,
+                              int    frame,
+                              int    sphereCart){
+    _channel = channel;
+    _bodyIndexes = bodyIndexes;
+    _timeFrame = timeFrame;
+    _whichCoords = whichCoords;
+    _coordUnits = coordUnits;
+    _frame = frame;
+    _sphereCart = sphereCart;
+    _buffer = ByteBuffer.allocate(BUFFER_SIZE);
+  }// end EphemerisExporter
+
+  //=================================================================================
+  //                                 PUBLIC METHODS
+  //=================================================================================
+
+  //***************** export(ephemeris) *******************************
+  /** Writes all the rows of a computed ephemeris, and closes the exporter.
+  <BR>The exporter must have been built with the parameters of 'eph'.
+  @throws IOException if the rows can't be written.
+  */
+  public void export(Ephemeris eph) throws IOException{
+    int nbBodies = _bodyIndexes.length, nbCoords = _whichCoords.length;
+    double[][] row = new double[nbBodies][nbCoords];
+    ComputationException[] errors = new ComputationException[nbBodies];
+    double[] jds = eph.getJDs();
+    for (int iJD = 0; iJD < jds.length; iJD++){
+      for (int iBody = 0; iBody < nbBodies; iBody++)
+        for (int iCoord = 0; iCoord < nbCoords; iCoord++)
+          row[iBody][iCoord] = eph.getCoord(iJD, iBody, iCoord);
+      if(!rowComputed(iJD, jds[iJD], row, errors)) break;
+    }
+    close();
+  }// end export
+
+  //***************** rowComputed *******************************
+  /** Writes a row ; see {@link EphemerisRowListener}.
+  @return false if an I/O error occured. */
+  public boolean rowComputed(int iJD, double jd, double[][] row, ComputationException[] errors){
+    if(_error != null) return false;
+    try{
+      if(!_headerWritten){
+        writeHeader();
+        _headerWritten = true;
+      }
+      writeRow(iJD, jd, row);
+      return true;
+    }
+    catch(IOException ioe){
+      _error = ioe;
+      return false;
+    }
+  }// end rowComputed
+
+  //***************** close *******************************
+  /** Writes the end of the export, flushes the buffer and closes the channel.
+  @throws IOException if an error occured while writing, now or in a previous call to rowComputed(). */
+  public void close() throws IOException{
+    try{
+      if(_error != null) throw _error;
+      if(!_headerWritten){
+        writeHeader();
+        _headerWritten = true;
+      }
+      writeEnd();
+      flush();
+    }
+    finally{
+      _channel.close();
+    }
+  }// end close
+
+  //=================================================================================
+  //                                 METHODS FOR SUBCLASSES
+  //=================================================================================
+
+  /** Writes the beginning of the export, before the first row. */
+  protected abstract void writeHeader() throws IOException;
+
+  /** Writes a row, indexed by [iBody][iCoord]. */
+  protected abstract void writeRow(int iJD, double jd, double[][] row) throws IOException;
+
+  /** Writes the end of the export ; does nothing by default. */
+  protected void writeEnd() throws IOException{}
+
+  //***************** ensureRemaining *******************************
+  /** Writes the buffer to the channel if it has less than 'nbBytes' remaining bytes. */
+  protected void ensureRemaining(int nbBytes) throws IOException{
+    if(_buffer.remaining() < nbBytes) flush();
+  }// end ensureRemaining
+
+  //***************** flush *******************************
+  /** Writes the content of the buffer to the channel. */
+  protected void flush() throws IOException{
+    _buffer.flip();
+    while(_buffer.hasRemaining()) _channel.write(_buffer);
+    _buffer.clear();
+  }// end flush
+
+}// end class EphemerisExporter
@@ -0,0 +1,351 @@
+//*********************************************************************************
+// class jephem.tools.EphemerisFile
+// Software released under the General Public License (version 2 or later), available at
+// http://www.gnu.org/copyleft/gpl.html
+//*********************************************************************************
+package jephem.tools;
+
+import jephem.astro.solarsystem.ComputationException;
+
+import tig.GeneralConstants;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/******************************************************************************
+Storage of the results of an {@link Ephemeris} in a memory-mapped file, out of the Java heap.
+<BR>The file starts with a header describing the ephemeris (bodies, coordinates, units, frame...),
+followed by one row per date, and by the error types of each body at each date :
+<PRE>
+  header   : magic number, version, nbJDs, nbBodies, nbCoords, timeFrame, frame, sphereCart,
+             precision, astroEngine, bodyIndexes[nbBodies], whichCoords[nbCoords], coordUnits[6]
+  rows     : nbJDs times (jd, coords[nbBodies][nbCoords]) - doubles
+  errors   : nbJDs times errorTypes[nbBodies] - bytes
+</PRE>
+Rows are mapped by segments, so that the size of the file is not limited by the size of a
+<CODE>MappedByteBuffer</CODE>.
+<BR>A file is created by {@link #create(File, int[], int, int, int[], int[], int, int, double, String)}
+and filled row by row ; reopening it with {@link #open(File)} gives a read-only access to the results,
+without recomputation.
+
+@author Thierry Graff
+@history oct 19 2026 : creation.
+@history oct 19 2026 : delete(), to remove the file of a failed computation.
+*********************************************************************************/
+public class EphemerisFile implements GeneralConstants{
+
+  //=================================================================================
+  //                                 CONSTANTS
+  //=================================================================================
+  /** Value of the error type of a body without computation exception. */
+  public static final int NO_ERROR = -1;
+
+  /** First bytes of an ephemeris file ("JEPH"). */
+  private static final int MAGIC = 0x4A455048;
+  /** Version of the file format. */
+  private static final int VERSION = 1;
+  /** Maximal size of a mapped segment of rows, in bytes. */
+  private static final int SEGMENT_SIZE = 1 << 28;
+
+  //=================================================================================
+  //                                 INSTANCE VARIABLES
+  //=================================================================================
+  private File      _file;
+  private int       _nbJDs, _nbBodies, _nbCoords;
+  private int       _timeFrame, _frame, _sphereCart;
+  private double    _precision;
+  private String    _astroEngine;
+  private int[]     _bodyIndexes, _whichCoords, _coordUnits;
+
+  /** Open channel, null once closed. */
+  private FileChannel _channel;
+  /** Mapped segments containing the rows. */
+  private MappedByteBuffer[] _segments;
+  /** Mapped region containing the error types. */
+  private MappedByteBuffer _errors;
+  /** Number of rows per segment, and size of a row in bytes. */
+  private int _rowsPerSegment, _rowSize;
+  /** Indicates if the file was opened for writing. */
+  private boolean _writable;
+
+  //=================================================================================
+  //                                 CONSTRUCTORS
+  //=================================================================================
+  // Use create() or open().
+  private EphemerisFile(){}
+
+  //***************** create *******************************
+  /** Creates a new file, able to contain the results of an ephemeris ; the rows are then written by
+  {@link #setRow(int, double, double[][], int[])}.
+  <BR>Parameters have the same meaning as in the constructor of {@link Ephemeris} ; an existing file is overwritten.
+  @throws IOException if the file can't be created or mapped.
+  */
+  public static EphemerisFile create(File       file,
+                                     int[]      bodyIndexes,
+                                     int        nbJDs,
+                                     int        timeFrame,
+                                     int[]      whichCoords,
+                                     int[]      coordUnits,
+                                     int        frame,
+                                     int        sphereCart,
+                                     double     precision,
+                                     String     astroEngine) throws IOException{
+    if(coordUnits.length != 6)
+      throw new IllegalArgumentException("Parameter 'coordUnits' must contain 6 elements");
+    EphemerisFile res = new EphemerisFile();
+    res._file = file;
+    res._nbJDs = nbJDs;
+    res._nbBodies = bodyIndexes.length;
+    res._nbCoords = whichCoords.length;
+    res._timeFrame = timeFrame;
+    res._frame = frame;
+    res._sphereCart = sphereCart;
+    res._precision = precision;
+    res._astroEngine = astroEngine;
+    res._bodyIndexes = bodyIndexes.clone();
+    res._whichCoords = whichCoords.clone();
+    res._coordUnits = coordUnits.clone();
+    res._writable = true;
+
+    // header
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeInt(res._nbJDs);
+    out.writeInt(res._nbBodies);
+    out.writeInt(res._nbCoords);
+    out.writeInt(timeFrame);
+    out.writeInt(frame);
+    out.writeInt(sphereCart);
+    out.writeDouble(precision);
+    out.writeUTF(astroEngine);
+    for (int i = 0; i < res._nbBodies; i++) out.writeInt(bodyIndexes[i]);
+    for (int i = 0; i < res._nbCoords; i++) out.writeInt(whichCoords[i]);
+    for (int i = 0; i < 6; i++) out.writeInt(coordUnits[i]);
+    out.close();
+    byte[] header = bytes.toByteArray();
+
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try{
+      raf.setLength(0);
+      raf.writeInt(header.length);
+      raf.write(header);
+      res.map(raf, 4 + header.length, FileChannel.MapMode.READ_WRITE);
+    }
+    catch(IOException ioe){
+      raf.close();
+      throw ioe;
+    }
+    for (int i = 0; i < nbJDs; i++) res.setErrorTypes(i, null);
+    return res;
+  }// end create
+
+  //***************** open *******************************
+  /** Opens a file previously filled, for reading.
+  @throws IOException if the file can't be read or is not an ephemeris file.
+  */
+  public static EphemerisFile open(File file) throws IOException{
+    EphemerisFile res = new EphemerisFile();
+    res._file = file;
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try{
+      int headerLength = raf.readInt();
+      if(raf.readInt() != MAGIC) throw new IOException(file + " is not an ephemeris file");
+      if(raf.readInt() != VERSION) throw new IOException("Unsupported version for ephemeris file " + file);
+      res._nbJDs = raf.readInt();
+      res._nbBodies = raf.readInt();
+      res._nbCoords = raf.readInt();
+      res._timeFrame = raf.readInt();
+      res._frame = raf.readInt();
+      res._sphereCart = raf.readInt();
+      res._precision = raf.readDouble();
+      res._astroEngine = raf.readUTF();
+      res._bodyIndexes = new int[res._nbBodies];
+      for (int i = 0; i < res._nbBodies; i++) res._bodyIndexes[i] = raf.readInt();
+      res._whichCoords = new int[res._nbCoords];
+      for (int i = 0; i < res._nbCoords; i++) res._whichCoords[i] = raf.readInt();
+      res._coordUnits = new int[6];
+      for (int i = 0; i < 6; i++) res._coordUnits[i] = raf.readInt();
+      res.map(raf, 4 + headerLength, FileChannel.MapMode.READ_ONLY);
+    }
+    catch(IOException ioe){
+      raf.close();
+      throw ioe;
+    }
+    return res;
+  }// end open
+
+  //=================================================================================
+  //                                 PUBLIC METHODS
+  //=================================================================================
+
+  //************************* get methods  *******************************
+  /** Returns the file containing the results. */
+  public File getFile(){ return _file; }
+  /** Returns the number of dates (rows) of the ephemeris. */
+  public int getNbJDs(){ return _nbJDs; }
+  /** Returns a copy of the indexes of the bodies of the ephemeris. */
+  public int[] getBodyIndexes(){ return _bodyIndexes.clone(); }
+  /** Returns a copy of the coordinates of the ephemeris. */
+  public int[] getWhichCoords(){ return _whichCoords.clone(); }
+  /** Returns a copy of the units of the ephemeris (6 elements, indexed by coordinate). */
+  public int[] getCoordUnits(){ return _coordUnits.clone(); }
+  /** Returns the time frame of the julian days. */
+  public int getTimeFrame(){ return _timeFrame; }
+  /** Returns the frame of the coordinates. */
+  public int getFrame(){ return _frame; }
+  /** Returns <CODE>SPHERICAL</CODE> or <CODE>CARTESIAN</CODE>. */
+  public int getSphereCart(){ return _sphereCart; }
+  /** Returns the precision of the computations, in arc seconds. */
+  public double getPrecision(){ return _precision; }
+  /** Returns the astro engine used for the computations. */
+  public String getAstroEngine(){ return _astroEngine; }
+
+  //***************** getJD(iJD) *******************************
+  /** Returns the julian day of a row. */
+  public double getJD(int iJD){
+    return _segments[iJD / _rowsPerSegment].getDouble((iJD % _rowsPerSegment) * _rowSize);
+  }// end getJD
+
+  //***************** getCoord(iJD, iBody, iCoord) *******************************
+  /** Returns a value of the ephemeris ; indexes have the same meaning as in {@link Ephemeris#getData()}. */
+  public double getCoord(int iJD, int iBody, int iCoord){
+    return _segments[iJD / _rowsPerSegment].getDouble((iJD % _rowsPerSegment) * _rowSize
+                                                      + 8 * (1 + iBody*_nbCoords + iCoord));
+  }// end getCoord
+
+  //***************** getRow(iJD, res) *******************************
+  /** Copies a row in an array, allocated by the caller, indexed by [iBody][iCoord]. */
+  public void getRow(int iJD, double[][] res){
+    ByteBuffer seg = _segments[iJD / _rowsPerSegment];
+    int pos = (iJD % _rowsPerSegment) * _rowSize + 8;
+    for (int iBody = 0; iBody < _nbBodies; iBody++){
+      for (int iCoord = 0; iCoord < _nbCoords; iCoord++){
+        res[iBody][iCoord] = seg.getDouble(pos);
+        pos += 8;
+      }
+    }
+  }// end getRow
+
+  //***************** getErrorType(iJD, iBody) *******************************
+  /** Returns the type of the computation exception of a body at a date, using {@link ComputationException}
+  constants, or {@link #NO_ERROR}. */
+  public int getErrorType(int iJD, int iBody){
+    return _errors.get(iJD*_nbBodies + iBody);
+  }// end getErrorType
+
+  //***************** setRow(iJD, jd, row, errorTypes) *******************************
+  /** Writes a row.
+  @param iJD Index of the row.
+  @param jd Julian day of the row, in the time frame of the ephemeris.
+  @param row Values, indexed by [iBody][iCoord].
+  @param errorTypes Error type of each body (using {@link ComputationException} constants or {@link #NO_ERROR}),
+  or null if no error occured.
+  @throws IllegalStateException if the file was opened for reading.
+  */
+  public void setRow(int iJD, double jd, double[][] row, int[] errorTypes){
+    if(!_writable) throw new IllegalStateException("Ephemeris file opened for reading : " + _file);
+    ByteBuffer seg = _segments[iJD / _rowsPerSegment];
+    int pos = (iJD % _rowsPerSegment) * _rowSize;
+    seg.putDouble(pos, jd);
+    pos += 8;
+    for (int iBody = 0; iBody < _nbBodies; iBody++){
+      for (int iCoord = 0; iCoord < _nbCoords; iCoord++){
+        seg.putDouble(pos, row[iBody][iCoord]);
+        pos += 8;
+      }
+    }
+    setErrorTypes(iJD, errorTypes);
+  }// end setRow
+
+  //***************** getComputationExceptions() *******************************
+  /** Returns the computation exceptions stored in the file, in a new <CODE>Vector</CODE>. */
+  public java.util.Vector<ComputationException> getComputationExceptions(){
+    java.util.Vector<ComputationException> res = new java.util.Vector<ComputationException>();
+    int type;
+    for (int iJD = 0; iJD < _nbJDs; iJD++){
+      for (int iBody = 0; iBody < _nbBodies; iBody++){
+        type = getErrorType(iJD, iBody);
+        if(type != NO_ERROR)
+          res.add(new ComputationException(type, _bodyIndexes[iBody], getJD(iJD), _timeFrame));
+      }
+    }
+    return res;
+  }// end getComputationExceptions
+
+  //***************** flush() *******************************
+  /** Forces the written rows to be stored on the disk. */
+  public void flush(){
+    if(!_writable) return;
+    for (int i = 0; i < _segments.length; i++) _segments[i].force();
+    _errors.force();
+  }// end flush
+
+  //***************** close() *******************************
+  /** Flushes and closes the file ; mapped data stay readable until garbage collected,
+  but can't be written anymore. */
+  public void close() throws IOException{
+    if(_channel == null) return;
+    flush();
+    _writable = false;
+    _channel.close();
+    _channel = null;
+  }// end close
+
+  //***************** delete() *******************************
+  /** Closes the file without flushing it, and deletes it ; used when the computation of its rows failed.
+  <BR>On some systems, a file can't be deleted while a part of it is mapped ; it is then deleted when
+  the virtual machine exits.
+  @return true if the file was deleted immediately.
+  */
+  public boolean delete(){
+    _writable = false;
+    try{
+      if(_channel != null) _channel.close();
+    }
+    catch(IOException ioe){ // the file is deleted anyway
+    }
+    _channel = null;
+    if(_file.delete()) return true;
+    _file.deleteOnExit();
+    return false;
+  }// end delete
+
+  //=================================================================================
+  //                                 PRIVATE METHODS
+  //=================================================================================
+
+  //***************** map *******************************
+  // Maps the rows and the errors, which start at position 'start' of the file.
+  private void map(RandomAccessFile raf, long start, FileChannel.MapMode mode) throws IOException{
+    _rowSize = 8 * (1 + _nbBodies*_nbCoords);
+    _rowsPerSegment = Math.max(1, SEGMENT_SIZE / _rowSize);
+    int nbSegments = (_nbJDs + _rowsPerSegment - 1) / _rowsPerSegment;
+    long errorStart = start + (long)_nbJDs * _rowSize;
+    long errorSize = (long)_nbJDs * _nbBodies;
+    if(errorSize > Integer.MAX_VALUE)
+      throw new IOException("Too many dates and bodies for an ephemeris file");
+    if(mode == FileChannel.MapMode.READ_WRITE) raf.setLength(errorStart + errorSize);
+    else if(raf.length() < errorStart + errorSize) throw new IOException("Truncated ephemeris file : " + _file);
+    _channel = raf.getChannel();
+    _segments = new MappedByteBuffer[nbSegments];
+    long pos = start;
+    int nbRows;
+    for (int i = 0; i < nbSegments; i++){
+      nbRows = Math.min(_rowsPerSegment, _nbJDs - i*_rowsPerSegment);
+      _segments[i] = _channel.map(mode, pos, (long)nbRows * _rowSize);
+      pos += (long)nbRows * _rowSize;
+    }
+    _errors = _channel.map(mode, errorStart, errorSize);
+  }// end map
+
+  //***************** setErrorTypes *******************************
+  private void setErrorTypes(int iJD, int[] errorTypes){
+    for (int iBody = 0; iBody < _nbBodies; iBody++)
+      _errors.put(iJD*_nbBodies + iBody, (byte)(errorTypes == null ? NO_ERROR : errorTypes[iBody]));
+  }// end setErrorTypes
+
+}// end class EphemerisFile
@@ -0,0 +1,34 @@
+//*********************************************************************************
+// interface jephem.tools.EphemerisRowListener
+// Software released under the General Public License (version 2 or later), available at
+// http://www.gnu.org/copyleft/gpl.html
+//*********************************************************************************
+package jephem.tools;
+
+import jephem.astro.solarsystem.ComputationException;
+
+/******************************************************************************
+Receives the rows of an {@link Ephemeris} one by one, as soon as they are computed.
+<BR>Used with {@link Ephemeris#stream(int[], double[], int, int[], int[], int, int, double, String, EphemerisRowListener)},
+it permits to export or display an ephemeris while it is computed, with a memory independant from the number
+of dates.
+<BR>The listener is called by the computing thread, which waits for its return before computing the next
+row ; a slow listener thus slows down the computation instead of accumulating rows.
+
+@author Thierry Graff
+@history oct 19 2026 : creation.
+*********************************************************************************/
+public interface EphemerisRowListener{
+
+  /** Called when the coordinates of a date have been computed.
+  @param iJD Index of the date in the ephemeris.
+  @param jd The julian day, in the time frame of the ephemeris.
+  @param row The values, indexed by [iBody][iCoord], as in {@link Ephemeris#getData()} ;
+  <B>this array is reused</B> for the next rows and must be copied to be kept.
+  @param errors The computation exceptions of the bodies, indexed by iBody, null elements meaning no error ;
+  reused for the next rows.
+  @return true to continue the computation, false to stop it.
+  */
+  public boolean rowComputed(int iJD, double jd, double[][] row, ComputationException[] errors);
+
+}// end interface EphemerisRowListener
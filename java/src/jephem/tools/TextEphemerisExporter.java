@@ -0,0 +1,200 @@
+//*********************************************************************************
+// class jephem.tools.TextEphemerisExporter
+// Software released under the General Public License (version 2 or later), available at
+// http://www.gnu.org/copyleft/gpl.html
+//*********************************************************************************
+package jephem.tools;
+
+import jephem.astro.solarsystem.SolarSystem;
+import jephem.astro.spacetime.Space;
+import jephem.astro.spacetime.SpaceConstants;
+import jephem.astro.spacetime.Units;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/******************************************************************************
+Exports an {@link Ephemeris} as delimited text (CSV or TSV) : one header line, then one line per date,
+containing the julian day followed by the coordinates of each body.
+<BR>Numbers are formatted with a fixed number of fraction digits, directly in the buffer of the exporter,
+without <CODE>NumberFormat</CODE> nor intermediate <CODE>String</CODE>.
+<BR>Example :
+<BR>&nbsp;&nbsp;<CODE>FileChannel fc = new FileOutputStream(f).getChannel();</CODE>
+<BR>&nbsp;&nbsp;<CODE>new TextEphemerisExporter(fc, TextEphemerisExporter.CSV, ...).export(eph);</CODE>
+
+@author Thierry Graff
+@history oct 19 2026 : creation.
+*********************************************************************************/
+public class TextEphemerisExporter extends EphemerisExporter implements SpaceConstants{
+
+  //=================================================================================
+  //                                 CONSTANTS
+  //=================================================================================
+  /** Separator for comma separated values. */
+  public static final char CSV = ',';
+  /** Separator for tab separated values. */
+  public static final char TSV = '\t';
+
+  /** Default number of fraction digits. */
+  public static final int DEFAULT_FRACTION_DIGITS = 9;
+  /** Maximal number of fraction digits. */
+  public static final int MAX_FRACTION_DIGITS = 12;
+
+  /** Powers of ten, used by formatDouble(). */
+  private static final long[] POW10 = new long[MAX_FRACTION_DIGITS + 1];
+  static{
+    POW10[0] = 1;
+    for (int i = 1; i <= MAX_FRACTION_DIGITS; i++) POW10[i] = 10 * POW10[i - 1];
+  };
+
+  /** Maximal size of a formatted number. */
+  private static final int MAX_NUMBER_SIZE = 32;
+
+  /** Encoding of the header line, which contains the names of the bodies. */
+  public static final String CHARSET = "UTF-8";
+
+  /** Line separator used in the files (independant from the platform). */
+  private static final byte EOL = (byte)'\n';
+
+  //=================================================================================
+  //                                 INSTANCE VARIABLES
+  //=================================================================================
+  private byte _separator;
+  private int _fractionDigits = DEFAULT_FRACTION_DIGITS;
+  /** Buffer for one number. */
+  private byte[] _digits = new byte[MAX_NUMBER_SIZE];
+
+  //=================================================================================
+  //                                 CONSTRUCTORS
+  //=================================================================================
+
+  //***************** TextEphemerisExporter *******************************
+  /** Constructor ; parameters describing the ephemeris have the same meaning as in the constructors
+  of {@link Ephemeris}.
+  @param channel Where the text is written ; numbers are ASCII, the header is encoded in {@link #CHARSET}.
+  @param separator {@link #CSV}, {@link #TSV} or any other ASCII character.
+  */
+  public TextEphemerisExporter(WritableByteChannel channel,
+                               char   separator,
+                               int[]  bodyIndexes,
+                               int    timeFrame,
+                               int[]  whichCoords,
+                               int[]  coordUnits,
+                               int    frame,
+                               int    sphereCart){
+    super(channel, bodyIndexes, timeFrame, whichCoords, coordUnits, frame, sphereCart);
+    if(separator > 127) throw new IllegalArgumentException("'separator' must be an ASCII character");
+    _separator = (byte)separator;
+  }// end TextEphemerisExporter
+
+  //***************** TextEphemerisExporter(channel, separator, eph) *******************************
+  /** Constructor taking the description of the ephemeris from a computed ephemeris. */
+  public TextEphemerisExporter(WritableByteChannel channel, char separator, Ephemeris eph){
+    this(channel, separator, eph.getBodyIndexes(), eph.getTimeFrame(), eph.getWhichCoords(),
+         eph.getCoordUnits(), eph.getFrame(), eph.getSphereCart());
+  }// end TextEphemerisExporter
+
+  //=================================================================================
+  //                                 PUBLIC METHODS
+  //=================================================================================
+
+  //***************** setFractionDigits *******************************
+  /** Sets the number of digits written after the decimal point (default {@link #DEFAULT_FRACTION_DIGITS}). */
+  public void setFractionDigits(int fractionDigits){
+    if(fractionDigits < 0 || fractionDigits > MAX_FRACTION_DIGITS)
+      throw new IllegalArgumentException("'fractionDigits' must be between 0 and " + MAX_FRACTION_DIGITS);
+    _fractionDigits = fractionDigits;
+  }// end setFractionDigits
+
+  //***************** formatDouble *******************************
+  /** Writes a number in decimal notation with a fixed number of fraction digits.
+  <BR>Values too large to be rounded exactly, infinite or NaN are written with <CODE>Double.toString()</CODE>.
+  @param x The number to format.
+  @param fractionDigits The number of digits after the decimal point, from 0 to {@link #MAX_FRACTION_DIGITS}.
+  @param dst Where the characters are written, as ASCII bytes ; must have 32 bytes available from 'pos'.
+  @param pos Position in 'dst' of the first character.
+  @return The position following the last written character.
+  */
+  public static int formatDouble(double x, int fractionDigits, byte[] dst, int pos){
+    long scale = POW10[fractionDigits];
+    double abs = Math.abs(x);
+    if(!(abs * scale < 9.0e15)){ // also true for NaN
+      String str = Double.toString(x); // only ASCII characters
+      for (int i = 0; i < str.length(); i++) dst[pos++] = (byte)str.charAt(i);
+      return pos;
+    }
+    long scaled = Math.round(abs * scale);
+    if(x < 0 && scaled != 0) dst[pos++] = (byte)'-';
+    pos = writeDigits(scaled / scale, 1, dst, pos);
+    if(fractionDigits > 0){
+      dst[pos++] = (byte)'.';
+      pos = writeDigits(scaled % scale, fractionDigits, dst, pos);
+    }
+    return pos;
+  }// end formatDouble
+
+  //=================================================================================
+  //                                 PROTECTED METHODS
+  //=================================================================================
+
+  //***************** writeHeader *******************************
+  /** Writes the names of the columns : "JD", then "body coordinate (unit)" for each value. */
+  protected void writeHeader() throws IOException{
+    String[] labels = Space.getCoordGroupLabels(_sphereCart == CARTESIAN ? COORDGROUP_XYZ : Space.getCoordGroup(_frame));
+    StringBuffer sb = new StringBuffer("JD");
+    for (int iBody = 0; iBody < _bodyIndexes.length; iBody++){
+      for (int iCoord = 0; iCoord < _whichCoords.length; iCoord++){
+        sb.append((char)_separator).append(SolarSystem.getBodyName(_bodyIndexes[iBody])).append(' ');
+        if(_whichCoords[iCoord] < 3) sb.append(labels[_whichCoords[iCoord]]);
+        else sb.append(labels[_whichCoords[iCoord] - 3]).append('\'');
+        sb.append(" (").append(Units.getUnitLabel(_coordUnits[_whichCoords[iCoord]])).append(')');
+      }
+    }
+    byte[] bytes = sb.toString().getBytes(CHARSET);
+    for (int i = 0; i < bytes.length; ){
+      ensureRemaining(2);
+      int len = Math.min(bytes.length - i, _buffer.remaining() - 1);
+      _buffer.put(bytes, i, len);
+      i += len;
+    }
+    _buffer.put(EOL);
+  }// end writeHeader
+
+  //***************** writeRow *******************************
+  protected void writeRow(int iJD, double jd, double[][] row) throws IOException{
+    writeNumber(jd, 6);
+    for (int iBody = 0; iBody < row.length; iBody++){
+      for (int iCoord = 0; iCoord < row[iBody].length; iCoord++){
+        _buffer.put(_separator);
+        writeNumber(row[iBody][iCoord], _fractionDigits);
+      }
+    }
+    _buffer.put(EOL);
+  }// end writeRow
+
+  //=================================================================================
+  //                                 PRIVATE METHODS
+  //=================================================================================
+
+  //***************** writeNumber *******************************
+  // Formats a number in the buffer, keeping room for a separator or end of line.
+  private void writeNumber(double x, int fractionDigits) throws IOException{
+    ensureRemaining(MAX_NUMBER_SIZE + 2);
+    int len = formatDouble(x, fractionDigits, _digits, 0);
+    _buffer.put(_digits, 0, len);
+  }// end writeNumber
+
+  //***************** writeDigits *******************************
+  // Writes the decimal digits of a positive long, with at least 'minDigits' digits (left padded with 0).
+  private static int writeDigits(long n, int minDigits, byte[] dst, int pos){
+    int nbDigits = 1;
+    for (long p = 10; nbDigits < 19 && p <= n; p *= 10) nbDigits++;
+    if(nbDigits < minDigits) nbDigits = minDigits;
+    for (int i = pos + nbDigits - 1; i >= pos; i--){
+      dst[i] = (byte)('0' + (int)(n % 10));
+      n /= 10;
+    }
+    return pos + nbDigits;
+  }// end writeDigits
+
+}// end class TextEphemerisExporter